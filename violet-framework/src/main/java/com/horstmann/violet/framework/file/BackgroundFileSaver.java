@@ -0,0 +1,150 @@
+package com.horstmann.violet.framework.file;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Writes files in the background, one at a time and in the order they were requested. A write queued for a target which is
+ * still waiting for a previous write of the same target replaces it, so that a slow disk never piles up autosaves.
+ */
+public class BackgroundFileSaver
+{
+
+    private BackgroundFileSaver()
+    {
+        this.executor = Executors.newSingleThreadExecutor(new ThreadFactory()
+        {
+            @Override
+            public Thread newThread(Runnable r)
+            {
+                Thread thread = new Thread(r, THREAD_NAME);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * @return the unique instance
+     */
+    public static BackgroundFileSaver getInstance()
+    {
+        return INSTANCE;
+    }
+
+    /**
+     * Queues a write
+     * 
+     * @param target what is written (a file for example). If not null, a write of the same target which hasn't started yet
+     *            is replaced by this one.
+     * @param write
+     */
+    public void submit(Object target, Runnable write)
+    {
+        synchronized (this.pendingWrites)
+        {
+            if (target != null)
+            {
+                PendingWrite pendingWrite = this.pendingWrites.get(target);
+                if (pendingWrite != null)
+                {
+                    pendingWrite.write = write;
+                    return;
+                }
+            }
+            PendingWrite pendingWrite = new PendingWrite(target, write);
+            if (target != null)
+            {
+                this.pendingWrites.put(target, pendingWrite);
+            }
+            this.executor.execute(pendingWrite);
+        }
+    }
+
+    /**
+     * Blocks until all the writes queued so far are done. Needed before exiting or when a file is used right after being saved.
+     */
+    public void waitForPendingWrites()
+    {
+        Future<?> marker = this.executor.submit(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                // Writes are done in order, so every previous one is done when this one runs
+            }
+        });
+        boolean isInterrupted = false;
+        while (true)
+        {
+            try
+            {
+                marker.get();
+                break;
+            }
+            catch (InterruptedException e)
+            {
+                isInterrupted = true;
+            }
+            catch (ExecutionException e)
+            {
+                break;
+            }
+        }
+        if (isInterrupted)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private class PendingWrite implements Runnable
+    {
+        PendingWrite(Object target, Runnable write)
+        {
+            this.target = target;
+            this.write = write;
+        }
+
+        @Override
+        public void run()
+        {
+            Runnable writeToRun;
+            synchronized (pendingWrites)
+            {
+                if (this.target != null)
+                {
+                    pendingWrites.remove(this.target);
+                }
+                writeToRun = this.write;
+            }
+            try
+            {
+                writeToRun.run();
+            }
+            catch (RuntimeException e)
+            {
+                e.printStackTrace();
+            }
+        }
+
+        private final Object target;
+
+        /** Guarded by pendingWrites */
+        private Runnable write;
+    }
+
+    private static final String THREAD_NAME = "Violet file saver";
+
+    private static final BackgroundFileSaver INSTANCE = new BackgroundFileSaver();
+
+    private final ExecutorService executor;
+
+    /** Writes not started yet, by target */
+    private final Map<Object, PendingWrite> pendingWrites = new HashMap<Object, PendingWrite>();
+
+}
@@ -5,6 +5,10 @@ import com.horstmann.violet.framework.file.chooser.IFileChooserService;
 import com.horstmann.violet.framework.file.export.FileExportService;
 import com.horstmann.violet.framework.file.naming.ExtensionFilter;
 import com.horstmann.violet.framework.file.naming.FileNamingService;
+import com.horstmann.violet.framework.file.persistence.BinaryFilePersistenceService;
+import com.horstmann.violet.framework.file.persistence.ChangeJournal;
+import com.horstmann.violet.framework.file.persistence.FileFormatSelector;
+import com.horstmann.violet.framework.file.persistence.GraphSnapshot;
 import com.horstmann.violet.framework.file.persistence.IFilePersistenceService;
 import com.horstmann.violet.framework.file.persistence.IFileReader;
 import com.horstmann.violet.framework.file.persistence.IFileWriter;
@@ -29,6 +33,7 @@ import java.util.List;
 import javax.imageio.ImageIO;
 import javax.swing.ImageIcon;
 import javax.swing.JOptionPane;
+import javax.swing.SwingUtilities;
 
 public class GraphFile implements IGraphFile
 {
@@ -69,7 +74,7 @@ public class GraphFile implements IGraphFile
         InputStream in = fileOpener.getInputStream();
         if (in != null)
         {
-			this.graph = this.filePersistenceService.read(in);
+			this.graph = getFileFormatSelector().read(file.getFilename(), in);
 	
         }
         else
@@ -136,25 +141,108 @@ public class GraphFile implements IGraphFile
         try
         {
             IFileWriter fileSaver = getFileSaver(false);
-            OutputStream outputStream = fileSaver.getOutputStream();
-            this.filePersistenceService.write(this.graph, outputStream);
-            this.isSaveRequired = false;
-            fireGraphSaved();
+            if (fileSaver == null)
+            {
+                return;
+            }
             this.currentFilename = fileSaver.getFileDefinition().getFilename();
             this.currentDirectory = fileSaver.getFileDefinition().getDirectory();
+            saveInBackground(fileSaver);
         }
         catch (Exception e)
         {
             throw new RuntimeException(e);
         }
     }
+
+    /**
+     * Takes a snapshot of the graph and writes it in the background. From now on, the file is considered as saved, unless the
+     * write fails.
+     * 
+     * @param fileSaver
+     */
+    private void saveInBackground(final IFileWriter fileSaver)
+    {
+        final GraphSnapshot snapshot = GraphSnapshot.take(this.graph);
+        this.isSaveRequired = false;
+        BackgroundFileSaver.getInstance().submit(null, new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    writeSnapshot(snapshot, fileSaver);
+                    SwingUtilities.invokeLater(new Runnable()
+                    {
+                        @Override
+                        public void run()
+                        {
+                            fireGraphSaved();
+                        }
+                    });
+                }
+                catch (Exception e)
+                {
+                    isSaveRequired = true;
+                    final String message = MessageFormat.format(fileExportErrorMessage, e.getMessage());
+                    SwingUtilities.invokeLater(new Runnable()
+                    {
+                        @Override
+                        public void run()
+                        {
+                            fireGraphModified();
+                            JOptionPane.showMessageDialog(null, message, fileExportError, JOptionPane.ERROR_MESSAGE);
+                        }
+                    });
+                }
+            }
+        });
+    }
+
+    /**
+     * Writes a snapshot. Called from the background saver thread.<br/>
+     * The XHTML persistence service draws the diagram picture on this thread too. That's safe only
+     * because it draws the graph restored from the snapshot, which the EDT never sees, and not the graph being edited.
+     * 
+     * @param snapshot
+     * @param fileWriter
+     * @throws IOException
+     */
+    private void writeSnapshot(GraphSnapshot snapshot, IFileWriter fileWriter) throws IOException
+    {
+        boolean isWritten = false;
+        try
+        {
+            IFilePersistenceService persistenceService = getFileFormatSelector().getPersistenceService(
+                    fileWriter.getFileDefinition().getFilename());
+            snapshot.write(persistenceService, fileWriter.getOutputStream());
+            isWritten = true;
+        }
+        finally
+        {
+            if (!isWritten && fileWriter instanceof JFileWriter)
+            {
+                ((JFileWriter) fileWriter).discard();
+            }
+        }
+    }
+
+    @Override
+    public void waitForPendingSaves()
+    {
+        BackgroundFileSaver.getInstance().waitForPendingWrites();
+    }
     
 	@Override
 	public void autoSave(String fileDirectory) {
 		try {
 
 			if (this.autoSaveFileName == null) {
-					this.autoSaveFileName =  new SimpleDateFormat("yyyyMMdd_HHmmss").format(Calendar.getInstance().getTime()) + ".html";
+					// Autosaved in the format of the file
+					String extension = FileFormatSelector.isBinaryDiagram(this.currentFilename)
+							? BinaryFilePersistenceService.FILE_EXTENSION : ".html";
+					this.autoSaveFileName =  new SimpleDateFormat("yyyyMMdd_HHmmss").format(Calendar.getInstance().getTime()) + extension;
 				}
 			
 				if ((autoSaveFile == null) || ((autoSaveFile != null) && (!autoSaveFile.getAbsolutePath().contains(fileDirectory) == false))) {
@@ -163,18 +251,95 @@ public class GraphFile implements IGraphFile
 				}
 			
 			if (autoSaveFile.exists()) {
-			    JFileWriter jfilewriter = new JFileWriter(autoSaveFile);
-				this.filePersistenceService.write(this.graph, jfilewriter.getOutputStream());
+				final File backupFile = this.autoSaveFile;
+				final GraphSnapshot snapshot = GraphSnapshot.take(this.graph);
+				// Replaces the previous autosave of this file if it is still waiting
+				BackgroundFileSaver.getInstance().submit(backupFile, new Runnable() {
+					@Override
+					public void run() {
+						try {
+							writeSnapshot(snapshot, new JFileWriter(backupFile));
+						} catch (IOException e) {
+							throw new RuntimeException(e);
+						}
+					}
+				});
 			}
 		} catch (Exception e) {
 			throw new RuntimeException(e);
 		}
 	}
 	
+	@Override
+	public void autoSaveChanges(String fileDirectory) {
+		// A new journal starts with a snapshot, when the directory changes too
+		if ((this.journalFile == null) || !this.journalFile.getParentFile().equals(new File(fileDirectory))) {
+			String journalFileName = new SimpleDateFormat("yyyyMMdd_HHmmss").format(Calendar.getInstance().getTime()) + ChangeJournal.FILE_EXTENSION;
+			this.journalFile = new File(fileDirectory, journalFileName);
+			getChangeJournal().markAllChanged();
+		}
+		final File journalFile = this.journalFile;
+		final ChangeJournal.Record record = getChangeJournal().takeRecord();
+		if (record != null) {
+			// Never replaced by a later one : records only hold the changes since the previous one
+			BackgroundFileSaver.getInstance().submit(null, new Runnable() {
+				@Override
+				public void run() {
+					try {
+						record.write(journalFile);
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+				}
+			});
+		}
+	}
+
+    /**
+     * @return selector of the persistence service from the file extension
+     */
+    private FileFormatSelector getFileFormatSelector()
+    {
+        if (this.fileFormatSelector == null)
+        {
+            this.fileFormatSelector = new FileFormatSelector(this.filePersistenceService);
+        }
+        return this.fileFormatSelector;
+    }
+
+	@Override
+	public ChangeJournal getChangeJournal() {
+		if (this.changeJournal == null) {
+			this.changeJournal = new ChangeJournal(this.graph);
+		}
+		return this.changeJournal;
+	}
+
 	@Override
 	public void removeBackup() {
-		if ((autoSaveFile != null) && (autoSaveFile.exists())) {
-			autoSaveFile.delete();
+		if (journalFile != null) {
+			final File backupJournalFile = this.journalFile;
+			this.journalFile = null;
+			BackgroundFileSaver.getInstance().submit(null, new Runnable() {
+				@Override
+				public void run() {
+					if (backupJournalFile.exists()) {
+						backupJournalFile.delete();
+					}
+				}
+			});
+		}
+		if (autoSaveFile != null) {
+			final File backupFile = this.autoSaveFile;
+			// Queued too, so that a pending autosave doesn't bring the file back
+			BackgroundFileSaver.getInstance().submit(backupFile, new Runnable() {
+				@Override
+				public void run() {
+					if (backupFile.exists()) {
+						backupFile.delete();
+					}
+				}
+			});
 		}
 	}
 
@@ -182,6 +347,11 @@ public class GraphFile implements IGraphFile
     public void saveToGoogleDrive() throws GeneralSecurityException, IOException
     {
         save();
+        waitForPendingSaves();
+        if (this.isSaveRequired)
+        {
+            return;
+        }
 
         final GoogleDriveAgent googleDriveAgent = new GoogleDriveAgent();
         googleDriveAgent.saveFile(String.format("%s/%s", currentDirectory, currentFilename));
@@ -198,12 +368,9 @@ public class GraphFile implements IGraphFile
                 // This appends when the action is cancelled
                 return;
             }
-            OutputStream outputStream = fileSaver.getOutputStream();
-            this.filePersistenceService.write(this.graph, outputStream);
-            this.isSaveRequired = false;
             this.currentFilename = fileSaver.getFileDefinition().getFilename();
             this.currentDirectory = fileSaver.getFileDefinition().getDirectory();
-            fireGraphSaved();
+            saveInBackground(fileSaver);
         }
         catch (IOException e1)
         {
@@ -229,9 +396,10 @@ public class GraphFile implements IGraphFile
             if (isAskedForNewLocation)
             {
                 ExtensionFilter extensionFilter = this.fileNamingService.getExtensionFilter(this.graph);
+                // The last one is selected by default
                 ExtensionFilter[] array =
                 {
-                    extensionFilter
+                    this.fileNamingService.getBinaryExtensionFilter(), extensionFilter
                 };
                 return this.fileChooserService.chooseAndGetFileWriter(array);
             }
@@ -322,7 +490,14 @@ public class GraphFile implements IGraphFile
 
             try
             {
-                ImageIO.write(FileExportService.getImage(this.graph), format, out);
+                if (PNG_FORMAT.equalsIgnoreCase(format))
+                {
+                    FileExportService.exportToPng(this.graph, out);
+                }
+                else
+                {
+                    ImageIO.write(FileExportService.getImage(this.graph), format, out);
+                }
             }
             finally
             {
@@ -355,6 +530,8 @@ public class GraphFile implements IGraphFile
 	}
     
 
+    private static final String PNG_FORMAT = "png";
+
     private IGraph graph;
 
     /**
@@ -367,7 +544,10 @@ public class GraphFile implements IGraphFile
      */
     private String currentDirectory;
 
-    private boolean isSaveRequired = false;
+    /**
+     * Also reset by the background saver thread when a save fails
+     */
+    private volatile boolean isSaveRequired = false;
 
     @ResourceBundleBean(key = "dialog.export_to_clipboard.icon")
     private ImageIcon clipBoardDialogIcon;
@@ -393,6 +573,8 @@ public class GraphFile implements IGraphFile
     @InjectedBean
     private IFilePersistenceService filePersistenceService;
 
+    private FileFormatSelector fileFormatSelector;
+
     @ResourceBundleBean(key = "file.export.error.message")
     private String fileExportErrorMessage;
 
@@ -407,4 +589,7 @@ public class GraphFile implements IGraphFile
     private File autoSaveFile;
     private String autoSaveFileName;
 
+    private File journalFile;
+    private ChangeJournal changeJournal;
+
 }
@@ -1,5 +1,6 @@
 package com.horstmann.violet.framework.file;
 
+import com.horstmann.violet.framework.file.persistence.ChangeJournal;
 import com.horstmann.violet.product.diagram.abstracts.IGraph;
 import java.io.IOException;
 import java.io.OutputStream;
@@ -27,7 +28,7 @@ public interface IGraphFile extends IFile
     
     
     /**
-     * Saves the graph
+     * Saves the graph. The file is written in the background, listeners are informed when it is done.
      */
     public abstract void save();
 
@@ -35,6 +36,11 @@ public interface IGraphFile extends IFile
      * Saves the graph to a new URI (thiw will open a file chooser)
      */
     public abstract void saveToNewLocation();
+
+    /**
+     * Blocks until the saves requested so far are written. If one of them failed, the file is marked as modified again.
+     */
+    public abstract void waitForPendingSaves();
     
     /**
      * Adds a listener to be informed each time the graph is modified or saved
@@ -89,6 +95,20 @@ public interface IGraphFile extends IFile
     public String getDirectory();
     
     public abstract void autoSave(String autoSaveDirectory);
+
+    /**
+     * Autosaves the changes made since the last call by appending them to a journal file, which is read back like the
+     * other autosaved files
+     *
+     * @param autoSaveDirectory
+     */
+    public abstract void autoSaveChanges(String autoSaveDirectory);
+
+    /**
+     * @return journal of the changes made to the graph, told by the editor
+     */
+    public abstract ChangeJournal getChangeJournal();
+
     public abstract void autoSaveSettingsWasChanged();
     public abstract void removeBackup();
 
@@ -0,0 +1,352 @@
+package com.horstmann.violet.framework.file.export;
+
+import com.horstmann.violet.framework.file.persistence.FileFormatSelector;
+import com.horstmann.violet.framework.file.persistence.IFilePersistenceService;
+import com.horstmann.violet.product.diagram.abstracts.IGraph;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import javax.imageio.ImageIO;
+
+/**
+ * Exports diagram files to pictures without any user interface (run it with java.awt.headless=true). Files are read and
+ * exported concurrently by a fixed number of threads, so that at most one graph per thread is in memory.
+ */
+public class BatchExportService
+{
+
+    /**
+     * @param filePersistenceService service reading the diagram files, binary diagrams and journals excepted
+     * @param format pdf or any image format supported by ImageIO (png, jpg, bmp...)
+     * @param workerCount number of files exported at the same time
+     */
+    public BatchExportService(IFilePersistenceService filePersistenceService, String format, int workerCount)
+    {
+        this.format = format.toLowerCase(Locale.ENGLISH);
+        if (!PDF_FORMAT.equals(this.format) && !ImageIO.getImageWritersByFormatName(this.format).hasNext())
+        {
+            throw new IllegalArgumentException("Unsupported export format : " + format);
+        }
+        if (workerCount < 1)
+        {
+            throw new IllegalArgumentException("At least one worker is needed");
+        }
+        this.fileFormatSelector = new FileFormatSelector(filePersistenceService);
+        this.workerCount = workerCount;
+    }
+
+    /**
+     * Exports files. A file which cannot be exported doesn't stop the others.
+     *
+     * @param files diagram files
+     * @param outputDirectory where pictures are written, named after the diagram files (see getOutputFiles())
+     * @return one result per file, in the same order
+     * @throws InterruptedException
+     */
+    public List<Result> export(List<File> files, File outputDirectory) throws InterruptedException
+    {
+        List<File> outputFiles = getOutputFiles(files, outputDirectory);
+        ExecutorService executor = Executors.newFixedThreadPool(this.workerCount, new ThreadFactory()
+        {
+            @Override
+            public Thread newThread(Runnable r)
+            {
+                Thread thread = new Thread(r, THREAD_NAME);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        try
+        {
+            List<Future<Result>> futures = new ArrayList<Future<Result>>();
+            for (int i = 0; i < files.size(); i++)
+            {
+                final File aFile = files.get(i);
+                final File anOutputFile = outputFiles.get(i);
+                futures.add(executor.submit(new Callable<Result>()
+                {
+                    @Override
+                    public Result call()
+                    {
+                        return export(aFile, anOutputFile);
+                    }
+                }));
+            }
+            List<Result> results = new ArrayList<Result>();
+            for (Future<Result> aFuture : futures)
+            {
+                try
+                {
+                    results.add(aFuture.get());
+                }
+                catch (ExecutionException e)
+                {
+                    // Errors (out of memory...) are the only throwables not caught by export(File, File)
+                    throw new RuntimeException(e.getCause());
+                }
+            }
+            return results;
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    private Result export(File file, File outputFile)
+    {
+        Result result = new Result(file, outputFile);
+        try
+        {
+            long start = System.nanoTime();
+            IGraph graph = read(file);
+            long read = System.nanoTime();
+            FileExportService.layOut(graph);
+            write(graph, result.getOutputFile());
+            result.setDurations(read - start, System.nanoTime() - read);
+        }
+        catch (Exception e)
+        {
+            result.setError(e);
+        }
+        return result;
+    }
+
+    private IGraph read(File file) throws IOException
+    {
+        InputStream in = new FileInputStream(file);
+        try
+        {
+            return this.fileFormatSelector.read(file.getName(), in);
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+
+    private void write(IGraph graph, File outputFile) throws IOException
+    {
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(outputFile));
+        try
+        {
+            if (PDF_FORMAT.equals(this.format))
+            {
+                FileExportService.exportToPdf(graph, out);
+            }
+            else if (PNG_FORMAT.equals(this.format))
+            {
+                // Files are already exported in parallel : tiles are drawn by the worker exporting the file
+                new TiledPngExporter(graph, 1).export(out);
+            }
+            else
+            {
+                ImageIO.write(FileExportService.getImage(graph), this.format, out);
+            }
+        }
+        finally
+        {
+            out.close();
+        }
+    }
+
+    /**
+     * Names the pictures after the diagram files, with the extension of the export format (diagram.class.violet.html gives
+     * diagram.class.png). Diagrams with the same name (from different directories) are numbered after the first one
+     * (diagram.class-2.png...) so that no picture overwrites another one. Names are compared ignoring case, as file systems
+     * may do.
+     *
+     * @param files diagram files
+     * @param outputDirectory
+     * @return one picture file per diagram file, in the same order
+     */
+    private List<File> getOutputFiles(List<File> files, File outputDirectory)
+    {
+        Set<String> usedNames = new HashSet<String>();
+        List<File> outputFiles = new ArrayList<File>();
+        for (File aFile : files)
+        {
+            String baseName = getBaseName(aFile);
+            String name = baseName + "." + this.format;
+            for (int number = 2; !usedNames.add(name.toLowerCase(Locale.ENGLISH)); number++)
+            {
+                name = baseName + "-" + number + "." + this.format;
+            }
+            outputFiles.add(new File(outputDirectory, name));
+        }
+        return outputFiles;
+    }
+
+    /**
+     * @param file
+     * @return diagram file name without its extension (diagram.class.violet.html gives diagram.class)
+     */
+    private static String getBaseName(File file)
+    {
+        String name = file.getName();
+        int extensionIndex = name.toLowerCase(Locale.ENGLISH).lastIndexOf(DIAGRAM_EXTENSION);
+        if (extensionIndex <= 0)
+        {
+            extensionIndex = name.lastIndexOf('.');
+        }
+        if (extensionIndex > 0)
+        {
+            name = name.substring(0, extensionIndex);
+        }
+        return name;
+    }
+
+    /**
+     * Prints the duration of each export, then totals and throughput
+     *
+     * @param results
+     * @param elapsedNanos wall clock duration of the whole export
+     * @param out
+     */
+    public void printStatistics(List<Result> results, long elapsedNanos, PrintStream out)
+    {
+        int failureCount = 0;
+        long totalReadNanos = 0;
+        long totalExportNanos = 0;
+        long maxNanos = 0;
+        for (Result aResult : results)
+        {
+            if (!aResult.isSuccessful())
+            {
+                failureCount++;
+                out.println(aResult.getFile() + " : FAILED (" + getFirstLine(aResult.getError().toString()) + ")");
+                continue;
+            }
+            out.println(aResult.getFile() + " -> " + aResult.getOutputFile() + " : read " + toMillis(aResult.getReadNanos())
+                    + " ms, export " + toMillis(aResult.getExportNanos()) + " ms");
+            totalReadNanos += aResult.getReadNanos();
+            totalExportNanos += aResult.getExportNanos();
+            maxNanos = Math.max(maxNanos, aResult.getReadNanos() + aResult.getExportNanos());
+        }
+        int successCount = results.size() - failureCount;
+        out.println(successCount + " file(s) exported to " + this.format + ", " + failureCount + " failure(s), in "
+                + toMillis(elapsedNanos) + " ms with " + this.workerCount + " worker(s)");
+        if (successCount > 0)
+        {
+            out.println(String.format(Locale.ENGLISH, "Per file : read %d ms, export %d ms on average, %d ms at most",
+                    toMillis(totalReadNanos / successCount), toMillis(totalExportNanos / successCount), toMillis(maxNanos)));
+            out.println(String.format(Locale.ENGLISH, "Throughput : %.1f files/s", successCount * 1e9 / Math.max(1, elapsedNanos)));
+        }
+    }
+
+    /**
+     * Some exception messages (XStream ones) come with many lines of debugging information
+     */
+    private static String getFirstLine(String message)
+    {
+        int lineEnd = message.indexOf('\n');
+        return lineEnd < 0 ? message : message.substring(0, lineEnd).trim();
+    }
+
+    private static long toMillis(long nanos)
+    {
+        return nanos / 1000000;
+    }
+
+    /**
+     * Outcome of the export of one file
+     */
+    public static class Result
+    {
+
+        private Result(File file, File outputFile)
+        {
+            this.file = file;
+            this.outputFile = outputFile;
+        }
+
+        public File getFile()
+        {
+            return this.file;
+        }
+
+        public File getOutputFile()
+        {
+            return this.outputFile;
+        }
+
+        public boolean isSuccessful()
+        {
+            return this.error == null;
+        }
+
+        /**
+         * @return why the file wasn't exported (null if it was)
+         */
+        public Exception getError()
+        {
+            return this.error;
+        }
+
+        public long getReadNanos()
+        {
+            return this.readNanos;
+        }
+
+        /**
+         * @return time spent laying out, drawing and writing the picture
+         */
+        public long getExportNanos()
+        {
+            return this.exportNanos;
+        }
+
+        private void setDurations(long readNanos, long exportNanos)
+        {
+            this.readNanos = readNanos;
+            this.exportNanos = exportNanos;
+        }
+
+        private void setError(Exception error)
+        {
+            this.error = error;
+        }
+
+        private final File file;
+
+        private final File outputFile;
+
+        private Exception error;
+
+        private long readNanos;
+
+        private long exportNanos;
+
+    }
+
+    private static final String PDF_FORMAT = "pdf";
+
+    private static final String PNG_FORMAT = "png";
+
+    private static final String DIAGRAM_EXTENSION = ".violet";
+
+    private static final String THREAD_NAME = "Violet batch exporter";
+
+    private final FileFormatSelector fileFormatSelector;
+
+    private final String format;
+
+    private final int workerCount;
+
+}
@@ -27,9 +27,11 @@ import com.horstmann.violet.product.diagram.abstracts.IGraph;
 import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.Graphics2D;
+import java.awt.RenderingHints;
 import java.awt.Toolkit;
 import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
+import java.io.IOException;
 import java.io.OutputStream;
 import org.freehep.graphicsbase.util.UserProperties;
 import org.freehep.graphicsio.pdf.PDFGraphics2D;
@@ -57,6 +59,62 @@ public class FileExportService
         return image;
     }
 
+    /**
+     * Return the image corresponding to the graph, drawn at a smaller scale if it is wider or higher than the given size
+     *
+     * @param graph
+     * @param maxSize maximum width and height of the image
+     * @return bufferedImage
+     */
+    public static BufferedImage getImage(IGraph graph, int maxSize)
+    {
+        Rectangle2D bounds = graph.getClipBounds();
+        int width = (int) bounds.getWidth() + 50;
+        int height = (int) bounds.getHeight() + 50;
+        if (width <= maxSize && height <= maxSize)
+        {
+            return getImage(graph);
+        }
+        double scale = Math.min((double) maxSize / width, (double) maxSize / height);
+
+        BufferedImage image = new BufferedImage(Math.max(1, (int) (width * scale)), Math.max(1, (int) (height * scale)),
+                BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2 = (Graphics2D) image.getGraphics();
+        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g2.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        g2.scale(scale, scale);
+
+        renderIGraphToGraphics2D(graph, g2);
+
+        return image;
+    }
+
+    /**
+     * Export graph to PNG. Unlike getImage(), the picture is drawn and written in tiles, so that large graphs don't need a huge
+     * amount of memory.
+     *
+     * @param graph
+     * @param out output stream to file (not closed)
+     * @throws IOException
+     */
+    public static void exportToPng(IGraph graph, OutputStream out) throws IOException
+    {
+        new TiledPngExporter(graph).export(out);
+    }
+
+    /**
+     * Draws a graph which has never been drawn (a graph just read from a file for example) on a dummy picture. Text sizes and edge
+     * paths are only computed while drawing, and they are needed to get the bounds of the graph.
+     *
+     * @param graph
+     */
+    public static void layOut(IGraph graph)
+    {
+        Graphics2D g2 = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB).createGraphics();
+        graph.draw(g2);
+        g2.dispose();
+    }
+
     /**
      * Export graph to clipboard (Do not merge with exportToClipBoard(). Used in Eclipse plugin)
      *
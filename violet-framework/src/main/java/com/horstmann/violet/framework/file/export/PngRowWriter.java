@@ -0,0 +1,279 @@
+package com.horstmann.violet.framework.file.export;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Writes an opaque RGB picture in PNG format one pixel row at a time, from top to bottom, so that the whole picture never has
+ * to be in memory. Each row gets the PNG filter which makes it the most compressible (same heuristic as libpng).
+ */
+class PngRowWriter
+{
+
+    /**
+     * Writes the PNG header
+     *
+     * @param out destination (not closed)
+     * @param width in pixels
+     * @param height in pixels
+     * @throws IOException
+     */
+    PngRowWriter(OutputStream out, int width, int height) throws IOException
+    {
+        this.out = new DataOutputStream(out);
+        this.width = width;
+        this.height = height;
+        this.previousRow = new byte[width * BYTES_PER_PIXEL];
+        this.currentRow = new byte[width * BYTES_PER_PIXEL];
+        this.filteredRow = new byte[1 + width * BYTES_PER_PIXEL];
+        this.out.write(SIGNATURE);
+        DataOutputStream header = new DataOutputStream(this.chunkData);
+        header.writeInt(width);
+        header.writeInt(height);
+        header.writeByte(BIT_DEPTH);
+        header.writeByte(COLOR_TYPE_RGB);
+        header.writeByte(0); // Deflate
+        header.writeByte(0); // Adaptive filtering
+        header.writeByte(0); // Not interlaced
+        writeChunk(IHDR);
+        this.deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        this.imageData = new DeflaterOutputStream(new ImageDataOutputStream(), this.deflater, CHUNK_SIZE);
+    }
+
+    /**
+     * @param rgb pixels of the row (alpha is ignored)
+     * @param offset index of the first pixel of the row in rgb
+     * @throws IOException
+     */
+    void writeRow(int[] rgb, int offset) throws IOException
+    {
+        if (this.writtenRows == this.height)
+        {
+            throw new IllegalStateException("All the rows have already been written");
+        }
+        for (int i = 0; i < this.width; i++)
+        {
+            int pixel = rgb[offset + i];
+            this.currentRow[i * BYTES_PER_PIXEL] = (byte) (pixel >> 16);
+            this.currentRow[i * BYTES_PER_PIXEL + 1] = (byte) (pixel >> 8);
+            this.currentRow[i * BYTES_PER_PIXEL + 2] = (byte) pixel;
+        }
+        int filter = getBestFilter();
+        filter(filter);
+        this.imageData.write(this.filteredRow);
+        byte[] swap = this.previousRow;
+        this.previousRow = this.currentRow;
+        this.currentRow = swap;
+        this.writtenRows++;
+    }
+
+    /**
+     * Writes the end of the picture. All the rows must have been written.
+     *
+     * @throws IOException
+     */
+    void finish() throws IOException
+    {
+        if (this.writtenRows != this.height)
+        {
+            throw new IllegalStateException(this.writtenRows + " rows written out of " + this.height);
+        }
+        this.imageData.finish();
+        close();
+        writeChunk(IEND);
+        this.out.flush();
+    }
+
+    /**
+     * Frees the native memory of the compressor. Must be called when the picture can't be finished. Can be called more than once.
+     */
+    void close()
+    {
+        this.deflater.end();
+    }
+
+    /**
+     * @return the filter giving the lowest sum of filtered bytes taken as signed values : the lower, the more compressible
+     */
+    private int getBestFilter()
+    {
+        byte[] row = this.currentRow;
+        byte[] above = this.previousRow;
+        long[] scores = new long[FILTER_PAETH + 1];
+        for (int i = 0; i < row.length; i++)
+        {
+            int x = row[i] & 0xFF;
+            int a = i >= BYTES_PER_PIXEL ? row[i - BYTES_PER_PIXEL] & 0xFF : 0;
+            int b = above[i] & 0xFF;
+            int c = i >= BYTES_PER_PIXEL ? above[i - BYTES_PER_PIXEL] & 0xFF : 0;
+            scores[FILTER_NONE] += Math.abs((byte) x);
+            scores[FILTER_SUB] += Math.abs((byte) (x - a));
+            scores[FILTER_UP] += Math.abs((byte) (x - b));
+            scores[FILTER_AVERAGE] += Math.abs((byte) (x - ((a + b) >> 1)));
+            scores[FILTER_PAETH] += Math.abs((byte) (x - getPaethPredictor(a, b, c)));
+        }
+        int bestFilter = FILTER_NONE;
+        for (int filter = FILTER_SUB; filter <= FILTER_PAETH; filter++)
+        {
+            if (scores[filter] < scores[bestFilter])
+            {
+                bestFilter = filter;
+            }
+        }
+        return bestFilter;
+    }
+
+    /**
+     * Filters the current row into filteredRow
+     */
+    private void filter(int filter)
+    {
+        byte[] row = this.currentRow;
+        byte[] above = this.previousRow;
+        byte[] result = this.filteredRow;
+        result[0] = (byte) filter;
+        for (int i = 0; i < row.length; i++)
+        {
+            int x = row[i] & 0xFF;
+            int a = i >= BYTES_PER_PIXEL ? row[i - BYTES_PER_PIXEL] & 0xFF : 0;
+            int b = above[i] & 0xFF;
+            int predictor;
+            switch (filter)
+            {
+            case FILTER_SUB:
+                predictor = a;
+                break;
+            case FILTER_UP:
+                predictor = b;
+                break;
+            case FILTER_AVERAGE:
+                predictor = (a + b) >> 1;
+                break;
+            case FILTER_PAETH:
+                int c = i >= BYTES_PER_PIXEL ? above[i - BYTES_PER_PIXEL] & 0xFF : 0;
+                predictor = getPaethPredictor(a, b, c);
+                break;
+            default:
+                predictor = 0;
+            }
+            result[i + 1] = (byte) (x - predictor);
+        }
+    }
+
+    private static int getPaethPredictor(int a, int b, int c)
+    {
+        int p = a + b - c;
+        int pa = Math.abs(p - a);
+        int pb = Math.abs(p - b);
+        int pc = Math.abs(p - c);
+        if (pa <= pb && pa <= pc)
+        {
+            return a;
+        }
+        return pb <= pc ? b : c;
+    }
+
+    /**
+     * Writes chunkData as a chunk of the given type then clears it
+     */
+    private void writeChunk(byte[] type) throws IOException
+    {
+        writeChunk(type, this.chunkData.getBuffer(), 0, this.chunkData.size());
+        this.chunkData.reset();
+    }
+
+    private void writeChunk(byte[] type, byte[] data, int offset, int length) throws IOException
+    {
+        CRC32 crc = new CRC32();
+        crc.update(type);
+        crc.update(data, offset, length);
+        this.out.writeInt(length);
+        this.out.write(type);
+        this.out.write(data, offset, length);
+        this.out.writeInt((int) crc.getValue());
+    }
+
+    /**
+     * Compressed image data, sent in IDAT chunks
+     */
+    private class ImageDataOutputStream extends OutputStream
+    {
+        @Override
+        public void write(int b) throws IOException
+        {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException
+        {
+            if (len > 0)
+            {
+                writeChunk(IDAT, b, off, len);
+            }
+        }
+    }
+
+    /**
+     * ByteArrayOutputStream giving access to its buffer
+     */
+    private static class ChunkDataOutputStream extends ByteArrayOutputStream
+    {
+        byte[] getBuffer()
+        {
+            return this.buf;
+        }
+    }
+
+    private static final byte[] SIGNATURE = { (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n' };
+
+    private static final byte[] IHDR = { 'I', 'H', 'D', 'R' };
+
+    private static final byte[] IDAT = { 'I', 'D', 'A', 'T' };
+
+    private static final byte[] IEND = { 'I', 'E', 'N', 'D' };
+
+    private static final int BIT_DEPTH = 8;
+
+    private static final int COLOR_TYPE_RGB = 2;
+
+    private static final int BYTES_PER_PIXEL = 3;
+
+    private static final int FILTER_NONE = 0;
+
+    private static final int FILTER_SUB = 1;
+
+    private static final int FILTER_UP = 2;
+
+    private static final int FILTER_AVERAGE = 3;
+
+    private static final int FILTER_PAETH = 4;
+
+    private static final int CHUNK_SIZE = 65536;
+
+    private final DataOutputStream out;
+
+    private final int width;
+
+    private final int height;
+
+    private final ChunkDataOutputStream chunkData = new ChunkDataOutputStream();
+
+    private final Deflater deflater;
+
+    private final DeflaterOutputStream imageData;
+
+    private byte[] previousRow;
+
+    private byte[] currentRow;
+
+    private final byte[] filteredRow;
+
+    private int writtenRows;
+
+}
@@ -0,0 +1,257 @@
+package com.horstmann.violet.framework.file.export;
+
+import com.horstmann.violet.framework.file.persistence.GraphSnapshot;
+import com.horstmann.violet.product.diagram.abstracts.IGraph;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Exports a graph to PNG without holding the whole picture in memory, however large the graph is. The picture is drawn in
+ * square tiles (only the elements around a tile are drawn) and encoded one row of tiles at a time, while the next row is drawn.
+ * The tiles of a row are drawn in parallel. Drawing a graph isn't thread safe (it refreshes the spatial index, text is laid out
+ * lazily...), so each worker thread draws its own copy of the graph.
+ * <p>
+ * Peak memory: two rows of (slightly padded) tiles across the full picture width (the row being encoded and the row being drawn), plus one
+ * restored copy of the graph per worker thread. Nothing is copied when the tiles are drawn on the calling thread.
+ */
+class TiledPngExporter
+{
+
+    /**
+     * @param graph to export. Must not be changed during the export.
+     */
+    TiledPngExporter(IGraph graph)
+    {
+        this(graph, MAX_WORKERS);
+    }
+
+    /**
+     * @param graph to export. Must not be changed during the export.
+     * @param maxWorkers maximum number of threads drawing tiles (1 to draw them on the calling thread)
+     */
+    TiledPngExporter(IGraph graph, int maxWorkers)
+    {
+        this.graph = graph;
+        this.maxWorkers = maxWorkers;
+        this.bounds = graph.getClipBounds();
+        this.width = (int) this.bounds.getWidth() + MARGIN;
+        this.height = (int) this.bounds.getHeight() + MARGIN;
+        this.columns = (this.width + TILE_SIZE - 1) / TILE_SIZE;
+        this.rows = (this.height + TILE_SIZE - 1) / TILE_SIZE;
+    }
+
+    /**
+     * @param out destination (not closed)
+     * @throws IOException
+     */
+    void export(OutputStream out) throws IOException
+    {
+        PngRowWriter pngWriter = new PngRowWriter(out, this.width, this.height);
+        try
+        {
+            int workerCount = Math.min(Runtime.getRuntime().availableProcessors(), Math.min(this.columns, this.maxWorkers));
+            if (workerCount < 2 || this.columns * this.rows < MIN_TILES_FOR_WORKERS)
+            {
+                for (int row = 0; row < this.rows; row++)
+                {
+                    List<BufferedImage> tiles = new ArrayList<BufferedImage>();
+                    for (int column = 0; column < this.columns; column++)
+                    {
+                        tiles.add(drawTile(this.graph, column, row));
+                    }
+                    encodeTileRow(pngWriter, tiles);
+                }
+            }
+            else
+            {
+                exportWithWorkers(pngWriter, workerCount);
+            }
+            pngWriter.finish();
+        }
+        finally
+        {
+            pngWriter.close();
+        }
+    }
+
+    private void exportWithWorkers(PngRowWriter pngWriter, int workerCount) throws IOException
+    {
+        final GraphSnapshot snapshot = GraphSnapshot.take(this.graph);
+        final ThreadLocal<IGraph> graphCopies = new ThreadLocal<IGraph>()
+        {
+            @Override
+            protected IGraph initialValue()
+            {
+                IGraph graphCopy = snapshot.restore();
+                // Like the graph on screen was before the export
+                FileExportService.layOut(graphCopy);
+                return graphCopy;
+            }
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(workerCount, new ThreadFactory()
+        {
+            @Override
+            public Thread newThread(Runnable r)
+            {
+                Thread thread = new Thread(r, THREAD_NAME);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        try
+        {
+            List<Future<BufferedImage>> nextRow = submitTileRow(executor, graphCopies, 0);
+            for (int row = 0; row < this.rows; row++)
+            {
+                List<Future<BufferedImage>> currentRow = nextRow;
+                if (row + 1 < this.rows)
+                {
+                    nextRow = submitTileRow(executor, graphCopies, row + 1);
+                }
+                List<BufferedImage> tiles = new ArrayList<BufferedImage>();
+                for (Future<BufferedImage> aTile : currentRow)
+                {
+                    tiles.add(getTile(aTile));
+                }
+                encodeTileRow(pngWriter, tiles);
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    private List<Future<BufferedImage>> submitTileRow(ExecutorService executor, final ThreadLocal<IGraph> graphCopies,
+            final int row)
+    {
+        List<Future<BufferedImage>> tiles = new ArrayList<Future<BufferedImage>>();
+        for (int column = 0; column < this.columns; column++)
+        {
+            final int tileColumn = column;
+            tiles.add(executor.submit(new Callable<BufferedImage>()
+            {
+                @Override
+                public BufferedImage call()
+                {
+                    return drawTile(graphCopies.get(), tileColumn, row);
+                }
+            }));
+        }
+        return tiles;
+    }
+
+    private static BufferedImage getTile(Future<BufferedImage> tile) throws IOException
+    {
+        try
+        {
+            return tile.get();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IOException("Image export interrupted", e);
+        }
+        catch (ExecutionException e)
+        {
+            if (e.getCause() instanceof RuntimeException)
+            {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * Draws a tile the same way FileExportService.getImage() draws the whole picture. The tile is drawn with a padding around
+     * it : antialiased strokes which cross the tile border are then rasterized as they are in the whole picture, whereas
+     * clipping them at the border changes the pixels along it on some JDKs.
+     * 
+     * @return tile with its padding
+     */
+    private BufferedImage drawTile(IGraph graphToDraw, int column, int row)
+    {
+        int x = column * TILE_SIZE - TILE_PADDING;
+        int y = row * TILE_SIZE - TILE_PADDING;
+        int tileWidth = Math.min(TILE_SIZE, this.width - column * TILE_SIZE) + 2 * TILE_PADDING;
+        int tileHeight = Math.min(TILE_SIZE, this.height - row * TILE_SIZE) + 2 * TILE_PADDING;
+        BufferedImage tile = new BufferedImage(tileWidth, tileHeight, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2 = tile.createGraphics();
+        try
+        {
+            g2.setColor(Color.WHITE);
+            g2.fillRect(0, 0, tileWidth, tileHeight);
+            g2.translate(-this.bounds.getX() - x, -this.bounds.getY() - y);
+            g2.clip(new Rectangle2D.Double(this.bounds.getX() + x, this.bounds.getY() + y, tileWidth, tileHeight));
+            g2.setColor(Color.BLACK);
+            g2.setBackground(Color.WHITE);
+            graphToDraw.draw(g2);
+        }
+        finally
+        {
+            g2.dispose();
+        }
+        return tile;
+    }
+
+    /**
+     * Encodes a row of tiles, without their padding
+     */
+    private void encodeTileRow(PngRowWriter pngWriter, List<BufferedImage> tiles) throws IOException
+    {
+        int[] pixelRow = new int[this.width];
+        int tileHeight = tiles.get(0).getHeight() - 2 * TILE_PADDING;
+        for (int y = 0; y < tileHeight; y++)
+        {
+            for (int column = 0; column < tiles.size(); column++)
+            {
+                BufferedImage aTile = tiles.get(column);
+                aTile.getRGB(TILE_PADDING, TILE_PADDING + y, aTile.getWidth() - 2 * TILE_PADDING, 1, pixelRow,
+                        column * TILE_SIZE, this.width);
+            }
+            pngWriter.writeRow(pixelRow, 0);
+        }
+    }
+
+    /** Same margin as FileExportService.getImage() */
+    private static final int MARGIN = 50;
+
+    private static final int TILE_SIZE = 512;
+
+    /** Wider than what antialiasing spreads around a stroke */
+    private static final int TILE_PADDING = 8;
+
+    /** Smaller pictures aren't worth copying the graph */
+    private static final int MIN_TILES_FOR_WORKERS = 8;
+
+    private static final int MAX_WORKERS = 8;
+
+    private static final String THREAD_NAME = "Violet image exporter";
+
+    private final IGraph graph;
+
+    private final int maxWorkers;
+
+    private final Rectangle2D bounds;
+
+    private final int width;
+
+    private final int height;
+
+    private final int columns;
+
+    private final int rows;
+
+}
@@ -21,6 +21,7 @@
 
 package com.horstmann.violet.framework.file.naming;
 
+import com.horstmann.violet.framework.file.persistence.BinaryFilePersistenceService;
 import com.horstmann.violet.framework.injection.bean.ManiocFramework.InjectedBean;
 import com.horstmann.violet.framework.injection.bean.ManiocFramework.ManagedBean;
 import com.horstmann.violet.framework.injection.resources.ResourceBundleInjector;
@@ -28,6 +29,7 @@ import com.horstmann.violet.framework.injection.resources.annotation.ResourceBun
 import com.horstmann.violet.framework.plugin.IDiagramPlugin;
 import com.horstmann.violet.framework.plugin.PluginRegistry;
 import com.horstmann.violet.product.diagram.abstracts.IGraph;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
@@ -112,7 +114,8 @@ public class FileNamingService
     public ExtensionFilter[] getFileFilters()
     {
         Map<Class<? extends IGraph>, ExtensionFilter> filters = getExtensionFilters();
-        Collection<ExtensionFilter> values = filters.values();
+        List<ExtensionFilter> values = new ArrayList<ExtensionFilter>(filters.values());
+        values.add(getBinaryExtensionFilter());
         return (ExtensionFilter[]) values.toArray(new ExtensionFilter[values.size()]);
     }
 
@@ -131,6 +134,14 @@ public class FileNamingService
         return filters.get(IGraph.class);
     }
 
+    /**
+     * @return the file filter of binary diagrams, whatever their type
+     */
+    public ExtensionFilter getBinaryExtensionFilter()
+    {
+        return new ExtensionFilter(this.binaryFileFilterName, BinaryFilePersistenceService.FILE_EXTENSION);
+    }
+
     /**
      * @return the extension filter for image export
      */
@@ -189,6 +200,9 @@ public class FileNamingService
     @ResourceBundleBean(key="files.global.extension")
     private String defaultFileExtension;
 
+    @ResourceBundleBean(key="files.binary.name")
+    private String binaryFileFilterName;
+
     @InjectedBean
     private PluginRegistry pluginRegistry;
 
@@ -0,0 +1,77 @@
+package com.horstmann.violet.framework.file.persistence;
+
+import java.nio.charset.Charset;
+
+/**
+ * Constants of the binary diagram format.
+ *
+ * A file starts with MAGIC and a version byte, followed by the tokens of the XStream node tree : START_NODE (name), ATTRIBUTE
+ * (name, value), VALUE (value) and END_NODE. Names and short values are written once and then referred to by their index in a
+ * string table built while reading. Numbers (ids, coordinates, colors...) and UUIDs are stored in binary form when their text
+ * can be restored exactly.
+ */
+final class BinaryDiagramFormat
+{
+    private BinaryDiagramFormat()
+    {
+    }
+
+    static final byte[] MAGIC = { 'V', 'L', 'T', 'B' };
+
+    static final int VERSION = 1;
+
+    static final int START_NODE = 1;
+
+    static final int ATTRIBUTE = 2;
+
+    static final int VALUE = 3;
+
+    static final int END_NODE = 4;
+
+    /** String written inline, not put in the string table */
+    static final int STRING = 0;
+
+    /** String written inline and added to the string table */
+    static final int NEW_SHARED_STRING = 1;
+
+    /** Index in the string table */
+    static final int SHARED_STRING = 2;
+
+    /** Integer text (zigzag varint) */
+    static final int INTEGER = 3;
+
+    /** Double text with no fraction part, like "150.0" (zigzag varint) */
+    static final int INTEGRAL_DOUBLE = 4;
+
+    /** Other double text (8 bytes) */
+    static final int DOUBLE = 5;
+
+    /** UUID text (16 bytes) */
+    static final int UUID = 6;
+
+    /** Longer strings are not shared */
+    static final int MAX_SHARED_STRING_LENGTH = 64;
+
+    static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * @param header first bytes of a file
+     * @param length number of bytes in header
+     * @return true if they start with MAGIC
+     */
+    static boolean isBinaryDiagram(byte[] header, int length)
+    {
+        if (length < MAGIC.length)
+        {
+            return false;
+        }
+        for (int i = 0; i < MAGIC.length; i++)
+        {
+            if (header[i] != MAGIC[i])
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,316 @@
+package com.horstmann.violet.framework.file.persistence;
+
+import com.thoughtworks.xstream.converters.ErrorWriter;
+import com.thoughtworks.xstream.io.AbstractReader;
+import com.thoughtworks.xstream.io.StreamException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Reads the XStream node tree of a diagram from a buffer holding a whole file in the binary diagram format (see
+ * {@link BinaryDiagramFormat}). Like the other XStream readers, it starts positioned on the root node.
+ */
+class BinaryDiagramReader extends AbstractReader
+{
+
+    /**
+     * @param buffer file content, from its current position
+     */
+    BinaryDiagramReader(ByteBuffer buffer)
+    {
+        this.buffer = buffer;
+        try
+        {
+            byte[] magic = new byte[BinaryDiagramFormat.MAGIC.length];
+            buffer.get(magic);
+            if (!BinaryDiagramFormat.isBinaryDiagram(magic, magic.length))
+            {
+                throw new StreamException("Not a binary diagram");
+            }
+            int version = buffer.get();
+            if (version > BinaryDiagramFormat.VERSION)
+            {
+                throw new StreamException("Unsupported binary diagram version " + version);
+            }
+            readNextToken();
+            moveDown();
+        }
+        catch (BufferUnderflowException e)
+        {
+            throw new StreamException("Unexpected end of binary diagram", e);
+        }
+    }
+
+    @Override
+    public boolean hasMoreChildren()
+    {
+        return this.nextToken == BinaryDiagramFormat.START_NODE;
+    }
+
+    @Override
+    public String peekNextChild()
+    {
+        return hasMoreChildren() ? this.nextNodeName : null;
+    }
+
+    @Override
+    public void moveDown()
+    {
+        if (!hasMoreChildren())
+        {
+            throw new StreamException("No child node to move down to");
+        }
+        try
+        {
+            Node node = new Node(this.nextNodeName);
+            readNextToken();
+            while (this.nextToken == BinaryDiagramFormat.ATTRIBUTE)
+            {
+                node.attributeNames.add(readName());
+                node.attributeValues.add(readValue());
+                readNextToken();
+            }
+            if (this.nextToken == BinaryDiagramFormat.VALUE)
+            {
+                node.value = readValue();
+                readNextToken();
+            }
+            this.nodes.add(node);
+        }
+        catch (BufferUnderflowException e)
+        {
+            throw new StreamException("Unexpected end of binary diagram", e);
+        }
+    }
+
+    @Override
+    public void moveUp()
+    {
+        while (hasMoreChildren())
+        {
+            moveDown();
+            moveUp();
+        }
+        if (this.nextToken != BinaryDiagramFormat.END_NODE)
+        {
+            throw new StreamException("Corrupted binary diagram : end of node expected");
+        }
+        this.nodes.remove(this.nodes.size() - 1);
+        try
+        {
+            readNextToken();
+        }
+        catch (BufferUnderflowException e)
+        {
+            throw new StreamException("Unexpected end of binary diagram", e);
+        }
+    }
+
+    @Override
+    public String getNodeName()
+    {
+        return getCurrentNode().name;
+    }
+
+    @Override
+    public String getValue()
+    {
+        String value = getCurrentNode().value;
+        return value == null ? "" : value;
+    }
+
+    @Override
+    public String getAttribute(String name)
+    {
+        Node node = getCurrentNode();
+        int index = node.attributeNames.indexOf(name);
+        return index < 0 ? null : node.attributeValues.get(index);
+    }
+
+    @Override
+    public String getAttribute(int index)
+    {
+        return getCurrentNode().attributeValues.get(index);
+    }
+
+    @Override
+    public int getAttributeCount()
+    {
+        return getCurrentNode().attributeNames.size();
+    }
+
+    @Override
+    public String getAttributeName(int index)
+    {
+        return getCurrentNode().attributeNames.get(index);
+    }
+
+    @Override
+    public Iterator<String> getAttributeNames()
+    {
+        return getCurrentNode().attributeNames.iterator();
+    }
+
+    @Override
+    public void appendErrors(ErrorWriter errorWriter)
+    {
+        errorWriter.add("position", Integer.toString(this.buffer.position()));
+    }
+
+    @Override
+    public void close()
+    {
+    }
+
+    private Node getCurrentNode()
+    {
+        return this.nodes.get(this.nodes.size() - 1);
+    }
+
+    /**
+     * Reads the type of the next token (and its name for a node start). The end of the file counts as END_NODE.
+     */
+    private void readNextToken()
+    {
+        if (!this.buffer.hasRemaining())
+        {
+            this.nextToken = BinaryDiagramFormat.END_NODE;
+            return;
+        }
+        this.nextToken = this.buffer.get();
+        if (this.nextToken == BinaryDiagramFormat.START_NODE)
+        {
+            this.nextNodeName = readName();
+        }
+    }
+
+    private String readName()
+    {
+        int position = this.buffer.position();
+        long index = readVarint();
+        if (index != 0)
+        {
+            return getSharedString(index - 1, position);
+        }
+        String name = readString();
+        this.sharedStrings.add(name);
+        return name;
+    }
+
+    private String readValue()
+    {
+        int type = this.buffer.get();
+        switch (type)
+        {
+        case BinaryDiagramFormat.STRING:
+            return readString();
+        case BinaryDiagramFormat.NEW_SHARED_STRING:
+            String value = readString();
+            this.sharedStrings.add(value);
+            return value;
+        case BinaryDiagramFormat.SHARED_STRING:
+            int position = this.buffer.position();
+            return getSharedString(readVarint(), position);
+        case BinaryDiagramFormat.INTEGER:
+            return Long.toString(readSignedVarint());
+        case BinaryDiagramFormat.INTEGRAL_DOUBLE:
+            return Double.toString(readSignedVarint());
+        case BinaryDiagramFormat.DOUBLE:
+            return Double.toString(Double.longBitsToDouble(this.buffer.getLong()));
+        case BinaryDiagramFormat.UUID:
+            long mostSignificantBits = this.buffer.getLong();
+            return new UUID(mostSignificantBits, this.buffer.getLong()).toString();
+        default:
+            throw new StreamException("Corrupted binary diagram : unknown value type " + type);
+        }
+    }
+
+    private String getSharedString(long index, int position)
+    {
+        if (index < 0 || index >= this.sharedStrings.size())
+        {
+            throw new StreamException("Corrupted binary diagram : shared string " + index + " at position " + position
+                    + " isn't in the string table (" + this.sharedStrings.size() + " strings)");
+        }
+        return this.sharedStrings.get((int) index);
+    }
+
+    private String readString()
+    {
+        int position = this.buffer.position();
+        long length = readVarint();
+        if (length < 0 || length > this.buffer.remaining())
+        {
+            throw new StreamException("Corrupted binary diagram : string of " + length + " bytes at position " + position
+                    + " goes past the end (" + this.buffer.remaining() + " bytes left)");
+        }
+        return readString((int) length);
+    }
+
+    private String readString(int length)
+    {
+        if (this.buffer.hasArray())
+        {
+            int offset = this.buffer.arrayOffset() + this.buffer.position();
+            this.buffer.position(this.buffer.position() + length);
+            return new String(this.buffer.array(), offset, length, BinaryDiagramFormat.UTF_8);
+        }
+        byte[] bytes = new byte[length];
+        this.buffer.get(bytes);
+        return new String(bytes, BinaryDiagramFormat.UTF_8);
+    }
+
+    private long readSignedVarint()
+    {
+        long value = readVarint();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private long readVarint()
+    {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do
+        {
+            b = this.buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        }
+        while ((b & 0x80) != 0);
+        return value;
+    }
+
+    private static class Node
+    {
+        Node(String name)
+        {
+            this.name = name;
+        }
+
+        private final String name;
+
+        private final List<String> attributeNames = new ArrayList<String>(2);
+
+        private final List<String> attributeValues = new ArrayList<String>(2);
+
+        private String value;
+    }
+
+    private final ByteBuffer buffer;
+
+    /** Nodes from the root to the current one */
+    private final List<Node> nodes = new ArrayList<Node>();
+
+    /** Strings in the order they were met */
+    private final List<String> sharedStrings = new ArrayList<String>();
+
+    private int nextToken;
+
+    private String nextNodeName;
+
+}
@@ -0,0 +1,318 @@
+package com.horstmann.violet.framework.file.persistence;
+
+import com.thoughtworks.xstream.io.AbstractWriter;
+import com.thoughtworks.xstream.io.StreamException;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Writes the XStream node tree of a diagram in the binary diagram format (see {@link BinaryDiagramFormat})
+ */
+class BinaryDiagramWriter extends AbstractWriter
+{
+
+    /**
+     * @param out destination, closed with the writer
+     */
+    BinaryDiagramWriter(OutputStream out)
+    {
+        this.out = new BufferedOutputStream(out, BUFFER_SIZE);
+        try
+        {
+            this.out.write(BinaryDiagramFormat.MAGIC);
+            this.out.write(BinaryDiagramFormat.VERSION);
+        }
+        catch (IOException e)
+        {
+            throw new StreamException(e);
+        }
+    }
+
+    @Override
+    public void startNode(String name)
+    {
+        try
+        {
+            this.out.write(BinaryDiagramFormat.START_NODE);
+            writeName(name);
+        }
+        catch (IOException e)
+        {
+            throw new StreamException(e);
+        }
+    }
+
+    @Override
+    public void addAttribute(String name, String value)
+    {
+        try
+        {
+            this.out.write(BinaryDiagramFormat.ATTRIBUTE);
+            writeName(name);
+            writeValue(value);
+        }
+        catch (IOException e)
+        {
+            throw new StreamException(e);
+        }
+    }
+
+    @Override
+    public void setValue(String text)
+    {
+        try
+        {
+            this.out.write(BinaryDiagramFormat.VALUE);
+            writeValue(text);
+        }
+        catch (IOException e)
+        {
+            throw new StreamException(e);
+        }
+    }
+
+    @Override
+    public void endNode()
+    {
+        try
+        {
+            this.out.write(BinaryDiagramFormat.END_NODE);
+        }
+        catch (IOException e)
+        {
+            throw new StreamException(e);
+        }
+    }
+
+    @Override
+    public void flush()
+    {
+        try
+        {
+            this.out.flush();
+        }
+        catch (IOException e)
+        {
+            throw new StreamException(e);
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        try
+        {
+            this.out.close();
+        }
+        catch (IOException e)
+        {
+            throw new StreamException(e);
+        }
+    }
+
+    /**
+     * Names are always shared : index + 1, or 0 followed by the name the first time
+     */
+    private void writeName(String name) throws IOException
+    {
+        Integer index = this.sharedStrings.get(name);
+        if (index != null)
+        {
+            writeVarint(index.intValue() + 1);
+            return;
+        }
+        writeVarint(0);
+        writeString(name);
+        this.sharedStrings.put(name, Integer.valueOf(this.sharedStrings.size()));
+    }
+
+    private void writeValue(String value) throws IOException
+    {
+        if (isNumberLike(value))
+        {
+            if (isCanonicalLong(value))
+            {
+                this.out.write(BinaryDiagramFormat.INTEGER);
+                writeSignedVarint(Long.parseLong(value));
+                return;
+            }
+            double number = parseCanonicalDouble(value);
+            if (!Double.isNaN(number))
+            {
+                long integralPart = (long) number;
+                if (integralPart == number && Math.abs(integralPart) < MAX_EXACT_LONG && !isNegativeZero(number))
+                {
+                    this.out.write(BinaryDiagramFormat.INTEGRAL_DOUBLE);
+                    writeSignedVarint(integralPart);
+                }
+                else
+                {
+                    this.out.write(BinaryDiagramFormat.DOUBLE);
+                    writeLong(Double.doubleToLongBits(number));
+                }
+                return;
+            }
+        }
+        if (value.length() == UUID_LENGTH && value.charAt(8) == '-')
+        {
+            UUID uuid = parseCanonicalUuid(value);
+            if (uuid != null)
+            {
+                this.out.write(BinaryDiagramFormat.UUID);
+                writeLong(uuid.getMostSignificantBits());
+                writeLong(uuid.getLeastSignificantBits());
+                return;
+            }
+        }
+        if (value.length() > BinaryDiagramFormat.MAX_SHARED_STRING_LENGTH)
+        {
+            this.out.write(BinaryDiagramFormat.STRING);
+            writeString(value);
+            return;
+        }
+        Integer index = this.sharedStrings.get(value);
+        if (index != null)
+        {
+            this.out.write(BinaryDiagramFormat.SHARED_STRING);
+            writeVarint(index.intValue());
+            return;
+        }
+        this.out.write(BinaryDiagramFormat.NEW_SHARED_STRING);
+        writeString(value);
+        this.sharedStrings.put(value, Integer.valueOf(this.sharedStrings.size()));
+    }
+
+    private static boolean isNumberLike(String value)
+    {
+        if (value.isEmpty() || value.length() > MAX_NUMBER_LENGTH)
+        {
+            return false;
+        }
+        char first = value.charAt(0);
+        return first == '-' || (first >= '0' && first <= '9');
+    }
+
+    /**
+     * @return true if Long.toString() would give back the same text
+     */
+    private static boolean isCanonicalLong(String value)
+    {
+        int start = value.charAt(0) == '-' ? 1 : 0;
+        int length = value.length() - start;
+        if (length == 0 || length > 18 || (value.charAt(start) == '0' && (length > 1 || start == 1)))
+        {
+            return false;
+        }
+        for (int i = start; i < value.length(); i++)
+        {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9')
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the double or NaN if Double.toString() wouldn't give back the same text
+     */
+    private static double parseCanonicalDouble(String value)
+    {
+        for (int i = 0; i < value.length(); i++)
+        {
+            char c = value.charAt(i);
+            if ((c < '0' || c > '9') && c != '-' && c != '.' && c != 'E')
+            {
+                return Double.NaN;
+            }
+        }
+        try
+        {
+            double number = Double.parseDouble(value);
+            return Double.toString(number).equals(value) ? number : Double.NaN;
+        }
+        catch (NumberFormatException e)
+        {
+            return Double.NaN;
+        }
+    }
+
+    private static boolean isNegativeZero(double number)
+    {
+        return number == 0 && Double.doubleToRawLongBits(number) != 0;
+    }
+
+    /**
+     * @return the UUID or null if UUID.toString() wouldn't give back the same text
+     */
+    private static UUID parseCanonicalUuid(String value)
+    {
+        for (int i = 0; i < value.length(); i++)
+        {
+            char c = value.charAt(i);
+            if ((c < '0' || c > '9') && (c < 'a' || c > 'f') && c != '-')
+            {
+                return null;
+            }
+        }
+        try
+        {
+            UUID uuid = UUID.fromString(value);
+            return uuid.toString().equals(value) ? uuid : null;
+        }
+        catch (IllegalArgumentException e)
+        {
+            return null;
+        }
+    }
+
+    private void writeString(String value) throws IOException
+    {
+        byte[] bytes = value.getBytes(BinaryDiagramFormat.UTF_8);
+        writeVarint(bytes.length);
+        this.out.write(bytes);
+    }
+
+    private void writeSignedVarint(long value) throws IOException
+    {
+        writeVarint((value << 1) ^ (value >> 63));
+    }
+
+    private void writeVarint(long value) throws IOException
+    {
+        while ((value & ~0x7FL) != 0)
+        {
+            this.out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        this.out.write((int) value);
+    }
+
+    private void writeLong(long value) throws IOException
+    {
+        for (int shift = 56; shift >= 0; shift -= 8)
+        {
+            this.out.write((int) (value >>> shift));
+        }
+    }
+
+    private static final int BUFFER_SIZE = 65536;
+
+    private static final int UUID_LENGTH = 36;
+
+    private static final int MAX_NUMBER_LENGTH = 32;
+
+    /** Doubles with no fraction part smaller than this are written as integers */
+    private static final long MAX_EXACT_LONG = 1L << 53;
+
+    private final OutputStream out;
+
+    /** Index of each string already written in the string table */
+    private final Map<String, Integer> sharedStrings = new HashMap<String, Integer>();
+
+}
@@ -0,0 +1,100 @@
+package com.horstmann.violet.framework.file.persistence;
+
+import com.horstmann.violet.framework.injection.bean.ManiocFramework.ManagedBean;
+import com.horstmann.violet.product.diagram.abstracts.IGraph;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Saves diagrams in a compact binary format (see {@link BinaryDiagramFormat}). Diagrams are converted to the same node tree
+ * as with XStreamBasedPersistenceService, so every node and edge type supported by XStream is supported here too.
+ *
+ * Binary diagram files have their own extension (see FileFormatSelector). Files which aren't in this format (i.e. renamed
+ * XHTML files) are read by XHTMLPersistenceService.
+ */
+@ManagedBean(registeredManually=true)
+public class BinaryFilePersistenceService implements IFilePersistenceService
+{
+
+    @Override
+    public void write(IGraph graph, OutputStream out)
+    {
+        BinaryDiagramWriter writer = new BinaryDiagramWriter(out);
+        this.xstreamService.write(graph, writer);
+        writer.close();
+    }
+
+    @Override
+    public IGraph read(InputStream in) throws IOException
+    {
+        ByteBuffer content = readContent(in);
+        in.close();
+        if (!BinaryDiagramFormat.isBinaryDiagram(content.array(), content.limit()))
+        {
+            return getOtherFormatService().read(new ByteArrayInputStream(content.array(), 0, content.limit()));
+        }
+        return this.xstreamService.read(new BinaryDiagramReader(content));
+    }
+
+    /**
+     * Reads a whole stream. Files are read with a single call to their channel.
+     *
+     * @param in
+     * @return content (backed by an array)
+     * @throws IOException
+     */
+    private ByteBuffer readContent(InputStream in) throws IOException
+    {
+        if (in instanceof FileInputStream)
+        {
+            FileChannel channel = ((FileInputStream) in).getChannel();
+            long size = channel.size() - channel.position();
+            if (size < Integer.MAX_VALUE)
+            {
+                ByteBuffer content = ByteBuffer.allocate((int) size);
+                while (content.hasRemaining())
+                {
+                    if (channel.read(content) < 0)
+                    {
+                        break;
+                    }
+                }
+                content.flip();
+                return content;
+            }
+        }
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int count;
+        while ((count = in.read(buffer)) != -1)
+        {
+            content.write(buffer, 0, count);
+        }
+        return ByteBuffer.wrap(content.toByteArray());
+    }
+
+    private IFilePersistenceService getOtherFormatService()
+    {
+        if (this.otherFormatService == null)
+        {
+            this.otherFormatService = new XHTMLPersistenceService();
+        }
+        return this.otherFormatService;
+    }
+
+    /** Extension of binary diagram files */
+    public static final String FILE_EXTENSION = ".violet.bin";
+
+    private static final int BUFFER_SIZE = 65536;
+
+    private XStreamBasedPersistenceService xstreamService = new XStreamBasedPersistenceService();
+
+    private IFilePersistenceService otherFormatService;
+
+}
@@ -0,0 +1,562 @@
+package com.horstmann.violet.framework.file.persistence;
+
+import com.horstmann.violet.product.diagram.abstracts.IGraph;
+import com.horstmann.violet.product.diagram.abstracts.IIdentifiable;
+import com.horstmann.violet.product.diagram.abstracts.edge.IEdge;
+import com.horstmann.violet.product.diagram.abstracts.node.INode;
+import com.thoughtworks.xstream.io.HierarchicalStreamReader;
+import com.thoughtworks.xstream.io.StreamException;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * Records the changes made to a graph as records appended to a journal file, so that autosaving costs as much as what was
+ * edited rather than as the whole graph.<br/>
+ * Editor behaviors tell the journal which nodes and edges changed. Each record then holds the new state of these elements only
+ * (other elements are referred to by id) and the ids of removed ones. From time to time, and whenever the journal can't tell
+ * what changed, a record holds a snapshot of the whole graph instead and the file is rewritten from it.<br/>
+ * A journal file is read back by replaying its records on the last snapshot. A record cut by a crash is detected by its
+ * checksum and ignored, with all the ones after it.
+ */
+public class ChangeJournal
+{
+
+    /**
+     * @param graph journaled graph
+     */
+    public ChangeJournal(IGraph graph)
+    {
+        this.graph = graph;
+    }
+
+    /**
+     * Records the new state of a node or an edge (added or modified) at the next record
+     *
+     * @param element
+     */
+    public void elementChanged(IIdentifiable element)
+    {
+        if (this.isSnapshotRequired || element.getId() == null)
+        {
+            return;
+        }
+        String id = element.getId().getValue();
+        this.removedIds.remove(id);
+        this.changedElements.put(id, element);
+        checkPendingChangesCount();
+    }
+
+    /**
+     * Records the removal of a node or an edge at the next record
+     *
+     * @param element
+     */
+    public void elementRemoved(IIdentifiable element)
+    {
+        if (this.isSnapshotRequired || element.getId() == null)
+        {
+            return;
+        }
+        String id = element.getId().getValue();
+        this.changedElements.remove(id);
+        this.removedIds.add(id);
+        checkPendingChangesCount();
+    }
+
+    /**
+     * Makes the next record a snapshot of the whole graph. To be called after changes which can't be told element by element.
+     */
+    public void markAllChanged()
+    {
+        this.isSnapshotRequired = true;
+        this.changedElements.clear();
+        this.removedIds.clear();
+    }
+
+    /**
+     * Takes the changes made since the last record. Must be called from the thread which modifies the graph.
+     *
+     * @return the record to write or null if nothing changed
+     */
+    public Record takeRecord()
+    {
+        if (!this.isSnapshotRequired && this.changedElements.isEmpty() && this.removedIds.isEmpty())
+        {
+            return null;
+        }
+        boolean isSnapshot = this.isSnapshotRequired || !this.isIncrementalRecordPossible || !isConsistent()
+                || this.recordsSinceSnapshot >= MAX_RECORDS_BETWEEN_SNAPSHOTS || this.bytesSinceSnapshot > this.lastSnapshotSize;
+        Record record = isSnapshot ? takeSnapshotRecord() : takeChangesRecord();
+        this.changedElements.clear();
+        this.removedIds.clear();
+        return record;
+    }
+
+    /**
+     * @param header first bytes of a file
+     * @param length number of bytes in header
+     * @return true if the file is a change journal
+     */
+    public static boolean isChangeJournal(byte[] header, int length)
+    {
+        if (length < MAGIC.length)
+        {
+            return false;
+        }
+        for (int i = 0; i < MAGIC.length; i++)
+        {
+            if (header[i] != MAGIC[i])
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Rebuilds a graph from a journal file
+     *
+     * @param in journal content (closed when done)
+     * @return graph as of the last complete record
+     * @throws IOException
+     */
+    public static IGraph read(InputStream in) throws IOException
+    {
+        DataInputStream dataInput = new DataInputStream(in);
+        try
+        {
+            byte[] magic = new byte[MAGIC.length];
+            dataInput.readFully(magic);
+            if (!isChangeJournal(magic, magic.length) || dataInput.read() > VERSION)
+            {
+                throw new IOException("Unsupported change journal");
+            }
+            JournalReplay replay = new JournalReplay();
+            byte[] payload;
+            int type;
+            while ((type = dataInput.read()) != -1 && (payload = readPayload(dataInput, type)) != null)
+            {
+                if (type == SNAPSHOT_RECORD)
+                {
+                    replay.applySnapshot(payload);
+                }
+                else if (type == CHANGES_RECORD)
+                {
+                    replay.applyChanges(payload);
+                }
+            }
+            return replay.getGraph();
+        }
+        finally
+        {
+            dataInput.close();
+        }
+    }
+
+    /**
+     * @return the payload of the record or null if the record is incomplete or corrupted
+     */
+    private static byte[] readPayload(DataInputStream dataInput, int type) throws IOException
+    {
+        try
+        {
+            int length = dataInput.readInt();
+            if (length < 0 || length > MAX_RECORD_LENGTH)
+            {
+                return null;
+            }
+            byte[] payload = new byte[length];
+            dataInput.readFully(payload);
+            int checksum = dataInput.readInt();
+            return checksum == getChecksum(type, payload) ? payload : null;
+        }
+        catch (EOFException e)
+        {
+            return null;
+        }
+    }
+
+    private static int getChecksum(int type, byte[] payload)
+    {
+        CRC32 crc = new CRC32();
+        crc.update(type);
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Changes which were marked since the last record but which would be too long to keep are recorded with a snapshot
+     */
+    private void checkPendingChangesCount()
+    {
+        if (this.changedElements.size() + this.removedIds.size() > MAX_PENDING_CHANGES)
+        {
+            markAllChanged();
+        }
+    }
+
+    /**
+     * @return true if applying the pending changes to the last recorded elements gives as many elements as the graph has. If
+     *         not, a change was missed.
+     */
+    private boolean isConsistent()
+    {
+        int expectedCount = this.recordedIds.size();
+        for (String anId : this.changedElements.keySet())
+        {
+            if (!this.recordedIds.contains(anId))
+            {
+                expectedCount++;
+            }
+        }
+        for (String anId : this.removedIds)
+        {
+            if (this.recordedIds.contains(anId))
+            {
+                expectedCount--;
+            }
+        }
+        return expectedCount == this.graph.getAllNodes().size() + this.graph.getAllEdges().size();
+    }
+
+    private Record takeSnapshotRecord()
+    {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream(INITIAL_BUFFER_SIZE);
+        BINARY_SERVICE.write(this.graph, payload);
+        this.recordedIds.clear();
+        this.isIncrementalRecordPossible = true;
+        for (INode aNode : this.graph.getAllNodes())
+        {
+            this.isIncrementalRecordPossible &= aNode.getId() != null && this.recordedIds.add(aNode.getId().getValue());
+        }
+        for (IEdge anEdge : this.graph.getAllEdges())
+        {
+            this.isIncrementalRecordPossible &= anEdge.getId() != null && this.recordedIds.add(anEdge.getId().getValue());
+        }
+        this.isSnapshotRequired = false;
+        this.recordsSinceSnapshot = 0;
+        this.bytesSinceSnapshot = 0;
+        this.lastSnapshotSize = payload.size();
+        this.generation++;
+        return new Record(SNAPSHOT_RECORD, this.generation, payload.toByteArray());
+    }
+
+    private Record takeChangesRecord()
+    {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        BinaryDiagramWriter writer = new BinaryDiagramWriter(payload);
+        writer.startNode(CHANGES_NODE);
+        for (Map.Entry<String, IIdentifiable> anEntry : this.changedElements.entrySet())
+        {
+            writer.startNode(ELEMENT_NODE);
+            writer.addAttribute(ID_ATTRIBUTE, anEntry.getKey());
+            XSTREAM_SERVICE.writeElementState(anEntry.getValue(), writer);
+            writer.endNode();
+            this.recordedIds.add(anEntry.getKey());
+        }
+        for (String anId : this.removedIds)
+        {
+            writer.startNode(REMOVED_NODE);
+            writer.addAttribute(ID_ATTRIBUTE, anId);
+            writer.endNode();
+            this.recordedIds.remove(anId);
+        }
+        writer.endNode();
+        writer.close();
+        this.recordsSinceSnapshot++;
+        this.bytesSinceSnapshot += payload.size();
+        return new Record(CHANGES_RECORD, this.generation, payload.toByteArray());
+    }
+
+    /**
+     * Changes to write to the journal file
+     */
+    public class Record
+    {
+        private Record(int type, int generation, byte[] payload)
+        {
+            this.type = type;
+            this.generation = generation;
+            this.payload = payload;
+        }
+
+        /**
+         * Writes the record. A snapshot replaces the file content, other records are appended to it. Can be called from any
+         * thread, in the order records were taken. A record which doesn't apply to the file content (its snapshot couldn't be
+         * written, the file was deleted or written by someone else...) is dropped. If the write fails or the record is
+         * dropped, the next record will be a snapshot.
+         *
+         * @param journalFile
+         * @throws IOException
+         */
+        public void write(File journalFile) throws IOException
+        {
+            synchronized (ChangeJournal.this)
+            {
+                if (this.type == CHANGES_RECORD
+                        && (this.generation != writtenGeneration || journalFile.length() != writtenLength))
+                {
+                    isSnapshotRequired = true;
+                    return;
+                }
+                boolean isWritten = false;
+                try
+                {
+                    if (this.type == SNAPSHOT_RECORD)
+                    {
+                        JFileWriter fileWriter = new JFileWriter(journalFile);
+                        OutputStream out = fileWriter.getOutputStream();
+                        try
+                        {
+                            out.write(MAGIC);
+                            out.write(VERSION);
+                            writeTo(out);
+                            out.close();
+                        }
+                        finally
+                        {
+                            fileWriter.discard();
+                        }
+                        writtenGeneration = this.generation;
+                        writtenLength = journalFile.length();
+                    }
+                    else
+                    {
+                        FileOutputStream out = new FileOutputStream(journalFile, true);
+                        try
+                        {
+                            writeTo(out);
+                            out.getFD().sync();
+                        }
+                        finally
+                        {
+                            out.close();
+                        }
+                        writtenLength += RECORD_FRAMING_LENGTH + this.payload.length;
+                    }
+                    isWritten = true;
+                }
+                finally
+                {
+                    if (!isWritten)
+                    {
+                        writtenGeneration = NO_GENERATION;
+                        isSnapshotRequired = true;
+                    }
+                }
+            }
+        }
+
+        private void writeTo(OutputStream out) throws IOException
+        {
+            DataOutputStream dataOutput = new DataOutputStream(out);
+            dataOutput.write(this.type);
+            dataOutput.writeInt(this.payload.length);
+            dataOutput.write(this.payload);
+            dataOutput.writeInt(getChecksum(this.type, this.payload));
+            dataOutput.flush();
+        }
+
+        private final int type;
+
+        /** Snapshot this record applies to */
+        private final int generation;
+
+        private final byte[] payload;
+    }
+
+    /**
+     * Applies the records of a journal file
+     */
+    private static class JournalReplay
+    {
+        void applySnapshot(byte[] payload)
+        {
+            this.graph = XSTREAM_SERVICE.read(new BinaryDiagramReader(ByteBuffer.wrap(payload)));
+            this.elementsById.clear();
+            this.updatedElements.clear();
+            // Root nodes first, in the graph order (getAllNodes() has children first)
+            List<INode> allNodes = new ArrayList<INode>(this.graph.getAllNodes());
+            for (int i = allNodes.size() - 1; i >= 0; i--)
+            {
+                INode aNode = allNodes.get(i);
+                this.elementsById.put(aNode.getId().getValue(), aNode);
+            }
+            for (IEdge anEdge : this.graph.getAllEdges())
+            {
+                this.elementsById.put(anEdge.getId().getValue(), anEdge);
+            }
+        }
+
+        void applyChanges(byte[] payload)
+        {
+            if (this.graph == null)
+            {
+                throw new StreamException("Change journal doesn't start with a snapshot");
+            }
+            // First pass : creates new elements, so that states can refer to each other
+            HierarchicalStreamReader reader = new BinaryDiagramReader(ByteBuffer.wrap(payload));
+            while (reader.hasMoreChildren())
+            {
+                reader.moveDown();
+                String id = reader.getAttribute(ID_ATTRIBUTE);
+                if (ELEMENT_NODE.equals(reader.getNodeName()) && !this.elementsById.containsKey(id))
+                {
+                    reader.moveDown();
+                    this.elementsById.put(id, (IIdentifiable) XSTREAM_SERVICE.newElement(reader));
+                    reader.moveUp();
+                }
+                reader.moveUp();
+            }
+            // Second pass : sets states then removes elements
+            List<String> removedIds = new ArrayList<String>();
+            reader = new BinaryDiagramReader(ByteBuffer.wrap(payload));
+            while (reader.hasMoreChildren())
+            {
+                reader.moveDown();
+                String id = reader.getAttribute(ID_ATTRIBUTE);
+                if (ELEMENT_NODE.equals(reader.getNodeName()))
+                {
+                    IIdentifiable element = this.elementsById.get(id);
+                    reader.moveDown();
+                    XSTREAM_SERVICE.readElementState(reader, element, this.elementsById);
+                    reader.moveUp();
+                    this.updatedElements.add(element);
+                }
+                else if (REMOVED_NODE.equals(reader.getNodeName()))
+                {
+                    removedIds.add(id);
+                }
+                reader.moveUp();
+            }
+            for (String anId : removedIds)
+            {
+                this.updatedElements.remove(this.elementsById.remove(anId));
+            }
+        }
+
+        IGraph getGraph() throws IOException
+        {
+            if (this.graph == null)
+            {
+                throw new IOException("Change journal doesn't contain any snapshot");
+            }
+            List<INode> rootNodes = new ArrayList<INode>();
+            List<IEdge> edges = new ArrayList<IEdge>();
+            for (IIdentifiable anElement : this.elementsById.values())
+            {
+                if (anElement instanceof INode && ((INode) anElement).getParent() == null)
+                {
+                    rootNodes.add((INode) anElement);
+                }
+                else if (anElement instanceof IEdge)
+                {
+                    edges.add((IEdge) anElement);
+                }
+            }
+            XSTREAM_SERVICE.setGraphElements(this.graph, rootNodes, edges);
+            XSTREAM_SERVICE.attachNodes(this.graph);
+            // Root nodes and edges have just been rebuilt
+            for (IIdentifiable anElement : this.updatedElements)
+            {
+                if (anElement instanceof INode && ((INode) anElement).getParent() != null)
+                {
+                    ((INode) anElement).reconstruction();
+                }
+            }
+            return this.graph;
+        }
+
+        private IGraph graph;
+
+        /** Elements in the order they were added */
+        private final Map<String, IIdentifiable> elementsById = new LinkedHashMap<String, IIdentifiable>();
+
+        private final Set<IIdentifiable> updatedElements = new LinkedHashSet<IIdentifiable>();
+    }
+
+    /** Extension of journal files */
+    public static final String FILE_EXTENSION = ".journal";
+
+    static final byte[] MAGIC = { 'V', 'L', 'T', 'J' };
+
+    static final int VERSION = 1;
+
+    private static final int SNAPSHOT_RECORD = 1;
+
+    private static final int CHANGES_RECORD = 2;
+
+    private static final String CHANGES_NODE = "changes";
+
+    private static final String ELEMENT_NODE = "element";
+
+    private static final String REMOVED_NODE = "removed";
+
+    private static final String ID_ATTRIBUTE = "id";
+
+    /** Type, length and checksum */
+    private static final int RECORD_FRAMING_LENGTH = 9;
+
+    private static final int NO_GENERATION = -1;
+
+    private static final int MAX_RECORDS_BETWEEN_SNAPSHOTS = 200;
+
+    private static final int MAX_PENDING_CHANGES = 5000;
+
+    private static final int MAX_RECORD_LENGTH = 256 * 1024 * 1024;
+
+    private static final int INITIAL_BUFFER_SIZE = 65536;
+
+    private static final BinaryFilePersistenceService BINARY_SERVICE = new BinaryFilePersistenceService();
+
+    private static final XStreamBasedPersistenceService XSTREAM_SERVICE = new XStreamBasedPersistenceService();
+
+    private final IGraph graph;
+
+    /** Changed elements since the last record, by id */
+    private final Map<String, IIdentifiable> changedElements = new LinkedHashMap<String, IIdentifiable>();
+
+    /** Removed elements since the last record */
+    private final Set<String> removedIds = new LinkedHashSet<String>();
+
+    /** Elements of the graph according to the records written so far */
+    private final Set<String> recordedIds = new HashSet<String>();
+
+    /** Also set by the background thread when a record couldn't be written */
+    private volatile boolean isSnapshotRequired = true;
+
+    /** False when ids aren't unique */
+    private boolean isIncrementalRecordPossible = true;
+
+    private int recordsSinceSnapshot;
+
+    private long bytesSinceSnapshot;
+
+    private long lastSnapshotSize;
+
+    /** Incremented by each snapshot record */
+    private int generation;
+
+    /** Snapshot the journal file holds, written by the background thread */
+    private int writtenGeneration = NO_GENERATION;
+
+    /** Length of the journal file after the last record written */
+    private long writtenLength;
+
+}
@@ -0,0 +1,78 @@
+package com.horstmann.violet.framework.file.persistence;
+
+import com.horstmann.violet.product.diagram.abstracts.IGraph;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Tells how a diagram file is read or written from its name. Binary diagrams and change journals have their own extensions.
+ * Any other file is handled by the default persistence service.
+ */
+public class FileFormatSelector
+{
+    /**
+     * @param defaultService service of the files which are neither binary diagrams nor change journals
+     */
+    public FileFormatSelector(IFilePersistenceService defaultService)
+    {
+        this.defaultService = defaultService;
+    }
+
+    /**
+     * @param filename diagram file name (may be null for a new diagram)
+     * @return service writing (and reading) this kind of file
+     */
+    public IFilePersistenceService getPersistenceService(String filename)
+    {
+        if (isBinaryDiagram(filename))
+        {
+            return getBinaryService();
+        }
+        return this.defaultService;
+    }
+
+    /**
+     * Reads a diagram file
+     *
+     * @param filename name of the file
+     * @param in file content
+     * @return graph
+     * @throws IOException
+     */
+    public IGraph read(String filename, InputStream in) throws IOException
+    {
+        if (hasExtension(filename, ChangeJournal.FILE_EXTENSION))
+        {
+            return ChangeJournal.read(in);
+        }
+        return getPersistenceService(filename).read(in);
+    }
+
+    /**
+     * @param filename
+     * @return true if the file name has the binary diagram extension
+     */
+    public static boolean isBinaryDiagram(String filename)
+    {
+        return hasExtension(filename, BinaryFilePersistenceService.FILE_EXTENSION);
+    }
+
+    private static boolean hasExtension(String filename, String extension)
+    {
+        return filename != null && filename.toLowerCase().endsWith(extension);
+    }
+
+    private IFilePersistenceService getBinaryService()
+    {
+        if (this.binaryService == null)
+        {
+            this.binaryService = new BinaryFilePersistenceService();
+        }
+        return this.binaryService;
+    }
+
+    private final IFilePersistenceService defaultService;
+
+    private IFilePersistenceService binaryService;
+
+}
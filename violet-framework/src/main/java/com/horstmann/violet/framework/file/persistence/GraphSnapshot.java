@@ -0,0 +1,73 @@
+package com.horstmann.violet.framework.file.persistence;
+
+import com.horstmann.violet.framework.file.export.FileExportService;
+import com.horstmann.violet.product.diagram.abstracts.IGraph;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Frozen copy of a graph, taken in the binary diagram format. Taking it is much cheaper than a full save (no image, no XML),
+ * so it can be done on the Event Dispatch Thread while the graph can't change. Then, the snapshot can be saved from any
+ * thread.
+ */
+public class GraphSnapshot
+{
+
+    private GraphSnapshot(byte[] content)
+    {
+        this.content = content;
+    }
+
+    /**
+     * Takes a snapshot. Must be called from the thread which modifies the graph.
+     * 
+     * @param graph
+     * @return snapshot
+     */
+    public static GraphSnapshot take(IGraph graph)
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(INITIAL_BUFFER_SIZE);
+        BINARY_SERVICE.write(graph, out);
+        return new GraphSnapshot(out.toByteArray());
+    }
+
+    /**
+     * @return a new graph instance, equal to the one the snapshot was taken from
+     */
+    public IGraph restore()
+    {
+        return XSTREAM_SERVICE.read(new BinaryDiagramReader(ByteBuffer.wrap(this.content)));
+    }
+
+    /**
+     * Saves the snapshot. Binary files get the snapshot content as is, other formats are written from a restored graph, laid out
+     * first as the picture embedded in some files needs its bounds.
+     * 
+     * @param filePersistenceService
+     * @param out closed when done
+     * @throws IOException
+     */
+    public void write(IFilePersistenceService filePersistenceService, OutputStream out) throws IOException
+    {
+        if (filePersistenceService instanceof BinaryFilePersistenceService)
+        {
+            out.write(this.content);
+            out.close();
+            return;
+        }
+        IGraph restoredGraph = restore();
+        FileExportService.layOut(restoredGraph);
+        filePersistenceService.write(restoredGraph, out);
+    }
+
+    private static final int INITIAL_BUFFER_SIZE = 65536;
+
+    private static final BinaryFilePersistenceService BINARY_SERVICE = new BinaryFilePersistenceService();
+
+    private static final XStreamBasedPersistenceService XSTREAM_SERVICE = new XStreamBasedPersistenceService();
+
+    private final byte[] content;
+
+}
@@ -5,10 +5,16 @@ import com.horstmann.violet.framework.file.LocalFile;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 /**
- * Standard Java FileSaver implementation
+ * Standard Java FileSaver implementation.<br/>
+ * Content is written to a temporary file next to the target one, which replaces the target when the stream is closed. So, an
+ * interrupted or failed save never leaves a truncated file behind.
  * 
  * @author Alexandre de Pellegrin
  *
@@ -18,14 +24,21 @@ public class JFileWriter implements IFileWriter
 
     public JFileWriter(File f) throws FileNotFoundException
     {
-        this.f = f;
-        this.out = new FileOutputStream(f);
+        this.f = f.getAbsoluteFile();
+        if (this.f.isDirectory() || !this.f.getParentFile().isDirectory())
+        {
+            throw new FileNotFoundException(f.getPath());
+        }
     }
 
     
     @Override
-    public OutputStream getOutputStream()
+    public OutputStream getOutputStream() throws IOException
     {
+        if (this.out == null)
+        {
+            this.out = new AtomicFileOutputStream(this.f);
+        }
         return out;
     }
 
@@ -34,9 +47,122 @@ public class JFileWriter implements IFileWriter
     {
         return new LocalFile(this.f);
     }
-    
+
+    /**
+     * Abandons the content written so far (if any). The target file is left untouched.
+     */
+    public void discard()
+    {
+        if (this.out != null)
+        {
+            this.out.discard();
+        }
+    }
+
+    /**
+     * @param file
+     * @return true if the file is the temporary file of a save. If it's still there when no save runs, that save was
+     *         interrupted (crash, power loss) and the file can be deleted.
+     */
+    public static boolean isTemporaryFile(File file)
+    {
+        return file.getName().endsWith(TEMPORARY_FILE_SUFFIX);
+    }
+
+    /**
+     * Writes to a temporary file and moves it to the target on close
+     */
+    private static class AtomicFileOutputStream extends FilterOutputStream
+    {
+        AtomicFileOutputStream(File target) throws IOException
+        {
+            super(null);
+            this.target = target;
+            // Temporary file prefixes need at least 3 characters, whatever the target name
+            this.temporaryFile = File.createTempFile("." + target.getName() + "-", TEMPORARY_FILE_SUFFIX, target.getParentFile());
+            this.fileOutputStream = new FileOutputStream(this.temporaryFile);
+            this.out = this.fileOutputStream;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException
+        {
+            this.out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            if (this.isClosed)
+            {
+                return;
+            }
+            this.isClosed = true;
+            try
+            {
+                this.fileOutputStream.flush();
+                this.fileOutputStream.getFD().sync();
+            }
+            catch (IOException e)
+            {
+                this.fileOutputStream.close();
+                this.temporaryFile.delete();
+                throw e;
+            }
+            this.fileOutputStream.close();
+            boolean isMoved = false;
+            try
+            {
+                try
+                {
+                    Files.move(this.temporaryFile.toPath(), this.target.toPath(), StandardCopyOption.ATOMIC_MOVE,
+                            StandardCopyOption.REPLACE_EXISTING);
+                }
+                catch (AtomicMoveNotSupportedException e)
+                {
+                    Files.move(this.temporaryFile.toPath(), this.target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                }
+                isMoved = true;
+            }
+            finally
+            {
+                if (!isMoved)
+                {
+                    this.temporaryFile.delete();
+                }
+            }
+        }
+
+        void discard()
+        {
+            if (this.isClosed)
+            {
+                return;
+            }
+            this.isClosed = true;
+            try
+            {
+                this.fileOutputStream.close();
+            }
+            catch (IOException e)
+            {
+                // Nothing to do, the file is deleted anyway
+            }
+            this.temporaryFile.delete();
+        }
+
+        private final File target;
+
+        private final File temporaryFile;
+
+        private final FileOutputStream fileOutputStream;
+
+        private boolean isClosed = false;
+    }
+
+    private static final String TEMPORARY_FILE_SUFFIX = ".tmp";
 
     private File f;
-    private OutputStream out;
+    private AtomicFileOutputStream out;
 
 }
@@ -21,6 +21,7 @@
 
 package com.horstmann.violet.framework.file.persistence;
 
+import com.horstmann.violet.framework.util.StringFilterInputStream;
 import com.horstmann.violet.framework.util.StringFilterOutputStream;
 import com.horstmann.violet.product.diagram.common.edge.NoteEdge;
 import com.horstmann.violet.product.diagram.common.node.DiagramLinkNode;
@@ -29,17 +30,11 @@ import com.horstmann.violet.product.diagram.common.node.PointNode;
 import com.horstmann.violet.product.diagram.property.ArrowheadChoiceList;
 import com.horstmann.violet.product.diagram.property.BentStyleChoiceList;
 import com.horstmann.violet.product.diagram.property.LineStyleChoiceList;
-import java.io.ByteArrayInputStream;
-import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.io.OutputStream;
-import java.io.UnsupportedEncodingException;
 import java.util.HashMap;
 import java.util.Hashtable;
-import java.util.Iterator;
 import java.util.Map;
-import java.util.Set;
 
 /**
  * This class provides file format services
@@ -73,64 +68,7 @@ public class Violet016BackportFormatService
         replaceMap.put("com.horstmann.violet.NoteNode", NoteNode.class.getName());
         replaceMap.put("com.horstmann.violet.PointNode", PointNode.class.getName());
 
-        String original = getInputStreamContent(in);
-        String replaced = replaceAll(original, replaceMap);
-        try
-        {
-            return new ByteArrayInputStream(replaced.getBytes("UTF-8"));
-        }
-        catch (UnsupportedEncodingException ex)
-        {
-            ex.printStackTrace();
-            return new ByteArrayInputStream(replaced.getBytes());
-        }
-    }
-
-    /**
-     * Converts inputStream to String
-     * 
-     * @param in stream
-     * @return string
-     */
-    private static String getInputStreamContent(InputStream in)
-    {
-        try
-        {
-            InputStreamReader isr = new InputStreamReader(in, "UTF-8");
-            StringBuffer buffer = new StringBuffer();
-            int len = 1024;
-            char buf[] = new char[len];
-            int numRead;
-            while ((numRead = isr.read(buf, 0, len)) != -1)
-            {
-                buffer.append(buf, 0, numRead);
-            }
-            isr.close();
-            return buffer.toString();
-        }
-        catch (IOException e)
-        {
-            throw new RuntimeException(e);
-        }
-    }
-
-    /**
-     * Filters a string and replaces all key courrences issed from the map by its valye
-     * 
-     * @param input string
-     * @param replaceMap key = searchedString / value = replaceString
-     * @return filtered string
-     */
-    private static String replaceAll(String input, Map<String, String> replaceMap)
-    {
-        Set<String> set = replaceMap.keySet();
-        for (Iterator<String> iter = set.iterator(); iter.hasNext();)
-        {
-            String searchedStr = iter.next();
-            String replaceStr = replaceMap.get(searchedStr);
-            input = input.replaceAll(searchedStr, replaceStr);
-        }
-        return input;
+        return new StringFilterInputStream(in, replaceMap);
     }
 
     /**
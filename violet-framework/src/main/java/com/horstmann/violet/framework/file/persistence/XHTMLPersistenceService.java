@@ -8,13 +8,28 @@ import com.horstmann.violet.product.diagram.abstracts.IGraph;
 import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.CharArrayReader;
+import java.io.CharArrayWriter;
+import java.io.FilterInputStream;
+import java.io.FilterWriter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
-import java.io.StringWriter;
+import java.io.Reader;
+import java.io.SequenceInputStream;
 import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import javax.imageio.ImageIO;
 import javax.swing.text.MutableAttributeSet;
 import javax.swing.text.html.HTML;
@@ -37,8 +52,42 @@ public class XHTMLPersistenceService implements IFilePersistenceService
 
     private static final String TEMPLATE_XMLCONTENT_KEY = "${content}";
 
+    private static final String CDATA_START = "<![CDATA[";
+
+    private static final String CDATA_END = "]]>";
+
+    private static final byte[] CDATA_END_BYTES = CDATA_END.getBytes();
+
+    /** Maximum number of bytes expected before the XML content */
+    private static final int HEADER_SCAN_LIMIT = 16384;
+
+    private static final Pattern CONTENT_START_PATTERN = Pattern.compile(
+            "<script[^>]*\\sid\\s*=\\s*[\"']?content[\"']?[^>]*>\\s*<!\\[CDATA\\[", Pattern.CASE_INSENSITIVE);
+
+    /**
+     * System property giving the maximum width and height of the embedded image, in pixels (2048 by default). Larger diagrams
+     * are drawn at a smaller scale.
+     */
+    public static final String MAX_IMAGE_SIZE_PROPERTY = "violet.xhtml.maxImageSize";
+
+    private static final int DEFAULT_MAX_IMAGE_SIZE = 2048;
+
+    private static final int IMAGE_CACHE_SIZE = 8;
+
+    private static List<String> templateSections;
+
     private XStreamBasedPersistenceService xstreamService = new XStreamBasedPersistenceService();
 
+    /** Last images, by digest of the graph XML content and image size */
+    private final Map<ByteBuffer, byte[]> imageCache = new LinkedHashMap<ByteBuffer, byte[]>(16, 0.75f, true)
+    {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<ByteBuffer, byte[]> eldest)
+        {
+            return size() > IMAGE_CACHE_SIZE;
+        }
+    };
+
     @InjectedBean
     private VersionChecker versionChecker;
     
@@ -48,22 +97,30 @@ public class XHTMLPersistenceService implements IFilePersistenceService
         try
         {
             OutputStreamWriter writer = new OutputStreamWriter(out, "UTF-8");
-        	InputStream templateAsStream = this.getClass().getResourceAsStream(TEMPLATE_FILE);
-            String template = getInputStreamContent(templateAsStream);
-            ByteArrayOutputStream graphOutputStream = new ByteArrayOutputStream();
-            xstreamService.write(graph, graphOutputStream);
-            String graphString = graphOutputStream.toString();
-            ByteArrayOutputStream imageOutputStream = new ByteArrayOutputStream();
-            Base64OutputStream base64ImageOutputStream = new Base64OutputStream(imageOutputStream);
-            ImageIO.write(FileExportService.getImage(graph), IMAGE_TYPE, base64ImageOutputStream);
-            String imageString = HTML_INLINE_IMAGE_PREFIX + imageOutputStream.toString();
-            template = template.replace(TEMPLATE_VERSION_KEY, this.versionChecker.getAppVersionNumber());
-            template = template.replace(TEMPLATE_XMLCONTENT_KEY, graphString);
-            template = template.replace(TEMPLATE_IMAGE_KEY, imageString);
-            writer.write(new String(template.getBytes()));
-            templateAsStream.close();
-            imageOutputStream.close();
-            base64ImageOutputStream.close();
+            byte[] contentDigest = null;
+            for (String aSection : getTemplateSections())
+            {
+                if (TEMPLATE_VERSION_KEY.equals(aSection))
+                {
+                    writer.write(this.versionChecker.getAppVersionNumber());
+                }
+                else if (TEMPLATE_XMLCONTENT_KEY.equals(aSection))
+                {
+                    DigestWriter digestWriter = new DigestWriter(writer);
+                    this.xstreamService.write(graph, digestWriter);
+                    contentDigest = digestWriter.getDigest();
+                }
+                else if (TEMPLATE_IMAGE_KEY.equals(aSection))
+                {
+                    writer.write(HTML_INLINE_IMAGE_PREFIX);
+                    writer.flush();
+                    out.write(getBase64Image(graph, contentDigest));
+                }
+                else
+                {
+                    writer.write(aSection);
+                }
+            }
             writer.close();
         }
         catch (IOException e)
@@ -72,26 +129,140 @@ public class XHTMLPersistenceService implements IFilePersistenceService
         }
     }
 
+    /**
+     * Returns the base64 encoded PNG image of a graph. As rendering and encoding it is the slowest part of a save, the last
+     * images are kept and reused for graphs with the same content. They are found by content rather than by graph instance
+     * because background saves write a new copy of the graph each time.
+     * 
+     * @param graph
+     * @param contentDigest digest of the graph XML content (or null if unknown)
+     * @return base64 image
+     * @throws IOException
+     */
+    private byte[] getBase64Image(IGraph graph, byte[] contentDigest) throws IOException
+    {
+        int maxImageSize = getMaxImageSize();
+        ByteBuffer cacheKey = null;
+        if (contentDigest != null)
+        {
+            cacheKey = ByteBuffer.allocate(contentDigest.length + 4).put(contentDigest).putInt(maxImageSize);
+            cacheKey.flip();
+        }
+        synchronized (this.imageCache)
+        {
+            byte[] cachedImage = cacheKey == null ? null : this.imageCache.get(cacheKey);
+            if (cachedImage != null)
+            {
+                return cachedImage;
+            }
+        }
+        ByteArrayOutputStream imageOutputStream = new ByteArrayOutputStream();
+        Base64OutputStream base64ImageOutputStream = new Base64OutputStream(imageOutputStream);
+        ImageIO.write(FileExportService.getImage(graph, maxImageSize), IMAGE_TYPE, base64ImageOutputStream);
+        base64ImageOutputStream.close();
+        byte[] base64Image = imageOutputStream.toByteArray();
+        if (cacheKey != null)
+        {
+            synchronized (this.imageCache)
+            {
+                this.imageCache.put(cacheKey, base64Image);
+            }
+        }
+        return base64Image;
+    }
+
+    /**
+     * @return maximum width and height of the embedded image, read at each save (see MAX_IMAGE_SIZE_PROPERTY)
+     */
+    private static int getMaxImageSize()
+    {
+        int maxImageSize = Integer.getInteger(MAX_IMAGE_SIZE_PROPERTY, DEFAULT_MAX_IMAGE_SIZE);
+        return maxImageSize > 0 ? maxImageSize : DEFAULT_MAX_IMAGE_SIZE;
+    }
+
+    /**
+     * @return template cut around its keys (keys are sections too)
+     * @throws IOException
+     */
+    private static List<String> getTemplateSections() throws IOException
+    {
+        synchronized (XHTMLPersistenceService.class)
+        {
+            if (templateSections == null)
+            {
+                InputStream templateAsStream = XHTMLPersistenceService.class.getResourceAsStream(TEMPLATE_FILE);
+                String template = getInputStreamContent(templateAsStream);
+                List<String> sections = new ArrayList<String>();
+                int position = 0;
+                while (position < template.length())
+                {
+                    int keyStart = template.indexOf("${", position);
+                    int keyEnd = keyStart < 0 ? -1 : template.indexOf('}', keyStart);
+                    if (keyEnd < 0)
+                    {
+                        sections.add(template.substring(position));
+                        break;
+                    }
+                    if (keyStart > position)
+                    {
+                        sections.add(template.substring(position, keyStart));
+                    }
+                    sections.add(template.substring(keyStart, keyEnd + 1));
+                    position = keyEnd + 1;
+                }
+                templateSections = Collections.unmodifiableList(sections);
+            }
+            return templateSections;
+        }
+    }
+
     @Override
     public IGraph read(InputStream in) throws IOException
+    {
+        byte[] header = new byte[HEADER_SCAN_LIMIT];
+        int headerLength = 0;
+        int count = 0;
+        while (headerLength < header.length && (count = in.read(header, headerLength, header.length - headerLength)) != -1)
+        {
+            headerLength += count;
+        }
+        Matcher contentStart = CONTENT_START_PATTERN.matcher(new String(header, 0, headerLength, "ISO-8859-1"));
+        if (!contentStart.find())
+        {
+            return readWithHtmlParser(new SequenceInputStream(new ByteArrayInputStream(header, 0, headerLength), in));
+        }
+        // The XML content is read straight from the file : the rest of the page (and the image) is never parsed
+        InputStream xmlContentStream = new CDataContentInputStream(new SequenceInputStream(new ByteArrayInputStream(header,
+                contentStart.end(), headerLength - contentStart.end()), in));
+        IGraph graph = this.xstreamService.read(new InputStreamReader(xmlContentStream, "UTF-8"));
+        xmlContentStream.close();
+        return graph;
+    }
+
+    /**
+     * Reads documents which don't look like the ones written by this service, using Swing's HTML parser to find the XML
+     * content
+     * 
+     * @param in
+     * @return graph
+     * @throws IOException
+     */
+    private IGraph readWithHtmlParser(InputStream in) throws IOException
     {
         InputStreamReader reader = new InputStreamReader(in, "UTF-8");
     	XHTMLPersistenceServiceParserGetter kit = new XHTMLPersistenceServiceParserGetter();
         HTMLEditorKit.Parser parser = kit.getParser();
-        StringWriter writer = new StringWriter();
+        ContentWriter writer = new ContentWriter();
         HTMLEditorKit.ParserCallback callback = new XHTMLPersistenceServiceParserCallback(writer);
         parser.parse(reader, callback, true);
-        String xmlContent = writer.toString();
-        InputStream xmlContentStream = new ByteArrayInputStream(xmlContent.getBytes());
-        IGraph graph = this.xstreamService.read(xmlContentStream);
         reader.close();
-        xmlContentStream.close();
-        reader.close();
-        writer.close();
+        Reader xmlContentReader = writer.getReader();
+        IGraph graph = this.xstreamService.read(xmlContentReader);
+        xmlContentReader.close();
         return graph;
     }
 
-    private String getInputStreamContent(InputStream in) throws IOException
+    private static String getInputStreamContent(InputStream in) throws IOException
     {
         BufferedInputStream bis = new BufferedInputStream(in);
         ByteArrayOutputStream buf = new ByteArrayOutputStream();
@@ -109,6 +280,203 @@ public class XHTMLPersistenceService implements IFilePersistenceService
         return content;
     }
 
+    /**
+     * Collects the XML content found by the HTML parser. The XML parser reads it from the collected chars : no String, byte or
+     * char array copy of it.
+     */
+    private static class ContentWriter extends CharArrayWriter
+    {
+        /**
+         * @return reader of the chars written so far, which must not be written to anymore
+         */
+        Reader getReader()
+        {
+            return new CharArrayReader(this.buf, 0, this.count);
+        }
+    }
+
+    /**
+     * Computes a digest of the chars written through it
+     */
+    private static class DigestWriter extends FilterWriter
+    {
+        DigestWriter(Writer out)
+        {
+            super(out);
+            try
+            {
+                this.digest = MessageDigest.getInstance("SHA-1");
+            }
+            catch (NoSuchAlgorithmException e)
+            {
+                throw new RuntimeException(e);
+            }
+        }
+
+        @Override
+        public void write(int c) throws IOException
+        {
+            write(new char[]
+            {
+                (char) c
+            }, 0, 1);
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) throws IOException
+        {
+            this.out.write(cbuf, off, len);
+            for (int i = 0; i < len; i += DIGEST_BUFFER_SIZE / 2)
+            {
+                int count = Math.min(DIGEST_BUFFER_SIZE / 2, len - i);
+                for (int j = 0; j < count; j++)
+                {
+                    char c = cbuf[off + i + j];
+                    this.buffer[2 * j] = (byte) (c >> 8);
+                    this.buffer[2 * j + 1] = (byte) c;
+                }
+                this.digest.update(this.buffer, 0, 2 * count);
+            }
+        }
+
+        @Override
+        public void write(String str, int off, int len) throws IOException
+        {
+            char[] chars = new char[len];
+            str.getChars(off, off + len, chars, 0);
+            write(chars, 0, len);
+        }
+
+        byte[] getDigest()
+        {
+            return this.digest.digest();
+        }
+
+        private static final int DIGEST_BUFFER_SIZE = 4096;
+
+        private final MessageDigest digest;
+
+        private final byte[] buffer = new byte[DIGEST_BUFFER_SIZE];
+    }
+
+    /**
+     * Content of a CDATA section : ends before its closing ']]>'
+     */
+    private static class CDataContentInputStream extends FilterInputStream
+    {
+        CDataContentInputStream(InputStream in)
+        {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException
+        {
+            byte[] b = new byte[1];
+            int count = read(b, 0, 1);
+            return count < 0 ? -1 : b[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException
+        {
+            if (len == 0)
+            {
+                return 0;
+            }
+            while (!this.isEndReached && !this.isEndOfStream && this.limit - this.position < CDATA_END_BYTES.length)
+            {
+                fillBuffer();
+            }
+            if (this.isEndReached || this.position == this.limit)
+            {
+                return -1;
+            }
+            int count = 0;
+            int max = Math.min(len, this.limit - this.position);
+            while (count < max)
+            {
+                int index = this.position + count;
+                if (this.limit - index < CDATA_END_BYTES.length)
+                {
+                    if (!this.isEndOfStream)
+                    {
+                        // Need more bytes to know if the CDATA section ends here
+                        break;
+                    }
+                }
+                else if (isCDataEnd(index))
+                {
+                    this.isEndReached = true;
+                    break;
+                }
+                count++;
+            }
+            System.arraycopy(this.buffer, this.position, b, off, count);
+            this.position += count;
+            return count == 0 ? -1 : count;
+        }
+
+        @Override
+        public long skip(long n) throws IOException
+        {
+            byte[] skipped = new byte[(int) Math.min(n, this.buffer.length)];
+            int count = read(skipped, 0, skipped.length);
+            return count < 0 ? 0 : count;
+        }
+
+        @Override
+        public int available() throws IOException
+        {
+            return 0;
+        }
+
+        @Override
+        public boolean markSupported()
+        {
+            return false;
+        }
+
+        private boolean isCDataEnd(int index)
+        {
+            for (int i = 0; i < CDATA_END_BYTES.length; i++)
+            {
+                if (this.buffer[index + i] != CDATA_END_BYTES[i])
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void fillBuffer() throws IOException
+        {
+            int remaining = this.limit - this.position;
+            System.arraycopy(this.buffer, this.position, this.buffer, 0, remaining);
+            this.position = 0;
+            this.limit = remaining;
+            int count = this.in.read(this.buffer, this.limit, this.buffer.length - this.limit);
+            if (count < 0)
+            {
+                this.isEndOfStream = true;
+            }
+            else
+            {
+                this.limit += count;
+            }
+        }
+
+        private final byte[] buffer = new byte[8192];
+
+        private int position;
+
+        private int limit;
+
+        private boolean isEndOfStream;
+
+        private boolean isEndReached;
+    }
+
     private class XHTMLPersistenceServiceParserGetter extends HTMLEditorKit
     {
         public HTMLEditorKit.Parser getParser()
@@ -163,10 +531,19 @@ public class XHTMLPersistenceService implements IFilePersistenceService
             {
                 try
                 {
-                    String xmlContent = new String(text);
-                    xmlContent = xmlContent.replace("<![CDATA[", "");
-                    xmlContent = xmlContent.replace("]]>", "");
-                    out.write(xmlContent);
+                    int start = 0;
+                    int end = text.length;
+                    int cdataStart = indexOf(text, CDATA_START, start, end);
+                    if (cdataStart >= 0)
+                    {
+                        start = cdataStart + CDATA_START.length();
+                    }
+                    int cdataEnd = lastIndexOf(text, CDATA_END, start, end);
+                    if (cdataEnd >= 0)
+                    {
+                        end = cdataEnd;
+                    }
+                    out.write(text, start, end - start);
                     out.flush();
                 }
                 catch (IOException ex)
@@ -176,6 +553,42 @@ public class XHTMLPersistenceService implements IFilePersistenceService
             }
         }
 
+        private int indexOf(char[] text, String searched, int from, int to)
+        {
+            for (int i = from; i <= to - searched.length(); i++)
+            {
+                if (matches(text, searched, i))
+                {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private int lastIndexOf(char[] text, String searched, int from, int to)
+        {
+            for (int i = to - searched.length(); i >= from; i--)
+            {
+                if (matches(text, searched, i))
+                {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private boolean matches(char[] text, String searched, int position)
+        {
+            for (int i = 0; i < searched.length(); i++)
+            {
+                if (text[position + i] != searched.charAt(i))
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+
         public void flush()
         {
             try
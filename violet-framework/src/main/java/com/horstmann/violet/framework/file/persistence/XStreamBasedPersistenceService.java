@@ -5,22 +5,45 @@ import com.horstmann.violet.framework.injection.bean.ManiocFramework.InjectedBea
 import com.horstmann.violet.framework.injection.bean.ManiocFramework.ManagedBean;
 import com.horstmann.violet.framework.plugin.IDiagramPlugin;
 import com.horstmann.violet.framework.plugin.PluginRegistry;
+import com.horstmann.violet.framework.util.SerializableEnumeration;
+import com.horstmann.violet.product.diagram.abstracts.AbstractGraph;
 import com.horstmann.violet.product.diagram.abstracts.IGraph;
+import com.horstmann.violet.product.diagram.abstracts.IIdentifiable;
+import com.horstmann.violet.product.diagram.abstracts.Id;
 import com.horstmann.violet.product.diagram.abstracts.edge.IEdge;
 import com.horstmann.violet.product.diagram.abstracts.node.INode;
 import com.horstmann.violet.product.diagram.property.ArrowheadChoiceList;
 import com.horstmann.violet.product.diagram.property.BentStyleChoiceList;
 import com.horstmann.violet.product.diagram.property.LineStyleChoiceList;
 import com.thoughtworks.xstream.XStream;
-import com.thoughtworks.xstream.io.xml.DomDriver;
+import com.thoughtworks.xstream.converters.ConversionException;
+import com.thoughtworks.xstream.converters.Converter;
+import com.thoughtworks.xstream.converters.ConverterLookup;
+import com.thoughtworks.xstream.converters.reflection.ReflectionProvider;
+import com.thoughtworks.xstream.core.MapBackedDataHolder;
+import com.thoughtworks.xstream.core.ReferenceByIdMarshaller;
+import com.thoughtworks.xstream.core.ReferenceByIdMarshallingStrategy;
+import com.thoughtworks.xstream.core.ReferenceByIdUnmarshaller;
+import com.thoughtworks.xstream.core.TreeMarshaller;
+import com.thoughtworks.xstream.core.TreeUnmarshaller;
+import com.thoughtworks.xstream.io.HierarchicalStreamReader;
+import com.thoughtworks.xstream.io.HierarchicalStreamWriter;
+import com.thoughtworks.xstream.io.StreamException;
+import com.thoughtworks.xstream.io.xml.PrettyPrintWriter;
+import com.thoughtworks.xstream.io.xml.StaxDriver;
+import com.thoughtworks.xstream.mapper.Mapper;
 import java.awt.geom.Point2D;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 @ManagedBean(registeredManually=true)
 public class XStreamBasedPersistenceService implements IFilePersistenceService {
@@ -32,18 +55,53 @@ public class XStreamBasedPersistenceService implements IFilePersistenceService {
 		BeanInjector.getInjector().inject(this);
 	}
 
+	/**
+	 * Reads a graph from XML bytes. The XML parser finds their encoding (UTF-8 when the document doesn't declare any).
+	 */
 	@Override
 	public IGraph read(InputStream in) throws IOException {
-		InputStreamReader reader = new InputStreamReader(in);
-		XStream xStream = new XStream(new DomDriver("UTF-8"));
-		xStream = getConfiguredXStream(xStream);
+		XStream xStream = getSharedXStream();
+		Object fromXML = xStream.fromXML(in);
+		in.close();
+		return attachNodes((IGraph) fromXML);
+	}
+
+	/**
+	 * Reads a graph from its XML content. The XML is pulled while the graph is built : the document is never loaded as a whole.
+	 * 
+	 * @param reader XML content (not closed)
+	 * @return the graph that is read in
+	 * @throws IOException
+	 */
+	public IGraph read(Reader reader) throws IOException {
+		XStream xStream = getSharedXStream();
 		Object fromXML = xStream.fromXML(reader);
-		IGraph graph = (IGraph) fromXML;
+		return attachNodes((IGraph) fromXML);
+	}
+
+	/**
+	 * Reads a graph from any XStream node tree (used for formats which aren't XML)
+	 * 
+	 * @param reader positioned on the graph node (not closed)
+	 * @return the graph that is read in
+	 */
+	IGraph read(HierarchicalStreamReader reader) {
+		XStream xStream = getSharedXStream();
+		Object unmarshalled = xStream.unmarshal(reader);
+		return attachNodes((IGraph) unmarshalled);
+	}
+
+	/**
+	 * Gives nodes their graph and rebuilds what isn't saved (to be called once a graph has been read)
+	 * 
+	 * @param graph
+	 * @return graph
+	 */
+	IGraph attachNodes(IGraph graph) {
 		Collection<INode> allNodes = graph.getAllNodes();
 		for (INode aNode : allNodes) {
 			aNode.setGraph(graph);
 		}
-		reader.close();
 		graph.deserializeSupport();
 		return graph;
 	}
@@ -51,18 +109,150 @@ public class XStreamBasedPersistenceService implements IFilePersistenceService {
 	@Override
 	public void write(IGraph graph, OutputStream out) {
 		try {
-			OutputStreamWriter writer = new OutputStreamWriter(out);
-			XStream xStream = new XStream(new DomDriver("UTF-8"));
-			xStream = getConfiguredXStream(xStream);
-			xStream.toXML(graph, writer);
+			// Written without XML declaration, so in the encoding XML parsers default to
+			OutputStreamWriter writer = new OutputStreamWriter(out, "UTF-8");
+			write(graph, writer);
 			writer.close();
 		} catch (IOException e) {
 			throw new RuntimeException(e);
 		}
 	}
+
+	/**
+	 * Writes the XML content of a graph
+	 * 
+	 * @param graph
+	 * @param writer destination (flushed but not closed)
+	 */
+	public void write(IGraph graph, Writer writer) {
+		XStream xStream = getSharedXStream();
+		xStream.toXML(graph, writer);
+	}
+
+	/**
+	 * Writes a graph as an XStream node tree (used for formats which aren't XML)
+	 * 
+	 * @param graph
+	 * @param writer destination (flushed but not closed)
+	 */
+	void write(IGraph graph, HierarchicalStreamWriter writer) {
+		XStream xStream = getSharedXStream();
+		xStream.marshal(graph, writer);
+		writer.flush();
+	}
 	
+	/**
+	 * Writes the state of a single graph element (node or edge) or of the graph itself without its elements. Other nodes and
+	 * edges are written as references to their id.
+	 * 
+	 * @param element
+	 * @param writer destination (not flushed, not closed)
+	 */
+	void writeElementState(Object element, HierarchicalStreamWriter writer) {
+		XStream xStream = getElementStateXStream();
+		MapBackedDataHolder dataHolder = new MapBackedDataHolder();
+		dataHolder.put(ElementStateMarshallingStrategy.ROOT_KEY, element);
+		xStream.marshal(element, writer, dataHolder);
+	}
+
+	/**
+	 * Creates an empty element of the class of a state written by writeElementState()
+	 * 
+	 * @param reader positioned on the state
+	 * @return new element, to be given to readElementState()
+	 */
+	Object newElement(HierarchicalStreamReader reader) {
+		XStream xStream = getElementStateXStream();
+		Class<?> type = xStream.getMapper().realClass(reader.getNodeName());
+		return xStream.getReflectionProvider().newInstance(type);
+	}
+
+	/**
+	 * Replaces the state of an element with a state written by writeElementState(). Fields which aren't in the state are
+	 * cleared.
+	 * 
+	 * @param reader positioned on the state (not moved up)
+	 * @param element to update
+	 * @param elementsById elements which may be referred to
+	 */
+	void readElementState(HierarchicalStreamReader reader, final Object element, Map<String, IIdentifiable> elementsById) {
+		XStream xStream = getElementStateXStream();
+		final ReflectionProvider reflectionProvider = xStream.getReflectionProvider();
+		reflectionProvider.visitSerializableFields(element, new ReflectionProvider.Visitor() {
+			@Override
+			@SuppressWarnings("rawtypes")
+			public void visit(String name, Class type, Class definedIn, Object value) {
+				if (value != null && !type.isPrimitive()) {
+					reflectionProvider.writeField(element, name, null, definedIn);
+				}
+			}
+		});
+		MapBackedDataHolder dataHolder = new MapBackedDataHolder();
+		dataHolder.put(ElementStateMarshallingStrategy.ELEMENTS_KEY, elementsById);
+		xStream.unmarshal(reader, element, dataHolder);
+	}
+
+	/**
+	 * Configures XStream now rather than on the first read or write. Diagram plugins must be installed first.
+	 */
+	public void prepare() {
+		getSharedXStream();
+	}
+
+	/**
+	 * Configuring XStream is expensive (annotations scan of every graph, node and edge class) so the
+	 * configured instance is shared by all the services and only rebuilt when the registered plugins change. XStream is
+	 * thread safe once configured.
+	 * 
+	 * @return configured XStream
+	 */
+	private XStream getSharedXStream() {
+		synchronized (SHARED_XSTREAM_LOCK) {
+			int pluginRegistryState = this.pluginRegistry.getModificationCount();
+			if (sharedXStream == null || sharedXStreamPluginRegistry != this.pluginRegistry
+					|| sharedXStreamPluginRegistryState != pluginRegistryState) {
+				sharedXStream = getConfiguredXStream(new XStream(new StreamingDriver()));
+				sharedXStreamPluginRegistry = this.pluginRegistry;
+				sharedXStreamPluginRegistryState = pluginRegistryState;
+			}
+			return sharedXStream;
+		}
+	}
+
+	/**
+	 * Replaces the nodes attached directly to a graph and its edges, as reading the graph would. Meant for graphs rebuilt from
+	 * element states : attachNodes() must be called afterwards.
+	 * 
+	 * @param graph
+	 * @param rootNodes
+	 * @param edges
+	 */
+	void setGraphElements(IGraph graph, List<INode> rootNodes, List<IEdge> edges) {
+		ReflectionProvider reflectionProvider = getElementStateXStream().getReflectionProvider();
+		reflectionProvider.writeField(graph, GRAPH_NODES_FIELD, new ArrayList<INode>(rootNodes), AbstractGraph.class);
+		reflectionProvider.writeField(graph, GRAPH_EDGES_FIELD, new ArrayList<IEdge>(edges), AbstractGraph.class);
+	}
+
+	/**
+	 * @return XStream configured as the shared one, but which writes graph elements one at a time
+	 */
+	private XStream getElementStateXStream() {
+		synchronized (SHARED_XSTREAM_LOCK) {
+			int pluginRegistryState = this.pluginRegistry.getModificationCount();
+			if (elementStateXStream == null || elementStateXStreamPluginRegistry != this.pluginRegistry
+					|| elementStateXStreamPluginRegistryState != pluginRegistryState) {
+				elementStateXStream = getConfiguredXStream(new XStream(new StreamingDriver()));
+				elementStateXStream.setMarshallingStrategy(new ElementStateMarshallingStrategy());
+				elementStateXStreamPluginRegistry = this.pluginRegistry;
+				elementStateXStreamPluginRegistryState = pluginRegistryState;
+			}
+			return elementStateXStream;
+		}
+	}
+
 	private XStream getConfiguredXStream(XStream xStream) {
-		xStream.autodetectAnnotations(true);
+		// Annotations are processed here rather than auto-detected while streaming, which wouldn't be thread safe
+		xStream.processAnnotations(new Class[] { Id.class, SerializableEnumeration.class });
 		xStream.setMode(XStream.ID_REFERENCES);
 		xStream.useAttributeFor(Point2D.Double.class, "x");
 		xStream.useAttributeFor(Point2D.Double.class, "y");
@@ -72,25 +262,108 @@ public class XStreamBasedPersistenceService implements IFilePersistenceService {
         xStream.addImmutableType(BentStyleChoiceList.class);
 		List<IDiagramPlugin> diagramPlugins = this.pluginRegistry.getDiagramPlugins();
 		for (IDiagramPlugin aPlugin : diagramPlugins) {
+			// Indexed plugins give these classes without creating any graph or prototype
 			Class<? extends IGraph> graphClass = aPlugin.getGraphClass();
 			xStream.alias(graphClass.getSimpleName(), graphClass);
+			xStream.processAnnotations(graphClass);
+			for (Class<? extends IEdge> anEdgeClass : this.pluginRegistry.getEdgeClasses(aPlugin)) {
+				xStream.alias(anEdgeClass.getSimpleName(), anEdgeClass);
+				xStream.processAnnotations(anEdgeClass);
+			}
+			for (Class<? extends INode> aNodeClass : this.pluginRegistry.getNodeClasses(aPlugin)) {
+				xStream.alias(aNodeClass.getSimpleName(), aNodeClass);
+				xStream.processAnnotations(aNodeClass);
+			}
+		}
+		return xStream;
+	}
+
+	/**
+	 * Pulls XML with StAX when reading (instead of building a DOM first) and writes indented XML, as DomDriver did, so that
+	 * saved files don't change.
+	 */
+	private static class StreamingDriver extends StaxDriver {
+
+		@Override
+		public HierarchicalStreamWriter createWriter(Writer out) {
+			return new PrettyPrintWriter(out, getNameCoder());
+		}
+
+		@Override
+		public HierarchicalStreamWriter createWriter(OutputStream out) {
 			try {
-				IGraph aDummyGraph = graphClass.newInstance();
-				List<IEdge> edgePrototypes = aDummyGraph.getEdgePrototypes();
-				List<INode> nodePrototypes = aDummyGraph.getNodePrototypes();
-				for (IEdge anEdgePrototype : edgePrototypes) {
-					Class<? extends IEdge> edgeClass = anEdgePrototype.getClass();
-					xStream.alias(edgeClass.getSimpleName(), anEdgePrototype.getClass());
+				return createWriter(new OutputStreamWriter(out, "UTF-8"));
+			} catch (UnsupportedEncodingException e) {
+				throw new StreamException(e);
+			}
+		}
+	}
+
+	/**
+	 * Same as ID_REFERENCES, except that nodes and edges other than the marshalled one are written as a reference to their
+	 * Id, which is resolved against the elements given when unmarshalling
+	 */
+	private static class ElementStateMarshallingStrategy extends ReferenceByIdMarshallingStrategy {
+
+		@Override
+		protected TreeMarshaller createMarshallingContext(HierarchicalStreamWriter writer, ConverterLookup converterLookup,
+				Mapper mapper) {
+			return new ReferenceByIdMarshaller(writer, converterLookup, mapper) {
+				@Override
+				public void convert(Object item, Converter converter) {
+					if (item != get(ROOT_KEY) && (item instanceof INode || item instanceof IEdge)) {
+						this.writer.addAttribute(ELEMENT_REFERENCE_ATTRIBUTE, ((IIdentifiable) item).getId().getValue());
+						return;
+					}
+					super.convert(item, converter);
 				}
-				for (INode aNodePrototype : nodePrototypes) {
-					Class<? extends INode> nodeClass = aNodePrototype.getClass();
-					xStream.alias(nodeClass.getSimpleName(), aNodePrototype.getClass());
+			};
+		}
+
+		@Override
+		@SuppressWarnings("rawtypes")
+		protected TreeUnmarshaller createUnmarshallingContext(Object root, HierarchicalStreamReader reader,
+				ConverterLookup converterLookup, Mapper mapper) {
+			return new ReferenceByIdUnmarshaller(root, reader, converterLookup, mapper) {
+				@Override
+				protected Object convert(Object parent, Class type, Converter converter) {
+					String reference = this.reader.getAttribute(ELEMENT_REFERENCE_ATTRIBUTE);
+					if (reference == null) {
+						return super.convert(parent, type, converter);
+					}
+					Object element = ((Map<?, ?>) get(ELEMENTS_KEY)).get(reference);
+					if (element == null) {
+						throw new ConversionException("Unknown graph element " + reference);
+					}
+					return element;
 				}
-			} catch (Exception e) {
-				throw new RuntimeException(e);
-			}
+			};
 		}
-		return xStream;
+
+		private static final String ELEMENT_REFERENCE_ATTRIBUTE = "element-ref";
+
+		private static final String ROOT_KEY = "root";
+
+		private static final String ELEMENTS_KEY = "elements";
 	}
 
+	/** Fields of AbstractGraph, as named in saved files */
+	private static final String GRAPH_NODES_FIELD = "nodes";
+
+	private static final String GRAPH_EDGES_FIELD = "edges";
+
+	private static final Object SHARED_XSTREAM_LOCK = new Object();
+
+	private static XStream sharedXStream;
+
+	private static PluginRegistry sharedXStreamPluginRegistry;
+
+	private static int sharedXStreamPluginRegistryState;
+
+	private static XStream elementStateXStream;
+
+	private static PluginRegistry elementStateXStreamPluginRegistry;
+
+	private static int elementStateXStreamPluginRegistryState;
+
 }
@@ -99,7 +99,9 @@ public abstract class Content
         {
             throw new IllegalArgumentException("min width can only be a positive number");
         }
+        double oldWidth = getWidth();
         this.minWidth = minWidth;
+        fireSizeChanged(oldWidth, getHeight());
         refreshUp();
     }
 
@@ -112,7 +114,9 @@ public abstract class Content
         {
             throw new IllegalArgumentException("min height can only be a positive number");
         }
+        double oldHeight = getHeight();
         this.minHeight = minHeight;
+        fireSizeChanged(getWidth(), oldHeight);
         refreshUp();
     }
 
@@ -152,7 +156,9 @@ public abstract class Content
         {
             throw new IllegalArgumentException("width can only be a positive number");
         }
+        double oldWidth = getWidth();
         this.width = width;
+        fireSizeChanged(oldWidth, getHeight());
     }
 
     /**
@@ -165,7 +171,9 @@ public abstract class Content
         {
             throw new IllegalArgumentException("height can only be a positive number");
         }
+        double oldHeight = getHeight();
         this.height = height;
+        fireSizeChanged(getWidth(), oldHeight);
     }
 
     /**
@@ -191,7 +199,25 @@ public abstract class Content
         refresh();
     }
 
+    /**
+     * sets the object told when the width or the height of this element changed
+     * @param sizeListener the listener (null to remove it)
+     */
+    public final void setSizeListener(Runnable sizeListener)
+    {
+        this.sizeListener = sizeListener;
+    }
+
+    private void fireSizeChanged(double oldWidth, double oldHeight)
+    {
+        if(null != sizeListener && (oldWidth != getWidth() || oldHeight != getHeight()))
+        {
+            sizeListener.run();
+        }
+    }
+
     private ArrayList<Content> parents = new ArrayList<Content>();
+    private Runnable sizeListener;
 
     private double minWidth = 0;
     private double minHeight = 0;
@@ -12,6 +12,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static java.lang.annotation.ElementType.CONSTRUCTOR;
 import static java.lang.annotation.ElementType.FIELD;
@@ -46,6 +47,10 @@ import static java.lang.annotation.ElementType.TYPE;
  * Version 0.0.3 (01-20-2014) : <br/>
  * + supports injection inside webapp by associating BeanFactory and BeanInjector with current classloader 
  * 
+ * Version 0.0.4 : <br/>
+ * + injection metadata read once per class <br/>
+ * + BeanFactory and BeanInjector can be used from several threads <br/>
+ * 
  * @author Alexandre de Pellegrin
  * 
  */
@@ -75,7 +80,7 @@ public class ManiocFramework {
                 /**
                  * @return the only object instance
                  */
-                public static BeanInjector getInjector() {
+                public static synchronized BeanInjector getInjector() {
                         ClassLoader currentClassLoader = BeanInjector.class.getClassLoader();
                         if (!instances.containsKey(currentClassLoader)) {
                                 BeanInjector newInstance = new BeanInjector();
@@ -92,16 +97,8 @@ public class ManiocFramework {
                  * @param o
                  */
                 public void inject(Object o) {
-                        Class<? extends Object> implementationType = o.getClass();
-                        ManagedBean annotation = implementationType.getAnnotation(ManagedBean.class);
-                        if (annotation != null) {
-                                Class<? extends DefaultApplicationContext> context = annotation.applicationContext();
-                                this.inject(o, context);
-                                return;
-                        }
-                        if (annotation == null) {
-                                this.inject(o, DefaultApplicationContext.class);
-                        }
+                        InjectionPlan plan = getInjectionPlan(o.getClass());
+                        this.inject(o, plan.context, plan);
                 }
 
                 /**
@@ -112,72 +109,65 @@ public class ManiocFramework {
                  * @param context
                  */
                 public void inject(Object o, Class<? extends DefaultApplicationContext> context) {
-                        List<Class<?>> classAndSuperClasses = getClassAndSuperClasses(o);
-                        for (Class<?> aClass : classAndSuperClasses) {
-                                // Injects on fields (only if they haven't any value set)
-                                for (Field aField : aClass.getDeclaredFields()) {
-                                        InjectedBean propertyAnnotation = aField.getAnnotation(InjectedBean.class);
-                                        if (propertyAnnotation != null) {
-                                                aField.setAccessible(true);
-                                                if (!isFieldNUll(aField, o)) {
-                                                        continue;
-                                                }
-                                                Class<?> beanType = aField.getType();
-                                                boolean isInterface = beanType.isInterface();
-                                                if (isInterface) {
-                                                        boolean isImplementationFound = false;
-                                                        // Step 1 : take default implementation
-                                                        ImplementedBy defaultImplementationAnnotation = beanType.getAnnotation(ImplementedBy.class);
-                                                        if (defaultImplementationAnnotation != null) {
-                                                                beanType = defaultImplementationAnnotation.value();
-                                                                isImplementationFound = true;
-                                                        }
-                                                        // Step 2 : overwrite it by another one if declared
-                                                        // directly on the field
-                                                        if (!Object.class.equals(propertyAnnotation.implementation())) {
-                                                                beanType = propertyAnnotation.implementation();
-                                                                isImplementationFound = true;
-                                                        }
-                                                        // Step 3 : look for default impletation in factory
-                                                        if (BeanFactory.getFactory(context).getBean(beanType) != null) {
-                                                                isImplementationFound = true;
-                                                        }
-                                                        if (!isImplementationFound) {
-                                                                throw new ManiocException("Unable to find which implementation to use for a bean of type " + aField.getType().getName() + " . Application context is " + context.getSimpleName());
-                                                        }
-                                                }
+                        this.inject(o, context, getInjectionPlan(o.getClass()));
+                }
 
-                                                Object beanToInject = BeanFactory.getFactory(context).getBean(beanType);
-                                                if (beanToInject == null) {
-                                                        if (isInterface) {
-                                                                throw new ManiocException("Unable to inject a bean which implements " + aField.getType().getName() + " . Implementation excepted is " + beanType.getName() + ". Application context is " + context.getSimpleName());
-                                                        }
-                                                        if (!isInterface) {
-                                                                throw new ManiocException("Unable to inject a bean of type " + beanType.getName() + " . No such bean found. Application context is " + context.getSimpleName());
-                                                        }
-                                                }
-                                                try {
-                                                        aField.set(o, beanToInject);
-                                                } catch (IllegalArgumentException e) {
-                                                        throw new ManiocException("Error while setting field value of bean managed by the BeanFactory Application context is " + context.getSimpleName(), e);
-                                                } catch (IllegalAccessException e) {
-                                                        throw new ManiocException("Error while setting field value of bean managed by the BeanFactory Application context is " + context.getSimpleName(), e);
-                                                }
+                private void inject(Object o, Class<? extends DefaultApplicationContext> context, InjectionPlan plan) {
+                        if (plan.injectionPoints.length == 0) {
+                                return;
+                        }
+                        BeanFactory factory = BeanFactory.getFactory(context);
+                        for (InjectionPoint anInjectionPoint : plan.injectionPoints) {
+                                Field aField = anInjectionPoint.field;
+                                // Injects on fields (only if they haven't any value set)
+                                if (!isFieldNUll(aField, o)) {
+                                        continue;
+                                }
+                                Object beanToInject = factory.getBean(anInjectionPoint.beanType);
+                                if (beanToInject == null) {
+                                        if (anInjectionPoint.isInterface && !anInjectionPoint.isImplementationDeclared) {
+                                                throw new ManiocException("Unable to find which implementation to use for a bean of type " + aField.getType().getName() + " . Application context is " + context.getSimpleName());
+                                        }
+                                        if (anInjectionPoint.isInterface) {
+                                                throw new ManiocException("Unable to inject a bean which implements " + aField.getType().getName() + " . Implementation excepted is " + anInjectionPoint.beanType.getName() + ". Application context is " + context.getSimpleName());
                                         }
+                                        throw new ManiocException("Unable to inject a bean of type " + anInjectionPoint.beanType.getName() + " . No such bean found. Application context is " + context.getSimpleName());
+                                }
+                                try {
+                                        aField.set(o, beanToInject);
+                                } catch (IllegalArgumentException e) {
+                                        throw new ManiocException("Error while setting field value of bean managed by the BeanFactory Application context is " + context.getSimpleName(), e);
+                                } catch (IllegalAccessException e) {
+                                        throw new ManiocException("Error while setting field value of bean managed by the BeanFactory Application context is " + context.getSimpleName(), e);
                                 }
                         }
                 }
 
+                /**
+                 * Annotations of a class don't change : they are only read the first time an instance of this class is injected
+                 * 
+                 * @param implementationType
+                 * @return fields to inject, with the bean type to look for
+                 */
+                private InjectionPlan getInjectionPlan(Class<?> implementationType) {
+                        InjectionPlan plan = this.injectionPlans.get(implementationType);
+                        if (plan == null) {
+                                plan = new InjectionPlan(implementationType);
+                                this.injectionPlans.put(implementationType, plan);
+                        }
+                        return plan;
+                }
+
                 /**
                  * Takes an objet and returns its class and all its inherited communication
                  * 
-                 * @param o
+                 * @param implementationType
                  * @return
                  */
-                private List<Class<?>> getClassAndSuperClasses(Object o) {
+                private static List<Class<?>> getClassAndSuperClasses(Class<?> implementationType) {
                         List<Class<?>> result = new ArrayList<Class<?>>();
                         List<Class<?>> fifo = new ArrayList<Class<?>>();
-                        fifo.add(o.getClass());
+                        fifo.add(implementationType);
                         while (!fifo.isEmpty()) {
                                 Class<?> aClass = fifo.remove(0);
                                 ;
@@ -211,6 +201,77 @@ public class ManiocFramework {
                         return false;
                 }
 
+                /**
+                 * What has to be injected into the instances of a class
+                 */
+                private static class InjectionPlan {
+
+                        InjectionPlan(Class<?> implementationType) {
+                                ManagedBean annotation = implementationType.getAnnotation(ManagedBean.class);
+                                this.context = annotation != null ? annotation.applicationContext() : DefaultApplicationContext.class;
+                                List<InjectionPoint> points = new ArrayList<InjectionPoint>();
+                                for (Class<?> aClass : getClassAndSuperClasses(implementationType)) {
+                                        for (Field aField : aClass.getDeclaredFields()) {
+                                                InjectedBean propertyAnnotation = aField.getAnnotation(InjectedBean.class);
+                                                if (propertyAnnotation != null) {
+                                                        points.add(new InjectionPoint(aField, propertyAnnotation));
+                                                }
+                                        }
+                                }
+                                this.injectionPoints = points.toArray(new InjectionPoint[points.size()]);
+                        }
+
+                        /** Context of the class when none is given */
+                        final Class<? extends DefaultApplicationContext> context;
+
+                        /** Fields of the class then of its super classes */
+                        final InjectionPoint[] injectionPoints;
+                }
+
+                /**
+                 * A field annotated with \@InjectedBean
+                 */
+                private static class InjectionPoint {
+
+                        InjectionPoint(Field field, InjectedBean propertyAnnotation) {
+                                field.setAccessible(true);
+                                this.field = field;
+                                Class<?> beanType = field.getType();
+                                this.isInterface = beanType.isInterface();
+                                boolean isImplementationFound = false;
+                                if (this.isInterface) {
+                                        // Step 1 : take default implementation
+                                        ImplementedBy defaultImplementationAnnotation = beanType.getAnnotation(ImplementedBy.class);
+                                        if (defaultImplementationAnnotation != null) {
+                                                beanType = defaultImplementationAnnotation.value();
+                                                isImplementationFound = true;
+                                        }
+                                        // Step 2 : overwrite it by another one if declared
+                                        // directly on the field
+                                        if (!Object.class.equals(propertyAnnotation.implementation())) {
+                                                beanType = propertyAnnotation.implementation();
+                                                isImplementationFound = true;
+                                        }
+                                        // Step 3 (at injection time) : look for default impletation in factory
+                                }
+                                this.beanType = beanType;
+                                this.isImplementationDeclared = isImplementationFound;
+                        }
+
+                        final Field field;
+
+                        /** Bean looked for in the factory */
+                        final Class<?> beanType;
+
+                        final boolean isInterface;
+
+                        /** True if the implementation of an interface is given by \@ImplementedBy or \@InjectedBean */
+                        final boolean isImplementationDeclared;
+                }
+
+                /** Injection plans per injected class (objects may be injected from any thread) */
+                private final Map<Class<?>, InjectionPlan> injectionPlans = new ConcurrentHashMap<Class<?>, InjectionPlan>();
+
         }
 
         /**
@@ -283,7 +344,7 @@ public class ManiocFramework {
                  * @param context
                  * @return factory from the specified scope
                  */
-                public static BeanFactory getFactory(Class<? extends DefaultApplicationContext> context) {
+                public static synchronized BeanFactory getFactory(Class<? extends DefaultApplicationContext> context) {
                         ClassLoader currentClassLoader = BeanFactory.class.getClassLoader();
                         if (!factoryInstancesPerClassloader.containsKey(currentClassLoader)) {
                                 Map<Class<? extends DefaultApplicationContext>, BeanFactory> factoryInstances = new HashMap<Class<? extends DefaultApplicationContext>, ManiocFramework.BeanFactory>();
@@ -325,17 +386,19 @@ public class ManiocFramework {
                  * @return true if found
                  */
                 public <T> boolean contains(Class<T> classType) {
-                        Set<Object> beanSet = getManagedBeansForCurrentClassLoader().keySet();
-                        for (Object aBean : beanSet) {
-                                Class<? extends DefaultApplicationContext> beanContext = getManagedBeansForCurrentClassLoader().get(aBean);
-                                if (!beanContext.equals(this.context)) {
-                                        continue;
-                                }
-                                if (classType.isInstance(aBean)) {
-                                        return true;
+                        synchronized (BeanFactory.class) {
+                                Set<Object> beanSet = getManagedBeansForCurrentClassLoader().keySet();
+                                for (Object aBean : beanSet) {
+                                        Class<? extends DefaultApplicationContext> beanContext = getManagedBeansForCurrentClassLoader().get(aBean);
+                                        if (!beanContext.equals(this.context)) {
+                                                continue;
+                                        }
+                                        if (classType.isInstance(aBean)) {
+                                                return true;
+                                        }
                                 }
+                                return false;
                         }
-                        return false;
                 }
 
                 /**
@@ -346,21 +409,23 @@ public class ManiocFramework {
                  * @return
                  */
                 public <T> T getBean(Class<T> classType) {
-                        boolean isRegisteredManually = isRegisteredManually(classType);
-                        checkVisibilityFromCurrentContext(classType);
-                        T bean = getAlreadyExistingBean(classType);
-                        if (isRegisteredManually) {
-                                if (bean == null) {
-                                        throw new ManiocException("Unable to find a bean of type " + classType.getName() + " which is annotated with @" + ManagedBean.class.getSimpleName() + "(registeredManually=true). Application context is " + this.context.getSimpleName());
+                        synchronized (BeanFactory.class) {
+                                boolean isRegisteredManually = isRegisteredManually(classType);
+                                checkVisibilityFromCurrentContext(classType);
+                                T bean = getAlreadyExistingBean(classType);
+                                if (isRegisteredManually) {
+                                        if (bean == null) {
+                                                throw new ManiocException("Unable to find a bean of type " + classType.getName() + " which is annotated with @" + ManagedBean.class.getSimpleName() + "(registeredManually=true). Application context is " + this.context.getSimpleName());
+                                        }
                                 }
+                                if (bean != null) {
+                                        return bean;
+                                }
+                                if (!classType.isInterface()) {
+                                        return createBean(classType);
+                                }
+                                return null;
                         }
-                        if (bean != null) {
-                                return bean;
-                        }
-                        if (!classType.isInterface()) {
-                                return createBean(classType);
-                        }
-                        return null;
                 }
 
                 /**
@@ -515,39 +580,41 @@ public class ManiocFramework {
                  * @param aBean
                  */
                 public <T> void register(Class<T> classType, T bean) {
-                        boolean isInterface = classType.isInterface();
-                        if (!isInterface) {
-                                checkIfBeanIsManageable(classType);
-                                boolean isSingleton = isSingleton(classType);
-                                if (isSingleton) {
-                                        if (singletonsMap.containsKey(classType)) {
-                                                throw new ManiocException("Duplicate beans of type " + classType.getName() + " in the context " + this.context.getSimpleName());
+                        synchronized (BeanFactory.class) {
+                                boolean isInterface = classType.isInterface();
+                                if (!isInterface) {
+                                        checkIfBeanIsManageable(classType);
+                                        boolean isSingleton = isSingleton(classType);
+                                        if (isSingleton) {
+                                                if (singletonsMap.containsKey(classType)) {
+                                                        throw new ManiocException("Duplicate beans of type " + classType.getName() + " in the context " + this.context.getSimpleName());
+                                                }
+                                                singletonsMap.put(classType, bean);
                                         }
-                                        singletonsMap.put(classType, bean);
                                 }
-                        }
-                        if (isInterface) {
-                                checkIfBeanIsManageable(bean.getClass());
-                                boolean isSingleton = isSingleton(bean.getClass());
-                                if (isSingleton) {
-                                        if (singletonsMap.containsKey(classType)) {
-                                                throw new ManiocException("Duplicate beans of type " + classType.getName() + " in the context " + this.context.getSimpleName());
-                                        }
-                                        if (singletonsMap.containsKey(bean.getClass())) {
-                                                throw new ManiocException("Duplicate beans of type " + bean.getClass().getName() + " in the context " + this.context.getSimpleName());
+                                if (isInterface) {
+                                        checkIfBeanIsManageable(bean.getClass());
+                                        boolean isSingleton = isSingleton(bean.getClass());
+                                        if (isSingleton) {
+                                                if (singletonsMap.containsKey(classType)) {
+                                                        throw new ManiocException("Duplicate beans of type " + classType.getName() + " in the context " + this.context.getSimpleName());
+                                                }
+                                                if (singletonsMap.containsKey(bean.getClass())) {
+                                                        throw new ManiocException("Duplicate beans of type " + bean.getClass().getName() + " in the context " + this.context.getSimpleName());
+                                                }
+                                                singletonsMap.put(classType, bean);
+                                                singletonsMap.put(bean.getClass(), bean);
                                         }
-                                        singletonsMap.put(classType, bean);
-                                        singletonsMap.put(bean.getClass(), bean);
                                 }
+                                BeanInjector beanInjector = BeanInjector.getInjector();
+                                try {
+                                        beanInjector.inject(bean);
+                                } catch (ManiocException re) {
+                                        singletonsMap.remove(classType);
+                                        throw new ManiocException("Error while registering a bean of type " + classType.getName() + " . Application context is " + this.context.getSimpleName(), re);
+                                }
+                                getManagedBeansForCurrentClassLoader().put(bean, this.context);
                         }
-                        BeanInjector beanInjector = BeanInjector.getInjector();
-                        try {
-                                beanInjector.inject(bean);
-                        } catch (ManiocException re) {
-                                singletonsMap.remove(classType);
-                                throw new ManiocException("Error while registering a bean of type " + classType.getName() + " . Application context is " + this.context.getSimpleName(), re);
-                        }
-                        getManagedBeansForCurrentClassLoader().put(bean, this.context);
                 }
 
                 /**
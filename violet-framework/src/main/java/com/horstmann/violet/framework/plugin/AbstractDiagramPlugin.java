@@ -2,6 +2,9 @@ package com.horstmann.violet.framework.plugin;
 
 import com.horstmann.violet.framework.util.ResourceManager;
 import com.horstmann.violet.product.diagram.abstracts.IGraph;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.ResourceBundle;
 
 /**
@@ -34,11 +37,22 @@ public abstract class AbstractDiagramPlugin implements IDiagramPlugin
     protected final void addResourceBundle(ResourceBundle resourceBundle)
     {
         this.resourceManager.addResource(resourceBundle);
+        this.resourceBundleNames.add(resourceBundle.getBaseBundleName());
     }
 
     protected final void addResourceBundle(String baseName)
     {
         this.resourceManager.addResource(baseName);
+        this.resourceBundleNames.add(baseName);
+    }
+
+    /**
+     * @return base names of the resource bundles giving the plugin's name, category, file extension..., in the order they
+     *         were added (null elements for bundles not loaded by name)
+     */
+    final List<String> getResourceBundleNames()
+    {
+        return Collections.unmodifiableList(this.resourceBundleNames);
     }
 
     /**
@@ -123,6 +137,7 @@ public abstract class AbstractDiagramPlugin implements IDiagramPlugin
     }
 
     private ResourceManager resourceManager;
+    private final List<String> resourceBundleNames = new ArrayList<String>();
     private final Class<? extends IGraph> graphClass;
 
     private static final String DESCRIPTION_SHORT = "description.short";
@@ -0,0 +1,182 @@
+package com.horstmann.violet.framework.plugin;
+
+import com.horstmann.violet.framework.plugin.extensionpoint.Violet016FileFilterExtensionPoint;
+import com.horstmann.violet.product.diagram.abstracts.IGraph;
+import java.util.Map;
+
+/**
+ * Diagram plugin known from a plugin index. The name, category, file extension... of plugins extending AbstractDiagramPlugin
+ * are read from their resource bundles, so that the plugin class is only loaded and instantiated when its version, provider
+ * or full description is needed.
+ */
+class IndexedDiagramPlugin implements IDiagramPlugin, Violet016FileFilterExtensionPoint
+{
+
+    /**
+     * @param index description of the plugin
+     * @param classLoader loader of the plugin jar
+     */
+    IndexedDiagramPlugin(PluginIndex index, ClassLoader classLoader)
+    {
+        this.index = index;
+        this.classLoader = classLoader;
+    }
+
+    /**
+     * @return description of the plugin
+     */
+    PluginIndex getIndex()
+    {
+        return this.index;
+    }
+
+    @Override
+    public String getProvider()
+    {
+        return getPlugin().getProvider();
+    }
+
+    @Override
+    public String getVersion()
+    {
+        return getPlugin().getVersion();
+    }
+
+    @Override
+    public String getShortDescription()
+    {
+        return getDescription().getShortDescription();
+    }
+
+    @Override
+    public String getFullDescription()
+    {
+        return getPlugin().getFullDescription();
+    }
+
+    @Override
+    public String getName()
+    {
+        return getDescription().getName();
+    }
+
+    @Override
+    public String getCategory()
+    {
+        return getDescription().getCategory();
+    }
+
+    @Override
+    public String getFileExtension()
+    {
+        return getDescription().getFileExtension();
+    }
+
+    @Override
+    public String getFileExtensionName()
+    {
+        return getDescription().getFileExtensionName();
+    }
+
+    @Override
+    public String getSampleFilePath()
+    {
+        return getDescription().getSampleFilePath();
+    }
+
+    /**
+     * Loads the graph class without instantiating the plugin
+     */
+    @Override
+    public Class<? extends IGraph> getGraphClass()
+    {
+        try
+        {
+            return Class.forName(this.index.getGraphClassName(), false, this.classLoader).asSubclass(IGraph.class);
+        }
+        catch (ClassNotFoundException e)
+        {
+            throw new RuntimeException("Graph class of plugin " + this.index.getPluginClassName() + " not found", e);
+        }
+    }
+
+    @Override
+    public Map<String, String> getMappingToKeepViolet016Compatibility()
+    {
+        return this.index.getViolet016Mapping();
+    }
+
+    /**
+     * @return the plugin itself or, when the index gives its resource bundles, a plugin made of them which answers the
+     *         final AbstractDiagramPlugin methods the same way
+     */
+    private synchronized IDiagramPlugin getDescription()
+    {
+        if (this.description == null)
+        {
+            if (this.index.getResourceBundleNames().isEmpty())
+            {
+                this.description = getPlugin();
+            }
+            else
+            {
+                this.description = new Description();
+            }
+        }
+        return this.description;
+    }
+
+    private synchronized IDiagramPlugin getPlugin()
+    {
+        if (this.plugin == null)
+        {
+            try
+            {
+                Class<?> pluginClass = Class.forName(this.index.getPluginClassName(), true, this.classLoader);
+                this.plugin = (IDiagramPlugin) pluginClass.newInstance();
+            }
+            catch (Exception e)
+            {
+                throw new RuntimeException("Cannot instantiate plugin " + this.index.getPluginClassName(), e);
+            }
+        }
+        return this.plugin;
+    }
+
+    /**
+     * Plugin built from the indexed resource bundles
+     */
+    private class Description extends AbstractDiagramPlugin
+    {
+        Description()
+        {
+            super(IndexedDiagramPlugin.this.getGraphClass());
+            for (String aResourceBundleName : IndexedDiagramPlugin.this.index.getResourceBundleNames())
+            {
+                addResourceBundle(aResourceBundleName);
+            }
+        }
+
+        @Override
+        public String getVersion()
+        {
+            return IndexedDiagramPlugin.this.getVersion();
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return this.index.getPluginClassName();
+    }
+
+    private final PluginIndex index;
+
+    private final ClassLoader classLoader;
+
+    /** Real plugin, instantiated on first use */
+    private IDiagramPlugin plugin;
+
+    private IDiagramPlugin description;
+
+}
@@ -0,0 +1,295 @@
+package com.horstmann.violet.framework.plugin;
+
+import com.horstmann.violet.framework.plugin.extensionpoint.Violet016FileFilterExtensionPoint;
+import com.horstmann.violet.product.diagram.abstracts.IGraph;
+import com.horstmann.violet.product.diagram.abstracts.edge.IEdge;
+import com.horstmann.violet.product.diagram.abstracts.node.INode;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * Describes a diagram plugin without loading it. Plugin jars embed the description of each of their plugins in a properties
+ * file (see getIndexPath()) generated at build time by PluginIndexWriter, so that the plugin loader doesn't have to
+ * instantiate every plugin at startup.
+ */
+class PluginIndex
+{
+
+    PluginIndex(String pluginClassName, String graphClassName, List<String> nodeClassNames, List<String> edgeClassNames,
+            List<String> resourceBundleNames, Map<String, String> violet016Mapping)
+    {
+        this.pluginClassName = pluginClassName;
+        this.graphClassName = graphClassName;
+        this.nodeClassNames = Collections.unmodifiableList(new ArrayList<String>(nodeClassNames));
+        this.edgeClassNames = Collections.unmodifiableList(new ArrayList<String>(edgeClassNames));
+        this.resourceBundleNames = Collections.unmodifiableList(new ArrayList<String>(resourceBundleNames));
+        this.violet016Mapping = Collections.unmodifiableMap(new TreeMap<String, String>(violet016Mapping));
+    }
+
+    /**
+     * @return class implementing IDiagramPlugin
+     */
+    String getPluginClassName()
+    {
+        return this.pluginClassName;
+    }
+
+    /**
+     * @return class returned by IDiagramPlugin.getGraphClass()
+     */
+    String getGraphClassName()
+    {
+        return this.graphClassName;
+    }
+
+    /**
+     * @return classes of the graph's node prototypes
+     */
+    List<String> getNodeClassNames()
+    {
+        return this.nodeClassNames;
+    }
+
+    /**
+     * @return classes of the graph's edge prototypes
+     */
+    List<String> getEdgeClassNames()
+    {
+        return this.edgeClassNames;
+    }
+
+    /**
+     * @return base names of the resource bundles of a plugin extending AbstractDiagramPlugin, in the order the plugin adds
+     *         them (empty if the plugin's name, file extension... can only be known from an instance)
+     */
+    List<String> getResourceBundleNames()
+    {
+        return this.resourceBundleNames;
+    }
+
+    /**
+     * @return Violet 0.16 compatibility mapping of the plugin (empty if it doesn't implement
+     *         Violet016FileFilterExtensionPoint)
+     */
+    Map<String, String> getViolet016Mapping()
+    {
+        return this.violet016Mapping;
+    }
+
+    /**
+     * Describes a plugin from an instance of it
+     *
+     * @param plugin
+     * @return plugin description
+     * @throws Exception if the graph cannot be instantiated
+     */
+    static PluginIndex describe(IDiagramPlugin plugin) throws Exception
+    {
+        IGraph graph = plugin.getGraphClass().newInstance();
+        List<String> nodeClassNames = new ArrayList<String>();
+        for (INode aNodePrototype : graph.getNodePrototypes())
+        {
+            nodeClassNames.add(aNodePrototype.getClass().getName());
+        }
+        List<String> edgeClassNames = new ArrayList<String>();
+        for (IEdge anEdgePrototype : graph.getEdgePrototypes())
+        {
+            edgeClassNames.add(anEdgePrototype.getClass().getName());
+        }
+        List<String> resourceBundleNames = Collections.emptyList();
+        if (plugin instanceof AbstractDiagramPlugin)
+        {
+            List<String> pluginResourceBundleNames = ((AbstractDiagramPlugin) plugin).getResourceBundleNames();
+            if (!pluginResourceBundleNames.contains(null))
+            {
+                resourceBundleNames = pluginResourceBundleNames;
+            }
+        }
+        Map<String, String> violet016Mapping = Collections.emptyMap();
+        if (plugin instanceof Violet016FileFilterExtensionPoint)
+        {
+            violet016Mapping = ((Violet016FileFilterExtensionPoint) plugin).getMappingToKeepViolet016Compatibility();
+        }
+        return new PluginIndex(plugin.getClass().getName(), plugin.getGraphClass().getName(), nodeClassNames, edgeClassNames,
+                resourceBundleNames, violet016Mapping);
+    }
+
+    /**
+     * @param pluginClassName class implementing IDiagramPlugin
+     * @return location of the plugin's index in its jar. Each plugin has its own file, so that the indexes of several plugin
+     *         jars can be merged into a single jar.
+     */
+    static String getIndexPath(String pluginClassName)
+    {
+        return INDEX_DIRECTORY + pluginClassName + INDEX_EXTENSION;
+    }
+
+    /**
+     * Reads an index file
+     *
+     * @param pluginClassName plugin described by the file
+     * @param in (not closed)
+     * @return plugin description
+     * @throws IOException
+     */
+    static PluginIndex read(String pluginClassName, InputStream in) throws IOException
+    {
+        Properties properties = new Properties();
+        properties.load(in);
+        String graphClassName = properties.getProperty(GRAPH_KEY);
+        if (graphClassName == null)
+        {
+            throw new IOException("No graph class indexed for plugin " + pluginClassName);
+        }
+        List<String> nodeClassNames = split(properties.getProperty(NODES_KEY));
+        List<String> edgeClassNames = split(properties.getProperty(EDGES_KEY));
+        List<String> resourceBundleNames = split(properties.getProperty(RESOURCES_KEY));
+        Map<String, String> violet016Mapping = new TreeMap<String, String>();
+        for (String aKey : properties.stringPropertyNames())
+        {
+            if (aKey.startsWith(VIOLET016_PREFIX))
+            {
+                violet016Mapping.put(aKey.substring(VIOLET016_PREFIX.length()), properties.getProperty(aKey));
+            }
+        }
+        return new PluginIndex(pluginClassName, graphClassName, nodeClassNames, edgeClassNames, resourceBundleNames,
+                violet016Mapping);
+    }
+
+    /**
+     * Writes the index file of this plugin. Unlike Properties.store(), no timestamp is written and keys are sorted, so that
+     * builds are reproducible.
+     *
+     * @param out (not closed)
+     * @throws IOException
+     */
+    void write(OutputStream out) throws IOException
+    {
+        Writer writer = new OutputStreamWriter(out, "ISO-8859-1");
+        writer.write("# Violet plugin index generated at build time by " + PluginIndexWriter.class.getName() + "\n");
+        writeProperty(writer, GRAPH_KEY, getGraphClassName());
+        writeProperty(writer, NODES_KEY, join(getNodeClassNames()));
+        writeProperty(writer, EDGES_KEY, join(getEdgeClassNames()));
+        writeProperty(writer, RESOURCES_KEY, join(getResourceBundleNames()));
+        for (Map.Entry<String, String> anEntry : getViolet016Mapping().entrySet())
+        {
+            writeProperty(writer, VIOLET016_PREFIX + anEntry.getKey(), anEntry.getValue());
+        }
+        writer.flush();
+    }
+
+    private static void writeProperty(Writer writer, String key, String value) throws IOException
+    {
+        writer.write(escape(key, true));
+        writer.write('=');
+        writer.write(escape(value, false));
+        writer.write('\n');
+    }
+
+    /**
+     * Escapes a key or a value as Properties.load() expects it
+     */
+    private static String escape(String text, boolean isKey)
+    {
+        StringBuilder result = new StringBuilder();
+        for (int i = 0; i < text.length(); i++)
+        {
+            char c = text.charAt(i);
+            if (c == ' ' && (isKey || i == 0))
+            {
+                result.append("\\ ");
+            }
+            else if (c == '\\' || c == '=' || c == ':' || c == '#' || c == '!')
+            {
+                result.append('\\').append(c);
+            }
+            else if (c == '\n')
+            {
+                result.append("\\n");
+            }
+            else if (c == '\r')
+            {
+                result.append("\\r");
+            }
+            else if (c == '\t')
+            {
+                result.append("\\t");
+            }
+            else if (c < 0x20 || c > 0x7e)
+            {
+                result.append(String.format("\\u%04x", (int) c));
+            }
+            else
+            {
+                result.append(c);
+            }
+        }
+        return result.toString();
+    }
+
+    private static List<String> split(String value)
+    {
+        if (value == null || value.trim().isEmpty())
+        {
+            return Collections.emptyList();
+        }
+        List<String> result = new ArrayList<String>();
+        for (String aClassName : value.split(SEPARATOR))
+        {
+            result.add(aClassName.trim());
+        }
+        return result;
+    }
+
+    private static String join(List<String> classNames)
+    {
+        StringBuilder result = new StringBuilder();
+        for (String aClassName : classNames)
+        {
+            if (result.length() > 0)
+            {
+                result.append(SEPARATOR);
+            }
+            result.append(aClassName);
+        }
+        return result.toString();
+    }
+
+    private static final String INDEX_DIRECTORY = "META-INF/violet/plugins/";
+
+    private static final String INDEX_EXTENSION = ".properties";
+
+    private static final String GRAPH_KEY = "graph";
+
+    private static final String NODES_KEY = "nodes";
+
+    private static final String EDGES_KEY = "edges";
+
+    private static final String RESOURCES_KEY = "resources";
+
+    private static final String VIOLET016_PREFIX = "violet016.";
+
+    private static final String SEPARATOR = ",";
+
+    private final String pluginClassName;
+
+    private final String graphClassName;
+
+    private final List<String> nodeClassNames;
+
+    private final List<String> edgeClassNames;
+
+    private final List<String> resourceBundleNames;
+
+    private final Map<String, String> violet016Mapping;
+
+}
@@ -0,0 +1,64 @@
+package com.horstmann.violet.framework.plugin;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * Generates the plugin index of a plugin module (see PluginIndex). Run by the plugin modules' build once their classes are
+ * compiled, with the compiled classes directory as argument : the plugins listed in its
+ * META-INF/services/com.horstmann.violet.framework.plugin.IDiagramPlugin file are instantiated to describe them.
+ */
+public class PluginIndexWriter
+{
+
+    /**
+     * @param args compiled classes directory of the plugin module
+     * @throws Exception
+     */
+    public static void main(String[] args) throws Exception
+    {
+        if (args.length != 1)
+        {
+            throw new IllegalArgumentException("Usage : PluginIndexWriter <classes directory>");
+        }
+        // Prototypes are swing based
+        System.setProperty("java.awt.headless", "true");
+        File classesDirectory = new File(args[0]);
+        File serviceFile = new File(classesDirectory, PluginLoader.SERVICE_FILE_PATH);
+        if (!serviceFile.isFile())
+        {
+            return;
+        }
+        List<String> pluginClassNames;
+        InputStream in = new FileInputStream(serviceFile);
+        try
+        {
+            pluginClassNames = PluginLoader.readServiceFile(in);
+        }
+        finally
+        {
+            in.close();
+        }
+        for (String aPluginClassName : pluginClassNames)
+        {
+            Class<?> pluginClass = Class.forName(aPluginClassName, true, PluginIndexWriter.class.getClassLoader());
+            PluginIndex index = PluginIndex.describe((IDiagramPlugin) pluginClass.newInstance());
+            File indexFile = new File(classesDirectory, PluginIndex.getIndexPath(aPluginClassName));
+            indexFile.getParentFile().mkdirs();
+            OutputStream out = new FileOutputStream(indexFile);
+            try
+            {
+                index.write(out);
+            }
+            finally
+            {
+                out.close();
+            }
+        }
+    }
+
+}
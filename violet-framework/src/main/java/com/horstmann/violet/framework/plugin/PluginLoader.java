@@ -5,39 +5,153 @@ import com.horstmann.violet.framework.file.persistence.Violet016BackportFormatSe
 import com.horstmann.violet.framework.injection.bean.ManiocFramework.InjectedBean;
 import com.horstmann.violet.framework.injection.bean.ManiocFramework.ManagedBean;
 import com.horstmann.violet.framework.plugin.extensionpoint.Violet016FileFilterExtensionPoint;
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileFilter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLClassLoader;
 import java.util.ArrayList;
 import java.util.Enumeration;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.ServiceLoader;
-import java.util.jar.JarEntry;
-import java.util.jar.JarFile;
-import org.apache.commons.vfs.FileObject;
-import org.apache.commons.vfs.FileSystemManager;
-import org.apache.commons.vfs.VFS;
-import org.apache.commons.vfs.impl.VFSClassLoader;
+import java.util.Set;
 
 @ManagedBean
 public class PluginLoader extends ClassLoader
 {
+    /**
+     * Registers the plugins declared as java.util.ServiceLoader providers on the classpath. Plugin jars come with an index of
+     * each of their plugins (see PluginIndexWriter) : these plugins are only instantiated when they are used for the first
+     * time. The other plugins are instantiated right away.
+     */
     public void installPlugins()
     {
-        ServiceLoader<IDiagramPlugin> list = ServiceLoader.load(IDiagramPlugin.class, this.getClass().getClassLoader());
-        for (IDiagramPlugin aPlugin : list)
+        ClassLoader classLoader = this.getClass().getClassLoader();
+        Set<String> installedPluginClassNames = new HashSet<String>();
+        for (String aPluginClassName : readServiceFiles(classLoader))
         {
-            this.pluginRegistry.register(aPlugin);
-            if (aPlugin instanceof Violet016FileFilterExtensionPoint)
+            if (!installedPluginClassNames.add(aPluginClassName))
             {
-                Violet016FileFilterExtensionPoint extensionPoint = (Violet016FileFilterExtensionPoint) aPlugin;
-                Map<String, String> mappingToKeepViolet016Compatibility = extensionPoint.getMappingToKeepViolet016Compatibility();
-                Violet016BackportFormatService.addViolet016CompatibilityEntries(mappingToKeepViolet016Compatibility);
+                continue;
+            }
+            PluginIndex index = readPluginIndex(aPluginClassName, classLoader);
+            if (index != null)
+            {
+                install(new IndexedDiagramPlugin(index, classLoader));
+            }
+            else
+            {
+                install(instantiate(aPluginClassName, classLoader));
+            }
+        }
+    }
+
+    private void install(IDiagramPlugin aPlugin)
+    {
+        this.pluginRegistry.register(aPlugin);
+        if (aPlugin instanceof Violet016FileFilterExtensionPoint)
+        {
+            Violet016FileFilterExtensionPoint extensionPoint = (Violet016FileFilterExtensionPoint) aPlugin;
+            Map<String, String> mappingToKeepViolet016Compatibility = extensionPoint.getMappingToKeepViolet016Compatibility();
+            Violet016BackportFormatService.addViolet016CompatibilityEntries(mappingToKeepViolet016Compatibility);
+        }
+    }
+
+    /**
+     * @return index of the plugin or null if its jar has none
+     */
+    private PluginIndex readPluginIndex(String pluginClassName, ClassLoader classLoader)
+    {
+        URL indexUrl = classLoader.getResource(PluginIndex.getIndexPath(pluginClassName));
+        if (indexUrl == null)
+        {
+            return null;
+        }
+        try
+        {
+            InputStream in = indexUrl.openStream();
+            try
+            {
+                return PluginIndex.read(pluginClassName, in);
+            }
+            finally
+            {
+                in.close();
+            }
+        }
+        catch (IOException e)
+        {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private List<String> readServiceFiles(ClassLoader classLoader)
+    {
+        List<String> result = new ArrayList<String>();
+        try
+        {
+            Enumeration<URL> serviceFileUrls = classLoader.getResources(SERVICE_FILE_PATH);
+            while (serviceFileUrls.hasMoreElements())
+            {
+                InputStream in = serviceFileUrls.nextElement().openStream();
+                try
+                {
+                    result.addAll(readServiceFile(in));
+                }
+                finally
+                {
+                    in.close();
+                }
+            }
+        }
+        catch (IOException e)
+        {
+            throw new RuntimeException(e);
+        }
+        return result;
+    }
+
+    /**
+     * @param in java.util.ServiceLoader provider file (not closed)
+     * @return class names listed in the file
+     * @throws IOException
+     */
+    static List<String> readServiceFile(InputStream in) throws IOException
+    {
+        List<String> result = new ArrayList<String>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, "UTF-8"));
+        String line;
+        while ((line = reader.readLine()) != null)
+        {
+            int commentIndex = line.indexOf('#');
+            if (commentIndex >= 0)
+            {
+                line = line.substring(0, commentIndex);
+            }
+            line = line.trim();
+            if (!line.isEmpty())
+            {
+                result.add(line);
             }
         }
+        return result;
+    }
+
+    private IDiagramPlugin instantiate(String pluginClassName, ClassLoader classLoader)
+    {
+        try
+        {
+            return (IDiagramPlugin) Class.forName(pluginClassName, true, classLoader).newInstance();
+        }
+        catch (Exception e)
+        {
+            throw new RuntimeException("Cannot instantiate plugin " + pluginClassName, e);
+        }
     }
 
     private ClassLoader getExternalClassLoader()
@@ -67,49 +181,9 @@ public class PluginLoader extends ClassLoader
         return new URLClassLoader(pluginJarUrls);
     }
 
-    private ClassLoader getJarInJarClassLoader()
-    {
-        try
-        {
-            FileSystemManager fsManager = VFS.getManager();
-            List<FileObject> innerJarFiles = new ArrayList<FileObject>();
-            String classPathContent = System.getProperty("java.class.path");
-            String[] classPathFiles = classPathContent.split(File.pathSeparator);
-            for (String aClassPathFile : classPathFiles)
-            {
-                File testingFile = new File(aClassPathFile);
-                if (!testingFile.exists())
-                {
-                    continue;
-                }
-                if (testingFile.isDirectory())
-                {
-                    continue;
-                }
-                if (testingFile.getName().toLowerCase().endsWith(".jar"))
-                {
-                    continue;
-                }
-                JarFile jarFile = new JarFile(testingFile);
-                Enumeration<JarEntry> jarEntries = jarFile.entries();
-                while (jarEntries.hasMoreElements())
-                {
-                    JarEntry entry = jarEntries.nextElement();
-                    if (entry.isDirectory()) continue;
-                    if (!entry.getName().toLowerCase().endsWith(".jar")) continue;
-                    FileObject innetJarFile = fsManager.resolveFile("jar:" + entry.getName());
-                    innerJarFiles.add(innetJarFile);
-                }
-            }
-            VFSClassLoader cl = new VFSClassLoader(innerJarFiles.toArray(new FileObject[innerJarFiles.size()]), fsManager);
-            return cl;
-        }
-        catch (Exception e1)
-        {
-            throw new RuntimeException(e1);
-        }
-    }
-    
+    /** Location of the java.util.ServiceLoader provider files declaring diagram plugins */
+    static final String SERVICE_FILE_PATH = "META-INF/services/" + IDiagramPlugin.class.getName();
+
     /** Registry where we register loaded plugins */
     @InjectedBean
     private PluginRegistry pluginRegistry;
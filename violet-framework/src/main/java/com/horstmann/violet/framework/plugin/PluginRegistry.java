@@ -1,8 +1,12 @@
 package com.horstmann.violet.framework.plugin;
 
 import com.horstmann.violet.framework.injection.bean.ManiocFramework.ManagedBean;
+import com.horstmann.violet.product.diagram.abstracts.edge.IEdge;
+import com.horstmann.violet.product.diagram.abstracts.node.INode;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Plugin registry
@@ -29,6 +33,15 @@ public class PluginRegistry
     public void register(IDiagramPlugin newDiagramPlugin)
     {
         this.diagramPlugins.add(newDiagramPlugin);
+        this.modificationCount++;
+    }
+
+    /**
+     * @return a number which changes each time a plugin is registered (allows to rebuild data computed from the plugin list)
+     */
+    public int getModificationCount()
+    {
+        return this.modificationCount;
     }
     
     /**
@@ -38,8 +51,78 @@ public class PluginRegistry
         return this.diagramPlugins;
     }
 
+    /**
+     * @param diagramPlugin registered diagram plugin
+     * @return classes of the node prototypes of the plugin's graph. Indexed plugins give them without creating any prototype.
+     */
+    public List<Class<? extends INode>> getNodeClasses(IDiagramPlugin diagramPlugin)
+    {
+        return loadClasses(getIndex(diagramPlugin).getNodeClassNames(), diagramPlugin, INode.class);
+    }
+
+    /**
+     * @param diagramPlugin registered diagram plugin
+     * @return classes of the edge prototypes of the plugin's graph. Indexed plugins give them without creating any prototype.
+     */
+    public List<Class<? extends IEdge>> getEdgeClasses(IDiagramPlugin diagramPlugin)
+    {
+        return loadClasses(getIndex(diagramPlugin).getEdgeClassNames(), diagramPlugin, IEdge.class);
+    }
+
+    /**
+     * @return the plugin's index or, for plugins installed without one, a description made from a graph instance
+     */
+    private synchronized PluginIndex getIndex(IDiagramPlugin diagramPlugin)
+    {
+        if (diagramPlugin instanceof IndexedDiagramPlugin)
+        {
+            return ((IndexedDiagramPlugin) diagramPlugin).getIndex();
+        }
+        PluginIndex index = this.describedPlugins.get(diagramPlugin);
+        if (index == null)
+        {
+            try
+            {
+                index = PluginIndex.describe(diagramPlugin);
+            }
+            catch (Exception e)
+            {
+                throw new RuntimeException(e);
+            }
+            this.describedPlugins.put(diagramPlugin, index);
+        }
+        return index;
+    }
+
+    /**
+     * Loads classes without initializing them
+     */
+    private <T> List<Class<? extends T>> loadClasses(List<String> classNames, IDiagramPlugin diagramPlugin, Class<T> type)
+    {
+        ClassLoader classLoader = diagramPlugin.getGraphClass().getClassLoader();
+        List<Class<? extends T>> result = new ArrayList<Class<? extends T>>();
+        for (String aClassName : classNames)
+        {
+            try
+            {
+                result.add(Class.forName(aClassName, false, classLoader).asSubclass(type));
+            }
+            catch (ClassNotFoundException e)
+            {
+                throw new RuntimeException(e);
+            }
+        }
+        return result;
+    }
+
     /** diagram plugins */
     private List<IDiagramPlugin> diagramPlugins = new ArrayList<IDiagramPlugin>();
 
+    /** descriptions of the plugins installed without index */
+    private Map<IDiagramPlugin, PluginIndex> describedPlugins = new HashMap<IDiagramPlugin, PluginIndex>();
+
+    /** incremented on each registration */
+    private volatile int modificationCount = 0;
+
 
 }
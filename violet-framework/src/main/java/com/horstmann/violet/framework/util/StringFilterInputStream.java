@@ -0,0 +1,136 @@
+package com.horstmann.violet.framework.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+
+/**
+ * This class is an inputstream filter. It replaces all the key ocurrences issued from the map by its value while the data is
+ * read, a chunk at a time.
+ */
+public class StringFilterInputStream extends FilterInputStream
+{
+
+    /**
+     * Default constructor
+     *
+     * @param in UTF-8 inputstream to filter
+     * @param replaceMap pairs of key/value to filter
+     */
+    public StringFilterInputStream(InputStream in, Map<String, String> replaceMap)
+    {
+        super(in);
+        this.replacer = new StringReplacer(this.filteredChunk, replaceMap);
+    }
+
+    @Override
+    public int read() throws IOException
+    {
+        if (!fillChunk())
+        {
+            return -1;
+        }
+        return this.chunk[this.chunkPosition++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException
+    {
+        if (len == 0)
+        {
+            return 0;
+        }
+        if (!fillChunk())
+        {
+            return -1;
+        }
+        int count = Math.min(len, this.chunk.length - this.chunkPosition);
+        System.arraycopy(this.chunk, this.chunkPosition, b, off, count);
+        this.chunkPosition += count;
+        return count;
+    }
+
+    @Override
+    public long skip(long n) throws IOException
+    {
+        long skipped = 0;
+        while (skipped < n && fillChunk())
+        {
+            int count = (int) Math.min(n - skipped, this.chunk.length - this.chunkPosition);
+            this.chunkPosition += count;
+            skipped += count;
+        }
+        return skipped;
+    }
+
+    @Override
+    public int available() throws IOException
+    {
+        return this.chunk.length - this.chunkPosition;
+    }
+
+    @Override
+    public boolean markSupported()
+    {
+        return false;
+    }
+
+    @Override
+    public synchronized void mark(int readlimit)
+    {
+    }
+
+    @Override
+    public synchronized void reset() throws IOException
+    {
+        throw new IOException("mark/reset not supported");
+    }
+
+    /**
+     * Filters the next chunk of the original stream if the current one has been read
+     *
+     * @return false at the end of the stream
+     */
+    private boolean fillChunk() throws IOException
+    {
+        while (this.chunkPosition == this.chunk.length)
+        {
+            if (this.isEndReached)
+            {
+                return false;
+            }
+            int count = this.in.read(this.buffer);
+            if (count < 0)
+            {
+                this.replacer.finish();
+                this.isEndReached = true;
+            }
+            else
+            {
+                this.replacer.write(this.buffer, 0, count);
+            }
+            this.chunk = this.filteredChunk.toByteArray();
+            this.chunkPosition = 0;
+            this.filteredChunk.reset();
+        }
+        return true;
+    }
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+
+    private final ByteArrayOutputStream filteredChunk = new ByteArrayOutputStream(BUFFER_SIZE);
+
+    private final StringReplacer replacer;
+
+    /** Filtered bytes not read yet */
+    private byte[] chunk = new byte[0];
+
+    private int chunkPosition;
+
+    private boolean isEndReached;
+
+}
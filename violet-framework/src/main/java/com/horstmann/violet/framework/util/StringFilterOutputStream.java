@@ -21,88 +21,72 @@
 
 package com.horstmann.violet.framework.util;
 
-import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.io.UnsupportedEncodingException;
-import java.util.Iterator;
 import java.util.Map;
-import java.util.Set;
 
 /**
- * This class is an outputstream filter. It means that it will filter the given inputstream and replace all the key ocurrences
+ * This class is an outputstream filter. It means that it will filter the given outputstream and replace all the key ocurrences
  * issued form the map by its value.
  * 
- * Very important note : due to outputstream behaviour, it can be filtered only after having retreived all data. In other words,
- * when close() method is called. So, filtering and writing to outputstream is done during close().
+ * Data is filtered as it is written. Only the end of a partially matched key is kept until the next write, so close() must be
+ * called to write it.
  * 
  * @author Alexandre de Pellegrin
  * 
  */
-public class StringFilterOutputStream extends ByteArrayOutputStream
+public class StringFilterOutputStream extends FilterOutputStream
 {
 
     /**
      * Default constructor
      * 
-     * @param out outputstream to filter
+     * @param out UTF-8 outputstream to filter
      * @param replaceMap pairs of key/value to filter
      */
     public StringFilterOutputStream(OutputStream out, Map<String, String> replaceMap)
     {
-        super();
-        this.replaceMap = replaceMap;
-        this.originalOutputStream = out;
+        super(out);
+        this.replacer = new StringReplacer(out, replaceMap);
     }
 
-    /*
-     * (non-Javadoc)
-     * 
-     * @see java.io.ByteArrayOutputStream#close()
-     */
-    public void close() throws IOException
+    @Override
+    public void write(int b) throws IOException
     {
-        String filteredContent = getFilteredContent(this.toString("UTF-8"), this.replaceMap);
-        try
+        write(new byte[]
         {
-            this.originalOutputStream.write(filteredContent.getBytes("UTF-8"));
-        }
-        catch (UnsupportedEncodingException ex)
-        {
-            ex.printStackTrace();
-            this.originalOutputStream.write(filteredContent.getBytes());
-        }
-        this.originalOutputStream.close();
-        super.close();
+            (byte) b
+        }, 0, 1);
     }
 
-    /**
-     * Filters a string and replaces all key courrences issed from the map by its valye
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException
+    {
+        this.replacer.write(b, off, len);
+    }
+
+    /*
+     * (non-Javadoc)
      * 
-     * @param input string
-     * @param replaceMap key = searchedString / value = replaceString
-     * @return filtered string
+     * @see java.io.FilterOutputStream#close()
      */
-    private String getFilteredContent(String input, Map<String, String> replaceMap)
+    public void close() throws IOException
     {
-        Set<String> set = replaceMap.keySet();
-        for (Iterator<String> iter = set.iterator(); iter.hasNext();)
+        if (this.isClosed)
         {
-            String searchedStr = iter.next();
-            String replaceStr = replaceMap.get(searchedStr);
-            input = input.replaceAll(searchedStr, replaceStr);
+            return;
         }
-        return input;
+        this.isClosed = true;
+        this.replacer.finish();
+        super.close();
     }
 
     /**
-     * Map containing pairs of key/value as searchedString/replaceString
+     * Does the replacements
      */
-    private Map<String, String> replaceMap;
+    private final StringReplacer replacer;
 
-    /**
-     * The outputstream to filter
-     */
-    private OutputStream originalOutputStream;
+    private boolean isClosed;
 
 }
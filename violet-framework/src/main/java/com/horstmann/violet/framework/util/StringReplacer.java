@@ -0,0 +1,182 @@
+package com.horstmann.violet.framework.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.util.Map;
+
+/**
+ * Replaces strings in a stream of UTF-8 bytes in a single pass. Searched strings are stored in a trie : each byte is looked up
+ * once, except when a partial match fails, and bytes which can't start a searched string are copied as they come.
+ *
+ * When several searched strings match at the same place, the longest one is replaced. Only the bytes of a partial match are
+ * kept until the next write (or finish()), so memory doesn't depend on the stream size.
+ */
+class StringReplacer
+{
+
+    /**
+     * @param out where the filtered bytes are written
+     * @param replaceMap key = searchedString / value = replaceString
+     */
+    StringReplacer(OutputStream out, Map<String, String> replaceMap)
+    {
+        this.out = out;
+        int maxKeyLength = 0;
+        for (Map.Entry<String, String> anEntry : replaceMap.entrySet())
+        {
+            byte[] key = toBytes(anEntry.getKey());
+            if (key.length == 0)
+            {
+                continue;
+            }
+            Node node = this.root;
+            for (byte b : key)
+            {
+                node = node.getOrAddChild(b);
+            }
+            node.replacement = toBytes(anEntry.getValue());
+            this.isKeyStart[key[0] & 0xFF] = true;
+            maxKeyLength = Math.max(maxKeyLength, key.length);
+        }
+        this.pending = new byte[maxKeyLength];
+    }
+
+    void write(byte[] b, int off, int len) throws IOException
+    {
+        int end = off + len;
+        int copyStart = off;
+        for (int i = off; i < end; i++)
+        {
+            if (this.pendingCount == 0 && !this.isKeyStart[b[i] & 0xFF])
+            {
+                continue;
+            }
+            if (i > copyStart)
+            {
+                this.out.write(b, copyStart, i - copyStart);
+            }
+            this.pending[this.pendingCount++] = b[i];
+            replacePending(false);
+            copyStart = i + 1;
+        }
+        if (end > copyStart)
+        {
+            this.out.write(b, copyStart, end - copyStart);
+        }
+    }
+
+    /**
+     * Writes the bytes kept for a partial match. Must be called once the whole stream has been written.
+     */
+    void finish() throws IOException
+    {
+        replacePending(true);
+    }
+
+    /**
+     * Writes pending bytes until they are the beginning of a searched string
+     *
+     * @param isEnd true if no more bytes will come
+     */
+    private void replacePending(boolean isEnd) throws IOException
+    {
+        while (this.pendingCount > 0)
+        {
+            Node node = this.root;
+            byte[] replacement = null;
+            int matchLength = 0;
+            for (int i = 0; i < this.pendingCount && node != null; i++)
+            {
+                node = node.getChild(this.pending[i]);
+                if (node != null && node.replacement != null)
+                {
+                    replacement = node.replacement;
+                    matchLength = i + 1;
+                }
+            }
+            if (node != null && node.childBytes.length > 0 && !isEnd)
+            {
+                // A longer string could still match
+                return;
+            }
+            if (replacement != null)
+            {
+                this.out.write(replacement);
+            }
+            else
+            {
+                this.out.write(this.pending[0]);
+                matchLength = 1;
+            }
+            this.pendingCount -= matchLength;
+            System.arraycopy(this.pending, matchLength, this.pending, 0, this.pendingCount);
+        }
+    }
+
+    private static byte[] toBytes(String value)
+    {
+        try
+        {
+            return value.getBytes("UTF-8");
+        }
+        catch (UnsupportedEncodingException e)
+        {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static class Node
+    {
+        Node getChild(byte b)
+        {
+            for (int i = 0; i < this.childBytes.length; i++)
+            {
+                if (this.childBytes[i] == b)
+                {
+                    return this.children[i];
+                }
+            }
+            return null;
+        }
+
+        Node getOrAddChild(byte b)
+        {
+            Node child = getChild(b);
+            if (child == null)
+            {
+                child = new Node();
+                int count = this.childBytes.length;
+                byte[] newChildBytes = new byte[count + 1];
+                Node[] newChildren = new Node[count + 1];
+                System.arraycopy(this.childBytes, 0, newChildBytes, 0, count);
+                System.arraycopy(this.children, 0, newChildren, 0, count);
+                newChildBytes[count] = b;
+                newChildren[count] = child;
+                this.childBytes = newChildBytes;
+                this.children = newChildren;
+            }
+            return child;
+        }
+
+        private byte[] childBytes = new byte[0];
+
+        private Node[] children = new Node[0];
+
+        /** Not null if a searched string ends here */
+        private byte[] replacement;
+    }
+
+    private final OutputStream out;
+
+    private final Node root = new Node();
+
+    /** True for the first byte of each searched string */
+    private final boolean[] isKeyStart = new boolean[256];
+
+    /** Bytes which are the beginning of a searched string */
+    private final byte[] pending;
+
+    private int pendingCount;
+
+}
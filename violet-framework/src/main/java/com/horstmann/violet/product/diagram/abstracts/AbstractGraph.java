@@ -32,7 +32,17 @@ import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.function.Predicate;
 
 /**
  * A graph consisting of selectable node and edges.
@@ -59,18 +69,48 @@ public abstract class AbstractGraph implements Serializable, Cloneable, IGraph
         {
             edge.reconstruction();
         }
+        // Contents have been rebuilt so indexed bounds are meaningless
+        this.nodeIndex = null;
+        this.edgeIndex = null;
+        this.drawnEdgeBounds = null;
+        this.nodesById = null;
+        this.edgesById = null;
+        this.connectedEdgesByNode = null;
+        onNodeTreeChanged();
     }
 
     @Override
     public INode findNode(Point2D p)
     {
+        Rectangle2D area = new Rectangle2D.Double(p.getX(), p.getY(), 0, 0);
+        List<INode> deepestNodes = new ArrayList<INode>();
+        int deepestLevel = -1;
+        for (INode n : getNodeIndex().query(area))
+        {
+            if (!getBoundsOnGraph(n).contains(p))
+            {
+                continue;
+            }
+            // Children are always on top of their parents
+            int level = getLevel(n);
+            if (level > deepestLevel)
+            {
+                deepestNodes.clear();
+                deepestLevel = level;
+            }
+            if (level == deepestLevel)
+            {
+                deepestNodes.add(n);
+            }
+        }
+        if (deepestNodes.size() <= 1)
+        {
+            return deepestNodes.isEmpty() ? null : deepestNodes.get(0);
+        }
+        // Overlapping siblings : keep the one getAllNodes() gives first
         for (INode n : getAllNodes())
         {
-            Point2D locationOnGraph = n.getLocationOnGraph();
-            Rectangle2D bounds = n.getBounds();
-            Rectangle2D boundsToCheck = new Rectangle2D.Double(locationOnGraph.getX(), locationOnGraph.getY(), bounds.getWidth(),
-                    bounds.getHeight());
-            if (boundsToCheck.contains(p))
+            if (deepestNodes.contains(n))
             {
                 return n;
             }
@@ -78,34 +118,80 @@ public abstract class AbstractGraph implements Serializable, Cloneable, IGraph
         return null;
     }
 
+    @Override
+    public Collection<INode> findNodes(Rectangle2D area)
+    {
+        List<INode> result = new ArrayList<INode>();
+        for (INode n : getNodeIndex().query(area))
+        {
+            if (getBoundsOnGraph(n).intersects(area))
+            {
+                result.add(n);
+            }
+        }
+        return result;
+    }
+
     @Override
     public INode findNode(Id id)
     {
-        for (INode n : getAllNodes())
+        if (id == null)
         {
-            if (n.getId().equals(id)) return n;
+            return null;
         }
-        return null;
+        return getNodesById().get(id);
     }
 
     @Override
     public IEdge findEdge(Point2D p)
     {
+        Rectangle2D area = new Rectangle2D.Double(p.getX() - EDGE_HIT_TOLERANCE, p.getY() - EDGE_HIT_TOLERANCE,
+                2 * EDGE_HIT_TOLERANCE, 2 * EDGE_HIT_TOLERANCE);
+        List<IEdge> foundEdges = new ArrayList<IEdge>();
+        for (IEdge e : getEdgeIndex().query(area))
+        {
+            if (e.contains(p))
+            {
+                foundEdges.add(e);
+            }
+        }
+        if (foundEdges.size() <= 1)
+        {
+            return foundEdges.isEmpty() ? null : foundEdges.get(0);
+        }
+        // Overlapping edges : keep the first one added to the graph
         for (IEdge e : edges)
         {
-            if (e.contains(p)) return e;
+            if (foundEdges.contains(e))
+            {
+                return e;
+            }
         }
         return null;
     }
 
+    @Override
+    public Collection<IEdge> findEdges(Rectangle2D area)
+    {
+        List<IEdge> result = new ArrayList<IEdge>();
+        for (IEdge e : getEdgeIndex().query(area))
+        {
+            if (e.getBounds().intersects(area))
+            {
+                result.add(e);
+            }
+        }
+        return result;
+    }
+
     @Override
     public IEdge findEdge(Id id)
     {
-        for (IEdge e : edges)
+        if (id == null)
         {
-            if (e.getId().equals(id)) return e;
+            return null;
         }
-        return null;
+        return getEdgesById().get(id);
     }
     
     
@@ -113,46 +199,170 @@ public abstract class AbstractGraph implements Serializable, Cloneable, IGraph
 
     @Override
     public void draw(Graphics2D graphics)
+    {
+        draw(graphics, node -> true, edge -> true);
+    }
+
+    @Override
+    public void draw(Graphics2D graphics, Predicate<INode> nodeFilter, Predicate<IEdge> edgeFilter)
     {
         graphics.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
         graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
 
-        List<INode> specialNodes = new ArrayList<INode>();
-
-        int count = 0;
-        int z = 0;
-        Collection<INode> nodes = getAllNodes();
-        while (count < nodes.size())
+        // Only elements around the area to repaint are drawn. No clip means the whole graph (export, ...)
+        Rectangle2D clip = graphics.getClipBounds();
+        if (clip == null)
         {
-            for (INode node : nodes)
+            for (List<INode> nodesOnLevel : getNodesByZ().values())
             {
-                if (node.getZ() == z)
+                for (INode node : nodesOnLevel)
                 {
-                    if (node instanceof NoteNode)
+                    if (null == node.getParent() && nodeFilter.test(node))
                     {
-                        specialNodes.add(node);
+                        node.draw(graphics);
                     }
-                    else
-                    {
-                        if(null == node.getParent())
-                        {
-                            node.draw(graphics);
-                        }
-                    }
-                    count++;
                 }
             }
-            z++;
+            for (int i = 0; i < edges.size(); i++)
+            {
+                drawEdge(graphics, edges.get(i), edgeFilter);
+            }
+            drawNotes(graphics, getNotesByZ(this.notesLayer), nodeFilter);
+            return;
+        }
+
+        Rectangle2D nodeArea = new Rectangle2D.Double(clip.getX() - NODE_DRAWING_MARGIN, clip.getY() - NODE_DRAWING_MARGIN,
+                clip.getWidth() + 2 * NODE_DRAWING_MARGIN, clip.getHeight() + 2 * NODE_DRAWING_MARGIN);
+        Collection<INode> visibleNodes = findNodes(nodeArea);
+        Set<INode> visibleRoots = new HashSet<INode>();
+        List<INode> visibleNotes = new ArrayList<INode>();
+        for (INode aVisibleNode : visibleNodes)
+        {
+            if (aVisibleNode instanceof NoteNode)
+            {
+                visibleNotes.add(aVisibleNode);
+                continue;
+            }
+            // Children are drawn by their parents
+            INode root = aVisibleNode;
+            while (root.getParent() != null)
+            {
+                root = root.getParent();
+            }
+            visibleRoots.add(root);
+        }
+        for (INode node : sortInDrawingOrder(visibleRoots))
+        {
+            if (!(node instanceof NoteNode) && nodeFilter.test(node))
+            {
+                node.draw(graphics);
+            }
         }
 
-        for (int i = 0; i < edges.size(); i++)
+        Rectangle2D edgeArea = new Rectangle2D.Double(clip.getX() - EDGE_DRAWING_MARGIN, clip.getY() - EDGE_DRAWING_MARGIN,
+                clip.getWidth() + 2 * EDGE_DRAWING_MARGIN, clip.getHeight() + 2 * EDGE_DRAWING_MARGIN);
+        Set<IEdge> edgesToDraw = new HashSet<IEdge>(getEdgeIndex().query(edgeArea));
+        // Where their path and labels go is only known once drawn
+        edgesToDraw.addAll(this.edgesNeverDrawn);
+        List<IEdge> visibleEdges = new ArrayList<IEdge>(edgesToDraw);
+        Collections.sort(visibleEdges, new Comparator<IEdge>()
+        {
+            @Override
+            public int compare(IEdge e1, IEdge e2)
+            {
+                return getEdgeOrder().get(e1).compareTo(getEdgeOrder().get(e2));
+            }
+        });
+        for (IEdge e : visibleEdges)
         {
-            IEdge e = (IEdge) edges.get(i);
-            e.draw(graphics);
+            drawEdge(graphics, e, edgeFilter);
         }
-        // Special node are always drawn upon other elements
-        for (INode n : specialNodes)
+        drawNotes(graphics, getNotesByZ(sortInDrawingOrder(visibleNotes)), nodeFilter);
+    }
+
+    @Override
+    public void draw(Graphics2D graphics, Collection<INode> someNodes, Collection<IEdge> someEdges)
+    {
+        graphics.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+
+        // Elements removed from the graph meanwhile are ignored
+        getNodesByZ();
+        List<INode> roots = new ArrayList<INode>();
+        List<INode> notes = new ArrayList<INode>();
+        for (INode aNode : someNodes)
         {
+            if (!this.drawingOrder.containsKey(aNode))
+            {
+                continue;
+            }
+            if (aNode instanceof NoteNode)
+            {
+                notes.add(aNode);
+            }
+            else if (null == aNode.getParent())
+            {
+                roots.add(aNode);
+            }
+        }
+        for (INode node : sortInDrawingOrder(roots))
+        {
+            node.draw(graphics);
+        }
+        List<IEdge> edgesToDraw = new ArrayList<IEdge>();
+        for (IEdge anEdge : someEdges)
+        {
+            if (getEdgeOrder().containsKey(anEdge))
+            {
+                edgesToDraw.add(anEdge);
+            }
+        }
+        Collections.sort(edgesToDraw, new Comparator<IEdge>()
+        {
+            @Override
+            public int compare(IEdge e1, IEdge e2)
+            {
+                return getEdgeOrder().get(e1).compareTo(getEdgeOrder().get(e2));
+            }
+        });
+        for (IEdge e : edgesToDraw)
+        {
+            drawEdge(graphics, e, edge -> true);
+        }
+        drawNotes(graphics, getNotesByZ(sortInDrawingOrder(notes)), node -> true);
+    }
+
+    private void drawEdge(Graphics2D graphics, IEdge edge, Predicate<IEdge> edgeFilter)
+    {
+        if (!edgeFilter.test(edge))
+        {
+            return;
+        }
+        edge.draw(graphics);
+        // Its path is laid out while drawn, and transition points may have been moved without notice
+        if (this.drawnEdgeBounds == null)
+        {
+            this.drawnEdgeBounds = new HashMap<IEdge, Rectangle2D>();
+        }
+        this.drawnEdgeBounds.put(edge, edge.getBounds());
+        if (this.edgesNeverDrawn != null)
+        {
+            this.edgesNeverDrawn.remove(edge);
+        }
+        refreshIndexedBounds(edge);
+    }
+
+    /**
+     * Special node are always drawn upon other elements
+     */
+    private void drawNotes(Graphics2D graphics, List<INode> notes, Predicate<INode> nodeFilter)
+    {
+        for (INode n : notes)
+        {
+            if (!nodeFilter.test(n))
+            {
+                continue;
+            }
             // Translate graphics if node_old has parent
             Point2D nodeLocationOnGraph = n.getLocationOnGraph();
             Point2D nodeLocation = n.getLocation();
@@ -163,7 +373,125 @@ public abstract class AbstractGraph implements Serializable, Cloneable, IGraph
             // Restore graphics original location
             graphics.translate(-g2Location.getX(), -g2Location.getY());
         }
+    }
+
+    /**
+     * @param someNodes
+     * @return the given nodes in the order the z levels and the notes layer give
+     */
+    private List<INode> sortInDrawingOrder(Collection<INode> someNodes)
+    {
+        getNodesByZ();
+        List<INode> result = new ArrayList<INode>(someNodes);
+        Collections.sort(result, new Comparator<INode>()
+        {
+            @Override
+            public int compare(INode n1, INode n2)
+            {
+                return drawingOrder.get(n1).compareTo(drawingOrder.get(n2));
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Gets the node to draw (notes excepted), grouped by z level. Levels are rebuilt when the node tree changes or when a
+     * node changes its z level (see onNodeZChanged()).
+     *
+     * @return node lists ordered by z level, each of them in getAllNodes() order
+     */
+    private SortedMap<Integer, List<INode>> getNodesByZ()
+    {
+        if (this.nodesByZ == null || this.renderLayersVersion != this.nodeTreeVersion)
+        {
+            this.nodesByZ = new TreeMap<Integer, List<INode>>();
+            this.notesLayer = new ArrayList<INode>();
+            for (INode n : getAllNodes())
+            {
+                if (n instanceof NoteNode)
+                {
+                    this.notesLayer.add(n);
+                    continue;
+                }
+                List<INode> nodesOnLevel = this.nodesByZ.get(n.getZ());
+                if (nodesOnLevel == null)
+                {
+                    nodesOnLevel = new ArrayList<INode>();
+                    this.nodesByZ.put(n.getZ(), nodesOnLevel);
+                }
+                nodesOnLevel.add(n);
+            }
+            this.drawingOrder = new HashMap<INode, Integer>();
+            for (List<INode> nodesOnLevel : this.nodesByZ.values())
+            {
+                for (INode n : nodesOnLevel)
+                {
+                    this.drawingOrder.put(n, this.drawingOrder.size());
+                }
+            }
+            for (INode aNote : this.notesLayer)
+            {
+                this.drawingOrder.put(aNote, this.drawingOrder.size());
+            }
+            this.renderLayersVersion = this.nodeTreeVersion;
+        }
+        return this.nodesByZ;
+    }
 
+    /**
+     * @return position of each edge in the edge list
+     */
+    private Map<IEdge, Integer> getEdgeOrder()
+    {
+        if (this.edgeOrder == null)
+        {
+            this.edgeOrder = new HashMap<IEdge, Integer>();
+            for (IEdge e : edges)
+            {
+                this.edgeOrder.put(e, this.edgeOrder.size());
+            }
+        }
+        return this.edgeOrder;
+    }
+
+    /**
+     * Sorts notes, drawn upon other elements. Note z level depends on the node they are attached to, so it is evaluated on
+     * each call : only the notes to draw are given. They are only sorted when their order changed.
+     *
+     * @param notes in getAllNodes() order
+     * @return notes ordered by z level (then in getAllNodes() order)
+     */
+    private List<INode> getNotesByZ(List<INode> notes)
+    {
+        getNodesByZ();
+        if (notes.size() < 2)
+        {
+            return notes;
+        }
+        final Map<INode, Integer> zByNote = new HashMap<INode, Integer>();
+        boolean isSorted = true;
+        int previousZ = Integer.MIN_VALUE;
+        for (INode aNote : notes)
+        {
+            int z = aNote.getZ();
+            zByNote.put(aNote, z);
+            isSorted = isSorted && previousZ <= z;
+            previousZ = z;
+        }
+        if (isSorted)
+        {
+            return notes;
+        }
+        List<INode> sortedNotes = new ArrayList<INode>(notes);
+        Collections.sort(sortedNotes, new Comparator<INode>()
+        {
+            @Override
+            public int compare(INode n1, INode n2)
+            {
+                return zByNote.get(n1).compareTo(zByNote.get(n2));
+            }
+        });
+        return sortedNotes;
     }
 
     /*
@@ -199,23 +527,51 @@ public abstract class AbstractGraph implements Serializable, Cloneable, IGraph
     @Override
     public abstract List<IEdge> getEdgePrototypes();
 
+    /**
+     * The returned collection is a snapshot : it is shared between calls until the node tree changes and is never modified
+     * afterwards, so it can safely be iterated while adding or removing node.
+     */
     @Override
     public Collection<INode> getAllNodes()
     {
-        List<INode> fifo = new ArrayList<INode>();
-        List<INode> allNodes = new ArrayList<INode>();
-        fifo.addAll(nodes);
-        allNodes.addAll(nodes);
-        while (!fifo.isEmpty())
+        if (this.allNodesSnapshot == null || this.allNodesSnapshotVersion != this.nodeTreeVersion)
+        {
+            List<INode> allNodes = new ArrayList<INode>();
+            allNodes.addAll(nodes);
+            // allNodes is used as the fifo : nodes before 'next' have already been inspected
+            for (int next = 0; next < allNodes.size(); next++)
+            {
+                allNodes.addAll(allNodes.get(next).getChildren());
+            }
+            // Let's have children first
+            Collections.reverse(allNodes);
+            this.allNodesSnapshot = Collections.unmodifiableList(allNodes);
+            this.allNodesLookup = null;
+            this.allNodesSnapshotVersion = this.nodeTreeVersion;
+        }
+        return this.allNodesSnapshot;
+    }
+
+    /**
+     * @param node
+     * @return true if the node is part of this graph (as a root node or as a child)
+     */
+    private boolean isOnGraph(INode node)
+    {
+        Collection<INode> allNodes = getAllNodes();
+        if (this.allNodesLookup == null)
         {
-            INode nodeToInspect = fifo.remove(0);
-            List<INode> children = nodeToInspect.getChildren();
-            fifo.addAll(children);
-            allNodes.addAll(children);
+            this.allNodesLookup = new HashSet<INode>(allNodes);
         }
-        // Let's have children first
-        Collections.reverse(allNodes);
-        return Collections.unmodifiableCollection(allNodes);
+        return this.allNodesLookup.contains(node);
+    }
+
+    /**
+     * Invalidates the flattened node list
+     */
+    private void onNodeTreeChanged()
+    {
+        this.nodeTreeVersion++;
     }
 
     @Override
@@ -224,6 +580,17 @@ public abstract class AbstractGraph implements Serializable, Cloneable, IGraph
         return Collections.unmodifiableCollection(edges);
     }
 
+    @Override
+    public Collection<IEdge> getConnectedEdges(INode node)
+    {
+        Set<IEdge> connectedEdges = getConnectedEdgesByNode().get(node);
+        if (connectedEdges == null)
+        {
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableCollection(connectedEdges);
+    }
+
     @Override
     public boolean addNode(INode newNode, Point2D p)
     {
@@ -234,6 +601,8 @@ public abstract class AbstractGraph implements Serializable, Cloneable, IGraph
         {
             newNode.setLocation(p);
             nodes.add(newNode);
+            onNodeTreeChanged();
+            indexNodeTree(newNode);
             return true;
         }
         // Case 2 : attached to an existing node_old
@@ -243,12 +612,19 @@ public abstract class AbstractGraph implements Serializable, Cloneable, IGraph
             Point2D parentLocationOnGraph = potentialParentNode.getLocationOnGraph();
             Point2D relativeLocation = new Point2D.Double(p.getX() - parentLocationOnGraph.getX(), p.getY()
                     - parentLocationOnGraph.getY());
-            return potentialParentNode.addChild(newNode, relativeLocation);
+            boolean isAdded = potentialParentNode.addChild(newNode, relativeLocation);
+            if (isAdded)
+            {
+                indexNodeTree(newNode);
+            }
+            return isAdded;
         }
         // Case 3 : attached directly to the graph
         newNode.setLocation(p);
         newNode.setParent(null);
         nodes.add(newNode);
+        onNodeTreeChanged();
+        indexNodeTree(newNode);
         return true;
     }
 
@@ -261,6 +637,7 @@ public abstract class AbstractGraph implements Serializable, Cloneable, IGraph
             if (this.nodes.contains(aNodeToRemove))
             {
                 this.nodes.remove(aNodeToRemove);
+                onNodeTreeChanged();
             }
         }
         // Step 1b : Remove node attach to other node as children
@@ -275,14 +652,17 @@ public abstract class AbstractGraph implements Serializable, Cloneable, IGraph
                 }
             }
         }
+        for (INode aNodeToRemove : nodesToRemove)
+        {
+            unindexNodeTree(aNodeToRemove);
+        }
         // Step 2 : Disconnect edges
         List<IEdge> edgesToRemove = new ArrayList<IEdge>();
-        Collection<INode> allNodes = getAllNodes();
         for (IEdge anEdge : this.edges)
         {
             INode startingNode = anEdge.getStartNode();
             INode endingNode = anEdge.getEndNode();
-            boolean isEdgeStillConnected = (allNodes.contains(startingNode) && allNodes.contains(endingNode));
+            boolean isEdgeStillConnected = (isOnGraph(startingNode) && isOnGraph(endingNode));
             if (!isEdgeStillConnected)
             {
                 edgesToRemove.add(anEdge);
@@ -296,12 +676,13 @@ public abstract class AbstractGraph implements Serializable, Cloneable, IGraph
     public boolean connect(IEdge e, INode start, Point2D startLocation, INode end, Point2D endLocation, Point2D[] transitionPoints)
     {
         // Step 1 : find if node exist
-        Collection<INode> allNodes = getAllNodes();
-        if (start != null && !allNodes.contains(start))
+        boolean isStartOnGraph = start == null || isOnGraph(start);
+        boolean isEndOnGraph = end == null || isOnGraph(end);
+        if (!isStartOnGraph)
         {
             addNode(start, start.getLocation());
         }
-        if (end != null && !allNodes.contains(end))
+        if (!isEndOnGraph)
         {
             addNode(end, end.getLocation());
         }
@@ -315,12 +696,37 @@ public abstract class AbstractGraph implements Serializable, Cloneable, IGraph
         {
             e.setId(new Id());
             edges.add(e);
+            if (this.edgesById != null)
+            {
+                this.edgesById.put(e);
+            }
+            if (this.connectedEdgesByNode != null)
+            {
+                addToConnectedEdges(e);
+            }
+            if (this.edgeOrder != null)
+            {
+                this.edgeOrder.put(e, this.edgeOrder.size());
+            }
 
             start.onConnectedEdge(e);
             if(end != null)
             {
                 end.onConnectedEdge(e);
             }
+            // Some nodes lay out from their edges
+            start.onConnectedEdgeChanged(e);
+            onNodeSizeChanged(start);
+            if (end != null)
+            {
+                end.onConnectedEdgeChanged(e);
+                onNodeSizeChanged(end);
+            }
+            refreshIndexedBounds(e);
+            if (this.edgesNeverDrawn != null)
+            {
+                this.edgesNeverDrawn.add(e);
+            }
 
             return true;
         }
@@ -338,9 +744,481 @@ public abstract class AbstractGraph implements Serializable, Cloneable, IGraph
             startingNode.removeConnection(anEdgeToRemove);
             endingNode.removeConnection(anEdgeToRemove);
             this.edges.remove(anEdgeToRemove);
+            this.edgeOrder = null;
+            if (this.edgeIndex != null)
+            {
+                this.edgeIndex.remove(anEdgeToRemove);
+            }
+            if (this.edgesToReindex != null)
+            {
+                this.edgesToReindex.remove(anEdgeToRemove);
+            }
+            if (this.edgesNeverDrawn != null)
+            {
+                this.edgesNeverDrawn.remove(anEdgeToRemove);
+            }
+            if (this.drawnEdgeBounds != null)
+            {
+                this.drawnEdgeBounds.remove(anEdgeToRemove);
+            }
+            if (this.connectedEdgesByNode != null)
+            {
+                removeFromConnectedEdges(anEdgeToRemove, startingNode);
+                removeFromConnectedEdges(anEdgeToRemove, endingNode);
+            }
+            startingNode.onConnectedEdgeChanged(anEdgeToRemove);
+            endingNode.onConnectedEdgeChanged(anEdgeToRemove);
+            onNodeSizeChanged(startingNode);
+            onNodeSizeChanged(endingNode);
+            if (this.edgesById != null)
+            {
+                this.edgesById.remove(anEdgeToRemove);
+                if (this.edgesById.isAmbiguous())
+                {
+                    // Another edge may have the same id
+                    this.edgesById = null;
+                }
+            }
         }
     }
 
+    /**
+     * Notifies this graph that a node has been attached to another node as a child. Called by AbstractNode.
+     *
+     * @param child the new child
+     */
+    public void onChildAdded(INode child)
+    {
+        onNodeTreeChanged();
+        indexNodeTree(child);
+    }
+
+    /**
+     * Notifies this graph that a node has been detached from its parent node. Called by AbstractNode.
+     *
+     * @param child the removed child
+     */
+    public void onChildRemoved(INode child)
+    {
+        onNodeTreeChanged();
+        unindexNodeTree(child);
+    }
+
+    /**
+     * Notifies this graph that a node has moved (and so did its children). Called by AbstractNode.
+     *
+     * @param node the moved node
+     */
+    public void onNodeLocationChanged(INode node)
+    {
+        if (this.nodeIndex == null || !this.nodeIndex.contains(node))
+        {
+            return;
+        }
+        if (this.boundsComputationDepth > 0)
+        {
+            // Some nodes (activation bars...) lay out themselves and their neighbours when asked for their bounds
+            markToReindex(node);
+            return;
+        }
+        indexNodeTree(node);
+    }
+
+    /**
+     * Notifies this graph that the size of a node changed. The node is re-indexed the next time the index is used. Called by
+     * AbstractNode.
+     *
+     * @param node the resized node
+     */
+    public void onNodeSizeChanged(INode node)
+    {
+        if (this.nodeIndex != null && this.nodeIndex.contains(node))
+        {
+            markToReindex(node);
+        }
+    }
+
+    /**
+     * Notifies this graph that the id of a node changed, so that it can be found with its new id. Called by AbstractNode.
+     *
+     * @param node
+     * @param previousId the id the node had before
+     */
+    public void onNodeIdChanged(INode node, Id previousId)
+    {
+        if (this.nodesById != null && !this.nodesById.changeId(node, previousId))
+        {
+            // The node may be shadowed by another one with the same id
+            this.nodesById = null;
+        }
+    }
+
+    /**
+     * Notifies this graph that the id of an edge changed, so that it can be found with its new id. Called by AbstractEdge.
+     *
+     * @param edge
+     * @param previousId the id the edge had before
+     */
+    public void onEdgeIdChanged(IEdge edge, Id previousId)
+    {
+        if (this.edgesById != null && !this.edgesById.changeId(edge, previousId))
+        {
+            // The edge may be shadowed by another one with the same id
+            this.edgesById = null;
+        }
+    }
+
+    /**
+     * Notifies this graph that a node changed its z level. Called by AbstractNode.
+     *
+     * @param node
+     */
+    public void onNodeZChanged(INode node)
+    {
+        this.nodesByZ = null;
+    }
+
+    private void markToReindex(INode node)
+    {
+        if (this.nodesToReindex == null)
+        {
+            this.nodesToReindex = new LinkedHashSet<INode>();
+        }
+        this.nodesToReindex.add(node);
+    }
+
+    /**
+     * Edges are indexed with the area between their nodes : it changes with them
+     */
+    private void markConnectedEdgesToReindex(INode node)
+    {
+        if (this.edgeIndex == null)
+        {
+            return;
+        }
+        Set<IEdge> connectedEdges = getConnectedEdgesByNode().get(node);
+        if (connectedEdges == null)
+        {
+            return;
+        }
+        if (this.edgesToReindex == null)
+        {
+            this.edgesToReindex = new LinkedHashSet<IEdge>();
+        }
+        this.edgesToReindex.addAll(connectedEdges);
+    }
+
+    /**
+     * @return spatial index of all the node (lazily built, as the graph may come from a decoder)
+     */
+    private SpatialIndex<INode> getNodeIndex()
+    {
+        if (this.nodeIndex == null)
+        {
+            this.nodeIndex = new SpatialIndex<INode>(INDEX_CELL_SIZE);
+            for (INode n : getAllNodes())
+            {
+                this.nodeIndex.put(n, getBoundsOnGraph(n));
+            }
+        }
+        else if (this.boundsComputationDepth == 0 && !this.isReindexingNodes && this.nodesToReindex != null
+                && !this.nodesToReindex.isEmpty())
+        {
+            reindexNodes();
+        }
+        return this.nodeIndex;
+    }
+
+    /**
+     * @return spatial index of all the edges (lazily built, as the graph may come from a decoder)
+     */
+    private SpatialIndex<IEdge> getEdgeIndex()
+    {
+        if (this.edgeIndex == null)
+        {
+            this.edgeIndex = new SpatialIndex<IEdge>(INDEX_CELL_SIZE);
+            this.edgesNeverDrawn = new LinkedHashSet<IEdge>();
+            for (IEdge e : edges)
+            {
+                this.edgeIndex.put(e, getEdgeArea(e));
+                if (this.drawnEdgeBounds == null || !this.drawnEdgeBounds.containsKey(e))
+                {
+                    this.edgesNeverDrawn.add(e);
+                }
+            }
+            this.edgesToReindex = null;
+        }
+        else
+        {
+            // Nodes first, as re-indexing them marks their edges
+            getNodeIndex();
+            if (this.edgesToReindex != null && !this.edgesToReindex.isEmpty())
+            {
+                List<IEdge> edgesToReindex = new ArrayList<IEdge>(this.edgesToReindex);
+                this.edgesToReindex.clear();
+                for (IEdge e : edgesToReindex)
+                {
+                    this.edgeIndex.put(e, getEdgeArea(e));
+                }
+            }
+        }
+        return this.edgeIndex;
+    }
+
+    /**
+     * Edge paths and labels are only laid out while drawing : the edge is considered to lie between its nodes and its
+     * transition points, and where it was the last time it was drawn (see IEdge.getBounds()). Its next drawing refreshes that
+     * last part once its nodes moved.
+     *
+     * @param edge
+     * @return area where the edge is
+     */
+    private Rectangle2D getEdgeArea(IEdge edge)
+    {
+        Rectangle2D edgeArea = null;
+        for (INode aNode : new INode[] { edge.getStartNode(), edge.getEndNode() })
+        {
+            if (aNode == null)
+            {
+                continue;
+            }
+            Rectangle2D nodeBounds = this.nodeIndex == null ? null : this.nodeIndex.get(aNode);
+            if (nodeBounds == null)
+            {
+                nodeBounds = getBoundsOnGraph(aNode);
+            }
+            if (edgeArea == null)
+            {
+                edgeArea = nodeBounds;
+            }
+            else
+            {
+                edgeArea.add(nodeBounds);
+            }
+        }
+        if (edgeArea == null)
+        {
+            return edge.getBounds();
+        }
+        for (Point2D aTransitionPoint : edge.getTransitionPoints())
+        {
+            edgeArea.add(aTransitionPoint);
+        }
+        Rectangle2D drawnBounds = this.drawnEdgeBounds == null ? null : this.drawnEdgeBounds.get(edge);
+        if (drawnBounds != null)
+        {
+            edgeArea.add(drawnBounds);
+        }
+        return edgeArea;
+    }
+
+    /**
+     * @return id index of all the node (lazily built, as the graph may come from a decoder)
+     */
+    private IdIndex<INode> getNodesById()
+    {
+        if (this.nodesById == null)
+        {
+            this.nodesById = new IdIndex<INode>();
+            // Backwards, so that the node getAllNodes() gives first wins if some ids are duplicated
+            List<INode> allNodes = new ArrayList<INode>(getAllNodes());
+            for (int i = allNodes.size() - 1; i >= 0; i--)
+            {
+                this.nodesById.put(allNodes.get(i));
+            }
+        }
+        return this.nodesById;
+    }
+
+    /**
+     * @return id index of all the edges (lazily built, as the graph may come from a decoder)
+     */
+    private IdIndex<IEdge> getEdgesById()
+    {
+        if (this.edgesById == null)
+        {
+            this.edgesById = new IdIndex<IEdge>();
+            for (int i = edges.size() - 1; i >= 0; i--)
+            {
+                this.edgesById.put(edges.get(i));
+            }
+        }
+        return this.edgesById;
+    }
+
+    /**
+     * @return edges connected to each node, in the order they were added to the graph (lazily built, as the graph may come
+     *         from a decoder)
+     */
+    private Map<INode, Set<IEdge>> getConnectedEdgesByNode()
+    {
+        if (this.connectedEdgesByNode == null)
+        {
+            this.connectedEdgesByNode = new HashMap<INode, Set<IEdge>>();
+            for (IEdge e : edges)
+            {
+                addToConnectedEdges(e);
+            }
+        }
+        return this.connectedEdgesByNode;
+    }
+
+    private void addToConnectedEdges(IEdge edge)
+    {
+        for (INode aNode : new INode[] { edge.getStartNode(), edge.getEndNode() })
+        {
+            if (aNode == null)
+            {
+                continue;
+            }
+            Set<IEdge> connectedEdges = this.connectedEdgesByNode.get(aNode);
+            if (connectedEdges == null)
+            {
+                connectedEdges = new LinkedHashSet<IEdge>();
+                this.connectedEdgesByNode.put(aNode, connectedEdges);
+            }
+            connectedEdges.add(edge);
+        }
+    }
+
+    private void removeFromConnectedEdges(IEdge edge, INode node)
+    {
+        Set<IEdge> connectedEdges = this.connectedEdgesByNode.get(node);
+        if (connectedEdges == null)
+        {
+            return;
+        }
+        connectedEdges.remove(edge);
+        if (connectedEdges.isEmpty())
+        {
+            this.connectedEdgesByNode.remove(node);
+        }
+    }
+
+    private void indexNodeTree(INode node)
+    {
+        if (this.nodeIndex == null && this.nodesById == null)
+        {
+            return;
+        }
+        if (this.nodeIndex != null)
+        {
+            this.nodeIndex.put(node, getBoundsOnGraph(node));
+            markConnectedEdgesToReindex(node);
+        }
+        if (this.nodesById != null)
+        {
+            this.nodesById.put(node);
+        }
+        for (INode aChild : node.getChildren())
+        {
+            indexNodeTree(aChild);
+        }
+    }
+
+    private void unindexNodeTree(INode node)
+    {
+        if (this.nodeIndex == null && this.nodesById == null)
+        {
+            return;
+        }
+        if (this.nodeIndex != null)
+        {
+            this.nodeIndex.remove(node);
+        }
+        if (this.nodesById != null)
+        {
+            this.nodesById.remove(node);
+            if (this.nodesById.isAmbiguous())
+            {
+                // Another node may have the same id
+                this.nodesById = null;
+            }
+        }
+        for (INode aChild : node.getChildren())
+        {
+            unindexNodeTree(aChild);
+        }
+    }
+
+    private void refreshIndexedBounds(IEdge edge)
+    {
+        if (this.edgeIndex != null)
+        {
+            this.edgeIndex.put(edge, getEdgeArea(edge));
+        }
+    }
+
+    private Rectangle2D getBoundsOnGraph(INode node)
+    {
+        Rectangle2D boundsOnGraph;
+        this.boundsComputationDepth++;
+        try
+        {
+            // Bounds first, as computing them may move the node
+            Rectangle2D bounds = node.getBounds();
+            Point2D locationOnGraph = node.getLocationOnGraph();
+            boundsOnGraph = new Rectangle2D.Double(locationOnGraph.getX(), locationOnGraph.getY(), bounds.getWidth(),
+                    bounds.getHeight());
+        }
+        finally
+        {
+            this.boundsComputationDepth--;
+        }
+        if (this.boundsComputationDepth == 0 && !this.isReindexingNodes && this.nodesToReindex != null
+                && !this.nodesToReindex.isEmpty())
+        {
+            reindexNodes();
+        }
+        return boundsOnGraph;
+    }
+
+    /**
+     * Re-indexes the nodes resized, or moved while the bounds of a node were computed, with their children. Each node is
+     * re-indexed once : layouts done in getBounds() set locations even when they don't change, so re-indexing again could go
+     * on forever.
+     */
+    private void reindexNodes()
+    {
+        this.isReindexingNodes = true;
+        try
+        {
+            Set<INode> reindexedNodes = new HashSet<INode>();
+            while (!this.nodesToReindex.isEmpty())
+            {
+                Iterator<INode> iterator = this.nodesToReindex.iterator();
+                INode aNode = iterator.next();
+                iterator.remove();
+                if (!reindexedNodes.add(aNode) || !this.nodeIndex.contains(aNode))
+                {
+                    continue;
+                }
+                this.nodeIndex.put(aNode, getBoundsOnGraph(aNode));
+                markConnectedEdgesToReindex(aNode);
+                this.nodesToReindex.addAll(aNode.getChildren());
+                this.nodesToReindex.removeAll(reindexedNodes);
+            }
+        }
+        finally
+        {
+            this.nodesToReindex.clear();
+            this.isReindexingNodes = false;
+        }
+    }
+
+    /**
+     * @return number of ancestors of the given node
+     */
+    private static int getLevel(INode node)
+    {
+        int level = 0;
+        for (INode parent = node.getParent(); parent != null; parent = parent.getParent())
+        {
+            level++;
+        }
+        return level;
+    }
+
     @Override
     public IGridSticker getGridSticker()
     {
@@ -374,4 +1252,36 @@ public abstract class AbstractGraph implements Serializable, Cloneable, IGraph
     private ArrayList<IEdge> edges;
     private transient Rectangle2D minBounds;
     private transient IGridSticker gridSticker;
+    private transient SpatialIndex<INode> nodeIndex;
+    private transient SpatialIndex<IEdge> edgeIndex;
+    private transient int boundsComputationDepth;
+    private transient Set<INode> nodesToReindex;
+    private transient boolean isReindexingNodes;
+    private transient Set<IEdge> edgesToReindex;
+    private transient Map<IEdge, Rectangle2D> drawnEdgeBounds;
+    private transient Set<IEdge> edgesNeverDrawn;
+    private transient IdIndex<INode> nodesById;
+    private transient IdIndex<IEdge> edgesById;
+    private transient Map<INode, Set<IEdge>> connectedEdgesByNode;
+    private transient SortedMap<Integer, List<INode>> nodesByZ;
+    private transient List<INode> notesLayer;
+    private transient Map<INode, Integer> drawingOrder;
+    private transient Map<IEdge, Integer> edgeOrder;
+    private transient int renderLayersVersion;
+    private transient int nodeTreeVersion;
+    private transient int allNodesSnapshotVersion;
+    private transient List<INode> allNodesSnapshot;
+    private transient Set<INode> allNodesLookup;
+
+    /** Spatial index grid step */
+    private static final double INDEX_CELL_SIZE = 200;
+
+    /** Distance from which an edge can be picked up (see ShapeEdge.contains()) */
+    private static final double EDGE_HIT_TOLERANCE = 10;
+
+    /** How far node drawings (borders, shadows, ...) may go beyond their bounds */
+    private static final double NODE_DRAWING_MARGIN = 20;
+
+    /** How far edge drawings may go beyond their bounds : stroke widths, arrow heads (at most 20 long, along the line) */
+    private static final double EDGE_DRAWING_MARGIN = 20;
 }
@@ -7,6 +7,7 @@ import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
 import java.util.Collection;
 import java.util.List;
+import java.util.function.Predicate;
 
 public interface IGraph
 {
@@ -45,6 +46,15 @@ public interface IGraph
     public abstract Collection<IEdge> getAllEdges();
 
 
+    /**
+     * Gets the edges starting or ending on a node.
+     * 
+     * @param node a node of this graph
+     * @return an unmodifiable collection of the edges, in the order they were connected
+     */
+    public abstract Collection<IEdge> getConnectedEdges(INode node);
+
+
     /**
      * Removes one or more edges from this graph.
      * 
@@ -119,6 +129,22 @@ public interface IGraph
      */
     public abstract IEdge findEdge(Point2D p);
 
+    /**
+     * Finds all the node whose bounds on graph intersect the given area. Children are included.
+     *
+     * @param area a rectangle in graph coordinates
+     * @return the found node (in no particular order)
+     */
+    public abstract Collection<INode> findNodes(Rectangle2D area);
+
+    /**
+     * Finds all the edges whose bounds intersect the given area.
+     *
+     * @param area a rectangle in graph coordinates
+     * @return the found edges (in no particular order)
+     */
+    public abstract Collection<IEdge> findEdges(Rectangle2D area);
+
     /**
      * Draws the graph
      * 
@@ -127,6 +153,28 @@ public interface IGraph
     public abstract void draw(Graphics2D g2);
 
 
+    /**
+     * Draws only a part of the graph. Children are drawn with their parents, so the node filter is only asked about root
+     * node and notes.
+     * 
+     * @param g2 the graphics context
+     * @param nodeFilter tells if a node must be drawn
+     * @param edgeFilter tells if an edge must be drawn
+     */
+    public abstract void draw(Graphics2D g2, Predicate<INode> nodeFilter, Predicate<IEdge> edgeFilter);
+
+
+    /**
+     * Draws only the given elements, in the same order as the whole graph. Unlike the filtered draw, the other elements
+     * are not visited at all.
+     * 
+     * @param g2 the graphics context
+     * @param someNodes root nodes (drawn with their children) and notes to draw
+     * @param someEdges edges to draw
+     */
+    public abstract void draw(Graphics2D g2, Collection<INode> someNodes, Collection<IEdge> someEdges);
+
+
     /**
      * Gets the smallest rectangle enclosing the graph
      * 
@@ -0,0 +1,86 @@
+package com.horstmann.violet.product.diagram.abstracts;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Hash index of graph elements by id.
+ *
+ * Ids are supposed to be unique but nothing enforces it (cloned node keep the ids of their children for example). When two
+ * elements share the same id, the last one put wins and the index remembers that it is ambiguous, so that its owner can rebuild
+ * it from scratch once one of them is removed.
+ *
+ * @param <E> indexed element type
+ */
+class IdIndex<E extends IIdentifiable>
+{
+
+    /**
+     * Adds an element to the index with its current id
+     *
+     * @param element
+     */
+    void put(E element)
+    {
+        E previousElement = this.elementsById.put(element.getId(), element);
+        if (previousElement != null && previousElement != element)
+        {
+            this.isAmbiguous = true;
+        }
+    }
+
+    /**
+     * Removes an element from the index
+     *
+     * @param element
+     */
+    void remove(E element)
+    {
+        Id id = element.getId();
+        if (this.elementsById.get(id) == element)
+        {
+            this.elementsById.remove(id);
+        }
+    }
+
+    /**
+     * Indexes an element with its new id if it was indexed with the previous one
+     *
+     * @param element
+     * @param previousId
+     * @return false if the element may be indexed but is shadowed by another one with the previous id, so that the index
+     *         should be rebuilt
+     */
+    boolean changeId(E element, Id previousId)
+    {
+        if (this.elementsById.get(previousId) == element)
+        {
+            this.elementsById.remove(previousId);
+            put(element);
+            return true;
+        }
+        return !this.isAmbiguous;
+    }
+
+    /**
+     * @param id
+     * @return the element indexed with this id or null
+     */
+    E get(Id id)
+    {
+        return this.elementsById.get(id);
+    }
+
+    /**
+     * @return true if at least two elements have been put with the same id
+     */
+    boolean isAmbiguous()
+    {
+        return this.isAmbiguous;
+    }
+
+    private final Map<Id, E> elementsById = new HashMap<Id, E>();
+
+    private boolean isAmbiguous = false;
+
+}
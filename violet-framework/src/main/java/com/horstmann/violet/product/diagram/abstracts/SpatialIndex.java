@@ -0,0 +1,250 @@
+package com.horstmann.violet.product.diagram.abstracts;
+
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Uniform grid used to quickly find graph elements located around a point or inside an area. Each element is registered in
+ * every cell its bounds overlap, so a query only has to look at the cells it covers instead of scanning the whole graph.
+ *
+ * The index only returns candidates : callers still have to check the exact shape of the returned elements.
+ *
+ * @param <E> indexed element type
+ */
+class SpatialIndex<E>
+{
+
+    /**
+     * Constructs an empty index
+     *
+     * @param cellSize width and height of a grid cell
+     */
+    SpatialIndex(double cellSize)
+    {
+        this.cellSize = cellSize;
+    }
+
+    /**
+     * Adds an element to the index or updates its bounds if it is already indexed
+     *
+     * @param element
+     * @param bounds element bounds on graph
+     */
+    void put(E element, Rectangle2D bounds)
+    {
+        Rectangle2D indexedBounds = this.boundsByElement.get(element);
+        if (bounds.equals(indexedBounds))
+        {
+            return;
+        }
+        if (indexedBounds != null)
+        {
+            unregister(element, indexedBounds);
+        }
+        Rectangle2D boundsCopy = bounds.getBounds2D();
+        this.boundsByElement.put(element, boundsCopy);
+        register(element, boundsCopy);
+    }
+
+    /**
+     * Removes an element from the index
+     *
+     * @param element
+     */
+    void remove(E element)
+    {
+        Rectangle2D indexedBounds = this.boundsByElement.remove(element);
+        if (indexedBounds != null)
+        {
+            unregister(element, indexedBounds);
+        }
+    }
+
+    /**
+     * @param element
+     * @return true if the element is indexed
+     */
+    boolean contains(E element)
+    {
+        return this.boundsByElement.containsKey(element);
+    }
+
+    /**
+     * @param element
+     * @return indexed bounds of the element or null if it isn't indexed
+     */
+    Rectangle2D get(E element)
+    {
+        Rectangle2D indexedBounds = this.boundsByElement.get(element);
+        return indexedBounds == null ? null : indexedBounds.getBounds2D();
+    }
+
+    /**
+     * Finds the elements whose indexed bounds intersect (or touch) the given area
+     *
+     * @param area
+     * @return found elements
+     */
+    Set<E> query(Rectangle2D area)
+    {
+        Set<E> result = new LinkedHashSet<E>();
+        for (E anElement : this.oversizedElements)
+        {
+            if (overlaps(this.boundsByElement.get(anElement), area))
+            {
+                result.add(anElement);
+            }
+        }
+        if (getCellCount(area) > this.cells.size())
+        {
+            // Large area : it's cheaper to walk the non-empty cells than the covered ones
+            for (List<E> aCell : this.cells.values())
+            {
+                addOverlapping(aCell, area, result);
+            }
+            return result;
+        }
+        for (long cellX = toCell(area.getMinX()); cellX <= toCell(area.getMaxX()); cellX++)
+        {
+            for (long cellY = toCell(area.getMinY()); cellY <= toCell(area.getMaxY()); cellY++)
+            {
+                List<E> cell = this.cells.get(toKey(cellX, cellY));
+                if (cell != null)
+                {
+                    addOverlapping(cell, area, result);
+                }
+            }
+        }
+        return result;
+    }
+
+    private void addOverlapping(List<E> cell, Rectangle2D area, Set<E> result)
+    {
+        for (E anElement : cell)
+        {
+            if (!result.contains(anElement) && overlaps(this.boundsByElement.get(anElement), area))
+            {
+                result.add(anElement);
+            }
+        }
+    }
+
+    /**
+     * Removes all the elements
+     */
+    void clear()
+    {
+        this.boundsByElement.clear();
+        this.cells.clear();
+        this.oversizedElements.clear();
+    }
+
+    /**
+     * @return number of indexed elements
+     */
+    int size()
+    {
+        return this.boundsByElement.size();
+    }
+
+    private void register(E element, Rectangle2D bounds)
+    {
+        if (isOversized(bounds))
+        {
+            this.oversizedElements.add(element);
+            return;
+        }
+        for (long cellX = toCell(bounds.getMinX()); cellX <= toCell(bounds.getMaxX()); cellX++)
+        {
+            for (long cellY = toCell(bounds.getMinY()); cellY <= toCell(bounds.getMaxY()); cellY++)
+            {
+                Long key = toKey(cellX, cellY);
+                List<E> cell = this.cells.get(key);
+                if (cell == null)
+                {
+                    cell = new ArrayList<E>(4);
+                    this.cells.put(key, cell);
+                }
+                cell.add(element);
+            }
+        }
+    }
+
+    private void unregister(E element, Rectangle2D bounds)
+    {
+        if (isOversized(bounds))
+        {
+            this.oversizedElements.remove(element);
+            return;
+        }
+        for (long cellX = toCell(bounds.getMinX()); cellX <= toCell(bounds.getMaxX()); cellX++)
+        {
+            for (long cellY = toCell(bounds.getMinY()); cellY <= toCell(bounds.getMaxY()); cellY++)
+            {
+                Long key = toKey(cellX, cellY);
+                List<E> cell = this.cells.get(key);
+                if (cell == null)
+                {
+                    continue;
+                }
+                cell.remove(element);
+                if (cell.isEmpty())
+                {
+                    this.cells.remove(key);
+                }
+            }
+        }
+    }
+
+    /**
+     * Elements covering too many cells are kept aside and always checked. This avoids filling thousands of cells for huge
+     * elements (or elements with broken bounds)
+     */
+    private boolean isOversized(Rectangle2D bounds)
+    {
+        return getCellCount(bounds) > MAX_CELLS_PER_ELEMENT;
+    }
+
+    private double getCellCount(Rectangle2D area)
+    {
+        double cellsOnX = (double) toCell(area.getMaxX()) - toCell(area.getMinX()) + 1;
+        double cellsOnY = (double) toCell(area.getMaxY()) - toCell(area.getMinY()) + 1;
+        return cellsOnX * cellsOnY;
+    }
+
+    private int toCell(double coordinate)
+    {
+        return (int) Math.floor(coordinate / this.cellSize);
+    }
+
+    private static Long toKey(long cellX, long cellY)
+    {
+        return Long.valueOf((cellX << 32) | (cellY & 0xFFFFFFFFL));
+    }
+
+    /**
+     * Unlike Rectangle2D.intersects(), empty rectangles (points, horizontal or vertical lines) are accepted
+     */
+    private static boolean overlaps(Rectangle2D bounds, Rectangle2D area)
+    {
+        return bounds.getMinX() <= area.getMaxX() && bounds.getMaxX() >= area.getMinX() && bounds.getMinY() <= area.getMaxY()
+                && bounds.getMaxY() >= area.getMinY();
+    }
+
+    private static final int MAX_CELLS_PER_ELEMENT = 256;
+
+    private final double cellSize;
+
+    private final Map<E, Rectangle2D> boundsByElement = new HashMap<E, Rectangle2D>();
+
+    private final Map<Long, List<E>> cells = new HashMap<Long, List<E>>();
+
+    private final Set<E> oversizedElements = new HashSet<E>();
+
+}
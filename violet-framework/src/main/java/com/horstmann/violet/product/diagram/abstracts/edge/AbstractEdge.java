@@ -21,12 +21,14 @@
 
 package com.horstmann.violet.product.diagram.abstracts.edge;
 
+import com.horstmann.violet.product.diagram.abstracts.AbstractGraph;
 import com.horstmann.violet.product.diagram.abstracts.Direction;
 import com.horstmann.violet.product.diagram.abstracts.Id;
 import com.horstmann.violet.product.diagram.abstracts.node.INode;
 import java.awt.geom.Line2D;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
 
 /**
  * A class that supplies convenience implementations for a number of methods in the Edge interface
@@ -271,7 +273,12 @@ public abstract class AbstractEdge implements IEdge
     @Override
     public final void setId(Id id)
     {
+        Id previousId = this.id;
         this.id = id;
+        if (null != startNode && startNode.getGraph() instanceof AbstractGraph)
+        {
+            ((AbstractGraph) startNode.getGraph()).onEdgeIdChanged(this, previousId);
+        }
     }
 
     @Override
@@ -315,7 +322,28 @@ public abstract class AbstractEdge implements IEdge
     {
         if(null != startNode && null != endNode && null != startLocation && null != endLocation)
         {
-            updateContactPoints();
+            updateContactPointsAndNotify();
+        }
+    }
+
+    /**
+     * Updates the contact points and tells the nodes when they moved, as nodes place their edges from them
+     */
+    protected final void updateContactPointsAndNotify()
+    {
+        Point2D[] oldContactPoints = this.contactPoints;
+        updateContactPoints();
+        if (Arrays.equals(oldContactPoints, this.contactPoints))
+        {
+            return;
+        }
+        if (null != startNode)
+        {
+            startNode.onConnectedEdgeChanged(this);
+        }
+        if (null != endNode)
+        {
+            endNode.onConnectedEdgeChanged(this);
         }
     }
 
@@ -34,7 +34,9 @@ import java.awt.geom.Rectangle2D;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import com.horstmann.violet.product.diagram.property.text.LineText;
 import com.horstmann.violet.product.diagram.property.text.SingleLineText;
 
@@ -155,16 +157,8 @@ public abstract class AbstractNode implements INode
      */
     protected List<IEdge> getConnectedEdges()
     {
-        List<IEdge> connectedEdges = new ArrayList<IEdge>();
         IGraph currentGraph = getGraph();
-        for (IEdge anEdge : currentGraph.getAllEdges()) {
-            INode start = anEdge.getStartNode();
-            INode end = anEdge.getEndNode();
-            if (this.equals(start) || this.equals(end)) {
-                connectedEdges.add(anEdge);
-            }
-        }
-        return connectedEdges;
+        return new ArrayList<IEdge>(currentGraph.getConnectedEdges(this));
     }
 
     @Override
@@ -195,12 +189,17 @@ public abstract class AbstractNode implements INode
             throw new NullPointerException("Location can't be null");
         }
         this.location = point;
+        invalidateEdgeSlots();
 
         if (null != parent) {
             if (parent instanceof AbstractNode) {
                 ((AbstractNode) parent).onChildChangeLocation(this);
             }
         }
+        AbstractGraph attachedGraph = getAttachedGraph();
+        if (null != attachedGraph) {
+            attachedGraph.onNodeLocationChanged(this);
+        }
     }
 
     protected void onChildChangeLocation(INode child) {
@@ -216,7 +215,12 @@ public abstract class AbstractNode implements INode
         if (null == id) {
             throw new NullPointerException("Id can't be null");
         }
+        Id previousId = this.id;
         this.id = id;
+        AbstractGraph attachedGraph = getAttachedGraph();
+        if (null != attachedGraph) {
+            attachedGraph.onNodeIdChanged(this, previousId);
+        }
     }
 
     /**
@@ -227,13 +231,29 @@ public abstract class AbstractNode implements INode
      */
     private List<IEdge> getEdgesOnSameSide(IEdge edge)
     {
-        List<IEdge> result = new ArrayList<IEdge>();
         Direction d = edge.getDirection(this);
+        if (d == null) return new ArrayList<IEdge>();
+        List<IEdge> connectedEdges = getConnectedEdges();
+        Map<IEdge, Direction> directions = new HashMap<IEdge, Direction>();
+        for (IEdge anEdge : connectedEdges) {
+            directions.put(anEdge, anEdge.getDirection(this));
+        }
+        return getEdgesOnSide(d.getNearestCardinalDirection(), connectedEdges, directions);
+    }
 
-        if (d == null) return result;
-        Direction cardinalDirectionToSearch = d.getNearestCardinalDirection();
-        for (IEdge anEdge : getConnectedEdges()) {
-            Direction edgeDirection = anEdge.getDirection(this);
+    /**
+     * List edges connected to a side
+     *
+     * @param cardinalDirectionToSearch side
+     * @param connectedEdges all the connected edges
+     * @param directions direction of each connected edge
+     * @return ordered list of edges
+     */
+    private List<IEdge> getEdgesOnSide(Direction cardinalDirectionToSearch, List<IEdge> connectedEdges, final Map<IEdge, Direction> directions)
+    {
+        List<IEdge> result = new ArrayList<IEdge>();
+        for (IEdge anEdge : connectedEdges) {
+            Direction edgeDirection = directions.get(anEdge);
             Direction nearestCardinalDirection = edgeDirection.getNearestCardinalDirection();
             if (cardinalDirectionToSearch.equals(nearestCardinalDirection)) {
                 result.add(anEdge);
@@ -245,19 +265,19 @@ public abstract class AbstractNode implements INode
 
         if(cardinalDirectionToSearch.equals(Direction.NORTH) || cardinalDirectionToSearch.equals(Direction.SOUTH))
         {
-            sortEdges(result, EdgeDirection.vertical);
+            sortEdges(result, EdgeDirection.vertical, directions);
         }
         else if(cardinalDirectionToSearch.equals(Direction.EAST) || cardinalDirectionToSearch.equals(Direction.WEST))
         {
-            sortEdges(result, EdgeDirection.horizontal);
+            sortEdges(result, EdgeDirection.horizontal, directions);
         }
 
             if (Direction.EAST.equals(cardinalDirectionToSearch) || Direction.WEST.equals(cardinalDirectionToSearch)) {
             Collections.sort(result, new Comparator<IEdge>() {
                 @Override
                 public int compare(IEdge e1, IEdge e2) {
-                    Direction d1 = e1.getDirection(AbstractNode.this);
-                    Direction d2 = e2.getDirection(AbstractNode.this);
+                    Direction d1 = directions.get(e1);
+                    Direction d2 = directions.get(e2);
                     double y1 = d1.getY();
                     double y2 = d2.getY();
                     return Double.compare(y1, y2);
@@ -271,14 +291,15 @@ public abstract class AbstractNode implements INode
      * Sorts edges connected to the same side
      * @param edges
      * @param direction
+     * @param directions direction of each edge
      */
-    private void sortEdges(List<IEdge> edges, final EdgeDirection direction)
+    private void sortEdges(List<IEdge> edges, final EdgeDirection direction, final Map<IEdge, Direction> directions)
     {
         Collections.sort(edges, new Comparator<IEdge>() {
             @Override
             public int compare(IEdge firstEdge, IEdge secondEdge) {
-                Direction firstDirection = firstEdge.getDirection(AbstractNode.this);
-                Direction secondDirection = secondEdge.getDirection(AbstractNode.this);
+                Direction firstDirection = directions.get(firstEdge);
+                Direction secondDirection = directions.get(secondEdge);
 
                 Double firstCoordinate = (direction == EdgeDirection.vertical) ? firstDirection.getY() : firstDirection.getX();
                 Double secondCoordinate = (direction == EdgeDirection.horizontal) ? secondDirection.getY() : secondDirection.getX();
@@ -288,6 +309,90 @@ public abstract class AbstractNode implements INode
         });
     }
 
+    /**
+     * Gives the place of a connected edge among the edges on the same side.
+     *
+     * Slots of all the connected edges are computed at once and kept until they are invalidated : when this node (or one
+     * of its parents), or a node at the other end of one of its edges, moves or is resized, or when one of its edges is
+     * connected, disconnected or moved (see onConnectedEdgeChanged()). A steady repaint then doesn't sort anything.
+     *
+     * @param edge
+     * @return the slot or null if the edge isn't connected to this node
+     */
+    private EdgeSlot getEdgeSlot(IEdge edge)
+    {
+        if (this.edgeSlots == null) {
+            this.edgeSlots = computeEdgeSlots();
+        }
+        return this.edgeSlots == null ? null : this.edgeSlots.get(edge);
+    }
+
+    /**
+     * @return slot of each connected edge, or null if an edge has no direction yet
+     */
+    private Map<IEdge, EdgeSlot> computeEdgeSlots()
+    {
+        List<IEdge> connectedEdges = new ArrayList<IEdge>(getGraph().getConnectedEdges(this));
+        Map<IEdge, Direction> directionByEdge = new HashMap<IEdge, Direction>();
+        for (IEdge anEdge : connectedEdges) {
+            Direction edgeDirection = anEdge.getDirection(this);
+            if (edgeDirection == null) {
+                return null;
+            }
+            directionByEdge.put(anEdge, edgeDirection);
+        }
+        Map<Direction, List<IEdge>> edgesBySide = new HashMap<Direction, List<IEdge>>();
+        Map<IEdge, EdgeSlot> slots = new HashMap<IEdge, EdgeSlot>();
+        for (IEdge anEdge : connectedEdges) {
+            Direction side = directionByEdge.get(anEdge).getNearestCardinalDirection();
+            List<IEdge> edgesOnSide = edgesBySide.get(side);
+            if (edgesOnSide == null) {
+                edgesOnSide = getEdgesOnSide(side, connectedEdges, directionByEdge);
+                edgesBySide.put(side, edgesOnSide);
+            }
+            slots.put(anEdge, new EdgeSlot(edgesOnSide.indexOf(anEdge), edgesOnSide.size()));
+        }
+        return slots;
+    }
+
+    /**
+     * Drops the edge slots of this node and of its children, whose location on graph follows this one
+     */
+    private void invalidateEdgeSlots()
+    {
+        this.edgeSlots = null;
+        invalidateOppositeEdgeSlots();
+        for (INode aChild : getChildren()) {
+            if (aChild instanceof AbstractNode) {
+                ((AbstractNode) aChild).invalidateEdgeSlots();
+            }
+        }
+    }
+
+    /**
+     * Drops the edge slots of the nodes at the other end of the edges connected to this node, as they are ordered by the
+     * place of this node
+     */
+    private void invalidateOppositeEdgeSlots()
+    {
+        if (null == this.graph) {
+            return;
+        }
+        for (IEdge anEdge : this.graph.getConnectedEdges(this)) {
+            for (INode aNode : new INode[] { anEdge.getStartNode(), anEdge.getEndNode() }) {
+                if (aNode != this && aNode instanceof AbstractNode) {
+                    ((AbstractNode) aNode).edgeSlots = null;
+                }
+            }
+        }
+    }
+
+    @Override
+    public void onConnectedEdgeChanged(IEdge edge)
+    {
+        this.edgeSlots = null;
+    }
+
     /**
      * Returns a point, where given edges are connected
      * @param edge
@@ -295,9 +400,17 @@ public abstract class AbstractNode implements INode
      */
     public Point2D getConnectionPoint(IEdge edge)
     {
-        List<IEdge> edgesOnSameSide = getEdgesOnSameSide(edge);
-        int position = edgesOnSameSide.indexOf(edge);
-        int size = edgesOnSameSide.size();
+        int position;
+        int size;
+        EdgeSlot edgeSlot = getEdgeSlot(edge);
+        if (edgeSlot != null) {
+            position = edgeSlot.position;
+            size = edgeSlot.size;
+        } else {
+            List<IEdge> edgesOnSameSide = getEdgesOnSameSide(edge);
+            position = edgesOnSameSide.indexOf(edge);
+            size = edgesOnSameSide.size();
+        }
 
         Direction edgeDirection = edge.getDirection(this);
         Point2D startingNodeLocation = getLocation();
@@ -376,6 +489,10 @@ public abstract class AbstractNode implements INode
     {
         if (node.getParent() != this) return;
         getChildren().remove(node);
+        AbstractGraph attachedGraph = getAttachedGraph();
+        if (null != attachedGraph) {
+            attachedGraph.onChildRemoved(node);
+        }
     }
 
     @Override
@@ -424,6 +541,10 @@ public abstract class AbstractNode implements INode
         getChildren().add(index, node);
         node.setParent(this);
         node.setGraph(getGraph());
+        AbstractGraph attachedGraph = getAttachedGraph();
+        if (null != attachedGraph) {
+            attachedGraph.onChildAdded(node);
+        }
         return true;
     }
 
@@ -451,7 +572,14 @@ public abstract class AbstractNode implements INode
     @Override
     public void setZ(int z)
     {
+        if (this.z == z) {
+            return;
+        }
         this.z = z;
+        AbstractGraph attachedGraph = getAttachedGraph();
+        if (null != attachedGraph) {
+            attachedGraph.onNodeZChanged(this);
+        }
     }
 
     @Override
@@ -477,6 +605,18 @@ public abstract class AbstractNode implements INode
     	return this.graph;
     }
 
+    /**
+     * @return the graph this node belongs to or null if it isn't attached to any graph yet
+     */
+    private AbstractGraph getAttachedGraph()
+    {
+        if (this.graph instanceof AbstractGraph)
+        {
+            return (AbstractGraph) this.graph;
+        }
+        return null;
+    }
+
     public final Content getContent()
     {
         if(null == content)
@@ -489,14 +629,61 @@ public abstract class AbstractNode implements INode
     protected final void setContent(Content content)
     {
         this.content = content;
+        content.setSizeListener(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                onContentSizeChanged();
+            }
+        });
+    }
+
+    /**
+     * Called when the size of the node content changed
+     */
+    protected void onContentSizeChanged()
+    {
+        fireBoundsChanged();
+    }
+
+    /**
+     * Tells the graph that the bounds of this node changed
+     */
+    protected final void fireBoundsChanged()
+    {
+        this.edgeSlots = null;
+        invalidateOppositeEdgeSlots();
+        AbstractGraph attachedGraph = getAttachedGraph();
+        if (null != attachedGraph) {
+            attachedGraph.onNodeSizeChanged(this);
+        }
     }
 
     protected SingleLineText name;
 
     private enum EdgeDirection { vertical, horizontal }
 
+    /**
+     * Place of an edge among the edges connected to the same side
+     */
+    private static class EdgeSlot
+    {
+        EdgeSlot(int position, int size)
+        {
+            this.position = position;
+            this.size = size;
+        }
+
+        private final int position;
+        private final int size;
+    }
+
     private transient Content content;
 
+    /** Edge slots cache (null when it must be computed again) */
+    private transient Map<IEdge, EdgeSlot> edgeSlots;
+
     private transient IGraph graph;
     private transient int z;
 
@@ -58,6 +58,13 @@ public interface INode extends Serializable, Cloneable, IIdentifiable, Connected
      */
     void removeConnection(IEdge edge);
 
+    /**
+     * Notifies this node that one of its edges has been connected, disconnected or has moved.
+     * 
+     * @param edge the changed edge
+     */
+    void onConnectedEdgeChanged(IEdge edge);
+
     /**
      * Adds a node_old as a child node_old to this node_old.
      * 
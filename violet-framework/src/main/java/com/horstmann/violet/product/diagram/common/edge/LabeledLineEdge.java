@@ -12,6 +12,7 @@ import com.horstmann.violet.product.diagram.property.text.SingleLineText;
 import java.awt.Color;
 import java.awt.Graphics2D;
 import java.awt.*;
+import java.awt.geom.AffineTransform;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
 
@@ -109,7 +110,48 @@ public class LabeledLineEdge extends ArrowheadEdge implements IRevertablePropert
         drawContent(graphics, endTextContent, contactPoints[contactPoints.length-1], contactPoints[contactPoints.length-2], false);
     }
 
+    /**
+     * Gets the bounds of the line, as it was last laid out, and of its labels
+     *
+     * @return the bounding rectangle
+     */
+    @Override
+    public Rectangle2D getBounds()
+    {
+        Rectangle2D bounds = new Rectangle2D.Double();
+        bounds.setRect(super.getBounds());
+        if (null == contactPoints || null == startTextContent)
+        {
+            return bounds;
+        }
+        bounds.add(getContentBounds(startTextContent, contactPoints[0], contactPoints[1], false));
+        bounds.add(getContentBounds(centerTextContent, contactPoints[contactPoints.length/2-1], contactPoints[contactPoints.length/2], true));
+        bounds.add(getContentBounds(endTextContent, contactPoints[contactPoints.length-1], contactPoints[contactPoints.length-2], false));
+        return bounds;
+    }
+
     private void drawContent(Graphics2D graphics, TextContent textContent, Point2D startPoint, Point2D endPoint, boolean center)
+    {
+        ContentPlacement placement = getContentPlacement(textContent, startPoint, endPoint, center);
+        AffineTransform previousTransform = graphics.getTransform();
+        graphics.transform(placement.transform);
+        textContent.draw(graphics, placement.location);
+        graphics.setTransform(previousTransform);
+    }
+
+    private Rectangle2D getContentBounds(TextContent textContent, Point2D startPoint, Point2D endPoint, boolean center)
+    {
+        ContentPlacement placement = getContentPlacement(textContent, startPoint, endPoint, center);
+        Rectangle2D textBounds = textContent.getBounds();
+        Rectangle2D contentBounds = new Rectangle2D.Double(placement.location.getX() + textBounds.getX(),
+                placement.location.getY() + textBounds.getY(), textBounds.getWidth(), textBounds.getHeight());
+        return placement.transform.createTransformedShape(contentBounds).getBounds2D();
+    }
+
+    /**
+     * @return where a label is drawn, near the start point or in the middle of the segment
+     */
+    private ContentPlacement getContentPlacement(TextContent textContent, Point2D startPoint, Point2D endPoint, boolean center)
     {
         Rectangle2D textBounds = textContent.getBounds();
         Direction direction = new Direction(startPoint, endPoint);
@@ -136,63 +178,68 @@ public class LabeledLineEdge extends ArrowheadEdge implements IRevertablePropert
                 tan+=Math.PI;
             }
 
-            graphics.translate(x,y);
-            graphics.rotate(tan);
+            AffineTransform transform = AffineTransform.getTranslateInstance(x, y);
+            transform.rotate(tan);
             if(center)
             {
-            	textContent.draw(graphics, new Point2D.Double(-textContent.getWidth() / 2, -textContent.getHeight()));
+                return new ContentPlacement(transform, new Point2D.Double(-textContent.getWidth() / 2, -textContent.getHeight()));
+            }
+            if(0>direction.getX())
+            {
+                return new ContentPlacement(transform, new Point2D.Double(-LABEL_GAP - textContent.getWidth(),-textContent.getHeight()));
+            }
+            return new ContentPlacement(transform, new Point2D.Double(LABEL_GAP,-textContent.getHeight()));
+        }
+
+        if(center)
+        {
+            if(Direction.NORTH.equals(nearestDirection) || Direction.SOUTH.equals(nearestDirection))
+            {
+                y -= textBounds.getHeight()/2;
             }
             else
             {
-                if(0>direction.getX())
-                {
-                    textContent.draw(graphics, new Point2D.Double(-LABEL_GAP - textContent.getWidth(),-textContent.getHeight()));
-                }
-                else
-                {
-                    textContent.draw(graphics, new Point2D.Double(LABEL_GAP,-textContent.getHeight()));
-                }
+                x -= textBounds.getWidth()/2;
+                y -= textBounds.getHeight();
             }
-            graphics.rotate(-tan);
-            graphics.translate(-x,-y);
         }
         else
         {
-            if(center)
+            if(Direction.EAST.equals(nearestDirection))
             {
-                if(Direction.NORTH.equals(nearestDirection) || Direction.SOUTH.equals(nearestDirection))
-                {
-                    y -= textBounds.getHeight()/2;
-                }
-                else
-                {
-                    x -= textBounds.getWidth()/2;
-                    y -= textBounds.getHeight();
-                }
+                x += LABEL_GAP;
+                y -= textBounds.getHeight();
             }
-            else
+            else if(Direction.WEST.equals(nearestDirection))
+            {
+                x -= textBounds.getWidth() + LABEL_GAP;
+                y -= textBounds.getHeight();
+            }
+            else if(Direction.SOUTH.equals(nearestDirection))
             {
-                if(Direction.EAST.equals(nearestDirection))
-                {
-                    x += LABEL_GAP;
-                    y -= textBounds.getHeight();
-                }
-                else if(Direction.WEST.equals(nearestDirection))
-                {
-                    x -= textBounds.getWidth() + LABEL_GAP;
-                    y -= textBounds.getHeight();
-                }
-                else if(Direction.SOUTH.equals(nearestDirection))
-                {
-                    y += LABEL_GAP;
-                }
-                else if(Direction.NORTH.equals(nearestDirection))
-                {
-                    y -= textBounds.getHeight() + LABEL_GAP;
-                }
+                y += LABEL_GAP;
             }
-            textContent.draw(graphics, new Point2D.Double(x,y));
+            else if(Direction.NORTH.equals(nearestDirection))
+            {
+                y -= textBounds.getHeight() + LABEL_GAP;
+            }
+        }
+        return new ContentPlacement(new AffineTransform(), new Point2D.Double(x,y));
+    }
+
+    /**
+     * Location of a label, in the coordinates the transform gives
+     */
+    private static class ContentPlacement
+    {
+        ContentPlacement(AffineTransform transform, Point2D location)
+        {
+            this.transform = transform;
+            this.location = location;
         }
+
+        private final AffineTransform transform;
+        private final Point2D location;
     }
 
     public LineText getStartLabel()
@@ -83,7 +83,7 @@ public abstract class LineEdge extends ShapeEdge
      */
     public void draw(Graphics2D graphics)
     {
-        updateContactPoints();
+        updateContactPointsAndNotify();
 
         Color oldColor = graphics.getColor();
         Stroke oldStroke = graphics.getStroke();
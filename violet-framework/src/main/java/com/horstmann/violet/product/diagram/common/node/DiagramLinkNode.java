@@ -45,6 +45,34 @@ public class DiagramLinkNode extends ColorableNode
     public DiagramLinkNode()
     {
         this.label = new MultiLineText();
+        listenToLabel();
+    }
+
+    @Override
+    protected void afterReconstruction()
+    {
+        super.afterReconstruction();
+        listenToLabel();
+    }
+
+    /**
+     * The bounds of this node don't come from its content : the graph is told when the label changes
+     */
+    private void listenToLabel()
+    {
+        if (null == this.label || this.label == this.listenedLabel)
+        {
+            return;
+        }
+        this.label.addChangeListener(new LineText.ChangeListener()
+        {
+            @Override
+            public void onChange()
+            {
+                fireBoundsChanged();
+            }
+        });
+        this.listenedLabel = this.label;
     }
 
     @Override
@@ -151,6 +179,7 @@ public class DiagramLinkNode extends ColorableNode
     public void setDiagramLink(DiagramLink fLink)
     {
         this.diagramLink = fLink;
+        fireBoundsChanged();
     }
 
     private MultiLineText getLabel()
@@ -158,6 +187,7 @@ public class DiagramLinkNode extends ColorableNode
         if (this.label == null)
         {
             this.label = new MultiLineText();
+            listenToLabel();
         }
         DiagramLink dl = this.getDiagramLink();
         if (dl != null && dl.getFile() != null)
@@ -166,7 +196,11 @@ public class DiagramLinkNode extends ColorableNode
                     .append(
                             ResourceBundle.getBundle(ResourceBundleConstant.OTHER_STRINGS, Locale.getDefault()).getString(
                                     "file.link.text")).append(" ").append(dl.getFile().getFilename());
-            this.label.setText( linktext.toString() );
+            // Only when it changes : setting it tells the graph the bounds changed, and this is called to compute them
+            if (!linktext.toString().equals(this.label.toEdit()))
+            {
+                this.label.setText( linktext.toString() );
+            }
         }
         return this.label;
     }
@@ -174,6 +208,9 @@ public class DiagramLinkNode extends ColorableNode
     /** Label */
     private MultiLineText label;
 
+    /** Label whose changes are listened to */
+    private transient MultiLineText listenedLabel;
+
     /** Linked diagram */
     private DiagramLink diagramLink;
 
@@ -52,6 +52,7 @@ public class ImageNode extends ColorableNode
     {
         text = new MultiLineText();
 //        text.setAlignment(MultiLineText.RIGHT);
+        listenToText();
         this.setImage(img);
     }
 
@@ -63,6 +64,34 @@ public class ImageNode extends ColorableNode
     	ResourceBundleInjector.getInjector().inject(this);
     	text = new MultiLineText();
 //        text.setAlignment(MultiLineText.RIGHT);
+        listenToText();
+    }
+
+    @Override
+    protected void afterReconstruction()
+    {
+        super.afterReconstruction();
+        listenToText();
+    }
+
+    /**
+     * The bounds of this node don't come from its content : the graph is told when the text changes
+     */
+    private void listenToText()
+    {
+        if (null == text || text == listenedText)
+        {
+            return;
+        }
+        text.addChangeListener(new LineText.ChangeListener()
+        {
+            @Override
+            public void onChange()
+            {
+                fireBoundsChanged();
+            }
+        });
+        listenedText = text;
     }
 
     /**
@@ -73,6 +102,7 @@ public class ImageNode extends ColorableNode
     public void setImage(Image img)
     {
         this.imageIcon = new ImageIcon(img);
+        fireBoundsChanged();
     }
 
     @Override
@@ -119,6 +149,8 @@ public class ImageNode extends ColorableNode
     public void setText(MultiLineText newValue)
     {
         text = newValue;
+        listenToText();
+        fireBoundsChanged();
     }
     
     
@@ -128,6 +160,7 @@ public class ImageNode extends ColorableNode
 
 	public void setImageIcon(ImageIcon imageIcon) {
 		this.imageIcon = imageIcon;
+		fireBoundsChanged();
 	}
 
 	/*
@@ -279,4 +312,7 @@ public class ImageNode extends ColorableNode
     private ImageIcon imageIcon;
 
     private MultiLineText text;
+
+    /** Text whose changes are listened to */
+    private transient MultiLineText listenedText;
 }
@@ -4,6 +4,7 @@ import com.horstmann.violet.product.diagram.property.text.decorator.OneLineText;
 import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.Graphics2D;
+import java.awt.Insets;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
 import java.io.Serializable;
@@ -52,11 +53,13 @@ public abstract class LineText implements Serializable, Cloneable, EditableText
         getLabel().setForeground(lineText.getLabel().getForeground());
         getLabel().setBorder(lineText.getLabel().getBorder());
         getLabel().setText(lineText.getLabel().getText());
+        labelText = lineText.labelText;
+        layout = lineText.layout;
         converter = lineText.converter;
     }
     
     public String getText(){
-    	return getLabel().getText();
+    	return null == labelText ? "" : labelText;
     }
 
     public final void reconstruction() {
@@ -190,10 +193,51 @@ public abstract class LineText implements Serializable, Cloneable, EditableText
      */
     public final void draw(Graphics2D graphics, Point2D point) {
         graphics.translate(point.getX(), point.getY());
-        getLabel().paint(graphics);
+        if (null != layout) {
+            drawLayout(graphics);
+        } else {
+            getLabel().paint(graphics);
+        }
         graphics.translate(-point.getX(), -point.getY());
     }
 
+    /**
+     * Draws the measured text where the label would have painted it
+     *
+     * @param graphics
+     * @see javax.swing.SwingUtilities#layoutCompoundLabel
+     */
+    private void drawLayout(Graphics2D graphics) {
+        JLabel label = getLabel();
+        Insets insets = label.getInsets();
+        int availableWidth = label.getWidth() - insets.left - insets.right;
+        int availableHeight = label.getHeight() - insets.top - insets.bottom;
+        int x = insets.left;
+        switch (label.getHorizontalAlignment()) {
+            case SwingConstants.CENTER:
+                x += availableWidth / 2 - layout.getWidth() / 2;
+                break;
+            case SwingConstants.RIGHT:
+            case SwingConstants.TRAILING:
+                x += availableWidth - layout.getWidth();
+                break;
+            default:
+                break;
+        }
+        int y = insets.top;
+        switch (label.getVerticalAlignment()) {
+            case SwingConstants.CENTER:
+                y += availableHeight / 2 - layout.getHeight() / 2;
+                break;
+            case SwingConstants.BOTTOM:
+                y += availableHeight - layout.getHeight();
+                break;
+            default:
+                break;
+        }
+        layout.draw(graphics, x, y, label.getForeground());
+    }
+
     /**
      * Draws text
      *
@@ -232,9 +276,14 @@ public abstract class LineText implements Serializable, Cloneable, EditableText
      */
     protected final void setLabelText(String text) {
         if (text.isEmpty()) {
+            labelText = "";
+            layout = null;
             getLabel().setText("");
         } else {
-            getLabel().setText("<html>" + text + "<html>");
+            labelText = "<html>" + text + "<html>";
+            // Swing's HTML renderer is only used for the markup that can't be measured directly
+            layout = TextLayoutCache.get(text, getLabel().getFont());
+            getLabel().setText(null == layout ? labelText : "");
         }
 
         refresh();
@@ -244,8 +293,12 @@ public abstract class LineText implements Serializable, Cloneable, EditableText
      * Recalculate preferred size for text
      */
     private void refresh() {
-        if (getLabel().getText().isEmpty()) {
+        if (getText().isEmpty()) {
             this.bounds = new Rectangle2D.Double(0, 0, 0, 0);
+        } else if (null != layout) {
+            Insets insets = getLabel().getInsets();
+            this.bounds = new Rectangle2D.Double(0, 0, layout.getWidth() + insets.left + insets.right, layout.getHeight()
+                    + insets.top + insets.bottom);
         } else {
             Dimension dimension = getLabel().getPreferredSize();
             this.bounds = new Rectangle2D.Double(0, 0, dimension.getWidth(), dimension.getHeight());
@@ -286,6 +339,8 @@ public abstract class LineText implements Serializable, Cloneable, EditableText
 
     protected transient Converter converter;
     private transient JLabel label;
+    private transient String labelText;
+    private transient TextLayoutCache.Layout layout;
     private transient Rectangle2D bounds;
 
     private transient List<ChangeListener> changeListeners;
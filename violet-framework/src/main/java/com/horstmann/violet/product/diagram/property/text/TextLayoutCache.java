@@ -0,0 +1,428 @@
+package com.horstmann.violet.product.diagram.property.text;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Measures and draws the text displayed by {@link LineText} without going through Swing's HTML renderer.
+ *
+ * Decorators only produce a few tags (bold, italics, underline, relative font size and line breaks). This markup is parsed
+ * into runs of glyphs which are measured once and kept in a cache shared by all the texts. Any other markup (entities,
+ * unknown tags, '&lt;' inside a name...) is not supported : callers have to fall back to a HTML label to keep the same
+ * rendering.
+ */
+final class TextLayoutCache
+{
+    private TextLayoutCache()
+    {
+    }
+
+    /**
+     * Measured text ready to be drawn
+     */
+    static final class Layout
+    {
+        private Layout(List<Line> lines)
+        {
+            this.lines = lines;
+            for (Line aLine : lines)
+            {
+                this.width = Math.max(this.width, aLine.width);
+                this.height += aLine.height;
+            }
+        }
+
+        /**
+         * @return width of the longest line
+         */
+        int getWidth()
+        {
+            return this.width;
+        }
+
+        /**
+         * @return sum of the line heights
+         */
+        int getHeight()
+        {
+            return this.height;
+        }
+
+        /**
+         * Draws lines aligned on the left, like the HTML renderer does
+         *
+         * @param graphics
+         * @param x left of the text
+         * @param y top of the text
+         * @param color
+         */
+        void draw(Graphics2D graphics, int x, int y, Color color)
+        {
+            Font oldFont = graphics.getFont();
+            Color oldColor = graphics.getColor();
+            graphics.setColor(color);
+            FontRenderContext fontRenderContext = graphics.getFontRenderContext();
+            int lineTop = y;
+            for (Line aLine : this.lines)
+            {
+                int baseline = lineTop + aLine.ascent;
+                int runLeft = x;
+                for (Run aRun : aLine.runs)
+                {
+                    graphics.setFont(aRun.font);
+                    graphics.drawGlyphVector(aRun.getGlyphs(fontRenderContext), runLeft, baseline);
+                    if (aRun.isUnderlined)
+                    {
+                        // Same place as javax.swing.text.GlyphView
+                        graphics.drawLine(runLeft, baseline + 1, runLeft + aRun.width, baseline + 1);
+                    }
+                    runLeft += aRun.width;
+                }
+                lineTop += aLine.height;
+            }
+            graphics.setFont(oldFont);
+            graphics.setColor(oldColor);
+        }
+
+        private final List<Line> lines;
+
+        private int width;
+
+        private int height;
+    }
+
+    /**
+     * Returns the layout of a markup, measuring it if it isn't in the cache yet
+     *
+     * @param markup text returned by EditableText.toDisplay()
+     * @param font base font
+     * @return layout or null if the markup needs the HTML renderer
+     */
+    static Layout get(String markup, Font font)
+    {
+        Key key = new Key(markup, font);
+        synchronized (LAYOUTS)
+        {
+            Layout layout = LAYOUTS.get(key);
+            if (layout == null)
+            {
+                layout = parse(markup, font);
+                LAYOUTS.put(key, null == layout ? NOT_SUPPORTED : layout);
+            }
+            return layout == NOT_SUPPORTED ? null : layout;
+        }
+    }
+
+    /**
+     * @return layout or null if the markup contains something else than the tags produced by decorators
+     */
+    private static Layout parse(String markup, Font font)
+    {
+        if (markup.indexOf('&') >= 0)
+        {
+            return null;
+        }
+        List<Line> lines = new ArrayList<Line>();
+        LineBuilder currentLine = new LineBuilder();
+        int boldLevel = 0;
+        int italicsLevel = 0;
+        int underlineLevel = 0;
+        List<Integer> fontSizes = new ArrayList<Integer>();
+        int position = 0;
+        while (position < markup.length())
+        {
+            int tagStart = markup.indexOf('<', position);
+            if (tagStart < 0)
+            {
+                tagStart = markup.length();
+            }
+            if (tagStart > position)
+            {
+                Font runFont = deriveFont(font, boldLevel > 0, italicsLevel > 0, fontSizes);
+                currentLine.append(markup.substring(position, tagStart), runFont, underlineLevel > 0);
+                position = tagStart;
+                continue;
+            }
+            int tagEnd = markup.indexOf('>', tagStart);
+            if (tagEnd < 0)
+            {
+                return null;
+            }
+            String tag = markup.substring(tagStart + 1, tagEnd).trim().toLowerCase();
+            position = tagEnd + 1;
+            Matcher fontTag = FONT_TAG.matcher(tag);
+            if ("b".equals(tag))
+            {
+                boldLevel++;
+            }
+            else if ("/b".equals(tag))
+            {
+                boldLevel--;
+            }
+            else if ("i".equals(tag))
+            {
+                italicsLevel++;
+            }
+            else if ("/i".equals(tag))
+            {
+                italicsLevel--;
+            }
+            else if ("u".equals(tag))
+            {
+                underlineLevel++;
+            }
+            else if ("/u".equals(tag))
+            {
+                underlineLevel--;
+            }
+            else if (fontTag.matches())
+            {
+                fontSizes.add(toPointSize(fontTag.group(1)));
+            }
+            else if ("/font".equals(tag) && !fontSizes.isEmpty())
+            {
+                fontSizes.remove(fontSizes.size() - 1);
+            }
+            else if ("br".equals(tag) || "br/".equals(tag))
+            {
+                String nextText = markup.substring(position).trim().toLowerCase();
+                if (nextText.isEmpty() || nextText.startsWith("<br"))
+                {
+                    // Empty lines at the end or in the middle are measured in a special way by the HTML renderer
+                    return null;
+                }
+                lines.add(currentLine.build(deriveFont(font, boldLevel > 0, italicsLevel > 0, fontSizes)));
+                currentLine = new LineBuilder();
+            }
+            else
+            {
+                return null;
+            }
+            if (boldLevel < 0 || italicsLevel < 0 || underlineLevel < 0)
+            {
+                return null;
+            }
+        }
+        lines.add(currentLine.build(deriveFont(font, boldLevel > 0, italicsLevel > 0, fontSizes)));
+        return new Layout(lines);
+    }
+
+    private static Font deriveFont(Font font, boolean isBold, boolean isItalics, List<Integer> fontSizes)
+    {
+        int style = font.getStyle() | (isBold ? Font.BOLD : 0) | (isItalics ? Font.ITALIC : 0);
+        float size = fontSizes.isEmpty() ? font.getSize2D() : fontSizes.get(fontSizes.size() - 1);
+        if (style == font.getStyle() && size == font.getSize2D())
+        {
+            return font;
+        }
+        return font.deriveFont(style, size);
+    }
+
+    /**
+     * Relative HTML sizes are applied to the default HTML size (4), not to the label font (see javax.swing.text.html.StyleSheet)
+     */
+    private static int toPointSize(String htmlSize)
+    {
+        int index = Integer.parseInt(htmlSize);
+        if (htmlSize.startsWith("+") || htmlSize.startsWith("-"))
+        {
+            index += DEFAULT_HTML_FONT_SIZE;
+        }
+        index = Math.max(1, Math.min(HTML_FONT_SIZES.length, index));
+        return HTML_FONT_SIZES[index - 1];
+    }
+
+    private static FontMetrics getFontMetrics(Font font)
+    {
+        return MEASURING_GRAPHICS.getFontMetrics(font);
+    }
+
+    /**
+     * Collects the runs of a line. Whitespaces are collapsed and trimmed like the HTML renderer does.
+     */
+    private static final class LineBuilder
+    {
+        void append(String text, Font font, boolean isUnderlined)
+        {
+            StringBuilder collapsedText = new StringBuilder(text.length());
+            for (int i = 0; i < text.length(); i++)
+            {
+                char c = text.charAt(i);
+                if (Character.isWhitespace(c))
+                {
+                    if (this.isAfterWhitespace)
+                    {
+                        continue;
+                    }
+                    c = ' ';
+                    this.isAfterWhitespace = true;
+                }
+                else
+                {
+                    this.isAfterWhitespace = false;
+                }
+                collapsedText.append(c);
+            }
+            if (collapsedText.length() > 0)
+            {
+                this.runs.add(new Run(collapsedText.toString(), font, isUnderlined));
+            }
+        }
+
+        Line build(Font lastFont)
+        {
+            if (!this.runs.isEmpty())
+            {
+                Run lastRun = this.runs.get(this.runs.size() - 1);
+                if (lastRun.text.endsWith(" "))
+                {
+                    this.runs.remove(this.runs.size() - 1);
+                    if (lastRun.text.length() > 1)
+                    {
+                        this.runs.add(new Run(lastRun.text.substring(0, lastRun.text.length() - 1), lastRun.font,
+                                lastRun.isUnderlined));
+                    }
+                }
+            }
+            return new Line(this.runs, lastFont);
+        }
+
+        private final List<Run> runs = new ArrayList<Run>();
+
+        /** Starts as true to drop the whitespaces at the beginning of the line */
+        private boolean isAfterWhitespace = true;
+    }
+
+    private static final class Line
+    {
+        Line(List<Run> runs, Font emptyLineFont)
+        {
+            this.runs = runs;
+            int descent = 0;
+            int leading = 0;
+            if (runs.isEmpty())
+            {
+                FontMetrics fontMetrics = getFontMetrics(emptyLineFont);
+                this.ascent = fontMetrics.getAscent();
+                descent = fontMetrics.getDescent();
+                leading = fontMetrics.getLeading();
+            }
+            for (Run aRun : runs)
+            {
+                FontMetrics fontMetrics = getFontMetrics(aRun.font);
+                this.ascent = Math.max(this.ascent, fontMetrics.getAscent());
+                descent = Math.max(descent, fontMetrics.getDescent());
+                leading = Math.max(leading, fontMetrics.getLeading());
+                this.width += aRun.width;
+            }
+            this.height = this.ascent + descent + leading;
+        }
+
+        private final List<Run> runs;
+
+        private int ascent;
+
+        private int height;
+
+        private int width;
+    }
+
+    private static final class Run
+    {
+        Run(String text, Font font, boolean isUnderlined)
+        {
+            this.text = text;
+            this.font = font;
+            this.isUnderlined = isUnderlined;
+            this.width = getFontMetrics(font).stringWidth(text);
+        }
+
+        /**
+         * @return glyphs for the given rendering context, created once as long as the context doesn't change
+         */
+        GlyphVector getGlyphs(FontRenderContext fontRenderContext)
+        {
+            GlyphVector glyphs = this.glyphs;
+            if (glyphs == null || !fontRenderContext.equals(glyphs.getFontRenderContext()))
+            {
+                glyphs = this.font.createGlyphVector(fontRenderContext, this.text);
+                this.glyphs = glyphs;
+            }
+            return glyphs;
+        }
+
+        private final String text;
+
+        private final Font font;
+
+        private final boolean isUnderlined;
+
+        private final int width;
+
+        private volatile GlyphVector glyphs;
+    }
+
+    private static final class Key
+    {
+        Key(String markup, Font font)
+        {
+            this.markup = markup;
+            this.font = font;
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            if (!(obj instanceof Key))
+            {
+                return false;
+            }
+            Key other = (Key) obj;
+            return this.markup.equals(other.markup) && this.font.equals(other.font);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return 31 * this.markup.hashCode() + this.font.hashCode();
+        }
+
+        private final String markup;
+
+        private final Font font;
+    }
+
+    private static final Pattern FONT_TAG = Pattern.compile("font\\s+size\\s*=\\s*\"?([+-]?\\d)\"?");
+
+    private static final int[] HTML_FONT_SIZES = { 8, 10, 12, 14, 18, 24, 36 };
+
+    private static final int DEFAULT_HTML_FONT_SIZE = 4;
+
+    private static final int MAX_CACHED_LAYOUTS = 4096;
+
+    /** Marks markups which need the HTML renderer */
+    private static final Layout NOT_SUPPORTED = new Layout(new ArrayList<Line>());
+
+    /** Only used to get font metrics */
+    private static final Graphics2D MEASURING_GRAPHICS = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB).createGraphics();
+
+    private static final Map<Key, Layout> LAYOUTS = new LinkedHashMap<Key, Layout>(256, 0.75f, true)
+    {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Layout> eldest)
+        {
+            return size() > MAX_CACHED_LAYOUTS;
+        }
+    };
+}
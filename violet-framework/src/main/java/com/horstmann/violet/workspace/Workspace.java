@@ -115,7 +115,8 @@ public class Workspace implements IWorkspace
             public void onFileSaved()
             {
                 setTitle(getGraphName());
-                updateTitle(false);
+                // Saves complete in the background, the graph may have been modified since
+                updateTitle(graphFile.isSaveRequired());
             }
         });
         getAWTComponent().prepareLayout();
@@ -22,6 +22,7 @@
 package com.horstmann.violet.workspace.editorpart;
 
 import com.horstmann.violet.framework.injection.resources.ResourceBundleConstant;
+import com.horstmann.violet.framework.theme.ThemeManager;
 import com.horstmann.violet.framework.util.nodeusage.NodeUsage;
 import com.horstmann.violet.framework.util.nodeusage.NodeUsagesFinder;
 import com.horstmann.violet.product.diagram.abstracts.IGraph;
@@ -34,12 +35,17 @@ import com.horstmann.violet.workspace.editorpart.enums.Direction;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
+import java.awt.geom.AffineTransform;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.ResourceBundle;
+import java.util.Set;
+import java.util.function.Predicate;
 
 import javax.swing.JComponent;
 import javax.swing.JPanel;
@@ -96,6 +102,21 @@ public class EditorPart extends JPanel implements IEditorPart
      */
     private double zoom;
 
+    /**
+     * Nodes being dragged (null when nothing is dragged).
+     */
+    private Set<INode> draggedNodes;
+
+    /**
+     * Edges which may change while nodes are dragged.
+     */
+    private Set<IEdge> draggedEdges;
+
+    /**
+     * Offscreen images of the elements which don't move while nodes are dragged.
+     */
+    private StaticLayerTileCache staticLayerCache;
+
 	/** The resource bundle with lang locale. */
 	private ResourceBundle resourceBundle = ResourceBundle.getBundle("properties.NodeAndEdgeStrings", Locale.getDefault());
 	
@@ -441,6 +462,26 @@ public class EditorPart extends JPanel implements IEditorPart
         repaint();
     }
 
+    /* (non-Javadoc)
+     * @see com.horstmann.violet.workspace.editorpart.IEditorPart#repaintGraphArea(java.awt.geom.Rectangle2D)
+     */
+    @Override
+    public void repaintGraphArea(Rectangle2D areaOnGraph)
+    {
+        // Margin for antialiasing and rounding errors
+        final int margin = 2;
+        final int x = (int) Math.floor(areaOnGraph.getX() * zoom) - margin;
+        final int y = (int) Math.floor(areaOnGraph.getY() * zoom) - margin;
+        final int width = (int) Math.ceil(areaOnGraph.getWidth() * zoom) + 2 * margin + 1;
+        final int height = (int) Math.ceil(areaOnGraph.getHeight() * zoom) + 2 * margin + 1;
+        if (this.staticLayerCache != null)
+        {
+            this.staticLayerCache.invalidate(new Rectangle(x, y, width, height));
+        }
+        invalidate();
+        repaint(x, y, width, height);
+    }
+
     /* (non-Javadoc)
      * @see com.horstmann.violet.workspace.editorpart.IEditorPart#getSwingComponent()
      */
@@ -473,18 +514,146 @@ public class EditorPart extends JPanel implements IEditorPart
         }
         getSwingComponent().revalidate(); // to inform parent scrollpane container
         final Graphics2D g2 = (Graphics2D) g;
-        g2.scale(zoom, zoom);
+        if (this.draggedNodes != null && isStaticLayerCacheUsable(g2))
+        {
+            paintStaticLayer(g2);
+            g2.scale(zoom, zoom);
+            g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            graph.draw(g2, draggedNodes, draggedEdges);
+        }
+        else
+        {
+            g2.scale(zoom, zoom);
+            paintLayer(g2, node -> true, edge -> true);
+        }
+        for (final IEditorPartBehavior behavior : this.behaviorManager.getBehaviors())
+        {
+            behavior.onPaint(g2);
+        }
+    }
+
+    /**
+     * Paints the grid and a part of the graph
+     *
+     * @param g2 zoomed graphics context
+     * @param nodeFilter node to draw
+     * @param edgeFilter edges to draw
+     */
+    private void paintLayer(final Graphics2D g2, final Predicate<INode> nodeFilter, final Predicate<IEdge> edgeFilter)
+    {
         g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
         if (grid.isVisible())
         {
             grid.paint(g2);
         }
         g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-        graph.draw(g2);
-        for (final IEditorPartBehavior behavior : this.behaviorManager.getBehaviors())
+        graph.draw(g2, nodeFilter, edgeFilter);
+    }
+
+    /**
+     * Tiles are rendered pixel per pixel. They can't be used on scaled or rotated graphics (on hi-dpi screens for example).
+     *
+     * @param g2 editor graphics context
+     * @return true if the static layer can be copied from offscreen images
+     */
+    private boolean isStaticLayerCacheUsable(final Graphics2D g2)
+    {
+        final AffineTransform transform = g2.getTransform();
+        return transform.getScaleX() == 1 && transform.getScaleY() == 1 && transform.getShearX() == 0
+                && transform.getShearY() == 0;
+    }
+
+    /**
+     * Copies the grid and the elements which don't move while nodes are dragged from offscreen images
+     *
+     * @param g2 editor graphics context, not zoomed
+     */
+    private void paintStaticLayer(final Graphics2D g2)
+    {
+        final Object gridSettings = Arrays.asList(grid.isVisible(), grid.getSnappingWidth(), grid.getSnappingHeight(),
+                ThemeManager.getInstance().getTheme());
+        if (this.staticLayerCache == null || !this.staticLayerCache.isValidFor(zoom, gridSettings))
         {
-            behavior.onPaint(g2);
+            this.staticLayerCache = new StaticLayerTileCache(new StaticLayerTileCache.ITileRenderer()
+            {
+                @Override
+                public void render(Graphics2D tileGraphics, Rectangle tileArea)
+                {
+                    tileGraphics.scale(zoom, zoom);
+                    paintLayer(tileGraphics, node -> !draggedNodes.contains(node), edge -> !draggedEdges.contains(edge));
+                }
+            }, zoom, gridSettings);
+        }
+        // The grid is painted up to the editor or the graph bounds (see PlainGrid)
+        final Rectangle2D graphBounds = graph.getClipBounds();
+        final Rectangle2D editorBounds = getBounds();
+        final int extentWidth = (int) Math.ceil(Math.max(editorBounds.getMaxX(), graphBounds.getMaxX() * zoom));
+        final int extentHeight = (int) Math.ceil(Math.max(editorBounds.getMaxY(), graphBounds.getMaxY() * zoom));
+        this.staticLayerCache.setExtent(new Dimension(extentWidth, extentHeight));
+        Rectangle area = g2.getClipBounds();
+        if (area == null)
+        {
+            area = new Rectangle(0, 0, getWidth(), getHeight());
+        }
+        this.staticLayerCache.paint(g2, area, getGraphicsConfiguration());
+    }
+
+    /* (non-Javadoc)
+     * @see com.horstmann.violet.workspace.editorpart.IEditorPart#beginDraggingNodes(java.util.Collection)
+     */
+    @Override
+    public void beginDraggingNodes(Collection<INode> nodes)
+    {
+        // Node are drawn with their whole tree (parents may grow when their children move)
+        final Set<INode> movingNodes = new HashSet<INode>();
+        for (INode aNode : nodes)
+        {
+            INode root = aNode;
+            while (root.getParent() != null)
+            {
+                root = root.getParent();
+            }
+            addNodeTree(root, movingNodes);
+        }
+        // Edges move with their nodes but also shift the other edges on the side of the nodes they are connected to
+        final Set<IEdge> movingEdges = new HashSet<IEdge>();
+        final Set<INode> neighbours = new HashSet<INode>();
+        for (INode aNode : movingNodes)
+        {
+            for (IEdge anEdge : graph.getConnectedEdges(aNode))
+            {
+                movingEdges.add(anEdge);
+                neighbours.add(anEdge.getStartNode());
+                neighbours.add(anEdge.getEndNode());
+            }
+        }
+        for (INode aNeighbour : neighbours)
+        {
+            movingEdges.addAll(graph.getConnectedEdges(aNeighbour));
         }
+        this.draggedNodes = movingNodes;
+        this.draggedEdges = movingEdges;
+        this.staticLayerCache = null;
+    }
+
+    private static void addNodeTree(INode node, Set<INode> nodes)
+    {
+        nodes.add(node);
+        for (INode aChild : node.getChildren())
+        {
+            addNodeTree(aChild, nodes);
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see com.horstmann.violet.workspace.editorpart.IEditorPart#endDraggingNodes()
+     */
+    @Override
+    public void endDraggingNodes()
+    {
+        this.draggedNodes = null;
+        this.draggedEdges = null;
+        this.staticLayerCache = null;
     }
 
     /* (non-Javadoc)
@@ -209,5 +209,12 @@ public class EditorPartBehaviorManager implements IEditorPartBehaviorManager
             aBehavior.afterChangingColorOnElement(element);
     }
     
+    @Override
+    public void fireAfterChangingGraph()
+    {
+        for (IEditorPartBehavior aBehavior : this.behaviors)
+            aBehavior.afterChangingGraph();
+    }
+    
 
 }
@@ -4,7 +4,9 @@ import com.horstmann.violet.framework.util.nodeusage.NodeUsage;
 import com.horstmann.violet.product.diagram.abstracts.IGraph;
 import com.horstmann.violet.product.diagram.abstracts.node.INode;
 import com.horstmann.violet.workspace.editorpart.enums.Direction;
+import java.awt.geom.Rectangle2D;
 import javax.swing.*;
+import java.util.Collection;
 import java.util.List;
 import javax.swing.JComponent;
 
@@ -78,6 +80,27 @@ public interface IEditorPart
      */
     void clipDrawingArea();
 
+    /**
+     * Repaints only a part of the graph. Use it when the changes are known to stay inside this area.
+     *
+     * @param areaOnGraph area to repaint, in graph coordinates (i.e. not zoomed)
+     */
+    void repaintGraphArea(Rectangle2D areaOnGraph);
+
+    /**
+     * Tells the editor that some nodes are being dragged. Until {@link #endDraggingNodes()}, the elements which can't move
+     * with them are kept in offscreen images and only the dragged nodes (and the edges around them) are drawn again on
+     * each repaint.
+     *
+     * @param nodes dragged nodes
+     */
+    void beginDraggingNodes(Collection<INode> nodes);
+
+    /**
+     * Goes back to normal painting once the dragged nodes are dropped
+     */
+    void endDraggingNodes();
+
     /**
      * @return the awt object displaying this editor part
      */
@@ -67,6 +67,8 @@ public interface IEditorPartBehaviorManager
 
     public abstract void fireAfterChangingColorOnElement(IColorable element);
 
+    public abstract void fireAfterChangingGraph();
+
     
     
 
@@ -114,14 +114,28 @@ public class PlainGrid implements IGrid
         if (snappingWidth == 0 || snappingHeight == 0) return;
         Color oldColor = g2.getColor();
         Rectangle2D.Double bounds = getBounds(g2);
+        // Only the area to repaint is filled. Lines stay at the same place whatever this area is.
+        Rectangle2D visibleBounds = bounds;
+        Rectangle2D clip = g2.getClipBounds();
+        if (clip != null)
+        {
+            visibleBounds = bounds.createIntersection(clip);
+            if (visibleBounds.isEmpty()) return;
+        }
         g2.setColor(ThemeManager.getInstance().getTheme().getGridBackgroundColor());
-        g2.fill(bounds);
+        g2.fill(visibleBounds);
         g2.setColor(ThemeManager.getInstance().getTheme().getGridColor());
         Stroke oldStroke = g2.getStroke();
-        for (double x = bounds.getX(); x < bounds.getMaxX(); x += snappingWidth)
-            g2.draw(new Line2D.Double(x, bounds.getY(), x, bounds.getMaxY()));
-        for (double y = bounds.getY(); y < bounds.getMaxY(); y += snappingHeight)
-            g2.draw(new Line2D.Double(bounds.getX(), y, bounds.getMaxX(), y));
+        for (double x = bounds.getX(); x < visibleBounds.getMaxX(); x += snappingWidth)
+        {
+            if (x < visibleBounds.getX() - 1) continue;
+            g2.draw(new Line2D.Double(x, visibleBounds.getY(), x, visibleBounds.getMaxY()));
+        }
+        for (double y = bounds.getY(); y < visibleBounds.getMaxY(); y += snappingHeight)
+        {
+            if (y < visibleBounds.getY() - 1) continue;
+            g2.draw(new Line2D.Double(visibleBounds.getX(), y, visibleBounds.getMaxX(), y));
+        }
         g2.setStroke(oldStroke);
         g2.setColor(oldColor);
     }
@@ -0,0 +1,196 @@
+package com.horstmann.violet.workspace.editorpart;
+
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Rectangle;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Offscreen images of the part of the editor which doesn't change while the user drags some nodes (grid and untouched
+ * elements). The editor area is cut into square tiles which are rendered the first time they become visible and then
+ * simply copied, so that only the moving elements have to be drawn again on each mouse event.
+ *
+ * Tiles are expressed in editor (i.e. zoomed) pixels. The cache is only valid for the zoom factor and the grid settings it
+ * has been built for : the editor drops it and builds a new one when they change.
+ */
+class StaticLayerTileCache
+{
+
+    /**
+     * Draws the static layer of a tile
+     */
+    interface ITileRenderer
+    {
+        /**
+         * @param g2 graphics context, translated so that editor pixels can be used and clipped to the tile
+         * @param tileArea area covered by the tile, in editor pixels
+         */
+        void render(Graphics2D g2, Rectangle tileArea);
+    }
+
+    /**
+     * @param renderer used to draw tiles
+     * @param zoom zoom factor the tiles are rendered with
+     * @param gridSettings anything else the tiles depend on (grid visibility, size...)
+     */
+    StaticLayerTileCache(ITileRenderer renderer, double zoom, Object gridSettings)
+    {
+        this.renderer = renderer;
+        this.zoom = zoom;
+        this.gridSettings = gridSettings;
+    }
+
+    /**
+     * @return true if the tiles have been rendered with these settings
+     */
+    boolean isValidFor(double zoom, Object gridSettings)
+    {
+        return this.zoom == zoom && this.gridSettings.equals(gridSettings);
+    }
+
+    /**
+     * Copies the tiles covering the given area, rendering the missing ones first
+     *
+     * @param g2 editor graphics context, not zoomed
+     * @param area area to paint, in editor pixels
+     * @param configuration used to create images suited to the screen (could be null)
+     */
+    void paint(Graphics2D g2, Rectangle area, GraphicsConfiguration configuration)
+    {
+        int firstColumn = Math.floorDiv(area.x, TILE_SIZE);
+        int lastColumn = Math.floorDiv(area.x + area.width - 1, TILE_SIZE);
+        int firstRow = Math.floorDiv(area.y, TILE_SIZE);
+        int lastRow = Math.floorDiv(area.y + area.height - 1, TILE_SIZE);
+        for (int column = firstColumn; column <= lastColumn; column++)
+        {
+            for (int row = firstRow; row <= lastRow; row++)
+            {
+                BufferedImage tile = getTile(column, row, configuration);
+                g2.drawImage(tile, column * TILE_SIZE, row * TILE_SIZE, null);
+            }
+        }
+    }
+
+    private BufferedImage getTile(int column, int row, GraphicsConfiguration configuration)
+    {
+        Long key = toKey(column, row);
+        BufferedImage tile = this.tiles.get(key);
+        if (tile != null)
+        {
+            return tile;
+        }
+        if (configuration != null)
+        {
+            tile = configuration.createCompatibleImage(TILE_SIZE, TILE_SIZE, Transparency.TRANSLUCENT);
+        }
+        else
+        {
+            tile = new BufferedImage(TILE_SIZE, TILE_SIZE, BufferedImage.TYPE_INT_ARGB);
+        }
+        Rectangle tileArea = new Rectangle(column * TILE_SIZE, row * TILE_SIZE, TILE_SIZE, TILE_SIZE);
+        Graphics2D tileGraphics = tile.createGraphics();
+        try
+        {
+            tileGraphics.translate(-tileArea.x, -tileArea.y);
+            tileGraphics.clip(tileArea);
+            this.renderer.render(tileGraphics, tileArea);
+        }
+        finally
+        {
+            tileGraphics.dispose();
+        }
+        this.tiles.put(key, tile);
+        return tile;
+    }
+
+    /**
+     * Drops the tiles overlapping an area which has changed
+     *
+     * @param area in editor pixels
+     */
+    void invalidate(Rectangle area)
+    {
+        Iterator<Long> keys = this.tiles.keySet().iterator();
+        while (keys.hasNext())
+        {
+            Long key = keys.next();
+            if (getTileArea(key).intersects(area))
+            {
+                keys.remove();
+            }
+        }
+    }
+
+    /**
+     * Sets the size of the painted area (the grid is drawn up to it). When it changes, the tiles lying across the old or the new
+     * border are dropped. The others can still be used.
+     *
+     * @param newExtent in editor pixels
+     */
+    void setExtent(Dimension newExtent)
+    {
+        if (newExtent.equals(this.extent))
+        {
+            return;
+        }
+        if (this.extent != null)
+        {
+            Rectangle unchangedArea = new Rectangle(0, 0, Math.min(this.extent.width, newExtent.width), Math.min(
+                    this.extent.height, newExtent.height));
+            Iterator<Long> keys = this.tiles.keySet().iterator();
+            while (keys.hasNext())
+            {
+                Long key = keys.next();
+                Rectangle tileArea = getTileArea(key);
+                if (!unchangedArea.contains(tileArea) && tileArea.x < Math.max(this.extent.width, newExtent.width)
+                        && tileArea.y < Math.max(this.extent.height, newExtent.height))
+                {
+                    keys.remove();
+                }
+            }
+        }
+        this.extent = newExtent;
+    }
+
+    private static Rectangle getTileArea(Long key)
+    {
+        int column = (int) (key.longValue() >> 32);
+        int row = (int) key.longValue();
+        return new Rectangle(column * TILE_SIZE, row * TILE_SIZE, TILE_SIZE, TILE_SIZE);
+    }
+
+    private static Long toKey(int column, int row)
+    {
+        return Long.valueOf(((long) column << 32) | (row & 0xFFFFFFFFL));
+    }
+
+    /** Tile width and height in editor pixels */
+    static final int TILE_SIZE = 256;
+
+    /** Maximum number of kept tiles (about 256 kB each) */
+    private static final int MAX_TILES = 160;
+
+    private final ITileRenderer renderer;
+
+    private final double zoom;
+
+    private final Object gridSettings;
+
+    private Dimension extent;
+
+    /** Tiles by column and row, least recently used first */
+    private final Map<Long, BufferedImage> tiles = new LinkedHashMap<Long, BufferedImage>(16, 0.75f, true)
+    {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, BufferedImage> eldest)
+        {
+            return size() > MAX_TILES;
+        }
+    };
+
+}
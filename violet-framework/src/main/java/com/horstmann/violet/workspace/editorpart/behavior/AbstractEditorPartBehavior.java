@@ -188,6 +188,11 @@ public abstract class AbstractEditorPartBehavior implements IEditorPartBehavior
         
     }
     
+    @Override
+    public void afterChangingGraph()
+    {
+    }
+    
     
     @Override
     public void onPaint(Graphics2D g2)
@@ -202,6 +202,7 @@ public class AddNodeBehavior extends AbstractEditorPartBehavior implements IGrap
             {
                 moveDraggedNode(outEvent);
             }
+            this.behaviorManager.fireAfterChangingGraph();
 
             this.draggedNode = null;
         }
@@ -0,0 +1,261 @@
+package com.horstmann.violet.workspace.editorpart.behavior;
+
+import com.horstmann.violet.framework.file.persistence.ChangeJournal;
+import com.horstmann.violet.product.diagram.abstracts.IColorable;
+import com.horstmann.violet.product.diagram.abstracts.IGraph;
+import com.horstmann.violet.product.diagram.abstracts.IIdentifiable;
+import com.horstmann.violet.product.diagram.abstracts.edge.IEdge;
+import com.horstmann.violet.product.diagram.abstracts.node.INode;
+import com.horstmann.violet.workspace.editorpart.IEditorPart;
+import java.awt.event.MouseEvent;
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Tells the change journal of a graph file which nodes and edges are changed by the editor
+ */
+public class ChangeJournalBehavior extends AbstractEditorPartBehavior
+{
+
+    /**
+     * @param editorPart
+     * @param changeJournal journal of the edited graph
+     */
+    public ChangeJournalBehavior(IEditorPart editorPart, ChangeJournal changeJournal)
+    {
+        this.editorPart = editorPart;
+        this.changeJournal = changeJournal;
+    }
+
+    @Override
+    public void beforeAddingNodeAtPoint(INode node, Point2D location)
+    {
+        keepElementsBeforeChange();
+    }
+
+    @Override
+    public void afterAddingNodeAtPoint(INode node, Point2D location)
+    {
+        markAddedElements();
+    }
+
+    @Override
+    public void beforeAddingEdgeAtPoints(IEdge edge, Point2D startPoint, Point2D endPoint)
+    {
+        keepElementsBeforeChange();
+    }
+
+    @Override
+    public void afterAddingEdgeAtPoints(IEdge edge, Point2D startPoint, Point2D endPoint)
+    {
+        markAddedElements();
+    }
+
+    @Override
+    public void beforeRemovingSelectedElements()
+    {
+        keepElementsBeforeChange();
+    }
+
+    @Override
+    public void afterRemovingSelectedElements()
+    {
+        IGraph graph = this.editorPart.getGraph();
+        Set<INode> nodesAfterChange = new HashSet<INode>(graph.getAllNodes());
+        Set<IEdge> edgesAfterChange = new HashSet<IEdge>(graph.getAllEdges());
+        for (Map.Entry<INode, INode> anEntry : this.parentsBeforeChange.entrySet())
+        {
+            INode aNode = anEntry.getKey();
+            if (!nodesAfterChange.contains(aNode))
+            {
+                this.changeJournal.elementRemoved(aNode);
+                markIfPresent(anEntry.getValue(), nodesAfterChange);
+            }
+        }
+        for (IEdge anEdge : this.edgesBeforeChange)
+        {
+            if (!edgesAfterChange.contains(anEdge))
+            {
+                this.changeJournal.elementRemoved(anEdge);
+                markIfPresent(anEdge.getStartNode(), nodesAfterChange);
+                markIfPresent(anEdge.getEndNode(), nodesAfterChange);
+            }
+        }
+        clearElementsBeforeChange();
+    }
+
+    @Override
+    public void beforeEditingNode(INode node)
+    {
+        this.nameBeforeEditing = getName(node);
+    }
+
+    @Override
+    public void afterEditingNode(INode node)
+    {
+        String nameAfterEditing = getName(node);
+        if (nameAfterEditing != null && !nameAfterEditing.equals(this.nameBeforeEditing))
+        {
+            // Renaming also changes the other nodes (see RenameBehavior)
+            this.changeJournal.markAllChanged();
+        }
+        else
+        {
+            this.changeJournal.elementChanged(node);
+        }
+        this.nameBeforeEditing = null;
+    }
+
+    @Override
+    public void afterEditingEdge(IEdge edge)
+    {
+        this.changeJournal.elementChanged(edge);
+    }
+
+    @Override
+    public void afterChangingTransitionPointsOnEdge(IEdge edge)
+    {
+        if (edge != null)
+        {
+            this.changeJournal.elementChanged(edge);
+        }
+    }
+
+    @Override
+    public void afterChangingColorOnElement(IColorable element)
+    {
+        if (element instanceof IIdentifiable)
+        {
+            this.changeJournal.elementChanged((IIdentifiable) element);
+        }
+    }
+
+    @Override
+    public void afterChangingGraph()
+    {
+        this.changeJournal.markAllChanged();
+    }
+
+    @Override
+    public void onMouseDragged(MouseEvent event)
+    {
+        this.isDragging = true;
+    }
+
+    /**
+     * Selected nodes may have been moved or resized, with the transition points of their edges
+     */
+    @Override
+    public void onMouseReleased(MouseEvent event)
+    {
+        if (!this.isDragging)
+        {
+            return;
+        }
+        this.isDragging = false;
+        List<INode> selectedNodes = this.editorPart.getSelectionHandler().getSelectedNodes();
+        for (INode aNode : selectedNodes)
+        {
+            this.changeJournal.elementChanged(aNode);
+        }
+        for (IEdge anEdge : this.editorPart.getSelectionHandler().getSelectedEdges())
+        {
+            this.changeJournal.elementChanged(anEdge);
+        }
+        if (selectedNodes.isEmpty())
+        {
+            return;
+        }
+        Set<INode> selectedNodeSet = new HashSet<INode>(selectedNodes);
+        for (IEdge anEdge : this.editorPart.getGraph().getAllEdges())
+        {
+            if (selectedNodeSet.contains(anEdge.getStartNode()) || selectedNodeSet.contains(anEdge.getEndNode()))
+            {
+                this.changeJournal.elementChanged(anEdge);
+            }
+        }
+    }
+
+    private void keepElementsBeforeChange()
+    {
+        clearElementsBeforeChange();
+        IGraph graph = this.editorPart.getGraph();
+        for (INode aNode : graph.getAllNodes())
+        {
+            this.parentsBeforeChange.put(aNode, aNode.getParent());
+        }
+        this.edgesBeforeChange.addAll(graph.getAllEdges());
+    }
+
+    private void clearElementsBeforeChange()
+    {
+        this.parentsBeforeChange.clear();
+        this.edgesBeforeChange.clear();
+    }
+
+    /**
+     * Marks the new elements with the ones referring to them
+     */
+    private void markAddedElements()
+    {
+        IGraph graph = this.editorPart.getGraph();
+        for (INode aNode : graph.getAllNodes())
+        {
+            if (!this.parentsBeforeChange.containsKey(aNode))
+            {
+                this.changeJournal.elementChanged(aNode);
+                if (aNode.getParent() != null)
+                {
+                    this.changeJournal.elementChanged(aNode.getParent());
+                }
+            }
+        }
+        Set<IEdge> edgesBeforeChange = new HashSet<IEdge>(this.edgesBeforeChange);
+        for (IEdge anEdge : graph.getAllEdges())
+        {
+            if (!edgesBeforeChange.contains(anEdge))
+            {
+                this.changeJournal.elementChanged(anEdge);
+                markIfPresent(anEdge.getStartNode(), null);
+                markIfPresent(anEdge.getEndNode(), null);
+            }
+        }
+        clearElementsBeforeChange();
+    }
+
+    /**
+     * @param node node referring to a changed element (may be null)
+     * @param nodesOnGraph nodes still on graph (null if the node is)
+     */
+    private void markIfPresent(INode node, Set<INode> nodesOnGraph)
+    {
+        if (node != null && (nodesOnGraph == null || nodesOnGraph.contains(node)))
+        {
+            this.changeJournal.elementChanged(node);
+        }
+    }
+
+    private String getName(INode node)
+    {
+        return node.getName() == null ? null : node.getName().toEdit();
+    }
+
+    private final IEditorPart editorPart;
+
+    private final ChangeJournal changeJournal;
+
+    /** Nodes on graph before the current action, with their parent */
+    private final Map<INode, INode> parentsBeforeChange = new HashMap<INode, INode>();
+
+    private final List<IEdge> edgesBeforeChange = new ArrayList<IEdge>();
+
+    private String nameBeforeEditing;
+
+    private boolean isDragging;
+
+}
@@ -2,7 +2,6 @@ package com.horstmann.violet.workspace.editorpart.behavior;
 
 import com.horstmann.violet.framework.file.GraphFile;
 import com.horstmann.violet.framework.file.IGraphFile;
-import com.horstmann.violet.framework.file.persistence.IFilePersistenceService;
 import com.horstmann.violet.framework.file.persistence.XStreamBasedPersistenceService;
 import com.horstmann.violet.framework.injection.bean.ManiocFramework.BeanInjector;
 import com.horstmann.violet.framework.injection.resources.ResourceBundleInjector;
@@ -24,9 +23,9 @@ import java.awt.datatransfer.UnsupportedFlavorException;
 import java.awt.event.MouseEvent;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -55,7 +54,7 @@ public class CutCopyPasteBehavior extends AbstractEditorPartBehavior
      * Used to convert graph to XML and to get graph back from XML
      */
 
-    private IFilePersistenceService persistenceService = new XStreamBasedPersistenceService();
+    private XStreamBasedPersistenceService persistenceService = new XStreamBasedPersistenceService();
 
     /**
      * Keep mouse location to paste on just above the current mouse location
@@ -140,10 +139,10 @@ public class CutCopyPasteBehavior extends AbstractEditorPartBehavior
                 newGraph.connect(clone, startNode, startLocation, endNode, endLocation, transitionPoints);
             }
         }
-        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-        persistenceService.write(newGraph, byteArrayOutputStream);
-        byteArrayOutputStream.toString();
-        String xmlContent = byteArrayOutputStream.toString();
+        // Written as characters : the clipboard holds text, whatever the platform encoding
+        StringWriter xmlWriter = new StringWriter();
+        persistenceService.write(newGraph, xmlWriter);
+        String xmlContent = xmlWriter.toString();
         pushContentToSystemClipboard(xmlContent);
 
     }
@@ -161,8 +160,7 @@ public class CutCopyPasteBehavior extends AbstractEditorPartBehavior
             {
                 return; // If no content, we stop here
             }
-            ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(xmlContent.getBytes());
-            IGraph deserializedGraph = persistenceService.read(byteArrayInputStream);
+            IGraph deserializedGraph = persistenceService.read(new StringReader(xmlContent));
             deserializedGraph = translateToMouseLocation(deserializedGraph, this.lastMouseLocation);
 
             Collection<INode> nodesFromClipboard = deserializedGraph.getAllNodes();
@@ -200,6 +198,7 @@ public class CutCopyPasteBehavior extends AbstractEditorPartBehavior
 
             addUndoRedoSupport(nodesReallyPasted, edgesReallyPasted);
             selectPastedElements(nodesReallyPasted, edgesReallyPasted);
+            editorPart.getBehaviorManager().fireAfterChangingGraph();
 
             editorPart.getSwingComponent().invalidate();
             editorPart.getSwingComponent().repaint();
@@ -120,6 +120,11 @@ public class DragSelectedBehavior extends AbstractEditorPartBehavior {
 
         // Save mouse location for next dragging sequence
         if (isAtLeastOneNodeMoved) {
+            if (!isDragging) {
+                // From now on, only the dragged nodes are drawn again
+                editorPart.beginDraggingNodes(selectedNodes);
+                isDragging = true;
+            }
             Point2D snappedMousePoint = gridSticker.snap(mousePoint);
             if (!snappedMousePoint.equals(lastMousePoint)) {
                 editorPart.getSwingComponent().invalidate();
@@ -132,6 +137,12 @@ public class DragSelectedBehavior extends AbstractEditorPartBehavior {
     @Override
     public void onMouseReleased(MouseEvent event) {
         this.editorPart.getSwingComponent().setCursor(this.initialCursor);
+        if (this.isDragging) {
+            this.editorPart.endDraggingNodes();
+            this.isDragging = false;
+            this.editorPart.getSwingComponent().invalidate();
+            this.editorPart.getSwingComponent().repaint();
+        }
         this.lastMousePoint = null;
         this.isReadyForDragging = false;
         this.initialCursor = null;
@@ -176,6 +187,8 @@ public class DragSelectedBehavior extends AbstractEditorPartBehavior {
 
     private boolean isReadyForDragging = false;
 
+    private boolean isDragging = false;
+
     private Cursor initialCursor = null;
 
     private Cursor dragCursor = new Cursor(Cursor.HAND_CURSOR);
@@ -11,6 +11,7 @@ import com.horstmann.violet.product.diagram.abstracts.node.INamedNode;
 import com.horstmann.violet.product.diagram.abstracts.node.INode;
 import com.horstmann.violet.framework.dialog.IRevertableProperties;
 import com.horstmann.violet.product.diagram.common.node.DiagramLinkNode;
+import com.horstmann.violet.product.diagram.property.text.LineText;
 import com.horstmann.violet.product.diagram.propertyeditor.CustomPropertyEditor;
 import com.horstmann.violet.product.diagram.propertyeditor.ICustomPropertyEditor;
 import com.horstmann.violet.workspace.editorpart.IEditorPart;
@@ -26,7 +27,6 @@ import java.beans.PropertyChangeListener;
 import java.io.IOException;
 import javax.swing.JLabel;
 import javax.swing.JOptionPane;
-import org.jetbrains.annotations.NotNull;
 
 
 import javax.swing.*;
@@ -230,39 +230,18 @@ public class EditSelectedBehavior extends AbstractEditorPartBehavior
     }
 
     private void checkCorrectnessOfString(final INode edited) {
+        final LineText name = edited.getName();
+        if (name == null) {
+            return;
+        }
         try {
-            String nodeName = edited.getName().getText();
-            String[] splitNameByUpperCase = getClearNodeName(nodeName);
-            for(String word : splitNameByUpperCase) {
-                boolean correctWord = SpellChecker.isCorrectWord(word);
-                if (!correctWord){
-                    edited.getName().setTextColor(Color.RED);
-                }else{
-                    edited.getName().setTextColor(Color.BLACK);
-                }
-            }
+            boolean isCorrect = SpellChecker.getMisspelledWords(name).isEmpty();
+            name.setTextColor(isCorrect ? Color.BLACK : Color.RED);
         } catch (IOException e) {
             System.err.println(e.getLocalizedMessage());
         }
     }
 
-    /**
-     * Its returns node name without html tags
-     *
-     * @param nodeName with html tags
-     * @return clear node name without html tags
-     */
-    @NotNull
-    private String[] getClearNodeName(String nodeName) {
-
-        final String regexSplitByUpperCase = "(?=\\p{Lu})";
-        nodeName = nodeName.replaceAll("<html><font size=\\+1>", "").replaceAll("</font><html>", "");
-        nodeName = nodeName.replaceAll("<html><center>\u00ABinterface\u00BB</center> <font size=\\+1>", "");
-        nodeName = nodeName.replaceAll("<html><center>\u00ABenumeration\u00BB</center> <font size=\\+1>", "");
-        nodeName = nodeName.replaceAll("<html>", "");
-        return nodeName.split(regexSplitByUpperCase);
-    }
-
     private IEditorPartSelectionHandler selectionHandler;
     private IEditorPart editorPart;
     private IGraph graph;
@@ -45,6 +45,12 @@ public class FileCouldBeSavedBehavior extends AbstractEditorPartBehavior
     }
 
 
+    @Override
+    public void afterChangingGraph()
+    {
+        graphFile.setSaveRequired();
+    }
+
     @Override
     public void onMouseDragged(MouseEvent event)
     {
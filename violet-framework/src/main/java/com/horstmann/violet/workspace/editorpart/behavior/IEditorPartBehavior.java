@@ -170,6 +170,11 @@ public interface IEditorPartBehavior
      */
     void afterChangingColorOnElement(IColorable element);
 
+    /**
+     * Action performed after the graph is changed in a way not described by the other events (undo, redo, paste...).
+     */
+    void afterChangingGraph();
+
     /**
      * Action performed when specified graphic is painted.
      * @param g2 painted graphic.
@@ -1,5 +1,6 @@
 package com.horstmann.violet.workspace.editorpart.behavior;
 
+import com.horstmann.violet.framework.util.GrabberUtils;
 import com.horstmann.violet.framework.util.KeyModifierUtil;
 import com.horstmann.violet.product.diagram.abstracts.IGraph;
 import com.horstmann.violet.product.diagram.abstracts.IGridSticker;
@@ -14,7 +15,7 @@ import java.awt.Graphics2D;
 import java.awt.event.MouseEvent;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
-import java.util.Iterator;
+import java.util.ArrayList;
 
 public class SelectByLassoBehavior extends AbstractEditorPartBehavior
 {
@@ -44,6 +45,8 @@ public class SelectByLassoBehavior extends AbstractEditorPartBehavior
         if (!isMouseOnNodeOrEdge(mousePoint))
         {
             resetSelectedElements();
+            this.editorPart.getSwingComponent().invalidate();
+            this.editorPart.getSwingComponent().repaint();
             mouseDownPoint = mousePoint;
             lastMousePoint = mousePoint;
         }
@@ -72,37 +75,46 @@ public class SelectByLassoBehavior extends AbstractEditorPartBehavior
         double x2 = mousePoint.getX();
         double y2 = mousePoint.getY();
         Rectangle2D.Double lasso = new Rectangle2D.Double(Math.min(x1, x2), Math.min(y1, y2), Math.abs(x1 - x2), Math.abs(y1 - y2));
-        Iterator<INode> iterOnNodes = graph.getAllNodes().iterator();
-        while (iterOnNodes.hasNext())
+        // Elements which are no more in the lasso
+        for (INode n : new ArrayList<INode>(selectionHandler.getSelectedNodes()))
         {
-            INode n = (INode) iterOnNodes.next();
-            Rectangle2D bounds = n.getBounds();
-            if (!lasso.contains(bounds))
+            if (!lasso.contains(getBoundsOnGraph(n)))
             {
                 selectionHandler.removeElementFromSelection(n);
             }
-            else if (lasso.contains(bounds))
+        }
+        for (IEdge e : new ArrayList<IEdge>(selectionHandler.getSelectedEdges()))
+        {
+            if (!lasso.contains(e.getBounds()))
             {
-                selectionHandler.addSelectedElement(n);
+                selectionHandler.removeElementFromSelection(e);
             }
         }
-        Iterator<IEdge> iterOnEdges = graph.getAllEdges().iterator();
-        while (iterOnEdges.hasNext())
+        // Elements caught by the lasso (only those around it are inspected)
+        for (INode n : graph.findNodes(lasso))
         {
-            IEdge e = (IEdge) iterOnEdges.next();
-            Rectangle2D bounds = e.getBounds();
-            if (!lasso.contains(bounds))
+            if (lasso.contains(getBoundsOnGraph(n)) && !selectionHandler.isElementAlreadySelected(n))
             {
-                selectionHandler.removeElementFromSelection(e);
+                selectionHandler.addSelectedElement(n);
             }
-            else if (lasso.contains(bounds))
+        }
+        for (IEdge e : graph.findEdges(lasso))
+        {
+            if (lasso.contains(e.getBounds()) && !selectionHandler.isElementAlreadySelected(e))
             {
                 selectionHandler.addSelectedElement(e);
             }
         }
         if (!snappedMousePoint.equals(lastMousePoint)) {
-            this.editorPart.getSwingComponent().invalidate();
-            this.editorPart.getSwingComponent().repaint();
+            // Only the previous and the new lasso areas (with the selection grabbers inside) have changed
+            Rectangle2D.Double dirtyArea = new Rectangle2D.Double();
+            dirtyArea.setFrameFromDiagonal(mouseDownPoint, lastMousePoint);
+            dirtyArea.add(snappedMousePoint);
+            dirtyArea.add(mousePoint);
+            double margin = GrabberUtils.GRABBER_WIDTH;
+            dirtyArea.setFrame(dirtyArea.getX() - margin, dirtyArea.getY() - margin, dirtyArea.getWidth() + 2 * margin,
+                    dirtyArea.getHeight() + 2 * margin);
+            this.editorPart.repaintGraphArea(dirtyArea);
         }
         this.lastMousePoint = snappedMousePoint;
     }
@@ -132,6 +144,13 @@ public class SelectByLassoBehavior extends AbstractEditorPartBehavior
         this.selectionHandler.clearSelection();
     }
 
+    private Rectangle2D getBoundsOnGraph(INode node)
+    {
+        Point2D locationOnGraph = node.getLocationOnGraph();
+        Rectangle2D bounds = node.getBounds();
+        return new Rectangle2D.Double(locationOnGraph.getX(), locationOnGraph.getY(), bounds.getWidth(), bounds.getHeight());
+    }
+
 
     @Override
     public void onPaint(Graphics2D g2)
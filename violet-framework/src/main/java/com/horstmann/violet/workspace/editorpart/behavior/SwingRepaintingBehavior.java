@@ -190,6 +190,13 @@ public class SwingRepaintingBehavior implements IEditorPartBehavior
         // TODO Auto-generated method stub
         
     }
+    
+    @Override
+    public void afterChangingGraph()
+    {
+        this.editorPart.getSwingComponent().invalidate();
+        this.editorPart.getSwingComponent().repaint();
+    }
 
    
 }
@@ -225,6 +225,7 @@ public class UndoRedoCompoundBehavior extends AbstractEditorPartBehavior
         if (undoManager.canUndo())
         {
             undoManager.undo();
+            editorPart.getBehaviorManager().fireAfterChangingGraph();
             editorPart.getSwingComponent().invalidate();
             editorPart.getSwingComponent().repaint();
         }
@@ -238,6 +239,7 @@ public class UndoRedoCompoundBehavior extends AbstractEditorPartBehavior
         if (undoManager.canRedo())
         {
             undoManager.redo();
+            editorPart.getBehaviorManager().fireAfterChangingGraph();
             editorPart.getSwingComponent().invalidate();
             editorPart.getSwingComponent().repaint();
         }
@@ -1,7 +1,19 @@
 package com.horstmann.violet.workspace.spellchecker;
 
+import com.horstmann.violet.product.diagram.property.text.LineText;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.languagetool.JLanguageTool;
 import org.languagetool.language.BritishEnglish;
 import org.languagetool.rules.Rule;
@@ -10,6 +22,8 @@ import org.languagetool.rules.RuleMatch;
 /**
  * This class check correctness of string
  *
+ * Language tools are expensive to build, so a few of them are created on first use and then shared (they can't be used by two
+ * threads at the same time). Verdicts are remembered for the most recently checked words.
  */
 public class SpellChecker {
 
@@ -17,11 +31,133 @@ public class SpellChecker {
 
     public static boolean isCorrectWord(final String word) throws IOException {
 
-        JLanguageTool langTool = new JLanguageTool(new BritishEnglish());
-        disableUselessRules(langTool);
-        List<RuleMatch> matches = langTool.check(word);
-        int numberOfErrors = matches.size();
-        return numberOfErrors == 0;
+        return getMisspelledWords(Collections.singletonList(word)).isEmpty();
+    }
+
+    /**
+     * Checks all the words of a text in one pass. Camel case words (class names...) are checked part by part.
+     *
+     * @param text
+     * @return misspelled words in text order
+     * @throws IOException
+     */
+    public static List<String> getMisspelledWords(final LineText text) throws IOException {
+
+        final List<String> words = new ArrayList<String>();
+        for (String rawWord : text.toEdit().split(WORD_SEPARATOR)) {
+            for (String word : rawWord.split(CAMEL_CASE_SEPARATOR)) {
+                if (!word.isEmpty()) {
+                    words.add(word);
+                }
+            }
+        }
+        return getMisspelledWords(words);
+    }
+
+    private static List<String> getMisspelledWords(final List<String> words) throws IOException {
+
+        final Map<String, Boolean> verdicts = new HashMap<String, Boolean>();
+        final Set<String> uncheckedWords = new LinkedHashSet<String>();
+        synchronized (VERDICTS) {
+            for (String word : words) {
+                final Boolean isCorrect = VERDICTS.get(word);
+                if (isCorrect != null) {
+                    verdicts.put(word, isCorrect);
+                } else {
+                    uncheckedWords.add(word);
+                }
+            }
+        }
+        if (!uncheckedWords.isEmpty()) {
+            final Map<String, Boolean> newVerdicts = check(uncheckedWords);
+            verdicts.putAll(newVerdicts);
+            synchronized (VERDICTS) {
+                VERDICTS.putAll(newVerdicts);
+            }
+        }
+        final List<String> misspelledWords = new ArrayList<String>();
+        for (String word : words) {
+            if (Boolean.FALSE.equals(verdicts.get(word))) {
+                misspelledWords.add(word);
+            }
+        }
+        return misspelledWords;
+    }
+
+    /**
+     * Checks words with a single language tool call
+     *
+     * @return verdict by word
+     */
+    private static Map<String, Boolean> check(final Set<String> words) throws IOException {
+
+        final StringBuilder sentence = new StringBuilder();
+        final List<int[]> wordPositions = new ArrayList<int[]>();
+        for (String word : words) {
+            if (sentence.length() > 0) {
+                sentence.append(' ');
+            }
+            wordPositions.add(new int[]{sentence.length(), sentence.length() + word.length()});
+            sentence.append(word);
+        }
+        final List<RuleMatch> matches;
+        final JLanguageTool langTool = acquireLanguageTool();
+        try {
+            matches = langTool.check(sentence.toString());
+        } finally {
+            IDLE_LANGUAGE_TOOLS.offer(langTool);
+        }
+        final Map<String, Boolean> verdicts = new LinkedHashMap<String, Boolean>();
+        int index = 0;
+        for (String word : words) {
+            final int[] position = wordPositions.get(index++);
+            boolean isCorrect = true;
+            for (RuleMatch match : matches) {
+                if (match.getFromPos() < position[1] && match.getToPos() > position[0]) {
+                    isCorrect = false;
+                    break;
+                }
+            }
+            verdicts.put(word, isCorrect);
+        }
+        return verdicts;
+    }
+
+    /**
+     * @return an idle language tool, created if the pool isn't full yet
+     */
+    private static JLanguageTool acquireLanguageTool() throws IOException {
+
+        while (true) {
+            final JLanguageTool idleLangTool = IDLE_LANGUAGE_TOOLS.poll();
+            if (idleLangTool != null) {
+                return idleLangTool;
+            }
+            if (CREATED_LANGUAGE_TOOLS.incrementAndGet() <= MAX_LANGUAGE_TOOLS) {
+                boolean isCreated = false;
+                try {
+                    final JLanguageTool langTool = new JLanguageTool(new BritishEnglish());
+                    disableUselessRules(langTool);
+                    isCreated = true;
+                    return langTool;
+                } finally {
+                    if (!isCreated) {
+                        CREATED_LANGUAGE_TOOLS.decrementAndGet();
+                    }
+                }
+            }
+            CREATED_LANGUAGE_TOOLS.decrementAndGet();
+            try {
+                // Not take() : if creating a tool fails, no tool may ever be given back, so try creating one again
+                final JLanguageTool givenBackLangTool = IDLE_LANGUAGE_TOOLS.poll(1, TimeUnit.SECONDS);
+                if (givenBackLangTool != null) {
+                    return givenBackLangTool;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for spell checker", e);
+            }
+        }
     }
 
     private static void disableUselessRules(final JLanguageTool langTool) {
@@ -32,4 +168,20 @@ public class SpellChecker {
             }
         }
     }
+
+    private static final String WORD_SEPARATOR = "[^\\p{L}']+";
+    private static final String CAMEL_CASE_SEPARATOR = "(?=\\p{Lu})";
+
+    private static final int MAX_LANGUAGE_TOOLS = 2;
+    private static final int MAX_CACHED_VERDICTS = 10000;
+
+    private static final BlockingQueue<JLanguageTool> IDLE_LANGUAGE_TOOLS = new LinkedBlockingQueue<JLanguageTool>();
+    private static final AtomicInteger CREATED_LANGUAGE_TOOLS = new AtomicInteger();
+
+    private static final Map<String, Boolean> VERDICTS = new LinkedHashMap<String, Boolean>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+            return size() > MAX_CACHED_VERDICTS;
+        }
+    };
 }
@@ -0,0 +1,64 @@
+package com.horstmann.violet.framework.file;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import org.junit.Test;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+/**
+ * Writes of the same target which pile up while the saver is busy are coalesced
+ */
+public class BackgroundFileSaverTest
+{
+    @Test
+    public void shouldOnlyRunLastWriteQueuedForTheSameTarget() throws Exception
+    {
+        // given
+        final BackgroundFileSaver saver = BackgroundFileSaver.getInstance();
+        final CountDownLatch busy = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final List<String> doneWrites = Collections.synchronizedList(new ArrayList<String>());
+        final Object target = new Object();
+        saver.submit(null, new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                busy.countDown();
+                try
+                {
+                    release.await();
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        busy.await();
+
+        // when
+        saver.submit(target, createWrite(doneWrites, "first"));
+        saver.submit(target, createWrite(doneWrites, "last"));
+        release.countDown();
+        saver.waitForPendingWrites();
+
+        // then
+        assertThat(doneWrites).containsExactly("last");
+    }
+
+    private static Runnable createWrite(final List<String> doneWrites, final String name)
+    {
+        return new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                doneWrites.add(name);
+            }
+        };
+    }
+}
@@ -0,0 +1,102 @@
+package com.horstmann.violet.framework.file;
+
+import com.horstmann.violet.framework.dialog.DialogFactory;
+import com.horstmann.violet.framework.dialog.DialogFactoryMode;
+import com.horstmann.violet.framework.file.chooser.IFileChooserService;
+import com.horstmann.violet.framework.file.naming.ExtensionFilter;
+import com.horstmann.violet.framework.file.persistence.GraphTestHelper.TestGraph;
+import com.horstmann.violet.framework.file.persistence.IFilePersistenceService;
+import com.horstmann.violet.framework.file.persistence.JFileWriter;
+import com.horstmann.violet.product.diagram.abstracts.IGraph;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.OutputStream;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+
+import static com.horstmann.violet.framework.injection.bean.ManiocFramework.BeanFactory;
+import static org.assertj.core.api.Java6Assertions.assertThat;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.when;
+
+/**
+ * Saves are written in the background : a failed write brings the file back to the modified state
+ */
+public class GraphFileTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private IFileChooserService fileChooserService;
+
+    private IFilePersistenceService filePersistenceService;
+
+    @BeforeClass
+    public static void registerBeans()
+    {
+        // Other tests of the same run may have registered them
+        if (!BeanFactory.getFactory().contains(DialogFactory.class))
+        {
+            BeanFactory.getFactory().register(DialogFactory.class, new DialogFactory(DialogFactoryMode.INTERNAL));
+        }
+        if (!BeanFactory.getFactory().contains(IFileChooserService.class))
+        {
+            BeanFactory.getFactory().register(IFileChooserService.class, mock(IFileChooserService.class));
+        }
+        if (!BeanFactory.getFactory().contains(IFilePersistenceService.class))
+        {
+            BeanFactory.getFactory().register(IFilePersistenceService.class, mock(IFilePersistenceService.class));
+        }
+    }
+
+    @Before
+    public void setUp()
+    {
+        fileChooserService = BeanFactory.getFactory().getBean(IFileChooserService.class);
+        filePersistenceService = BeanFactory.getFactory().getBean(IFilePersistenceService.class);
+        reset(fileChooserService, filePersistenceService);
+    }
+
+    @Test
+    public void shouldRequireSaveAgainAndKeepPreviousFileWhenWriteFails() throws Exception
+    {
+        // given
+        final File target = new File(folder.getRoot(), "diagram.class.violet.html");
+        final OutputStream previousOut = new JFileWriter(target).getOutputStream();
+        previousOut.write("previous".getBytes("UTF-8"));
+        previousOut.close();
+        when(fileChooserService.chooseAndGetFileWriter(Mockito.<ExtensionFilter> anyVararg())).thenReturn(new JFileWriter(target));
+        doThrow(new RuntimeException("Disk full")).when(filePersistenceService).write(Mockito.any(IGraph.class),
+                Mockito.any(OutputStream.class));
+        final GraphFile graphFile = new GraphFile(TestGraph.class);
+        graphFile.setSaveRequired();
+
+        // when
+        graphFile.save();
+        graphFile.waitForPendingSaves();
+
+        // then
+        assertThat(graphFile.isSaveRequired()).isTrue();
+        assertThat(folder.getRoot().listFiles()).containsExactly(target);
+        assertThat(read(target)).isEqualTo("previous");
+    }
+
+    private static String read(File file) throws Exception
+    {
+        final byte[] content = new byte[(int) file.length()];
+        final FileInputStream in = new FileInputStream(file);
+        int offset = 0;
+        while (offset < content.length)
+        {
+            offset += in.read(content, offset, content.length - offset);
+        }
+        in.close();
+        return new String(content, "UTF-8");
+    }
+}
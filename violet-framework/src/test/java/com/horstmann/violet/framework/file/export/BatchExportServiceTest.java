@@ -0,0 +1,123 @@
+package com.horstmann.violet.framework.file.export;
+
+import com.horstmann.violet.framework.file.persistence.GraphTestHelper;
+import com.horstmann.violet.framework.file.persistence.GraphTestHelper.TestGraph;
+import com.horstmann.violet.framework.file.persistence.XStreamBasedPersistenceService;
+import com.horstmann.violet.product.diagram.common.node.NoteNode;
+import java.awt.geom.Point2D;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.List;
+import javax.imageio.ImageIO;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+public class BatchExportServiceTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @BeforeClass
+    public static void setUpTheme()
+    {
+        GraphTestHelper.setUpTheme();
+    }
+
+    @Test
+    public void shouldNumberPicturesOfDiagramsWithTheSameName() throws Exception
+    {
+        // given
+        final File first = createDiagram("first/diagram.class.violet.html", 100);
+        final File second = createDiagram("second/diagram.class.violet.html", 200);
+        final File third = createDiagram("third/DIAGRAM.CLASS.violet.html", 300);
+        final File outputDirectory = folder.newFolder("output");
+        final BatchExportService service = new BatchExportService(new XStreamBasedPersistenceService(), "PNG", 2);
+
+        // when
+        final List<BatchExportService.Result> results = service.export(Arrays.asList(first, second, third), outputDirectory);
+
+        // then
+        assertThat(results).hasSize(3);
+        assertThat(results.get(0).getOutputFile()).isEqualTo(new File(outputDirectory, "diagram.class.png"));
+        assertThat(results.get(1).getOutputFile()).isEqualTo(new File(outputDirectory, "diagram.class-2.png"));
+        assertThat(results.get(2).getOutputFile()).isEqualTo(new File(outputDirectory, "DIAGRAM.CLASS-3.png"));
+        final int firstWidth = ImageIO.read(results.get(0).getOutputFile()).getWidth();
+        final int secondWidth = ImageIO.read(results.get(1).getOutputFile()).getWidth();
+        final int thirdWidth = ImageIO.read(results.get(2).getOutputFile()).getWidth();
+        assertThat(secondWidth - firstWidth).isEqualTo(100);
+        assertThat(thirdWidth - secondWidth).isEqualTo(100);
+    }
+
+    @Test
+    public void shouldExportOtherFilesWhenOneFails() throws Exception
+    {
+        // given
+        final File broken = folder.newFile("broken.class.violet.html");
+        final OutputStream brokenOut = new FileOutputStream(broken);
+        brokenOut.write("<not a diagram".getBytes("UTF-8"));
+        brokenOut.close();
+        final File missing = new File(folder.getRoot(), "missing.class.violet.html");
+        final File diagram = createDiagram("diagram.class.violet.html", 100);
+        final File outputDirectory = folder.newFolder("output");
+        final BatchExportService service = new BatchExportService(new XStreamBasedPersistenceService(), "png", 1);
+
+        // when
+        final List<BatchExportService.Result> results = service.export(Arrays.asList(broken, diagram, missing),
+                outputDirectory);
+        final ByteArrayOutputStream statistics = new ByteArrayOutputStream();
+        service.printStatistics(results, 1000000000L, new PrintStream(statistics, true, "UTF-8"));
+
+        // then
+        assertThat(results).hasSize(3);
+        assertThat(results.get(0).getFile()).isEqualTo(broken);
+        assertThat(results.get(0).isSuccessful()).isFalse();
+        assertThat(results.get(0).getError()).isNotNull();
+        assertThat(results.get(0).getOutputFile()).doesNotExist();
+        assertThat(results.get(1).getFile()).isEqualTo(diagram);
+        assertThat(results.get(1).isSuccessful()).isTrue();
+        assertThat(results.get(1).getOutputFile()).exists();
+        assertThat(results.get(2).isSuccessful()).isFalse();
+        assertThat(new String(statistics.toByteArray(), "UTF-8"))
+                .contains(broken + " : FAILED")
+                .contains(missing + " : FAILED")
+                .contains(diagram + " -> " + results.get(1).getOutputFile())
+                .contains("1 file(s) exported to png, 2 failure(s)")
+                .contains("Throughput : 1.0 files/s");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRefuseUnknownFormat()
+    {
+        new BatchExportService(new XStreamBasedPersistenceService(), "unknown", 1);
+    }
+
+    /**
+     * @param path relative to the temporary folder
+     * @param noteX location of the second note, which gives the width of the picture
+     * @return diagram file with two notes
+     */
+    private File createDiagram(String path, int noteX) throws Exception
+    {
+        final File file = new File(folder.getRoot(), path);
+        file.getParentFile().mkdirs();
+        final TestGraph graph = new TestGraph();
+        for (int x : new int[] { 0, noteX })
+        {
+            final NoteNode note = new NoteNode();
+            note.getText().setText("note");
+            graph.addNode(note, new Point2D.Double(x, 10));
+        }
+        final OutputStream out = new FileOutputStream(file);
+        new XStreamBasedPersistenceService().write(graph, out);
+        out.close();
+        return file;
+    }
+}
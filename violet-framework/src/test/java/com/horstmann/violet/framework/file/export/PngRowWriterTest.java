@@ -0,0 +1,88 @@
+package com.horstmann.violet.framework.file.export;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Random;
+import javax.imageio.ImageIO;
+import org.junit.Test;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+public class PngRowWriterTest
+{
+
+    @Test
+    public void shouldWritePixelsImageIOCanRead() throws Exception
+    {
+        for (int width : new int[] { 1, 3, 700 })
+        {
+            // given
+            final int height = 40;
+            final int[] pixels = getPixels(width, height);
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+            // when
+            final PngRowWriter writer = new PngRowWriter(out, width, height);
+            for (int y = 0; y < height; y++)
+            {
+                writer.writeRow(pixels, y * width);
+            }
+            writer.finish();
+
+            // then
+            final BufferedImage image = ImageIO.read(new ByteArrayInputStream(out.toByteArray()));
+            assertThat(image.getWidth()).isEqualTo(width);
+            assertThat(image.getHeight()).isEqualTo(height);
+            assertThat(image.getRGB(0, 0, width, height, null, 0, width)).isEqualTo(pixels);
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void shouldRefuseToFinishBeforeLastRow() throws Exception
+    {
+        // given
+        final PngRowWriter writer = new PngRowWriter(new ByteArrayOutputStream(), 10, 2);
+        try
+        {
+            writer.writeRow(new int[10], 0);
+
+            // when
+            writer.finish();
+        }
+        finally
+        {
+            writer.close();
+        }
+    }
+
+    /**
+     * @return opaque pixels : flat areas, gradients and noise, so that every PNG filter gets used
+     */
+    private static int[] getPixels(int width, int height)
+    {
+        final Random random = new Random(width);
+        final int[] pixels = new int[width * height];
+        for (int y = 0; y < height; y++)
+        {
+            for (int x = 0; x < width; x++)
+            {
+                final int rgb;
+                if (y < height / 4)
+                {
+                    rgb = 0xFFFFFF;
+                }
+                else if (y < height / 2)
+                {
+                    rgb = (x & 0xFF) << 16 | (y & 0xFF) << 8 | ((x + y) & 0xFF);
+                }
+                else
+                {
+                    rgb = random.nextInt();
+                }
+                pixels[y * width + x] = 0xFF000000 | rgb;
+            }
+        }
+        return pixels;
+    }
+}
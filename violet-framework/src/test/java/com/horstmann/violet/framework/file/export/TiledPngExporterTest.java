@@ -0,0 +1,107 @@
+package com.horstmann.violet.framework.file.export;
+
+import com.horstmann.violet.framework.file.persistence.GraphTestHelper;
+import com.horstmann.violet.framework.file.persistence.GraphTestHelper.TestGraph;
+import com.horstmann.violet.product.diagram.common.edge.NoteEdge;
+import com.horstmann.violet.product.diagram.common.node.NoteNode;
+import java.awt.geom.Point2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import javax.imageio.ImageIO;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+public class TiledPngExporterTest
+{
+    private static final int COLOR_TOLERANCE = 16;
+
+    @BeforeClass
+    public static void setUpTheme()
+    {
+        GraphTestHelper.setUpTheme();
+    }
+
+    @Test
+    public void shouldExportTheSamePixelsAsTheWholeImage() throws Exception
+    {
+        // Smaller than a tile, then tiles cut in both directions
+        for (Point2D lastNoteLocation : new Point2D[] { new Point2D.Double(200, 100), new Point2D.Double(1300, 600) })
+        {
+            // given
+            final TestGraph graph = createGraph(lastNoteLocation);
+            FileExportService.layOut(graph);
+            final BufferedImage expectedImage = FileExportService.getImage(graph);
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+            // when
+            new TiledPngExporter(graph).export(out);
+
+            // then
+            final BufferedImage image = ImageIO.read(new ByteArrayInputStream(out.toByteArray()));
+            final int width = expectedImage.getWidth();
+            final int height = expectedImage.getHeight();
+            assertThat(width % 512).isNotZero();
+            assertThat(height % 512).isNotZero();
+            assertThat(image.getWidth()).isEqualTo(width);
+            assertThat(image.getHeight()).isEqualTo(height);
+            assertThat(getDifferentPixels(image, expectedImage)).isEmpty();
+        }
+    }
+
+    /**
+     * @return locations of the pixels whose color is visibly different. Rasterizers of some JDKs round the antialiasing of a
+     *         few pixels differently depending on the drawn area, by a few levels.
+     */
+    private static List<String> getDifferentPixels(BufferedImage image, BufferedImage expectedImage)
+    {
+        final List<String> differentPixels = new ArrayList<String>();
+        for (int y = 0; y < expectedImage.getHeight(); y++)
+        {
+            for (int x = 0; x < expectedImage.getWidth(); x++)
+            {
+                final int rgb = image.getRGB(x, y);
+                final int expectedRgb = expectedImage.getRGB(x, y);
+                for (int shift = 0; shift < 24; shift += 8)
+                {
+                    if (Math.abs(((rgb >> shift) & 0xFF) - ((expectedRgb >> shift) & 0xFF)) > COLOR_TOLERANCE)
+                    {
+                        differentPixels.add(x + "," + y);
+                        break;
+                    }
+                }
+            }
+        }
+        return differentPixels;
+    }
+
+    /**
+     * @return notes linked to each other, from the top left corner to the given location. Edges are rather horizontal : the
+     *         side a nearly diagonal edge is connected to may change each time it is drawn.
+     */
+    private static TestGraph createGraph(Point2D lastNoteLocation)
+    {
+        final TestGraph graph = new TestGraph();
+        final int noteCount = 6;
+        NoteNode previousNote = null;
+        for (int i = 0; i < noteCount; i++)
+        {
+            final NoteNode note = new NoteNode();
+            note.getText().setText("Note " + i + "\nspread over tiles");
+            final double ratio = (double) i / (noteCount - 1);
+            final Point2D location = new Point2D.Double(lastNoteLocation.getX() * ratio, lastNoteLocation.getY() * ratio);
+            assertThat(graph.addNode(note, location)).isTrue();
+            if (previousNote != null)
+            {
+                graph.connect(new NoteEdge(), previousNote, new Point2D.Double(10, 10), note, new Point2D.Double(10, 10),
+                        new Point2D[0]);
+            }
+            previousNote = note;
+        }
+        return graph;
+    }
+}
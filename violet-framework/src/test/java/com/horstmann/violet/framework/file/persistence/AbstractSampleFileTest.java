@@ -0,0 +1,114 @@
+package com.horstmann.violet.framework.file.persistence;
+
+import com.horstmann.violet.framework.plugin.IDiagramPlugin;
+import com.horstmann.violet.framework.plugin.PluginRegistry;
+import com.horstmann.violet.product.diagram.abstracts.IGraph;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.horstmann.violet.framework.injection.bean.ManiocFramework.BeanFactory;
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+/**
+ * The sample diagram shipped with a plugin is read the same way whether its content is found by the reader or by the HTML
+ * parser. Plugin modules extend it with their plugin and the path of their sample.
+ */
+public abstract class AbstractSampleFileTest
+{
+    private final IDiagramPlugin plugin;
+
+    private final String samplePath;
+
+    /**
+     * @param plugin plugin whose graphs are in the sample
+     * @param samplePath resource path of the sample, next to the plugin classes
+     */
+    protected AbstractSampleFileTest(IDiagramPlugin plugin, String samplePath)
+    {
+        this.plugin = plugin;
+        this.samplePath = samplePath;
+    }
+
+    @Before
+    public void registerPlugin()
+    {
+        PluginRegistry pluginRegistry = BeanFactory.getFactory().getBean(PluginRegistry.class);
+        for (IDiagramPlugin aPlugin : pluginRegistry.getDiagramPlugins())
+        {
+            if (aPlugin.getClass() == this.plugin.getClass())
+            {
+                return;
+            }
+        }
+        // Sample files use the short class names the plugin gives
+        pluginRegistry.register(this.plugin);
+    }
+
+    @Test
+    public void shouldReadSampleFileAgainOnceRewritten() throws Exception
+    {
+        // given
+        final String sample = new String(getSample(), "UTF-8");
+        final IGraph graph = new XHTMLPersistenceService().read(new ByteArrayInputStream(sample.getBytes("UTF-8")));
+        final String content = toXml(graph);
+        final String rewrittenSample = sample.substring(0, sample.indexOf("<![CDATA[") + "<![CDATA[".length()) + content
+                + sample.substring(sample.indexOf("]]>"));
+
+        // when
+        final IGraph rewrittenGraph = new XHTMLPersistenceService().read(new ByteArrayInputStream(rewrittenSample.getBytes("UTF-8")));
+
+        // then
+        assertThat(graph).isInstanceOf(this.plugin.getGraphClass());
+        assertThat(graph.getAllNodes()).isNotEmpty();
+        assertThat(graph.getAllEdges()).isNotEmpty();
+        assertThat(toXml(rewrittenGraph)).isEqualTo(content);
+    }
+
+    @Test
+    public void shouldReadSampleFileWithHtmlParser() throws Exception
+    {
+        // given
+        final byte[] sample = getSample();
+        final ByteArrayOutputStream document = new ByteArrayOutputStream();
+        // The reader only looks for the content in the first 16 KB
+        for (int i = 0; i < 1000; i++)
+        {
+            document.write("<!-- Long header -->\n".getBytes("UTF-8"));
+        }
+        document.write(sample);
+
+        // when
+        final IGraph graph = new XHTMLPersistenceService().read(new ByteArrayInputStream(sample));
+        final IGraph parsedGraph = new XHTMLPersistenceService().read(new ByteArrayInputStream(document.toByteArray()));
+
+        // then
+        assertThat(toXml(parsedGraph)).isEqualTo(toXml(graph));
+    }
+
+    private byte[] getSample() throws IOException
+    {
+        final InputStream in = this.plugin.getClass().getResourceAsStream(this.samplePath);
+        assertThat(in).as(this.samplePath).isNotNull();
+        final ByteArrayOutputStream sample = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[4096];
+        int count;
+        while ((count = in.read(buffer)) != -1)
+        {
+            sample.write(buffer, 0, count);
+        }
+        in.close();
+        return sample.toByteArray();
+    }
+
+    private static String toXml(IGraph graph)
+    {
+        final StringWriter writer = new StringWriter();
+        new XStreamBasedPersistenceService().write(graph, writer);
+        return writer.toString();
+    }
+}
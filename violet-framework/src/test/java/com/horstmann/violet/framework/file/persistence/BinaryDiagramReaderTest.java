@@ -0,0 +1,146 @@
+package com.horstmann.violet.framework.file.persistence;
+
+import com.thoughtworks.xstream.io.HierarchicalStreamReader;
+import com.thoughtworks.xstream.io.StreamException;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+public class BinaryDiagramReaderTest
+{
+    private static final String[] VALUES = {
+            "", "0", "-0", "007", "12", "-42", "9223372036854775807", "150.0", "-0.0", "0.1", "1.0E10", "3.4028235E38",
+            "NaN", "1e5", "037d4600-b403-476f-9f1d-584ec2398ca2", "037D4600-B403-476F-9F1D-584EC2398CA2", "Point2D.Double",
+            "élément", "<b>name</b>", "true"
+    };
+
+    @Test
+    public void shouldReadWhatWasWritten()
+    {
+        // given
+        final StringBuilder longValue = new StringBuilder();
+        for (int i = 0; i < 20000; i++)
+        {
+            longValue.append("é");
+        }
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final BinaryDiagramWriter writer = new BinaryDiagramWriter(out);
+        writer.startNode("graph");
+        writer.addAttribute("id", "1");
+        for (int round = 0; round < 2; round++)
+        {
+            for (String value : VALUES)
+            {
+                writer.startNode("value");
+                writer.addAttribute("text", value);
+                writer.setValue(value);
+                writer.endNode();
+            }
+        }
+        writer.startNode("image");
+        writer.setValue(longValue.toString());
+        writer.endNode();
+        writer.startNode("parent");
+        writer.startNode("child");
+        writer.endNode();
+        writer.endNode();
+        writer.endNode();
+        writer.close();
+
+        // when
+        final HierarchicalStreamReader reader = new BinaryDiagramReader(ByteBuffer.wrap(out.toByteArray()));
+
+        // then
+        assertThat(reader.getNodeName()).isEqualTo("graph");
+        assertThat(reader.getAttribute("id")).isEqualTo("1");
+        for (int round = 0; round < 2; round++)
+        {
+            for (String value : VALUES)
+            {
+                assertThat(reader.hasMoreChildren()).isTrue();
+                reader.moveDown();
+                assertThat(reader.getNodeName()).isEqualTo("value");
+                assertThat(reader.getAttributeCount()).isEqualTo(1);
+                assertThat(reader.getAttribute("text")).isEqualTo(value);
+                assertThat(reader.getValue()).isEqualTo(value);
+                reader.moveUp();
+            }
+        }
+        reader.moveDown();
+        assertThat(reader.getNodeName()).isEqualTo("image");
+        assertThat(reader.getAttribute("id")).isNull();
+        assertThat(reader.getValue()).isEqualTo(longValue.toString());
+        reader.moveUp();
+        reader.moveDown();
+        assertThat(reader.getNodeName()).isEqualTo("parent");
+        assertThat(reader.hasMoreChildren()).isTrue();
+        reader.moveUp();
+        assertThat(reader.hasMoreChildren()).isFalse();
+    }
+
+    @Test
+    public void shouldRejectStringCutByEndOfFile()
+    {
+        // given
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final BinaryDiagramWriter writer = new BinaryDiagramWriter(out);
+        writer.startNode("graph");
+        writer.startNode("text");
+        writer.setValue("a value written in more bytes than are left");
+        writer.endNode();
+        writer.endNode();
+        writer.close();
+        final byte[] bytes = out.toByteArray();
+        final byte[] truncatedBytes = Arrays.copyOf(bytes, bytes.length - 20);
+
+        // when
+        try
+        {
+            final HierarchicalStreamReader reader = new BinaryDiagramReader(ByteBuffer.wrap(truncatedBytes));
+            reader.moveDown();
+            fail("Truncated string read");
+        }
+        catch (StreamException e)
+        {
+            // then
+            assertThat(e.getMessage()).contains("Corrupted binary diagram").contains("position");
+        }
+    }
+
+    @Test
+    public void shouldRejectUnknownSharedString()
+    {
+        // given
+        final byte[] header = { 'V', 'L', 'T', 'B', BinaryDiagramFormat.VERSION };
+        // A node name, then a node value, referring to strings the table doesn't have
+        final byte[][] corruptedTokens = {
+                { BinaryDiagramFormat.START_NODE, 3 },
+                { BinaryDiagramFormat.START_NODE, 0, 5, 'g', 'r', 'a', 'p', 'h', BinaryDiagramFormat.VALUE,
+                        BinaryDiagramFormat.SHARED_STRING, 7 },
+                { BinaryDiagramFormat.START_NODE, 0, 5, 'g', 'r', 'a', 'p', 'h', BinaryDiagramFormat.VALUE,
+                        BinaryDiagramFormat.SHARED_STRING, -1, -1, -1, -1, -1, -1, -1, -1, -1, 1 }
+        };
+        for (byte[] tokens : corruptedTokens)
+        {
+            final byte[] bytes = Arrays.copyOf(header, header.length + tokens.length);
+            System.arraycopy(tokens, 0, bytes, header.length, tokens.length);
+
+            // when
+            try
+            {
+                new BinaryDiagramReader(ByteBuffer.wrap(bytes));
+                fail("Unknown shared string read");
+            }
+            catch (StreamException e)
+            {
+                // then
+                assertThat(e.getMessage()).contains("Corrupted binary diagram").contains("position");
+            }
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.horstmann.violet.framework.file.persistence;
+
+import com.horstmann.violet.framework.file.export.FileExportService;
+import com.horstmann.violet.framework.file.persistence.GraphTestHelper.TestGraph;
+import com.horstmann.violet.framework.util.VersionChecker;
+import com.horstmann.violet.product.diagram.common.edge.NoteEdge;
+import com.horstmann.violet.product.diagram.common.node.NoteNode;
+import java.awt.geom.Point2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import javax.imageio.ImageIO;
+import org.apache.commons.codec.binary.Base64;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+/**
+ * Background saves write a graph restored from a snapshot, which has never been drawn
+ */
+public class GraphSnapshotTest
+{
+    @Mock
+    private VersionChecker versionChecker;
+
+    // Two services, so that the second save can't reuse the image cached by the first one
+    @InjectMocks
+    private XHTMLPersistenceService snapshotService;
+
+    @InjectMocks
+    private XHTMLPersistenceService liveGraphService;
+
+    @BeforeClass
+    public static void setUpTheme()
+    {
+        GraphTestHelper.setUpTheme();
+    }
+
+    @Before
+    public void setUp()
+    {
+        MockitoAnnotations.initMocks(this);
+        when(versionChecker.getAppVersionNumber()).thenReturn("9.9.9");
+    }
+
+    @Test
+    public void shouldWriteTheSameImageAsTheLiveGraph() throws Exception
+    {
+        // given
+        final TestGraph graph = createGraph();
+        // As shown in the editor
+        FileExportService.layOut(graph);
+        final GraphSnapshot snapshot = GraphSnapshot.take(graph);
+        final ByteArrayOutputStream snapshotOut = new ByteArrayOutputStream();
+        final ByteArrayOutputStream liveGraphOut = new ByteArrayOutputStream();
+
+        // when
+        snapshot.write(snapshotService, snapshotOut);
+        liveGraphService.write(graph, liveGraphOut);
+
+        // then
+        final BufferedImage image = getImage(new String(snapshotOut.toByteArray(), "UTF-8"));
+        final BufferedImage expectedImage = getImage(new String(liveGraphOut.toByteArray(), "UTF-8"));
+        assertThat(image.getWidth()).isEqualTo(expectedImage.getWidth());
+        assertThat(image.getHeight()).isEqualTo(expectedImage.getHeight());
+        for (int y = 0; y < expectedImage.getHeight(); y++)
+        {
+            for (int x = 0; x < expectedImage.getWidth(); x++)
+            {
+                assertThat(image.getRGB(x, y)).as(x + "," + y).isEqualTo(expectedImage.getRGB(x, y));
+            }
+        }
+    }
+
+    /**
+     * @return multiline notes linked to each other, whose text sizes and edge paths are only known once drawn
+     */
+    private static TestGraph createGraph()
+    {
+        final TestGraph graph = new TestGraph();
+        NoteNode previousNote = null;
+        for (int i = 0; i < 4; i++)
+        {
+            final NoteNode note = new NoteNode();
+            note.getText().setText("Note " + i + "\nwith a rather long second line\nand a third one");
+            assertThat(graph.addNode(note, new Point2D.Double(300 * i, 40 * i))).isTrue();
+            if (previousNote != null)
+            {
+                graph.connect(new NoteEdge(), previousNote, new Point2D.Double(10, 10), note, new Point2D.Double(10, 10),
+                        new Point2D[0]);
+            }
+            previousNote = note;
+        }
+        return graph;
+    }
+
+    private static BufferedImage getImage(String document) throws Exception
+    {
+        final String imagePrefix = "src=\"data:image/png;base64,";
+        final int imageStart = document.indexOf(imagePrefix) + imagePrefix.length();
+        final String base64Image = document.substring(imageStart, document.indexOf('"', imageStart));
+        return ImageIO.read(new ByteArrayInputStream(Base64.decodeBase64(base64Image)));
+    }
+}
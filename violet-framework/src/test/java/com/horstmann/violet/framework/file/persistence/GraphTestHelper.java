@@ -0,0 +1,55 @@
+package com.horstmann.violet.framework.file.persistence;
+
+import com.horstmann.violet.framework.theme.ClassicMetalTheme;
+import com.horstmann.violet.framework.theme.ThemeManager;
+import com.horstmann.violet.framework.userpreferences.DefaultUserPreferencesDao;
+import com.horstmann.violet.framework.userpreferences.IUserPreferencesDao;
+import com.horstmann.violet.product.diagram.abstracts.AbstractGraph;
+import com.horstmann.violet.product.diagram.abstracts.edge.IEdge;
+import com.horstmann.violet.product.diagram.abstracts.node.INode;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.horstmann.violet.framework.injection.bean.ManiocFramework.BeanFactory;
+
+/**
+ * Graph and theme shared by the tests which save, export or draw diagrams (also used by the plugin modules through the
+ * framework test-jar)
+ */
+public final class GraphTestHelper
+{
+    private GraphTestHelper()
+    {
+    }
+
+    /**
+     * Graph of no diagram type, without node or edge prototypes
+     */
+    public static class TestGraph extends AbstractGraph
+    {
+        @Override
+        public List<INode> getNodePrototypes()
+        {
+            return new ArrayList<INode>();
+        }
+
+        @Override
+        public List<IEdge> getEdgePrototypes()
+        {
+            return new ArrayList<IEdge>();
+        }
+    }
+
+    /**
+     * Switches to the theme nodes are drawn with. To be called before drawing anything.
+     */
+    public static void setUpTheme()
+    {
+        // Other tests of the same run may have registered it
+        if (!BeanFactory.getFactory().contains(IUserPreferencesDao.class))
+        {
+            BeanFactory.getFactory().register(IUserPreferencesDao.class, new DefaultUserPreferencesDao());
+        }
+        new ThemeManager().switchToTheme(new ClassicMetalTheme());
+    }
+}
@@ -0,0 +1,101 @@
+package com.horstmann.violet.framework.file.persistence;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * Saves go through a temporary file which can be told apart from the saved files, in case a crash leaves it behind
+ */
+public class JFileWriterTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void shouldLeaveOnlyTemporaryFileUntilClosed() throws Exception
+    {
+        // given
+        final File target = new File(folder.getRoot(), "diagram.class.violet.html");
+        final JFileWriter writer = new JFileWriter(target);
+
+        // when
+        final OutputStream out = writer.getOutputStream();
+        out.write("content".getBytes("UTF-8"));
+        final File[] filesWhileWriting = folder.getRoot().listFiles();
+        out.close();
+
+        // then
+        assertThat(filesWhileWriting).hasSize(1);
+        assertThat(JFileWriter.isTemporaryFile(filesWhileWriting[0])).isTrue();
+        assertThat(folder.getRoot().listFiles()).containsExactly(target);
+        assertThat(JFileWriter.isTemporaryFile(target)).isFalse();
+        assertThat(target.length()).isEqualTo(7);
+    }
+
+    @Test
+    public void shouldKeepPreviousFileWhenDiscarded() throws Exception
+    {
+        // given
+        final File target = new File(folder.getRoot(), "diagram.class.violet.html");
+        final OutputStream previousOut = new JFileWriter(target).getOutputStream();
+        previousOut.write("previous".getBytes("UTF-8"));
+        previousOut.close();
+        final JFileWriter writer = new JFileWriter(target);
+
+        // when
+        writer.getOutputStream().write("new".getBytes("UTF-8"));
+        writer.discard();
+
+        // then
+        assertThat(folder.getRoot().listFiles()).containsExactly(target);
+        assertThat(target.length()).isEqualTo(8);
+    }
+
+    @Test
+    public void shouldDeleteTemporaryFileWhenMoveFails() throws Exception
+    {
+        // given
+        final File target = new File(folder.getRoot(), "diagram.class.violet.html");
+        final JFileWriter writer = new JFileWriter(target);
+        final OutputStream out = writer.getOutputStream();
+        out.write("content".getBytes("UTF-8"));
+        // A non empty directory can't be replaced
+        assertThat(new File(target, "child").mkdirs()).isTrue();
+
+        // when
+        try
+        {
+            out.close();
+            fail("Moved onto a non empty directory");
+        }
+        catch (IOException e)
+        {
+            // then
+            assertThat(folder.getRoot().listFiles()).containsExactly(target);
+        }
+    }
+
+    @Test
+    public void shouldSaveFileWithShortName() throws Exception
+    {
+        // given
+        final File target = new File(folder.getRoot(), "a");
+        final JFileWriter writer = new JFileWriter(target);
+
+        // when
+        final OutputStream out = writer.getOutputStream();
+        out.write("content".getBytes("UTF-8"));
+        out.close();
+
+        // then
+        assertThat(folder.getRoot().listFiles()).containsExactly(target);
+        assertThat(target.length()).isEqualTo(7);
+    }
+}
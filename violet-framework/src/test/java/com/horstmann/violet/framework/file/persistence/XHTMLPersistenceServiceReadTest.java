@@ -0,0 +1,195 @@
+package com.horstmann.violet.framework.file.persistence;
+
+import com.horstmann.violet.framework.file.persistence.GraphTestHelper.TestGraph;
+import com.horstmann.violet.product.diagram.abstracts.IGraph;
+import com.horstmann.violet.product.diagram.abstracts.node.INode;
+import com.horstmann.violet.product.diagram.common.node.NoteNode;
+import java.awt.geom.Point2D;
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Scanner;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+/**
+ * The XML content is read straight from the files written from the template, other documents go through the HTML parser
+ */
+public class XHTMLPersistenceServiceReadTest
+{
+    /**
+     * Gives at most a few bytes on each read and counts them
+     */
+    private static class TrickleInputStream extends FilterInputStream
+    {
+        TrickleInputStream(InputStream in, int maxReadSize)
+        {
+            super(in);
+            this.maxReadSize = maxReadSize;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException
+        {
+            int count = super.read(b, off, Math.min(len, this.maxReadSize));
+            if (count > 0)
+            {
+                this.readCount += count;
+            }
+            return count;
+        }
+
+        private final int maxReadSize;
+
+        private int readCount;
+    }
+
+    private XHTMLPersistenceService service;
+
+    private List<String> noteTexts;
+
+    private String xmlContent;
+
+    @Before
+    public void setUp()
+    {
+        service = new XHTMLPersistenceService();
+        TestGraph graph = new TestGraph();
+        // Larger than the header scan limit and than the CDATA reader buffer, with brackets looking like a CDATA end
+        for (int i = 0; i < 150; i++)
+        {
+            NoteNode note = new NoteNode();
+            note.getText().setText("Note " + i + " ]] ]> ] é ü 日本");
+            graph.addNode(note, new Point2D.Double(i, i));
+        }
+        StringWriter writer = new StringWriter();
+        new XStreamBasedPersistenceService().write(graph, writer);
+        xmlContent = writer.toString();
+        noteTexts = getNoteTexts(graph);
+        assertThat(xmlContent.length()).isGreaterThan(16384);
+    }
+
+    @Test
+    public void shouldReadContentWithoutReadingTheRestOfTheFile() throws Exception
+    {
+        // given
+        byte[] document = getDocument("", "<SCRIPT id=\"content\" type=\"text/xml\"><![CDATA[", getLargeImage());
+        TrickleInputStream in = new TrickleInputStream(new ByteArrayInputStream(document), Integer.MAX_VALUE);
+
+        // when
+        IGraph graph = service.read(in);
+
+        // then
+        assertThat(getNoteTexts(graph)).isEqualTo(noteTexts);
+        assertThat(in.readCount).isLessThan(document.length / 2);
+    }
+
+    @Test
+    public void shouldReadContentWhoseEndIsSplitAcrossReads() throws Exception
+    {
+        for (int maxReadSize : new int[] { 1, 2, 3, 4, 1000, 8191, 8192, 8193 })
+        {
+            // given
+            byte[] document = getDocument("", "<SCRIPT id=\"content\" type=\"text/xml\"><![CDATA[", "");
+            TrickleInputStream in = new TrickleInputStream(new ByteArrayInputStream(document), maxReadSize);
+
+            // when
+            IGraph graph = service.read(in);
+
+            // then
+            assertThat(getNoteTexts(graph)).isEqualTo(noteTexts);
+        }
+    }
+
+    @Test
+    public void shouldReadContentWhateverTheScriptTagSpelling() throws Exception
+    {
+        for (String contentStart : Arrays.asList("<script id='content'><![CDATA[", "<Script type=\"text/xml\" ID = content >\n\t<![CDATA[",
+                "<SCRIPT language=\"xml\"\n id=\"content\" type=\"text/xml\">  <![CDATA["))
+        {
+            // given
+            byte[] document = getDocument("", contentStart, getLargeImage());
+            TrickleInputStream in = new TrickleInputStream(new ByteArrayInputStream(document), Integer.MAX_VALUE);
+
+            // when
+            IGraph graph = service.read(in);
+
+            // then
+            assertThat(getNoteTexts(graph)).isEqualTo(noteTexts);
+            assertThat(in.readCount).isLessThan(document.length / 2);
+        }
+    }
+
+    @Test
+    public void shouldUseHtmlParserWhenContentStartsAfterHeaderScanLimit() throws Exception
+    {
+        // given
+        StringBuilder longHeader = new StringBuilder();
+        while (longHeader.length() < 20000)
+        {
+            longHeader.append("<P>Some text before the diagram</P>\n");
+        }
+        byte[] document = getDocument(longHeader.toString(), "<SCRIPT id=\"content\" type=\"text/xml\"><![CDATA[", "");
+
+        // when
+        IGraph graph = service.read(new ByteArrayInputStream(document));
+
+        // then
+        assertThat(getNoteTexts(graph)).isEqualTo(noteTexts);
+    }
+
+    @Test
+    public void shouldUseHtmlParserWhenContentIsNotInCData() throws Exception
+    {
+        // given
+        byte[] document = getDocument("", "<SCRIPT id=\"content\" type=\"text/xml\">", "");
+        String html = new String(document, "UTF-8").replace("]]></SCRIPT>", "</SCRIPT>");
+
+        // when
+        IGraph graph = service.read(new ByteArrayInputStream(html.getBytes("UTF-8")));
+
+        // then
+        assertThat(getNoteTexts(graph)).isEqualTo(noteTexts);
+    }
+
+    /**
+     * @param header added at the beginning of the body
+     * @param contentStart replaces the template's script tag and CDATA start
+     * @param image image data
+     * @return document made from the template XHTMLPersistenceService writes
+     */
+    private byte[] getDocument(String header, String contentStart, String image) throws IOException
+    {
+        InputStream templateStream = XHTMLPersistenceService.class.getResourceAsStream("XHTMLFileTemplate.violet.html");
+        String template = new Scanner(templateStream, "UTF-8").useDelimiter("\\A").next();
+        templateStream.close();
+        String document = template.replace("<BODY>", "<BODY>" + header)
+                .replace("<SCRIPT id=\"content\" type=\"text/xml\"><![CDATA[", contentStart).replace("${version}", "test")
+                .replace("${content}", xmlContent).replace("${image}", image);
+        return document.getBytes("UTF-8");
+    }
+
+    private static String getLargeImage()
+    {
+        char[] image = new char[500000];
+        Arrays.fill(image, 'A');
+        return "data:image/png;base64," + new String(image);
+    }
+
+    private static List<String> getNoteTexts(IGraph graph)
+    {
+        List<String> texts = new ArrayList<String>();
+        for (INode aNode : graph.getAllNodes())
+        {
+            texts.add(((NoteNode) aNode).getText().toEdit());
+        }
+        return texts;
+    }
+}
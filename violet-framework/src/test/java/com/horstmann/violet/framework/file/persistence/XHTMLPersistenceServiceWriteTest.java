@@ -0,0 +1,207 @@
+package com.horstmann.violet.framework.file.persistence;
+
+import com.horstmann.violet.framework.file.persistence.GraphTestHelper.TestGraph;
+import com.horstmann.violet.framework.util.VersionChecker;
+import com.horstmann.violet.product.diagram.abstracts.IGraph;
+import com.horstmann.violet.product.diagram.abstracts.node.INode;
+import com.horstmann.violet.product.diagram.common.node.NoteNode;
+import java.awt.Graphics2D;
+import java.awt.geom.Point2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import javax.imageio.ImageIO;
+import org.apache.commons.codec.binary.Base64;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+import static org.assertj.core.api.Java6Assertions.within;
+import static org.mockito.Mockito.when;
+
+/**
+ * Saved documents are written from the template while the graph is serialized, and their image is only drawn again when the
+ * graph content changed
+ */
+public class XHTMLPersistenceServiceWriteTest
+{
+    private static class CountingGraph extends TestGraph
+    {
+        @Override
+        public void draw(Graphics2D graphics)
+        {
+            this.drawCount++;
+            super.draw(graphics);
+        }
+
+        private transient int drawCount;
+    }
+
+    @Mock
+    private VersionChecker versionChecker;
+
+    @InjectMocks
+    private XHTMLPersistenceService service;
+
+    @BeforeClass
+    public static void setUpTheme()
+    {
+        GraphTestHelper.setUpTheme();
+    }
+
+    @Before
+    public void setUp()
+    {
+        MockitoAnnotations.initMocks(this);
+        when(versionChecker.getAppVersionNumber()).thenReturn("9.9.9");
+    }
+
+    @Test
+    public void shouldWriteTemplateWithContentAndImage() throws Exception
+    {
+        // given
+        final CountingGraph graph = createGraph(200, "last note");
+
+        // when
+        final String document = write(graph);
+
+        // then
+        assertThat(document).startsWith("<HTML>").endsWith("</HTML>").contains("Violet UML Editor 9.9.9.");
+        assertThat(getContent(document)).isEqualTo(toXml(graph));
+        final BufferedImage image = getImage(document);
+        assertThat(image.getWidth()).isEqualTo((int) graph.getClipBounds().getWidth() + 50);
+        assertThat(getNoteTexts(service.read(new ByteArrayInputStream(document.getBytes("UTF-8")))))
+                .isEqualTo(getNoteTexts(graph));
+    }
+
+    @Test
+    public void shouldReuseImageOfGraphsWithSameContent() throws Exception
+    {
+        // given
+        final CountingGraph graph = createGraph(200, "last note");
+        final String document = write(graph);
+        final CountingGraph graphCopy = (CountingGraph) service.read(new ByteArrayInputStream(document.getBytes("UTF-8")));
+
+        // when
+        final String copyDocument = write(graphCopy);
+
+        // then
+        assertThat(graph.drawCount).isEqualTo(1);
+        assertThat(graphCopy.drawCount).isZero();
+        assertThat(copyDocument).isEqualTo(document);
+    }
+
+    @Test
+    public void shouldDrawImageAgainWhenContentChanged() throws Exception
+    {
+        // given
+        // Only the end of the content differs, beyond the digest buffer
+        final CountingGraph graph = createGraph(200, "last note");
+        final CountingGraph changedGraph = createGraph(200, "last note changed");
+        final String document = write(graph);
+
+        // when
+        final String changedDocument = write(changedGraph);
+
+        // then
+        assertThat(changedGraph.drawCount).isEqualTo(1);
+        assertThat(getContent(changedDocument)).isEqualTo(toXml(changedGraph));
+        assertThat(getImage(changedDocument).getWidth()).isGreaterThan(getImage(document).getWidth());
+    }
+
+    @Test
+    public void shouldKeepImageWithinConfiguredSize() throws Exception
+    {
+        // given
+        final CountingGraph graph = createGraph(200, "last note");
+        final String largeDocument = write(graph);
+        final String previousMaxImageSize = System.getProperty(XHTMLPersistenceService.MAX_IMAGE_SIZE_PROPERTY);
+        System.setProperty(XHTMLPersistenceService.MAX_IMAGE_SIZE_PROPERTY, "100");
+        final String smallDocument;
+        try
+        {
+            // when
+            smallDocument = write(graph);
+        }
+        finally
+        {
+            if (previousMaxImageSize == null)
+            {
+                System.clearProperty(XHTMLPersistenceService.MAX_IMAGE_SIZE_PROPERTY);
+            }
+            else
+            {
+                System.setProperty(XHTMLPersistenceService.MAX_IMAGE_SIZE_PROPERTY, previousMaxImageSize);
+            }
+        }
+
+        // then
+        final BufferedImage largeImage = getImage(largeDocument);
+        final BufferedImage smallImage = getImage(smallDocument);
+        assertThat(largeImage.getWidth()).isGreaterThan(100);
+        assertThat(Math.max(smallImage.getWidth(), smallImage.getHeight())).isEqualTo(100);
+        assertThat(smallImage.getWidth() * largeImage.getHeight() / largeImage.getWidth()).isCloseTo(smallImage.getHeight(),
+                within(1));
+        // Drawn again, whereas the content is the same
+        assertThat(graph.drawCount).isEqualTo(2);
+    }
+
+    /**
+     * @return graph whose notes are written in more than 4 KB, the last one being at the bottom right
+     */
+    private static CountingGraph createGraph(int noteCount, String lastNoteText)
+    {
+        final CountingGraph graph = new CountingGraph();
+        for (int i = 0; i < noteCount; i++)
+        {
+            final NoteNode note = new NoteNode();
+            note.getText().setText(i == noteCount - 1 ? lastNoteText : "Note " + i + " é 日本");
+            graph.addNode(note, new Point2D.Double(i, i));
+        }
+        return graph;
+    }
+
+    private String write(IGraph graph) throws Exception
+    {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        service.write(graph, out);
+        return new String(out.toByteArray(), "UTF-8");
+    }
+
+    private static String toXml(IGraph graph)
+    {
+        final StringWriter writer = new StringWriter();
+        new XStreamBasedPersistenceService().write(graph, writer);
+        return writer.toString();
+    }
+
+    private static String getContent(String document)
+    {
+        return document.substring(document.indexOf("<![CDATA[") + "<![CDATA[".length(), document.indexOf("]]>"));
+    }
+
+    private static BufferedImage getImage(String document) throws Exception
+    {
+        final String imagePrefix = "src=\"data:image/png;base64,";
+        final int imageStart = document.indexOf(imagePrefix) + imagePrefix.length();
+        final String base64Image = document.substring(imageStart, document.indexOf('"', imageStart));
+        return ImageIO.read(new ByteArrayInputStream(Base64.decodeBase64(base64Image)));
+    }
+
+    private static List<String> getNoteTexts(IGraph graph)
+    {
+        final List<String> texts = new ArrayList<String>();
+        for (INode aNode : graph.getAllNodes())
+        {
+            texts.add(((NoteNode) aNode).getText().toEdit());
+        }
+        return texts;
+    }
+}
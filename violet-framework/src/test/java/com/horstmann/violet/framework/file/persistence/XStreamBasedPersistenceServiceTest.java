@@ -0,0 +1,63 @@
+package com.horstmann.violet.framework.file.persistence;
+
+import com.horstmann.violet.framework.file.persistence.GraphTestHelper.TestGraph;
+import com.horstmann.violet.product.diagram.abstracts.IGraph;
+import com.horstmann.violet.product.diagram.common.node.NoteNode;
+import java.awt.geom.Point2D;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import org.junit.Test;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+/**
+ * XML files are UTF-8 whatever the platform encoding
+ */
+public class XStreamBasedPersistenceServiceTest
+{
+    private static final String TEXT = "é ü 日本";
+
+    @Test
+    public void shouldWriteUtf8() throws Exception
+    {
+        // given
+        final TestGraph graph = new TestGraph();
+        final NoteNode note = new NoteNode();
+        note.getText().setText(TEXT);
+        graph.addNode(note, new Point2D.Double(10, 10));
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // when
+        new XStreamBasedPersistenceService().write(graph, out);
+
+        // then
+        assertThat(new String(out.toByteArray(), "UTF-8")).contains(TEXT);
+        assertThat(getNoteText(new XStreamBasedPersistenceService().read(new ByteArrayInputStream(out.toByteArray()))))
+                .isEqualTo(TEXT);
+    }
+
+    @Test
+    public void shouldReadEncodingDeclaredByDocument() throws Exception
+    {
+        // given
+        final TestGraph graph = new TestGraph();
+        final NoteNode note = new NoteNode();
+        note.getText().setText("é ü");
+        graph.addNode(note, new Point2D.Double(10, 10));
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new XStreamBasedPersistenceService().write(graph, out);
+        final String latin1Document = "<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?>" + new String(out.toByteArray(), "UTF-8");
+
+        // when
+        final IGraph readGraph = new XStreamBasedPersistenceService().read(new ByteArrayInputStream(
+                latin1Document.getBytes("ISO-8859-1")));
+
+        // then
+        assertThat(getNoteText(readGraph)).isEqualTo("é ü");
+    }
+
+    private static String getNoteText(IGraph graph)
+    {
+        return ((NoteNode) graph.getAllNodes().iterator().next()).getText().toEdit();
+    }
+}
@@ -0,0 +1,71 @@
+package com.horstmann.violet.framework.plugin;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+public class PluginIndexTest
+{
+
+    @Test
+    public void shouldReadWhatWasWritten() throws Exception
+    {
+        // given
+        final Map<String, String> violet016Mapping = new TreeMap<String, String>();
+        violet016Mapping.put("com.horstmann.violet.ClassNode", "com.horstmann.violet.product.diagram.classes.node.ClassNode");
+        violet016Mapping.put("key with spaces=and:separators#!", "élément\\path");
+        final PluginIndex index = new PluginIndex("test.Plugin", "test.Graph", Arrays.asList("test.NodeA", "test.NodeB"),
+                Collections.<String>emptyList(), Collections.singletonList("properties.TestStrings"), violet016Mapping);
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // when
+        index.write(out);
+        final PluginIndex readIndex = PluginIndex.read("test.Plugin", new ByteArrayInputStream(out.toByteArray()));
+
+        // then
+        assertThat(readIndex.getPluginClassName()).isEqualTo("test.Plugin");
+        assertThat(readIndex.getGraphClassName()).isEqualTo("test.Graph");
+        assertThat(readIndex.getNodeClassNames()).containsExactly("test.NodeA", "test.NodeB");
+        assertThat(readIndex.getEdgeClassNames()).isEmpty();
+        assertThat(readIndex.getResourceBundleNames()).containsExactly("properties.TestStrings");
+        assertThat(readIndex.getViolet016Mapping()).isEqualTo(violet016Mapping);
+    }
+
+    @Test
+    public void shouldWriteTheSameBytesForTheSamePlugin() throws Exception
+    {
+        // given
+        final PluginIndex index = new PluginIndex("test.Plugin", "test.Graph", Collections.singletonList("test.Node"),
+                Collections.singletonList("test.Edge"), Collections.<String>emptyList(), Collections.<String, String>emptyMap());
+        final ByteArrayOutputStream firstOut = new ByteArrayOutputStream();
+        final ByteArrayOutputStream secondOut = new ByteArrayOutputStream();
+
+        // when
+        index.write(firstOut);
+        Thread.sleep(1100);
+        index.write(secondOut);
+
+        // then
+        assertThat(secondOut.toByteArray()).isEqualTo(firstOut.toByteArray());
+    }
+
+    @Test
+    public void shouldGiveEachPluginItsOwnIndexFile()
+    {
+        // when
+        final String firstPath = PluginIndex.getIndexPath("test.FirstPlugin");
+        final String secondPath = PluginIndex.getIndexPath("test.SecondPlugin");
+
+        // then
+        assertThat(firstPath).isNotEqualTo(secondPath);
+        assertThat(firstPath).startsWith("META-INF/");
+    }
+
+}
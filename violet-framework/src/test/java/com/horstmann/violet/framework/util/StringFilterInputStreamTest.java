@@ -0,0 +1,97 @@
+package com.horstmann.violet.framework.util;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+public class StringFilterInputStreamTest
+{
+    @Test
+    public void shouldReplaceLongestKeysInOnePass() throws IOException
+    {
+        // given
+        final Map<String, String> replaceMap = new HashMap<>();
+        replaceMap.put("com.horstmann.violet.Note", "Note");
+        replaceMap.put("com.horstmann.violet.NoteNode", "common.NoteNode");
+        replaceMap.put("common", "never.applied.twice");
+        final String content = "<object class=\"com.horstmann.violet.NoteNode\"/><object class=\"com.horstmann.violet.Note\"/>com.horst";
+
+        // when
+        final String filtered = read(new StringFilterInputStream(asStream(content), replaceMap));
+
+        // then
+        assertThat(filtered).isEqualTo("<object class=\"common.NoteNode\"/><object class=\"Note\"/>com.horst");
+    }
+
+    @Test
+    public void shouldReplaceKeysAcrossChunks() throws IOException
+    {
+        // given
+        final Map<String, String> replaceMap = new HashMap<>();
+        replaceMap.put("com.horstmann.violet.PointNode", "com.horstmann.violet.product.diagram.common.node.PointNode");
+        final StringBuilder content = new StringBuilder();
+        final StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 2000; i++)
+        {
+            content.append("<void property=\"élément").append(i).append("\">com.horstmann.violet.PointNode</void>");
+            expected.append("<void property=\"élément").append(i).append("\">com.horstmann.violet.product.diagram.common.node.PointNode</void>");
+        }
+
+        // when
+        final String filtered = read(new StringFilterInputStream(asStream(content.toString()), replaceMap));
+
+        // then
+        assertThat(filtered).isEqualTo(expected.toString());
+    }
+
+    @Test
+    public void shouldRevertWhatOutputStreamWrote() throws IOException
+    {
+        // given
+        final Map<String, String> oldToNew = new HashMap<>();
+        oldToNew.put("com.horstmann.violet.NoteEdge", "com.horstmann.violet.product.diagram.common.edge.NoteEdge");
+        final Map<String, String> newToOld = new HashMap<>();
+        newToOld.put("com.horstmann.violet.product.diagram.common.edge.NoteEdge", "com.horstmann.violet.NoteEdge");
+        final String content = "<object class=\"com.horstmann.violet.product.diagram.common.edge.NoteEdge\"/>com.horstmann.violet.product";
+
+        // when
+        final ByteArrayOutputStream written = new ByteArrayOutputStream();
+        final OutputStream out = new StringFilterOutputStream(written, newToOld);
+        for (byte b : content.getBytes("UTF-8"))
+        {
+            out.write(b);
+        }
+        out.close();
+        final String filtered = read(new StringFilterInputStream(new ByteArrayInputStream(written.toByteArray()), oldToNew));
+
+        // then
+        assertThat(written.toString("UTF-8")).isEqualTo("<object class=\"com.horstmann.violet.NoteEdge\"/>com.horstmann.violet.product");
+        assertThat(filtered).isEqualTo(content);
+    }
+
+    private static InputStream asStream(String content) throws IOException
+    {
+        return new ByteArrayInputStream(content.getBytes("UTF-8"));
+    }
+
+    private static String read(InputStream in) throws IOException
+    {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[1000];
+        int count;
+        while ((count = in.read(buffer)) != -1)
+        {
+            out.write(buffer, 0, count);
+        }
+        in.close();
+        return out.toString("UTF-8");
+    }
+}
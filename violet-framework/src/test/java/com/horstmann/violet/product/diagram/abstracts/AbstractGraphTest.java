@@ -0,0 +1,388 @@
+package com.horstmann.violet.product.diagram.abstracts;
+
+import com.horstmann.violet.framework.file.persistence.GraphTestHelper.TestGraph;
+import com.horstmann.violet.framework.graphics.content.EmptyContent;
+import com.horstmann.violet.product.diagram.abstracts.edge.IEdge;
+import com.horstmann.violet.product.diagram.abstracts.node.AbstractNode;
+import com.horstmann.violet.product.diagram.abstracts.node.INode;
+import com.horstmann.violet.product.diagram.common.edge.LabeledLineEdge;
+import com.horstmann.violet.product.diagram.common.node.ImageNode;
+import com.horstmann.violet.product.diagram.property.text.LineText;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class AbstractGraphTest
+{
+    private static class TestNode extends AbstractNode
+    {
+        private EmptyContent content;
+
+        private int drawCount;
+
+        @Override
+        protected void createContentStructure()
+        {
+            content = new EmptyContent();
+            content.setMinWidth(100);
+            content.setMinHeight(60);
+            setContent(content);
+        }
+
+        @Override
+        public void draw(Graphics2D graphics)
+        {
+            super.draw(graphics);
+            drawCount++;
+        }
+
+        @Override
+        public boolean addChild(INode node, Point2D point)
+        {
+            node.setLocation(point);
+            return addChild(node, getChildren().size());
+        }
+
+        @Override
+        public LineText getAttributes()
+        {
+            return null;
+        }
+
+        @Override
+        public LineText getMethods()
+        {
+            return null;
+        }
+    }
+
+    private static class TestEdge extends LabeledLineEdge
+    {
+        private int drawCount;
+
+        @Override
+        public void draw(Graphics2D graphics)
+        {
+            super.draw(graphics);
+            drawCount++;
+        }
+    }
+
+    private TestGraph graph;
+
+    @Before
+    public void setUp()
+    {
+        graph = new TestGraph();
+    }
+
+    @Test
+    public void shouldShareAllNodesSnapshotUntilNodeTreeChanges()
+    {
+        // given
+        INode parent = new TestNode();
+        graph.addNode(parent, new Point2D.Double(0, 0));
+
+        // when
+        Collection<INode> before = graph.getAllNodes();
+        INode child = new TestNode();
+        graph.addNode(child, new Point2D.Double(10, 10));
+        Collection<INode> after = graph.getAllNodes();
+
+        // then
+        assertSame(after, graph.getAllNodes());
+        assertEquals(1, before.size());
+        assertEquals(2, after.size());
+        assertSame(child, after.iterator().next());
+    }
+
+    @Test
+    public void shouldRefreshAllNodesWhenChildrenChange()
+    {
+        // given
+        INode parent = new TestNode();
+        INode child = new TestNode();
+        graph.addNode(parent, new Point2D.Double(0, 0));
+        graph.addNode(child, new Point2D.Double(10, 10));
+        Collection<INode> snapshot = graph.getAllNodes();
+
+        // when
+        parent.removeChild(child);
+
+        // then
+        assertFalse(graph.getAllNodes().contains(child));
+        assertTrue(snapshot.contains(child));
+    }
+
+    @Test
+    public void shouldRemoveNodeTree()
+    {
+        // given
+        INode parent = new TestNode();
+        INode child = new TestNode();
+        INode other = new TestNode();
+        graph.addNode(parent, new Point2D.Double(0, 0));
+        graph.addNode(child, new Point2D.Double(10, 10));
+        graph.addNode(other, new Point2D.Double(300, 300));
+
+        // when
+        graph.removeNode(parent);
+
+        // then
+        assertEquals(1, graph.getAllNodes().size());
+        assertTrue(graph.getAllNodes().contains(other));
+        assertSame(other, graph.findNode(new Point2D.Double(320, 320)));
+        assertEquals(null, graph.findNode(new Point2D.Double(20, 20)));
+    }
+
+    @Test
+    public void shouldFindNestedNodeById()
+    {
+        // given
+        INode parent = new TestNode();
+        INode child = new TestNode();
+        graph.addNode(parent, new Point2D.Double(0, 0));
+        assertEquals(null, graph.findNode(child.getId()));
+
+        // when
+        graph.addNode(child, new Point2D.Double(10, 10));
+
+        // then
+        assertSame(parent, graph.findNode(parent.getId()));
+        assertSame(child, graph.findNode(child.getId()));
+    }
+
+    @Test
+    public void shouldForgetIdsOfRemovedNode()
+    {
+        // given
+        INode parent = new TestNode();
+        INode child = new TestNode();
+        graph.addNode(parent, new Point2D.Double(0, 0));
+        graph.addNode(child, new Point2D.Double(10, 10));
+        graph.findNode(parent.getId());
+
+        // when
+        graph.removeNode(parent);
+
+        // then
+        assertEquals(null, graph.findNode(parent.getId()));
+        assertEquals(null, graph.findNode(child.getId()));
+    }
+
+    @Test
+    public void shouldFindNodeByIdChangedOnceIndexed()
+    {
+        // given
+        INode node = new TestNode();
+        graph.addNode(node, new Point2D.Double(0, 0));
+        Id previousId = node.getId();
+        graph.findNode(previousId);
+        Id newId = new Id();
+
+        // when
+        node.setId(newId);
+
+        // then
+        assertSame(node, graph.findNode(newId));
+        assertEquals(null, graph.findNode(previousId));
+    }
+
+    @Test
+    public void shouldFindEdgeByIdChangedOnceIndexed()
+    {
+        // given
+        TestNode start = new TestNode();
+        TestNode end = new TestNode();
+        graph.addNode(start, new Point2D.Double(0, 0));
+        graph.addNode(end, new Point2D.Double(300, 0));
+        TestEdge edge = new TestEdge();
+        graph.connect(edge, start, new Point2D.Double(50, 30), end, new Point2D.Double(350, 30), new Point2D[0]);
+        Id previousId = edge.getId();
+        graph.findEdge(previousId);
+        Id newId = new Id();
+
+        // when
+        edge.setId(newId);
+
+        // then
+        assertSame(edge, graph.findEdge(newId));
+        assertEquals(null, graph.findEdge(previousId));
+    }
+
+    @Test
+    public void shouldNotFindNodeOrEdgeWithoutId()
+    {
+        // given
+        TestNode start = new TestNode();
+        TestNode end = new TestNode();
+        graph.addNode(start, new Point2D.Double(0, 0));
+        graph.addNode(end, new Point2D.Double(300, 0));
+        graph.connect(new TestEdge(), start, new Point2D.Double(50, 30), end, new Point2D.Double(350, 30), new Point2D[0]);
+
+        // when
+        INode foundNode = graph.findNode((Id) null);
+        IEdge foundEdge = graph.findEdge((Id) null);
+
+        // then
+        assertEquals(null, foundNode);
+        assertEquals(null, foundEdge);
+    }
+
+    @Test
+    public void shouldOnlyDrawNodesAroundClip()
+    {
+        // given
+        TestNode visibleNode = new TestNode();
+        TestNode farNode = new TestNode();
+        graph.addNode(visibleNode, new Point2D.Double(0, 0));
+        graph.addNode(farNode, new Point2D.Double(5000, 5000));
+        BufferedImage image = new BufferedImage(200, 200, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setClip(0, 0, 200, 200);
+
+        // when
+        graph.draw(graphics);
+        graphics.dispose();
+
+        // then
+        assertEquals(1, visibleNode.drawCount);
+        assertEquals(0, farNode.drawCount);
+    }
+
+    @Test
+    public void shouldReindexNodeWhenItsContentGrows()
+    {
+        // given
+        TestNode node = new TestNode();
+        graph.addNode(node, new Point2D.Double(0, 0));
+        assertEquals(null, graph.findNode(new Point2D.Double(150, 30)));
+
+        // when
+        node.content.setMinWidth(200);
+
+        // then
+        assertSame(node, graph.findNode(new Point2D.Double(150, 30)));
+    }
+
+    @Test
+    public void shouldReindexImageNodeWhenItsImageGrows()
+    {
+        // given
+        // Its bounds come from the image and the text, not from its content
+        ImageNode node = new ImageNode(new BufferedImage(10, 10, BufferedImage.TYPE_INT_ARGB));
+        graph.addNode(node, new Point2D.Double(0, 0));
+        assertEquals(null, graph.findNode(new Point2D.Double(150, 150)));
+
+        // when
+        node.setImage(new BufferedImage(200, 200, BufferedImage.TYPE_INT_ARGB));
+
+        // then
+        assertSame(node, graph.findNode(new Point2D.Double(150, 150)));
+    }
+
+    @Test
+    public void shouldReindexImageNodeWhenItsTextGrows()
+    {
+        // given
+        ImageNode node = new ImageNode(new BufferedImage(10, 10, BufferedImage.TYPE_INT_ARGB));
+        graph.addNode(node, new Point2D.Double(0, 0));
+        Point2D belowImage = new Point2D.Double(5, 10 + node.getText().getBounds().getHeight() + 30);
+        assertEquals(null, graph.findNode(belowImage));
+
+        // when
+        node.getText().setText("first line\nsecond line\nthird line\nfourth line");
+
+        // then
+        assertSame(node, graph.findNode(belowImage));
+    }
+
+    @Test
+    public void shouldDrawEdgeWhoseLabelIsInClipFarFromItsNodes()
+    {
+        // given
+        TestNode start = new TestNode();
+        TestNode end = new TestNode();
+        graph.addNode(start, new Point2D.Double(0, 0));
+        graph.addNode(end, new Point2D.Double(300, 0));
+        TestEdge edge = new TestEdge();
+        char[] longLabel = new char[300];
+        Arrays.fill(longLabel, 'W');
+        edge.setCenterLabel(new String(longLabel));
+        graph.connect(edge, start, new Point2D.Double(50, 30), end, new Point2D.Double(350, 30), new Point2D[0]);
+        drawWithClip(new Rectangle(-1000, -1000, 2000, 2000));
+        Rectangle2D labelBounds = edge.getBounds();
+        assertTrue(labelBounds.getMaxX() > 1000);
+
+        // when
+        drawWithClip(new Rectangle((int) labelBounds.getMaxX() - 100, (int) labelBounds.getY(), 50, 5));
+        drawWithClip(new Rectangle((int) labelBounds.getMaxX() - 100, (int) labelBounds.getMaxY() + 500, 50, 5));
+
+        // then
+        assertEquals(2, edge.drawCount);
+    }
+
+    @Test
+    public void shouldDrawEdgeOnceWhateverTheClipToLayItOut()
+    {
+        // given
+        TestNode start = new TestNode();
+        TestNode end = new TestNode();
+        graph.addNode(start, new Point2D.Double(0, 0));
+        graph.addNode(end, new Point2D.Double(300, 0));
+        TestEdge edge = new TestEdge();
+        graph.connect(edge, start, new Point2D.Double(50, 30), end, new Point2D.Double(350, 30), new Point2D[0]);
+
+        // when
+        drawWithClip(new Rectangle(5000, 5000, 100, 100));
+        drawWithClip(new Rectangle(5000, 5000, 100, 100));
+
+        // then
+        assertEquals(1, edge.drawCount);
+    }
+
+    @Test
+    public void shouldOnlyDrawGivenNodes()
+    {
+        // given
+        TestNode draggedNode = new TestNode();
+        TestNode staticNode = new TestNode();
+        TestNode removedNode = new TestNode();
+        graph.addNode(draggedNode, new Point2D.Double(0, 0));
+        graph.addNode(staticNode, new Point2D.Double(120, 0));
+        graph.addNode(removedNode, new Point2D.Double(0, 100));
+        graph.removeNode(removedNode);
+        BufferedImage image = new BufferedImage(200, 200, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = image.createGraphics();
+
+        // when
+        graph.draw(graphics, Arrays.<INode>asList(draggedNode, removedNode), Collections.<IEdge>emptyList());
+        graphics.dispose();
+
+        // then
+        assertEquals(1, draggedNode.drawCount);
+        assertEquals(0, staticNode.drawCount);
+        assertEquals(0, removedNode.drawCount);
+    }
+
+    private void drawWithClip(Rectangle clip)
+    {
+        BufferedImage image = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setClip(clip);
+        graph.draw(graphics);
+        graphics.dispose();
+    }
+}
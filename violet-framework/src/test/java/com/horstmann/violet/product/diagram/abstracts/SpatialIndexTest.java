@@ -0,0 +1,92 @@
+package com.horstmann.violet.product.diagram.abstracts;
+
+import java.awt.geom.Rectangle2D;
+import java.util.Set;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SpatialIndexTest
+{
+    private SpatialIndex<String> index;
+
+    @Before
+    public void setUp()
+    {
+        index = new SpatialIndex<String>(100);
+    }
+
+    @Test
+    public void shouldFindElementsAroundAPoint()
+    {
+        // given
+        index.put("first", new Rectangle2D.Double(10, 10, 50, 50));
+        index.put("second", new Rectangle2D.Double(500, 500, 50, 50));
+
+        // when
+        Set<String> found = index.query(new Rectangle2D.Double(30, 30, 0, 0));
+
+        // then
+        assertEquals(1, found.size());
+        assertTrue(found.contains("first"));
+    }
+
+    @Test
+    public void shouldFindElementsOverlappingSeveralCells()
+    {
+        // given
+        index.put("wide", new Rectangle2D.Double(-150, 20, 600, 10));
+
+        // then
+        assertTrue(index.query(new Rectangle2D.Double(-120, 25, 1, 1)).contains("wide"));
+        assertTrue(index.query(new Rectangle2D.Double(420, 25, 1, 1)).contains("wide"));
+        assertFalse(index.query(new Rectangle2D.Double(420, 250, 1, 1)).contains("wide"));
+    }
+
+    @Test
+    public void shouldUpdateMovedElements()
+    {
+        // given
+        index.put("moving", new Rectangle2D.Double(10, 10, 50, 50));
+
+        // when
+        index.put("moving", new Rectangle2D.Double(1010, 1010, 50, 50));
+
+        // then
+        assertEquals(1, index.size());
+        assertTrue(index.query(new Rectangle2D.Double(0, 0, 100, 100)).isEmpty());
+        assertTrue(index.query(new Rectangle2D.Double(1000, 1000, 100, 100)).contains("moving"));
+    }
+
+    @Test
+    public void shouldForgetRemovedElements()
+    {
+        // given
+        index.put("removed", new Rectangle2D.Double(10, 10, 50, 50));
+
+        // when
+        index.remove("removed");
+
+        // then
+        assertFalse(index.contains("removed"));
+        assertTrue(index.query(new Rectangle2D.Double(0, 0, 100, 100)).isEmpty());
+    }
+
+    @Test
+    public void shouldHandleHugeElementsAndAreas()
+    {
+        // given
+        index.put("huge", new Rectangle2D.Double(0, 0, 100000, 100000));
+        index.put("small", new Rectangle2D.Double(200, 200, 10, 10));
+
+        // when
+        Set<String> found = index.query(new Rectangle2D.Double(-1e9, -1e9, 2e9, 2e9));
+
+        // then
+        assertEquals(2, found.size());
+        assertTrue(index.query(new Rectangle2D.Double(50000, 50000, 0, 0)).contains("huge"));
+    }
+}
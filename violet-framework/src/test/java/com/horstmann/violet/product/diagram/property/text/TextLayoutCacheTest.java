@@ -0,0 +1,63 @@
+package com.horstmann.violet.product.diagram.property.text;
+
+import java.awt.Dimension;
+import javax.swing.JLabel;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class TextLayoutCacheTest
+{
+    @Test
+    public void shouldMeasureDecoratedTextLikeHtmlLabel()
+    {
+        String[] markups = { "Hello World", "<b>Name</b>", "<i>abstract</i> <u>static</u>", "«interface»<br><b>Shape</b>",
+                "<font size=+1>Big</font> <font size=-2>small</font>", " + getName() : String " };
+        for (String markup : markups)
+        {
+            // given
+            JLabel label = new JLabel("<html>" + markup + "<html>");
+
+            // when
+            TextLayoutCache.Layout layout = TextLayoutCache.get(markup, label.getFont());
+
+            // then
+            Dimension expected = label.getPreferredSize();
+            assertNotNull(markup, layout);
+            assertEquals(markup, expected.width, layout.getWidth());
+            assertEquals(markup, expected.height, layout.getHeight());
+        }
+    }
+
+    @Test
+    public void shouldLeaveUnknownMarkupToHtmlLabel()
+    {
+        JLabel label = new JLabel();
+        assertNull(TextLayoutCache.get("List<String>", label.getFont()));
+        assertNull(TextLayoutCache.get("a &lt; b", label.getFont()));
+        assertNull(TextLayoutCache.get("<b>unbalanced</b></b>", label.getFont()));
+    }
+
+    @Test
+    public void shouldShareLayouts()
+    {
+        JLabel label = new JLabel();
+        assertSame(TextLayoutCache.get("<b>Shared</b>", label.getFont()), TextLayoutCache.get("<b>Shared</b>", label.getFont()));
+    }
+
+    @Test
+    public void shouldKeepHtmlText()
+    {
+        // given
+        SingleLineText text = new SingleLineText();
+
+        // when
+        text.setText("<<interface>>");
+
+        // then
+        assertEquals("<html>«interface»<html>", text.getText());
+    }
+}
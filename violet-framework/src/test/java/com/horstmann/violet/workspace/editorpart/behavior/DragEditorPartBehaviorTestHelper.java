@@ -37,8 +37,12 @@ final class DragEditorPartBehaviorTestHelper
      */
     static Workspace initWorkspace()
     {
-        final IUserPreferencesDao userPreferencesDao = new DefaultUserPreferencesDao();
-        BeanFactory.getFactory().register(IUserPreferencesDao.class, userPreferencesDao);
+        // Other tests of the same run may have registered it
+        if (!BeanFactory.getFactory().contains(IUserPreferencesDao.class))
+        {
+            final IUserPreferencesDao userPreferencesDao = new DefaultUserPreferencesDao();
+            BeanFactory.getFactory().register(IUserPreferencesDao.class, userPreferencesDao);
+        }
 
         final ThemeManager themeManager = new ThemeManager();
         final ITheme theme = new ClassicMetalTheme();
@@ -48,8 +52,12 @@ final class DragEditorPartBehaviorTestHelper
         BeanFactory.getFactory().register(ThemeManager.class, themeManager);
         themeManager.applyPreferedTheme();
 
-        final DialogFactory dialogFactory = new DialogFactory(DialogFactoryMode.INTERNAL);
-        BeanFactory.getFactory().register(DialogFactory.class, dialogFactory);
+        // Other tests of the same run may have registered it
+        if (!BeanFactory.getFactory().contains(DialogFactory.class))
+        {
+            final DialogFactory dialogFactory = new DialogFactory(DialogFactoryMode.INTERNAL);
+            BeanFactory.getFactory().register(DialogFactory.class, dialogFactory);
+        }
 
         final GraphFile graphFile = mock(GraphFile.class);
         final IGraph graph = mock(IGraph.class);
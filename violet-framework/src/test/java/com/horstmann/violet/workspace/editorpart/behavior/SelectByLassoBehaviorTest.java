@@ -0,0 +1,108 @@
+package com.horstmann.violet.workspace.editorpart.behavior;
+
+import com.horstmann.violet.product.diagram.abstracts.IGraph;
+import com.horstmann.violet.product.diagram.abstracts.IGridSticker;
+import com.horstmann.violet.product.diagram.abstracts.edge.IEdge;
+import com.horstmann.violet.product.diagram.abstracts.node.INode;
+import com.horstmann.violet.workspace.editorpart.EditorPartSelectionHandler;
+import com.horstmann.violet.workspace.editorpart.IEditorPart;
+import com.horstmann.violet.workspace.sidebar.graphtools.GraphTool;
+import com.horstmann.violet.workspace.sidebar.graphtools.IGraphToolsBar;
+import java.awt.event.MouseEvent;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.util.Collections;
+import javax.swing.JPanel;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Nested nodes are caught by the lasso according to where they are on the graph, not to their bounds relative to
+ * their parent
+ */
+public class SelectByLassoBehaviorTest
+{
+    private EditorPartSelectionHandler selectionHandler;
+
+    private SelectByLassoBehavior behavior;
+
+    private INode child;
+
+    @Before
+    public void setUp()
+    {
+        child = mock(INode.class);
+        when(child.getBounds()).thenReturn(new Rectangle2D.Double(0, 0, 20, 20));
+        when(child.getLocationOnGraph()).thenReturn(new Point2D.Double(200, 200));
+        final IGridSticker gridSticker = mock(IGridSticker.class);
+        when(gridSticker.snap(any(Point2D.class))).thenAnswer(invocation -> invocation.getArguments()[0]);
+        final IGraph graph = mock(IGraph.class);
+        when(graph.getGridSticker()).thenReturn(gridSticker);
+        when(graph.findNodes(any(Rectangle2D.class))).thenReturn(Collections.singletonList(child));
+        when(graph.findEdges(any(Rectangle2D.class))).thenReturn(Collections.<IEdge>emptyList());
+        selectionHandler = new EditorPartSelectionHandler();
+        final IEditorPart editorPart = mock(IEditorPart.class);
+        when(editorPart.getGraph()).thenReturn(graph);
+        when(editorPart.getSelectionHandler()).thenReturn(selectionHandler);
+        when(editorPart.getZoomFactor()).thenReturn(1.0);
+        when(editorPart.getSwingComponent()).thenReturn(new JPanel());
+        final IGraphToolsBar graphToolsBar = mock(IGraphToolsBar.class);
+        when(graphToolsBar.getSelectedTool()).thenReturn(GraphTool.SELECTION_TOOL);
+        behavior = new SelectByLassoBehavior(editorPart, graphToolsBar);
+    }
+
+    @Test
+    public void shouldSelectNestedNodeInsideLassoOnGraph()
+    {
+        // given
+        behavior.onMousePressed(createMouseEvent(190, 190));
+
+        // when
+        behavior.onMouseDragged(createMouseEvent(230, 230));
+
+        // then
+        assertThat(selectionHandler.getSelectedNodes()).containsExactly(child);
+    }
+
+    @Test
+    public void shouldNotSelectNestedNodeWhoseRelativeBoundsAreInsideLasso()
+    {
+        // given
+        behavior.onMousePressed(createMouseEvent(0, 0));
+
+        // when
+        behavior.onMouseDragged(createMouseEvent(30, 30));
+
+        // then
+        assertThat(selectionHandler.getSelectedNodes()).isEmpty();
+    }
+
+    @Test
+    public void shouldUnselectNestedNodeLeftOutOfLasso()
+    {
+        // given
+        behavior.onMousePressed(createMouseEvent(190, 190));
+        behavior.onMouseDragged(createMouseEvent(230, 230));
+
+        // when
+        behavior.onMouseDragged(createMouseEvent(210, 210));
+
+        // then
+        assertThat(selectionHandler.getSelectedNodes()).isEmpty();
+    }
+
+    private static MouseEvent createMouseEvent(final int x, final int y)
+    {
+        final MouseEvent mouseEvent = mock(MouseEvent.class);
+        when(mouseEvent.getButton()).thenReturn(MouseEvent.BUTTON1);
+        when(mouseEvent.getClickCount()).thenReturn(1);
+        when(mouseEvent.getX()).thenReturn(x);
+        when(mouseEvent.getY()).thenReturn(y);
+        return mouseEvent;
+    }
+}
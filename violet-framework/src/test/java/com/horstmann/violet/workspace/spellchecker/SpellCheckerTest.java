@@ -1,5 +1,8 @@
 package com.horstmann.violet.workspace.spellchecker;
 
+import com.horstmann.violet.product.diagram.property.text.SingleLineText;
+import java.util.Arrays;
+import java.util.List;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -23,4 +26,13 @@ public class SpellCheckerTest {
         Assert.assertTrue(result);
     }
 
-}
\ No newline at end of file
+    @Test
+    public void shouldReturnMisspelledWordsOfWholeText() throws Exception {
+
+        final SingleLineText text = new SingleLineText();
+        text.setText("SomethinfGood another wrnog");
+        final List<String> result = SpellChecker.getMisspelledWords(text);
+        Assert.assertEquals(Arrays.asList("Somethinf", "wrnog"), result);
+    }
+
+}
@@ -0,0 +1,254 @@
+package com.horstmann.violet.product.diagram.classes;
+
+import com.horstmann.violet.framework.file.persistence.ChangeJournal;
+import com.horstmann.violet.product.diagram.abstracts.IGraph;
+import com.horstmann.violet.product.diagram.abstracts.edge.IEdge;
+import com.horstmann.violet.product.diagram.abstracts.node.INode;
+import com.horstmann.violet.product.diagram.classes.edge.DependencyEdge;
+import com.horstmann.violet.product.diagram.classes.node.ClassNode;
+import com.horstmann.violet.product.diagram.classes.node.PackageNode;
+import com.horstmann.violet.product.diagram.property.text.LineText;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+/**
+ * Replays change journals of class diagrams, which have nodes inside nodes
+ */
+public class ClassDiagramChangeJournalTest
+{
+    private ClassDiagramGraph graph;
+
+    private ChangeJournal journal;
+
+    private File journalFile;
+
+    @Before
+    public void setUp() throws IOException
+    {
+        graph = new ClassDiagramGraph();
+        journal = new ChangeJournal(graph);
+        journalFile = File.createTempFile("violet", ".journal");
+    }
+
+    @After
+    public void tearDown()
+    {
+        journalFile.delete();
+    }
+
+    @Test
+    public void shouldRebuildGraphFromSnapshotAndChanges() throws IOException
+    {
+        // given
+        ClassNode firstClass = addNode(new ClassNode(), null, 10, 10);
+        writeRecord();
+        PackageNode aPackage = addNode(new PackageNode(), null, 300, 10);
+        ClassNode secondClass = addNode(new ClassNode(), aPackage, 320, 60);
+        connect(firstClass, secondClass);
+        writeRecord();
+
+        // when
+        firstClass.setLocation(new Point2D.Double(40, 200));
+        firstClass.getName().setText("Renamed");
+        journal.elementChanged(firstClass);
+        writeRecord();
+
+        // then
+        IGraph replayedGraph = readJournal();
+        assertThat(describe(replayedGraph)).isEqualTo(describe(graph));
+    }
+
+    @Test
+    public void shouldIgnoreTruncatedTrailingRecord() throws IOException
+    {
+        // given
+        ClassNode firstClass = addNode(new ClassNode(), null, 10, 10);
+        writeRecord();
+        List<String> expectedElements = describe(graph);
+        long lengthBeforeLastRecord = journalFile.length();
+        firstClass.setLocation(new Point2D.Double(500, 500));
+        journal.elementChanged(firstClass);
+        writeRecord();
+
+        // when
+        RandomAccessFile file = new RandomAccessFile(journalFile, "rw");
+        try
+        {
+            file.setLength(journalFile.length() - 3);
+        }
+        finally
+        {
+            file.close();
+        }
+
+        // then
+        assertThat(journalFile.length()).isGreaterThan(lengthBeforeLastRecord);
+        assertThat(describe(readJournal())).isEqualTo(expectedElements);
+    }
+
+    @Test
+    public void shouldIgnoreCorruptedTrailingRecord() throws IOException
+    {
+        // given
+        ClassNode firstClass = addNode(new ClassNode(), null, 10, 10);
+        writeRecord();
+        List<String> expectedElements = describe(graph);
+        addNode(new ClassNode(), null, 300, 10);
+        firstClass.setLocation(new Point2D.Double(500, 500));
+        journal.elementChanged(firstClass);
+        writeRecord();
+
+        // when
+        RandomAccessFile file = new RandomAccessFile(journalFile, "rw");
+        try
+        {
+            file.seek(journalFile.length() - 10);
+            int aByte = file.read();
+            file.seek(journalFile.length() - 10);
+            file.write(aByte ^ 0xFF);
+        }
+        finally
+        {
+            file.close();
+        }
+
+        // then
+        assertThat(describe(readJournal())).isEqualTo(expectedElements);
+    }
+
+    @Test
+    public void shouldRemoveNodeWithItsChildrenAndEdges() throws IOException
+    {
+        // given
+        ClassNode outsideClass = addNode(new ClassNode(), null, 10, 10);
+        PackageNode aPackage = addNode(new PackageNode(), null, 300, 10);
+        ClassNode firstInsideClass = addNode(new ClassNode(), aPackage, 320, 60);
+        addNode(new ClassNode(), aPackage, 320, 115);
+        connect(outsideClass, firstInsideClass);
+        writeRecord();
+
+        // when
+        List<INode> removedNodes = new ArrayList<INode>(aPackage.getChildren());
+        removedNodes.add(aPackage);
+        List<IEdge> removedEdges = new ArrayList<IEdge>(graph.getAllEdges());
+        graph.removeNode(aPackage);
+        for (INode aNode : removedNodes)
+        {
+            journal.elementRemoved(aNode);
+        }
+        for (IEdge anEdge : removedEdges)
+        {
+            journal.elementRemoved(anEdge);
+        }
+        journal.elementChanged(outsideClass);
+        writeRecord();
+
+        // then
+        IGraph replayedGraph = readJournal();
+        assertThat(replayedGraph.getAllNodes()).hasSize(1);
+        assertThat(replayedGraph.getAllEdges()).isEmpty();
+        assertThat(describe(replayedGraph)).isEqualTo(describe(graph));
+    }
+
+    @Test
+    public void shouldDropChangesWhoseSnapshotWasNotWritten() throws IOException
+    {
+        // given
+        addNode(new ClassNode(), null, 10, 10);
+        writeRecord();
+        List<String> expectedElements = describe(graph);
+        long expectedLength = journalFile.length();
+        journal.markAllChanged();
+        ChangeJournal.Record failingSnapshot = journal.takeRecord();
+        addNode(new ClassNode(), null, 300, 10);
+        ChangeJournal.Record changesOnFailingSnapshot = journal.takeRecord();
+
+        // when
+        try
+        {
+            failingSnapshot.write(new File(journalFile.getPath() + ".missing", "journal"));
+        }
+        catch (IOException e)
+        {
+            // The directory doesn't exist
+        }
+        changesOnFailingSnapshot.write(journalFile);
+
+        // then
+        assertThat(journalFile.length()).isEqualTo(expectedLength);
+        assertThat(describe(readJournal())).isEqualTo(expectedElements);
+        writeRecord();
+        assertThat(describe(readJournal())).isEqualTo(describe(graph));
+    }
+
+    /**
+     * Adds a node as the editor does and marks it, with its parent
+     */
+    private <T extends INode> T addNode(T node, INode parent, double x, double y)
+    {
+        assertThat(graph.addNode(node, new Point2D.Double(x, y))).isTrue();
+        assertThat(node.getParent()).isSameAs(parent);
+        journal.elementChanged(node);
+        if (parent != null)
+        {
+            journal.elementChanged(parent);
+        }
+        return node;
+    }
+
+    private void connect(INode startNode, INode endNode)
+    {
+        DependencyEdge edge = new DependencyEdge();
+        Point2D startPoint = startNode.getLocationOnGraph();
+        Point2D endPoint = endNode.getLocationOnGraph();
+        assertThat(graph.connect(edge, startNode, startPoint, endNode, endPoint, new Point2D[0])).isTrue();
+        journal.elementChanged(edge);
+        journal.elementChanged(startNode);
+        journal.elementChanged(endNode);
+    }
+
+    private void writeRecord() throws IOException
+    {
+        ChangeJournal.Record record = journal.takeRecord();
+        assertThat(record).isNotNull();
+        record.write(journalFile);
+    }
+
+    private IGraph readJournal() throws IOException
+    {
+        return ChangeJournal.read(new FileInputStream(journalFile));
+    }
+
+    /**
+     * @return sorted description of the nodes and edges of a graph, by id
+     */
+    private static List<String> describe(IGraph graph)
+    {
+        List<String> result = new ArrayList<String>();
+        for (INode aNode : graph.getAllNodes())
+        {
+            LineText name = aNode.getName();
+            result.add(aNode.getId().getValue() + " " + aNode.getClass().getSimpleName() + " parent="
+                    + (aNode.getParent() == null ? null : aNode.getParent().getId().getValue()) + " location="
+                    + aNode.getLocation() + " name=" + (name == null ? null : name.toEdit()));
+        }
+        for (IEdge anEdge : graph.getAllEdges())
+        {
+            result.add(anEdge.getId().getValue() + " " + anEdge.getClass().getSimpleName() + " "
+                    + anEdge.getStartNode().getId().getValue() + "->" + anEdge.getEndNode().getId().getValue());
+        }
+        Collections.sort(result);
+        return result;
+    }
+}
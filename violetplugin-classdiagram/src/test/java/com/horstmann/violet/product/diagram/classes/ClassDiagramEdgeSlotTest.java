@@ -0,0 +1,120 @@
+package com.horstmann.violet.product.diagram.classes;
+
+import com.horstmann.violet.framework.file.persistence.GraphTestHelper;
+import com.horstmann.violet.product.diagram.abstracts.edge.IEdge;
+import com.horstmann.violet.product.diagram.abstracts.node.INode;
+import com.horstmann.violet.product.diagram.classes.edge.DependencyEdge;
+import com.horstmann.violet.product.diagram.classes.node.ClassNode;
+import java.awt.Graphics2D;
+import java.awt.geom.Point2D;
+import java.awt.image.BufferedImage;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+/**
+ * Edges connected to the same side of a node are spread along it
+ */
+public class ClassDiagramEdgeSlotTest
+{
+    private ClassDiagramGraph graph;
+
+    private ClassNode startNode;
+
+    private ClassNode endNode;
+
+    @BeforeClass
+    public static void setUpTheme()
+    {
+        GraphTestHelper.setUpTheme();
+    }
+
+    @Before
+    public void setUp()
+    {
+        graph = new ClassDiagramGraph();
+        startNode = new ClassNode();
+        endNode = new ClassNode();
+        graph.addNode(startNode, new Point2D.Double(0, 0));
+        graph.addNode(endNode, new Point2D.Double(400, 0));
+    }
+
+    @Test
+    public void shouldSpreadEdgesWhenOneIsAddedOrRemoved()
+    {
+        // given
+        IEdge firstEdge = connect();
+        Point2D aloneConnectionPoint = startNode.getConnectionPoint(firstEdge);
+
+        // when
+        IEdge secondEdge = connect();
+        Point2D sharedConnectionPoint = startNode.getConnectionPoint(firstEdge);
+        graph.removeEdge(secondEdge);
+
+        // then
+        assertThat(sharedConnectionPoint).isNotEqualTo(aloneConnectionPoint);
+        assertThat(startNode.getConnectionPoint(secondEdge)).isNotEqualTo(sharedConnectionPoint);
+        assertThat(startNode.getConnectionPoint(firstEdge)).isEqualTo(aloneConnectionPoint);
+    }
+
+    @Test
+    public void shouldMoveConnectionPointWithNode()
+    {
+        // given
+        IEdge edge = connect();
+        Point2D connectionPoint = startNode.getConnectionPoint(edge);
+
+        // when
+        startNode.setLocation(new Point2D.Double(0, 50));
+
+        // then
+        assertThat(startNode.getConnectionPoint(edge))
+                .isEqualTo(new Point2D.Double(connectionPoint.getX(), connectionPoint.getY() + 50));
+    }
+
+    @Test
+    public void shouldReorderEdgesWhenNodeAtTheOtherEndMoves()
+    {
+        // given
+        ClassNode otherNode = new ClassNode();
+        graph.addNode(otherNode, new Point2D.Double(400, 150));
+        IEdge firstEdge = connect();
+        IEdge secondEdge = connect(otherNode);
+        draw();
+        double gap = startNode.getConnectionPoint(firstEdge).getY() - startNode.getConnectionPoint(secondEdge).getY();
+
+        // when
+        endNode.setLocation(new Point2D.Double(400, 300));
+        draw();
+
+        // then
+        double movedGap = startNode.getConnectionPoint(firstEdge).getY() - startNode.getConnectionPoint(secondEdge).getY();
+        assertThat(gap).isNotZero();
+        assertThat(Math.signum(movedGap)).isEqualTo(-Math.signum(gap));
+    }
+
+    private IEdge connect()
+    {
+        return connect(endNode);
+    }
+
+    private IEdge connect(INode end)
+    {
+        DependencyEdge edge = new DependencyEdge();
+        assertThat(graph.connect(edge, startNode, new Point2D.Double(10, 10), end, new Point2D.Double(10, 10),
+                new Point2D[0])).isTrue();
+        return edge;
+    }
+
+    /**
+     * Draws the graph as the editor does, which updates the edge paths
+     */
+    private void draw()
+    {
+        Graphics2D g2 = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB).createGraphics();
+        graph.draw(g2);
+        g2.dispose();
+    }
+}
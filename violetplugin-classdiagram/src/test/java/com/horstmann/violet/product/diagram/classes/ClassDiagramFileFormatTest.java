@@ -0,0 +1,69 @@
+package com.horstmann.violet.product.diagram.classes;
+
+import com.horstmann.violet.framework.file.persistence.BinaryFilePersistenceService;
+import com.horstmann.violet.framework.file.persistence.FileFormatSelector;
+import com.horstmann.violet.framework.file.persistence.IFilePersistenceService;
+import com.horstmann.violet.framework.file.persistence.XStreamBasedPersistenceService;
+import com.horstmann.violet.product.diagram.abstracts.IGraph;
+import com.horstmann.violet.product.diagram.classes.node.ClassNode;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.awt.geom.Point2D;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+/**
+ * Diagram files are read and written in the format given by their extension
+ */
+public class ClassDiagramFileFormatTest
+{
+    private FileFormatSelector selector;
+
+    private ClassDiagramGraph graph;
+
+    @Before
+    public void setUp()
+    {
+        selector = new FileFormatSelector(new XStreamBasedPersistenceService());
+        graph = new ClassDiagramGraph();
+        graph.addNode(new ClassNode(), new Point2D.Double(10, 20));
+    }
+
+    @Test
+    public void shouldWriteBinaryDiagramsOnlyWithBinaryExtension() throws Exception
+    {
+        // when
+        final byte[] binaryContent = write("diagram" + BinaryFilePersistenceService.FILE_EXTENSION);
+        final byte[] xmlContent = write("diagram.class.violet.html");
+
+        // then
+        assertThat(new String(binaryContent, 0, 4, "ISO-8859-1")).isEqualTo("VLTB");
+        // Short or full class name, whether the plugin is registered or not
+        assertThat(new String(xmlContent, "UTF-8")).startsWith("<").contains("ClassDiagramGraph id=\"1\"");
+    }
+
+    @Test
+    public void shouldReadDiagramFromItsExtension() throws Exception
+    {
+        // given
+        final byte[] binaryContent = write("diagram" + BinaryFilePersistenceService.FILE_EXTENSION);
+
+        // when
+        final IGraph readGraph = selector.read("DIAGRAM.VIOLET.BIN", new ByteArrayInputStream(binaryContent));
+
+        // then
+        assertThat(readGraph).isInstanceOf(ClassDiagramGraph.class);
+        assertThat(readGraph.getAllNodes()).hasSize(1);
+        assertThat(readGraph.getAllNodes().iterator().next().getLocation()).isEqualTo(new Point2D.Double(10, 20));
+    }
+
+    private byte[] write(String filename)
+    {
+        final IFilePersistenceService persistenceService = selector.getPersistenceService(filename);
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        persistenceService.write(graph, out);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,11 @@
+package com.horstmann.violet.product.diagram.classes;
+
+import com.horstmann.violet.framework.file.persistence.AbstractSampleFileTest;
+
+public class ClassDiagramSampleFileTest extends AbstractSampleFileTest
+{
+    public ClassDiagramSampleFileTest()
+    {
+        super(new ClassDiagramPlugin(), "/sample.class.violet.html");
+    }
+}
@@ -33,6 +33,7 @@ import com.horstmann.violet.framework.graphics.content.*;
 import com.horstmann.violet.framework.graphics.shape.ContentInsideRectangle;
 import com.horstmann.violet.framework.util.LifelineNodeMemento;
 import com.horstmann.violet.framework.util.MementoCaretaker;
+import com.horstmann.violet.product.diagram.abstracts.IGraph;
 import com.horstmann.violet.product.diagram.abstracts.edge.IEdge;
 import com.horstmann.violet.product.diagram.abstracts.node.AbstractNode;
 import com.horstmann.violet.product.diagram.abstracts.node.INode;
@@ -179,6 +180,26 @@ public class LifelineNode extends ColorableNode implements IRevertableProperties
         return new Rectangle2D.Double(bounds.getX(), bounds.getY(), bounds.getWidth(), getMaxYOverAllLifeLineNodes()-bounds.getY());
     }
 
+    /**
+     * Lifelines go down as far as the longest one : all of them change with this one
+     */
+    @Override
+    protected void onContentSizeChanged()
+    {
+        IGraph graph = getGraph();
+        if (null == graph)
+        {
+            return;
+        }
+        for (INode node : graph.getAllNodes())
+        {
+            if (node instanceof LifelineNode)
+            {
+                ((LifelineNode) node).fireBoundsChanged();
+            }
+        }
+    }
+
     @Override
     public void removeChild(INode node)
     {
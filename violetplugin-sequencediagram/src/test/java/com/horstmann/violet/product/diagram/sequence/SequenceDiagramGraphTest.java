@@ -0,0 +1,97 @@
+package com.horstmann.violet.product.diagram.sequence;
+
+import com.horstmann.violet.product.diagram.abstracts.node.INode;
+import com.horstmann.violet.product.diagram.sequence.edge.SynchronousCallEdge;
+import com.horstmann.violet.product.diagram.sequence.node.ActivationBarNode;
+import com.horstmann.violet.product.diagram.sequence.node.LifelineNode;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+public class SequenceDiagramGraphTest
+{
+    private SequenceDiagramGraph graph;
+
+    private LifelineNode caller;
+
+    private LifelineNode callee;
+
+    @Before
+    public void setUp()
+    {
+        graph = new SequenceDiagramGraph();
+        caller = new LifelineNode();
+        callee = new LifelineNode();
+        graph.addNode(caller, new Point2D.Double(0, 0));
+        graph.addNode(callee, new Point2D.Double(300, 0));
+    }
+
+    @Test
+    public void shouldIndexActivationBarsWhichLayOutInGetBounds()
+    {
+        // given
+        ActivationBarNode callingBar = addActivationBar(caller, 80);
+        ActivationBarNode calledBar = addActivationBar(callee, 80);
+
+        // when
+        SynchronousCallEdge call = new SynchronousCallEdge();
+        graph.connect(call, callingBar, getCenter(callingBar), calledBar, getCenter(calledBar), new Point2D[0]);
+
+        // then
+        assertThat(graph.getAllEdges()).contains(call);
+        for (INode aNode : graph.getAllNodes())
+        {
+            assertThat(graph.findNodes(getBoundsOnGraph(aNode))).contains(aNode);
+        }
+        assertThat(graph.findNode(getCenter(callingBar))).isSameAs(callingBar);
+    }
+
+    @Test
+    public void shouldIndexNestedActivationBars()
+    {
+        // given
+        ActivationBarNode outerBar = addActivationBar(caller, 80);
+        ActivationBarNode innerBar = new ActivationBarNode();
+        assertThat(graph.addNode(innerBar, getCenter(outerBar))).isTrue();
+        ActivationBarNode calledBar = addActivationBar(callee, 80);
+        graph.connect(new SynchronousCallEdge(), innerBar, getCenter(innerBar), calledBar, getCenter(calledBar),
+                new Point2D[0]);
+
+        // when
+        caller.setLocation(new Point2D.Double(0, 450));
+
+        // then
+        assertThat(innerBar.getParent()).isSameAs(outerBar);
+        for (INode aNode : graph.getAllNodes())
+        {
+            assertThat(graph.findNodes(getBoundsOnGraph(aNode))).contains(aNode);
+        }
+    }
+
+    private ActivationBarNode addActivationBar(LifelineNode lifeline, double y)
+    {
+        ActivationBarNode bar = new ActivationBarNode();
+        Point2D lifelineLocation = lifeline.getLocationOnGraph();
+        Rectangle2D lifelineBounds = lifeline.getBounds();
+        boolean isAdded = graph.addNode(bar, new Point2D.Double(lifelineLocation.getX() + lifelineBounds.getWidth() / 2,
+                lifelineLocation.getY() + y));
+        assertThat(isAdded).isTrue();
+        return bar;
+    }
+
+    private static Point2D getCenter(INode node)
+    {
+        Rectangle2D bounds = getBoundsOnGraph(node);
+        return new Point2D.Double(bounds.getCenterX(), bounds.getCenterY());
+    }
+
+    private static Rectangle2D getBoundsOnGraph(INode node)
+    {
+        Rectangle2D bounds = node.getBounds();
+        Point2D location = node.getLocationOnGraph();
+        return new Rectangle2D.Double(location.getX(), location.getY(), bounds.getWidth(), bounds.getHeight());
+    }
+}
@@ -0,0 +1,11 @@
+package com.horstmann.violet.product.diagram.sequence;
+
+import com.horstmann.violet.framework.file.persistence.AbstractSampleFileTest;
+
+public class SequenceDiagramSampleFileTest extends AbstractSampleFileTest
+{
+    public SequenceDiagramSampleFileTest()
+    {
+        super(new SequenceDiagramPlugin(), "/sample.seq.violet.html");
+    }
+}
@@ -76,6 +76,8 @@ public class VioletUMLEditor extends EditorPart
     {
 		this.fileChooserService.changeProgressMonitor(monitor);
 		this.getUMLDiagramPanel().getGraphFile().save();
+		// Eclipse expects the file to be written when this method returns
+		this.getUMLDiagramPanel().getGraphFile().waitForPendingSaves();
 		firePropertyChange(EditorPart.PROP_DIRTY);
     }
 
@@ -31,8 +31,10 @@ import com.horstmann.violet.framework.file.IGraphFile;
 import com.horstmann.violet.framework.file.LocalFile;
 import com.horstmann.violet.framework.file.chooser.IFileChooserService;
 import com.horstmann.violet.framework.file.chooser.JFileChooserService;
+import com.horstmann.violet.framework.file.export.BatchExportService;
 import com.horstmann.violet.framework.file.persistence.IFilePersistenceService;
 import com.horstmann.violet.framework.file.persistence.XHTMLPersistenceService;
+import com.horstmann.violet.framework.file.persistence.XStreamBasedPersistenceService;
 import com.horstmann.violet.framework.injection.bean.ManiocFramework.BeanFactory;
 import com.horstmann.violet.framework.injection.bean.ManiocFramework.BeanInjector;
 import com.horstmann.violet.framework.injection.bean.ManiocFramework.InjectedBean;
@@ -51,13 +53,26 @@ import com.horstmann.violet.framework.userpreferences.UserPreferencesService;
 import com.horstmann.violet.framework.util.VersionChecker;
 import com.horstmann.violet.workspace.IWorkspace;
 import com.horstmann.violet.workspace.Workspace;
+import java.awt.Component;
 import java.awt.Toolkit;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
 import javax.swing.JFrame;
+import javax.swing.SwingUtilities;
 
 /**
  * A program for editing UML diagrams.
@@ -83,22 +98,63 @@ public class UMLEditorApplication {
                 Locale.setDefault(Locale.ENGLISH);
                 System.out.println("Language forced to english.");
             }
+            if ("-export".equals(arg) && i + 2 < args.length) {
+                final List<File> filesToExport = new ArrayList<File>();
+                for (int j = i + 3; j < args.length; j++) {
+                    filesToExport.add(new File(args[j]));
+                }
+                System.exit(exportFiles(args[i + 1], new File(args[i + 2]), filesToExport) ? 0 : 1);
+            }
             if ("-help".equals(arg) || "-?".equals(arg)) {
                 System.out.println("Violet UML Editor command line help. Options are :");
                 System.out.println("-reset to reset user preferences,");
-                System.out.println("-english to force language to english.");
+                System.out.println("-english to force language to english,");
+                System.out.println("-export <png|pdf|jpg|bmp> <output directory> <files...> to export diagram files without opening the editor"
+                        + " (the number of files exported at the same time is set by -D" + EXPORT_WORKERS_PROPERTY + ").");
                 return;
             }
         }
         new UMLEditorApplication(args);
     }
 
+    /**
+     * Exports diagram files headless, then prints statistics
+     *
+     * @return true if all the files were exported
+     */
+    private static boolean exportFiles(final String format, final File outputDirectory, final List<File> files) {
+        System.setProperty("java.awt.headless", "true");
+        initBeanFactory();
+        BeanFactory.getFactory().getBean(PluginLoader.class).installPlugins();
+        final IFilePersistenceService filePersistenceService = BeanFactory.getFactory()
+                .getBean(IFilePersistenceService.class);
+        final int workerCount = Integer.getInteger(EXPORT_WORKERS_PROPERTY, Runtime.getRuntime().availableProcessors());
+        final BatchExportService batchExportService = new BatchExportService(filePersistenceService, format, workerCount);
+        outputDirectory.mkdirs();
+        try {
+            final long start = System.nanoTime();
+            final List<BatchExportService.Result> results = batchExportService.export(files, outputDirectory);
+            batchExportService.printStatistics(results, System.nanoTime() - start, System.out);
+            for (final BatchExportService.Result aResult : results) {
+                if (!aResult.isSuccessful()) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (final InterruptedException e) {
+            System.err.println("Export interrupted");
+            return false;
+        }
+    }
+
     /**
      * Default constructor
      */
     private UMLEditorApplication(final String[] filesToOpen) {
+        final long start = System.nanoTime();
         initBeanFactory();
         BeanInjector.getInjector().inject(this);
+        logStartupStage("beans and theme", start);
         createDefaultWorkspace(filesToOpen);
     }
     /**
@@ -121,7 +177,6 @@ public class UMLEditorApplication {
         themeList.add(theme4);
         themeList.add(theme5);
         themeManager.setInstalledThemes(themeList);
-        themeManager.applyPreferedTheme();
         BeanFactory.getFactory().register(ThemeManager.class, themeManager);
         themeManager.applyPreferedTheme();
         final LanguageManager languageManager = new LanguageManager();
@@ -143,50 +198,213 @@ public class UMLEditorApplication {
      * + jvm checking<br>
      * + command line args<br>
      * + last workspace restore<br>
+     * Plugins are installed and diagram files are read by background threads while the splash screen and the main frame are
+     * built. The main frame shows a loading tab per file, replaced by the diagram workspace as soon as its file is read. The
+     * diagram shown first (the first one given on the command line, else the last active one) is read first.
      */
     private void createDefaultWorkspace(final String[] filesToOpen) {
-        installPlugins();
-        final SplashScreen splashScreen = new SplashScreen();
-        splashScreen.setVisible(true);
-        this.versionChecker.checkJavaVersion();
-        final MainFrame mainFrame = new MainFrame();
-        mainFrame.setSize(Toolkit.getDefaultToolkit().getScreenSize());
-        mainFrame.setExtendedState(JFrame.MAXIMIZED_BOTH);
-        SplashScreen.displayOverEditor(mainFrame, 1000);
-        final List<IFile> fullList = new ArrayList<IFile>();
+        final ExecutorService startupExecutor = Executors.newFixedThreadPool(getStartupThreadCount(), new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable r) {
+                final Thread thread = new Thread(r, STARTUP_THREAD_NAME);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        final Future<?> pluginInstallation = startupExecutor.submit(new Runnable() {
+            @Override
+            public void run() {
+                final long start = System.nanoTime();
+                installPlugins();
+                logStartupStage("plugins", start);
+            }
+        });
         final List<IFile> lastSessionFiles = this.userPreferencesService
                 .getOpenedFilesDuringLastSession();
+        final List<IFile> fullList = new ArrayList<IFile>();
         fullList.addAll(lastSessionFiles);
+        IFile priorityFile = null;
         for (final String aFileToOpen : filesToOpen) {
             try {
                 final LocalFile localFile = new LocalFile(new File(aFileToOpen));
-                fullList.add(localFile);
+                final IFile alreadyListedFile = findFile(fullList, localFile);
+                if (alreadyListedFile == null) {
+                    fullList.add(localFile);
+                }
+                if (priorityFile == null) {
+                    priorityFile = alreadyListedFile != null ? alreadyListedFile : localFile;
+                }
             } catch (final IOException e) {
                 // There's nothing to do. We're starting the program
                 // Some logs should be nive
                 e.printStackTrace();
             }
         }
-        // Open files
-        for (final IFile aFile : lastSessionFiles) {
+        if (priorityFile == null) {
+            priorityFile = findFile(fullList, this.userPreferencesService.getActiveDiagramFile());
+        }
+        // The diagram shown first is read first
+        final List<IFile> loadingOrder = new ArrayList<IFile>(fullList);
+        if (priorityFile != null) {
+            loadingOrder.remove(priorityFile);
+            loadingOrder.add(0, priorityFile);
+        }
+        final CompletionService<IGraphFile> graphFileLoading = new ExecutorCompletionService<IGraphFile>(startupExecutor);
+        final Map<Future<IGraphFile>, IFile> filesByLoading = new HashMap<Future<IGraphFile>, IFile>();
+        for (final IFile aFile : loadingOrder) {
+            filesByLoading.put(graphFileLoading.submit(new Callable<IGraphFile>() {
+                @Override
+                public IGraphFile call() throws Exception {
+                    pluginInstallation.get();
+                    final long start = System.nanoTime();
+                    final IGraphFile graphFile = new GraphFile(aFile);
+                    logStartupStage("reading " + aFile.getFilename(), start);
+                    return graphFile;
+                }
+            }), aFile);
+        }
+        startupExecutor.submit(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                pluginInstallation.get();
+                final long start = System.nanoTime();
+                new XStreamBasedPersistenceService().prepare();
+                logStartupStage("persistence", start);
+                return null;
+            }
+        });
+        startupExecutor.shutdown();
+
+        long start = System.nanoTime();
+        final SplashScreen splashScreen = new SplashScreen();
+        splashScreen.setVisible(true);
+        this.versionChecker.checkJavaVersion();
+        logStartupStage("splash screen", start);
+        // Menus list the diagram types
+        waitFor(pluginInstallation);
+        start = System.nanoTime();
+        final MainFrame mainFrame = new MainFrame();
+        mainFrame.setSize(Toolkit.getDefaultToolkit().getScreenSize());
+        mainFrame.setExtendedState(JFrame.MAXIMIZED_BOTH);
+        SplashScreen.displayOverEditor(mainFrame, 1000);
+        final Map<IFile, Component> loadingTabs = new HashMap<IFile, Component>();
+        for (final IFile aFile : fullList) {
+            loadingTabs.put(aFile, mainFrame.addLoadingTab(aFile.getFilename(), aFile == priorityFile));
+        }
+        mainFrame.setVisible(true);
+        splashScreen.setVisible(false);
+        splashScreen.dispose();
+        logStartupStage("main frame", start);
+        // Open files as they are read
+        for (int i = 0; i < filesByLoading.size(); i++) {
+            final Future<IGraphFile> aLoading = takeNext(graphFileLoading);
+            final IFile aFile = filesByLoading.get(aLoading);
+            final Component loadingTab = loadingTabs.get(aFile);
             try {
-                final IGraphFile graphFile = new GraphFile(aFile);
-                final IWorkspace workspace = new Workspace(graphFile);
-                mainFrame.addWorkspace(workspace);
+                final IGraphFile graphFile = waitFor(aLoading);
+                final AtomicBoolean isShown = new AtomicBoolean();
+                SwingUtilities.invokeAndWait(new Runnable() {
+                    @Override
+                    public void run() {
+                        final IWorkspace workspace = new Workspace(graphFile);
+                        isShown.set(mainFrame.replaceLoadingTab(loadingTab, workspace));
+                    }
+                });
+                if (!isShown.get()) {
+                    // Closed while loading, like a diagram closed by the user
+                    userPreferencesService.removeOpenedFile(aFile);
+                } else if (!lastSessionFiles.contains(aFile)) {
+                    // Opened from the command line, like with the file menu
+                    userPreferencesService.addOpenedFile(graphFile);
+                    userPreferencesService.addRecentFile(graphFile);
+                }
             } catch (final Exception e) {
                 System.err.println(
                         "Unable to open file " + aFile.getFilename() + "from location " + aFile
                                 .getDirectory());
-                userPreferencesService.removeOpenedFile(aFile);
-                System.err.println("Removed from user preferences!");
+                SwingUtilities.invokeLater(new Runnable() {
+                    @Override
+                    public void run() {
+                        mainFrame.removeLoadingTab(loadingTab);
+                    }
+                });
+                if (lastSessionFiles.contains(aFile)) {
+                    userPreferencesService.removeOpenedFile(aFile);
+                    System.err.println("Removed from user preferences!");
+                }
             }
         }
-        final IFile activeFile = this.userPreferencesService.getActiveDiagramFile();
-        mainFrame.openActiveWorkspace(activeFile);
-        mainFrame.setVisible(true);
-        splashScreen.setVisible(false);
-        splashScreen.dispose();
-        SplashFrame splashFrame = new SplashFrame(mainFrame);
+        SwingUtilities.invokeLater(new Runnable() {
+            @Override
+            public void run() {
+                new SplashFrame(mainFrame);
+            }
+        });
+    }
+
+    /**
+     * @return the file of the list which has the same name and location than the given one (null if none)
+     */
+    private static IFile findFile(final List<IFile> files, final IFile file) {
+        if (file == null) {
+            return null;
+        }
+        for (final IFile aFile : files) {
+            if (aFile.getFilename().equals(file.getFilename()) && String.valueOf(aFile.getDirectory())
+                    .equals(String.valueOf(file.getDirectory()))) {
+                return aFile;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Waits for the next startup task to complete
+     *
+     * @return completed task
+     */
+    private static <T> Future<T> takeNext(final CompletionService<T> tasks) {
+        try {
+            return tasks.take();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Waits for a startup task
+     *
+     * @return task result
+     */
+    private static <T> T waitFor(final Future<T> task) {
+        try {
+            return task.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    /**
+     * @return number of threads installing plugins and reading last session files
+     */
+    private static int getStartupThreadCount() {
+        return Math.max(2, Math.min(Runtime.getRuntime().availableProcessors(), MAX_STARTUP_THREADS));
+    }
+
+    /**
+     * Prints how long a startup stage took, if asked with -D{@value #STARTUP_TIMING_PROPERTY}=true
+     */
+    private static void logStartupStage(final String stage, final long startNanos) {
+        if (Boolean.getBoolean(STARTUP_TIMING_PROPERTY)) {
+            System.out.println("Startup : " + stage + " took " + (System.nanoTime() - startNanos) / 1000000 + " ms");
+        }
     }
 
     /**
@@ -198,6 +416,16 @@ public class UMLEditorApplication {
     }
 
 
+    /** System property printing the duration of each startup stage when set to true */
+    private static final String STARTUP_TIMING_PROPERTY = "violet.startup.timing";
+
+    private static final int MAX_STARTUP_THREADS = 4;
+
+    private static final String STARTUP_THREAD_NAME = "Violet startup";
+
+    /** System property giving the number of files exported at the same time by -export */
+    private static final String EXPORT_WORKERS_PROPERTY = "violet.export.workers";
+
     @InjectedBean
     private VersionChecker versionChecker;
 
@@ -39,6 +39,10 @@ public class ApplicationStopper
         	{
         		workspace.getGraphFile().removeBackup();
         	}
+        	for (IWorkspace workspace: mainFrame.getWorkspaceList())
+        	{
+        		workspace.getGraphFile().waitForPendingSaves();
+        	}
             System.exit(0);
         }
     }
@@ -91,6 +95,15 @@ public class ApplicationStopper
                 {
                     aDirtyWorkspace.getGraphFile().save();
                 }
+                for (IWorkspace aDirtyWorkspace : dirtyWorkspaceList)
+                {
+                    aDirtyWorkspace.getGraphFile().waitForPendingSaves();
+                    if (aDirtyWorkspace.getGraphFile().isSaveRequired())
+                    {
+                        // Save failed, the error has been reported
+                        return false;
+                    }
+                }
                 this.userPreferencesService.setActiveDiagramFile(activeWorkspace.getGraphFile());
                 return true;
             }
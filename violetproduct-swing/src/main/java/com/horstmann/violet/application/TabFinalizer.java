@@ -87,8 +87,9 @@ public class TabFinalizer {
                 return false;
             case JOptionPane.YES_OPTION:
                 currentFile.save();
+                currentFile.waitForPendingSaves();
                 setActiveDiagramPreference();
-                return true;
+                return !currentFile.isSaveRequired();
             case JOptionPane.NO_OPTION:
                 setActiveDiagramPreference();
                 return true;
@@ -8,7 +8,12 @@ import com.horstmann.violet.application.gui.MainFrame;
 import com.horstmann.violet.framework.injection.bean.ManiocFramework.BeanInjector;
 import javax.swing.Timer;
 import com.horstmann.violet.framework.file.IGraphFile;
+import com.horstmann.violet.framework.file.persistence.ChangeJournal;
+import com.horstmann.violet.framework.file.persistence.JFileWriter;
 import com.horstmann.violet.workspace.IWorkspace;
+import com.horstmann.violet.workspace.editorpart.IEditorPart;
+import com.horstmann.violet.workspace.editorpart.IEditorPartBehaviorManager;
+import com.horstmann.violet.workspace.editorpart.behavior.ChangeJournalBehavior;
 
 public class AutoSave implements ActionListener
 {
@@ -17,6 +22,7 @@ public class AutoSave implements ActionListener
 	private int saveInterval;
 	private boolean autoSaveEnabled;
 	private String autoSaveDirectory;
+	private boolean incrementalAutoSave;
 	public static boolean isAutoSave;
 
 
@@ -79,7 +85,7 @@ public class AutoSave implements ActionListener
     }
 
     /**
-     * Remove Violet empty saves
+     * Remove Violet empty saves and the temporary files of autosaves interrupted by a crash
      */
     private void emptyFileRemove()
     {
@@ -89,7 +95,7 @@ public class AutoSave implements ActionListener
 
         for (File file : files)
         {
-            if (file.length() == 0)
+            if (file.length() == 0 || JFileWriter.isTemporaryFile(file))
                 file.delete();
 
         }
@@ -119,13 +125,42 @@ public class AutoSave implements ActionListener
             createVioletDirectory();
 
             IGraphFile graphFile = workspace.getGraphFile();
+            if (incrementalAutoSave)
+            {
+                trackChanges(workspace);
+            }
             if (graphFile.isSaveRequired())
             {
-                graphFile.autoSave(autoSaveDirectory);
+                if (incrementalAutoSave)
+                {
+                    graphFile.autoSaveChanges(autoSaveDirectory);
+                }
+                else
+                {
+                    graphFile.autoSave(autoSaveDirectory);
+                }
             }
         }
     }
     
+    /**
+     * Makes the editor of a workspace tell its change journal what is edited, once incremental autosave is on
+     *
+     * @param workspace
+     */
+    private void trackChanges(IWorkspace workspace)
+    {
+        IEditorPart editorPart = workspace.getEditorPart();
+        IEditorPartBehaviorManager behaviorManager = editorPart.getBehaviorManager();
+        if (behaviorManager.getBehaviors(ChangeJournalBehavior.class).isEmpty())
+        {
+            ChangeJournal changeJournal = workspace.getGraphFile().getChangeJournal();
+            behaviorManager.addBehavior(new ChangeJournalBehavior(editorPart, changeJournal));
+            // Edits made until now weren't tracked
+            changeJournal.markAllChanged();
+        }
+    }
+
     public void reloadSettings()
     {
     	loadSettings();
@@ -146,6 +181,7 @@ public class AutoSave implements ActionListener
 		{
 			saveInterval = settings.getAutosaveInterval();
 			autoSaveDirectory = settings.getAutosavePath();
+			incrementalAutoSave = settings.isIncrementalAutosave();
 
 			return true;
 		}
@@ -7,6 +7,7 @@ import com.horstmann.violet.framework.file.IGraphFile;
 import com.horstmann.violet.framework.file.LocalFile;
 import com.horstmann.violet.framework.file.persistence.IFileReader;
 import com.horstmann.violet.framework.file.persistence.JFileReader;
+import com.horstmann.violet.framework.file.persistence.JFileWriter;
 import com.horstmann.violet.framework.injection.bean.ManiocFramework;
 import com.horstmann.violet.framework.injection.resources.ResourceBundleInjector;
 import com.horstmann.violet.framework.injection.resources.annotation.ResourceBundleBean;
@@ -48,6 +49,12 @@ public class AutoSaveRecover extends JFrame
         File[] files = directory.listFiles();
 
         for (File file : files) {
+            if (JFileWriter.isTemporaryFile(file))
+            {
+                // Left by an interrupted autosave, the previous backup is still there
+                file.delete();
+                continue;
+            }
             try {
 
                 IFile autoSaveFile = new LocalFile(file);
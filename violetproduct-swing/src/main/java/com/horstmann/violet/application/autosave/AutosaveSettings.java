@@ -14,6 +14,7 @@ public class AutosaveSettings
     private static final String AUTOSAVE_ENABLED = "autosave_enabled";
     private static final String AUTOSAVE_INTERVAL = "autosave_interval";
     private static final String AUTOSAVE_PATH = "autosave_path";
+    private static final String AUTOSAVE_INCREMENTAL = "autosave_incremental";
     private static final String AUTOSAVE_CONFIGURATION_FILE = "config.properties";
     private Properties properties = new Properties();
     private InputStream input = null;
@@ -21,6 +22,7 @@ public class AutosaveSettings
     private boolean autosaveEnabled = false;
     private int autosaveInterval;
     private String autosavePath= "";
+    private boolean incrementalAutosave = false;
 
     /**
      * AutoSave settings
@@ -93,6 +95,24 @@ public class AutosaveSettings
         this.autosavePath = autosavePath;
     }
 
+    /**
+     * Check is incremental autosave (only the changes are appended to a journal file)
+     * @return boolean
+     */
+    public boolean isIncrementalAutosave()
+    {
+        return this.incrementalAutosave;
+    }
+
+    /**
+     * Set incremental autosave
+     * @param incremental autosave
+     */
+    public void setIncrementalAutosave(boolean incrementalAutosave)
+    {
+        this.incrementalAutosave = incrementalAutosave;
+    }
+
     /**
      * Save settings
      */
@@ -104,6 +124,7 @@ public class AutosaveSettings
             this.properties.setProperty(AUTOSAVE_ENABLED, String.valueOf(isEnableAutosave()));
             this.properties.setProperty(AUTOSAVE_INTERVAL, String.valueOf(getAutosaveInterval()));
             this.properties.setProperty(AUTOSAVE_PATH, getAutosavePath());
+            this.properties.setProperty(AUTOSAVE_INCREMENTAL, String.valueOf(isIncrementalAutosave()));
             this.properties.store(output, null);
 
         }
@@ -147,6 +168,7 @@ public class AutosaveSettings
             setEnableAutosave(Boolean.parseBoolean(this.properties.getProperty(AUTOSAVE_ENABLED, "true")));
             setAutosaveInterval(Integer.parseInt((this.properties.getProperty(AUTOSAVE_INTERVAL, "10"))));
             setAutosavePath(this.properties.getProperty(AUTOSAVE_PATH, System.getProperty("user.home")+ File.separator + "VioletUML"));
+            setIncrementalAutosave(Boolean.parseBoolean(this.properties.getProperty(AUTOSAVE_INCREMENTAL, "false")));
         }
         catch (IOException io)
         {
@@ -107,6 +107,71 @@ public class MainFrame extends JFrame implements IAutoSave
         tabbedPane.repaint();
     }
 
+    /**
+     * Adds a tab telling that a diagram is being loaded. It will be replaced by the diagram workspace.
+     *
+     * @param title tab title
+     * @param isSelected true to show this tab
+     * @return tab content, to be given to replaceLoadingTab() or removeLoadingTab()
+     */
+    public Component addLoadingTab(final String title, final boolean isSelected)
+    {
+        initTabbedPane();
+        final JLabel loadingTab = new JLabel(this.loadingText.replace(LOADING_TEXT_FILE_KEY, title), JLabel.CENTER);
+        this.loadingTabs.add(loadingTab);
+        this.tabbedPane.addTab(title, loadingTab);
+        final int newTabIndex = tabbedPane.indexOfComponent(loadingTab);
+        tabbedPane.setTabComponentAt(newTabIndex, new CloseableTabComponent(tabbedPane));
+        if (isSelected)
+        {
+            tabbedPane.setSelectedIndex(newTabIndex);
+        }
+        return loadingTab;
+    }
+
+    /**
+     * Shows a loaded diagram at the place of its loading tab
+     *
+     * @param loadingTab returned by addLoadingTab()
+     * @param workspace loaded diagram workspace
+     * @return false if the loading tab has been closed meanwhile (the workspace isn't added)
+     */
+    public boolean replaceLoadingTab(final Component loadingTab, final IWorkspace workspace)
+    {
+        this.loadingTabs.remove(loadingTab);
+        final int index = tabbedPane.indexOfComponent(loadingTab);
+        if (index == -1)
+        {
+            return false;
+        }
+        workspaceList.add(workspace);
+        tabbedPane.setComponentAt(index, workspace.getAWTComponent());
+        tabbedPane.setTitleAt(index, workspace.getTitle());
+        if (tabbedPane.getSelectedIndex() == index)
+        {
+            setActiveWorkspace(workspace);
+        }
+        else
+        {
+            // The document menu lists all the workspaces
+            getMenuFactory().getDocumentMenu(this).updateMenuItem();
+        }
+        tabbedPane.revalidate();
+        tabbedPane.repaint();
+        return true;
+    }
+
+    /**
+     * Removes a loading tab (when the diagram cannot be loaded)
+     *
+     * @param loadingTab returned by addLoadingTab()
+     */
+    public void removeLoadingTab(final Component loadingTab)
+    {
+        this.loadingTabs.remove(loadingTab);
+        tabbedPane.remove(loadingTab);
+    }
+
     /**
      * Close tab with specified workspace
      *
@@ -370,7 +435,7 @@ public class MainFrame extends JFrame implements IAutoSave
         public void stateChanged(final ChangeEvent e)
         {
             final int index = tabbedPane.getSelectedIndex();
-            if (index != -1)
+            if (index != -1 && !loadingTabs.contains(tabbedPane.getComponentAt(index)))
             {
                 final IWorkspace workspace = getWorkspaceAt(index);
                 setActiveWorkspace(workspace);
@@ -451,6 +516,12 @@ public class MainFrame extends JFrame implements IAutoSave
          */
         private void closeTab(final int index)
         {
+            if (index != -1 && loadingTabs.contains(tabbedPane.getComponentAt(index)))
+            {
+                // The diagram will be dropped when loaded
+                removeLoadingTab(tabbedPane.getComponentAt(index));
+                return;
+            }
             if (index != -1)
             {
                 final IWorkspace workspace = getWorkspaceAt(index);
@@ -501,6 +572,16 @@ public class MainFrame extends JFrame implements IAutoSave
     @ResourceBundleBean(key = "delete.icon")
     private Image tabCloseImage;
 
+    @ResourceBundleBean(key = "tab.loading.text")
+    private String loadingText;
+
+    private static final String LOADING_TEXT_FILE_KEY = "${file}";
+
+    /**
+     * Contents of the tabs of diagrams being loaded
+     */
+    private final List<Component> loadingTabs = new ArrayList<Component>();
+
 
     /**
      * All disgram workspaces
@@ -467,6 +467,7 @@ public class FileMenu extends JMenu
                             {
                                 graphFile.save();
                             }
+                            graphFile.waitForPendingSaves();
                             if (!graphFile.isSaveRequired())
                             {
                                 mainFrame.closeTabWithWorkspace(workspace);